@@ -27,6 +27,7 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.function.Function;
 
 class AmbariClientCommon {
 
@@ -38,16 +39,17 @@ class AmbariClientCommon {
     static final String AMBARI_SERVICECONFIGS_URI =
                                     AMBARI_CLUSTERS_URI + "/%s/configurations/service_config_versions?is_current=true";
 
-    private RESTInvoker restClient;
+    // Provides the RESTInvoker for a given Ambari address
+    private Function<String, RESTInvoker> restClients;
 
 
     AmbariClientCommon(GatewayConfig config, AliasService aliasService, KeystoreService keystoreService) {
-        this(new RESTInvoker(config, aliasService, keystoreService));
+        this.restClients = address -> RESTInvoker.getSharedInvoker(address, config, aliasService, keystoreService);
     }
 
 
     AmbariClientCommon(RESTInvoker restInvoker) {
-        this.restClient = restInvoker;
+        this.restClients = address -> restInvoker;
     }
 
 
@@ -75,7 +77,8 @@ class AmbariClientCommon {
 
         String serviceConfigsURL = String.format(Locale.ROOT,"%s" + AMBARI_SERVICECONFIGS_URI, discoveryAddress, clusterName);
 
-        JSONObject serviceConfigsJSON = restClient.invoke(serviceConfigsURL, discoveryUser, discoveryPwdAlias);
+        JSONObject serviceConfigsJSON =
+                restClients.apply(discoveryAddress).invoke(serviceConfigsURL, discoveryUser, discoveryPwdAlias);
         if (serviceConfigsJSON != null) {
             // Process the service configurations
             JSONArray serviceConfigs = (JSONArray) serviceConfigsJSON.get("items");
@@ -18,6 +18,7 @@ package org.apache.knox.gateway.topology.discovery.ambari;
 
 import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.services.ServiceType;
@@ -46,6 +47,13 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 class AmbariServiceDiscovery implements ServiceDiscovery {
 
@@ -70,6 +78,14 @@ class AmbariServiceDiscovery implements ServiceDiscovery {
 
     private static final AmbariServiceDiscoveryMessages log = MessagesFactory.get(AmbariServiceDiscoveryMessages.class);
 
+    private static final int FETCH_THREADS = 4;
+
+    // Discoveries in progress, so that concurrent discoveries of the same cluster share a single set of requests
+    private static final Map<String, CompletableFuture<AmbariCluster>> discoveriesInProgress = new ConcurrentHashMap<>();
+
+    // Shared by all the discovery instances, to bound the number of concurrent requests sent to Ambari
+    private static ExecutorService fetchExecutor;
+
     // Map of component names to service configuration types
     private static Map<String, String> componentServiceConfigs = new HashMap<>();
     static {
@@ -83,7 +99,6 @@ class AmbariServiceDiscovery implements ServiceDiscovery {
     private KeystoreService keystoreService;
 
     private RESTInvoker restClient;
-    private AmbariClientCommon ambariClient;
 
     // This is used to update the monitor when new cluster configuration details are discovered.
     private AmbariConfigurationMonitor configChangeMonitor;
@@ -145,15 +160,12 @@ class AmbariServiceDiscovery implements ServiceDiscovery {
 
     /**
      * Initialization must be subsequent to construction because the AliasService member isn't assigned until after
-     * construction time. This is called internally prior to discovery invocations to make sure the clients have been
-     * initialized.
+     * construction time. This is called internally prior to discovery invocations to make sure the configuration
+     * change monitor has been resolved. Unless one was specified at construction time, the RESTInvoker is resolved
+     * per discovery, since it is shared by all the interactions with the same Ambari instance.
      */
-    private void init(GatewayConfig config) {
+    private void init() {
         if (!isInitialized) {
-            if (this.restClient == null) {
-                this.restClient = new RESTInvoker(config, aliasService, keystoreService);
-            }
-            this.ambariClient = new AmbariClientCommon(restClient);
             this.configChangeMonitor = getConfigurationChangeMonitor();
 
             isInitialized = true;
@@ -225,105 +237,166 @@ class AmbariServiceDiscovery implements ServiceDiscovery {
 
         // There must be a discovery address and cluster or discovery cannot be performed
         if (discoveryAddress != null && clusterName != null) {
-            cluster = new AmbariCluster(clusterName);
+            init();
+
+            // Concurrent discoveries of the same cluster, such as those for the descriptors which reference it, share
+            // a single set of requests
+            final String discoveryKey = discoveryAddress + "|" + clusterName + "|" + discoveryUser + "|" + discoveryPwdAlias;
+            final CompletableFuture<AmbariCluster> discovery = new CompletableFuture<>();
+            final CompletableFuture<AmbariCluster> inProgress = discoveriesInProgress.putIfAbsent(discoveryKey, discovery);
+            if (inProgress != null) {
+                log.awaitingClusterDiscovery(clusterName);
+                return await(inProgress);
+            }
 
-            String encodedClusterName;
             try {
-                encodedClusterName = URLEncoder.encode(clusterName, StandardCharsets.UTF_8.name());
-            } catch (UnsupportedEncodingException e) {
-                e.printStackTrace(); // TODO: Logging
-                encodedClusterName = clusterName;
+                RESTInvoker client = (restClient != null) ? restClient
+                            : RESTInvoker.getSharedInvoker(discoveryAddress, gatewayConfig, aliasService, keystoreService);
+                cluster = discover(client, discoveryAddress, clusterName, discoveryUser, discoveryPwdAlias);
+                discovery.complete(cluster);
+            } catch (RuntimeException e) {
+                discovery.completeExceptionally(e);
+                throw e;
+            } finally {
+                discoveriesInProgress.remove(discoveryKey, discovery);
             }
 
-            Map<String, String> serviceComponents = new HashMap<>();
-
-            init(gatewayConfig);
-
-            Map<String, List<String>> componentHostNames = new HashMap<>();
-            String hostRolesURL =
-                        String.format(Locale.ROOT, "%s" + AMBARI_HOSTROLES_URI, discoveryAddress, encodedClusterName);
-            JSONObject hostRolesJSON = restClient.invoke(hostRolesURL, discoveryUser, discoveryPwdAlias);
-            if (hostRolesJSON != null) {
-                // Process the host roles JSON
-                JSONArray items = (JSONArray) hostRolesJSON.get("items");
-                for (Object obj : items) {
-                    JSONArray components = (JSONArray) ((JSONObject) obj).get("components");
-                    for (Object component : components) {
-                        JSONArray hostComponents = (JSONArray) ((JSONObject) component).get("host_components");
-                        for (Object hostComponent : hostComponents) {
-                            JSONObject hostRoles = (JSONObject) ((JSONObject) hostComponent).get("HostRoles");
-                            String serviceName = (String) hostRoles.get("service_name");
-                            String componentName = (String) hostRoles.get("component_name");
-
-                            serviceComponents.put(componentName, serviceName);
-
-                            // Assuming public host name is more applicable than host_name
-                            String hostName = (String) hostRoles.get("public_host_name");
-                            if (hostName == null) {
-                                // Some (even slightly) older versions of Ambari/HDP do not return public_host_name,
-                                // so fall back to host_name in those cases.
-                                hostName = (String) hostRoles.get("host_name");
-                            }
+            if (configChangeMonitor != null) {
+                // Notify the cluster config monitor about these cluster configuration details
+                configChangeMonitor.addClusterConfigVersions(cluster, config);
+            }
+        }
 
-                            if (hostName != null) {
-                                log.discoveredServiceHost(serviceName, hostName);
-                                if (!componentHostNames.containsKey(componentName)) {
-                                    componentHostNames.put(componentName, new ArrayList<>());
-                                }
-                                // Avoid duplicates
-                                if (!componentHostNames.get(componentName).contains(hostName)) {
-                                    componentHostNames.get(componentName).add(hostName);
-                                }
+        return cluster;
+    }
+
+    private AmbariCluster discover(RESTInvoker client,
+                                   String      discoveryAddress,
+                                   String      clusterName,
+                                   String      discoveryUser,
+                                   String      discoveryPwdAlias) {
+        AmbariCluster cluster = new AmbariCluster(clusterName);
+
+        String encodedClusterName;
+        try {
+            encodedClusterName = URLEncoder.encode(clusterName, StandardCharsets.UTF_8.name());
+        } catch (UnsupportedEncodingException e) {
+            e.printStackTrace(); // TODO: Logging
+            encodedClusterName = clusterName;
+        }
+
+        // Request the service configurations while the host roles are requested
+        final String configsClusterName = encodedClusterName;
+        final AmbariClientCommon ambariClient = new AmbariClientCommon(client);
+        final CompletableFuture<Map<String, Map<String, AmbariCluster.ServiceConfiguration>>> serviceConfigsFetch =
+            CompletableFuture.supplyAsync(() -> ambariClient.getActiveServiceConfigurations(discoveryAddress,
+                                                                                           configsClusterName,
+                                                                                           discoveryUser,
+                                                                                           discoveryPwdAlias),
+                                          getFetchExecutor());
+
+        Map<String, String> serviceComponents = new HashMap<>();
+
+        Map<String, List<String>> componentHostNames = new HashMap<>();
+        String hostRolesURL =
+                    String.format(Locale.ROOT, "%s" + AMBARI_HOSTROLES_URI, discoveryAddress, encodedClusterName);
+        JSONObject hostRolesJSON = client.invoke(hostRolesURL, discoveryUser, discoveryPwdAlias);
+        if (hostRolesJSON != null) {
+            // Process the host roles JSON
+            JSONArray items = (JSONArray) hostRolesJSON.get("items");
+            for (Object obj : items) {
+                JSONArray components = (JSONArray) ((JSONObject) obj).get("components");
+                for (Object component : components) {
+                    JSONArray hostComponents = (JSONArray) ((JSONObject) component).get("host_components");
+                    for (Object hostComponent : hostComponents) {
+                        JSONObject hostRoles = (JSONObject) ((JSONObject) hostComponent).get("HostRoles");
+                        String serviceName = (String) hostRoles.get("service_name");
+                        String componentName = (String) hostRoles.get("component_name");
+
+                        serviceComponents.put(componentName, serviceName);
+
+                        // Assuming public host name is more applicable than host_name
+                        String hostName = (String) hostRoles.get("public_host_name");
+                        if (hostName == null) {
+                            // Some (even slightly) older versions of Ambari/HDP do not return public_host_name,
+                            // so fall back to host_name in those cases.
+                            hostName = (String) hostRoles.get("host_name");
+                        }
+
+                        if (hostName != null) {
+                            log.discoveredServiceHost(serviceName, hostName);
+                            if (!componentHostNames.containsKey(componentName)) {
+                                componentHostNames.put(componentName, new ArrayList<>());
+                            }
+                            // Avoid duplicates
+                            if (!componentHostNames.get(componentName).contains(hostName)) {
+                                componentHostNames.get(componentName).add(hostName);
                             }
                         }
                     }
                 }
             }
+        }
 
-            // Service configurations
-            Map<String, Map<String, AmbariCluster.ServiceConfiguration>> serviceConfigurations =
-                ambariClient.getActiveServiceConfigurations(discoveryAddress,
-                                                            encodedClusterName,
-                                                            discoveryUser,
-                                                            discoveryPwdAlias);
-            if (serviceConfigurations.isEmpty()) {
-                log.failedToAccessServiceConfigs(clusterName);
-            }
-            for (Entry<String, Map<String, AmbariCluster.ServiceConfiguration>> serviceConfiguration : serviceConfigurations.entrySet()) {
-                for (Map.Entry<String, AmbariCluster.ServiceConfiguration> serviceConfig : serviceConfiguration.getValue().entrySet()) {
-                    cluster.addServiceConfiguration(serviceConfiguration.getKey(), serviceConfig.getKey(), serviceConfig.getValue());
-                }
+        // Service configurations
+        Map<String, Map<String, AmbariCluster.ServiceConfiguration>> serviceConfigurations = await(serviceConfigsFetch);
+        if (serviceConfigurations.isEmpty()) {
+            log.failedToAccessServiceConfigs(clusterName);
+        }
+        for (Entry<String, Map<String, AmbariCluster.ServiceConfiguration>> serviceConfiguration : serviceConfigurations.entrySet()) {
+            for (Map.Entry<String, AmbariCluster.ServiceConfiguration> serviceConfig : serviceConfiguration.getValue().entrySet()) {
+                cluster.addServiceConfiguration(serviceConfiguration.getKey(), serviceConfig.getKey(), serviceConfig.getValue());
             }
+        }
 
-            // Construct the AmbariCluster model
-            for (Entry<String, String> entry : serviceComponents.entrySet()) {
-                String componentName = entry.getKey();
-                String serviceName = entry.getValue();
-                List<String> hostNames = componentHostNames.get(componentName);
-
-                Map<String, AmbariCluster.ServiceConfiguration> configs = serviceConfigurations.get(serviceName);
-                String configType = componentServiceConfigs.get(componentName);
-                if (configType != null) {
-                    AmbariCluster.ServiceConfiguration svcConfig = configs.get(configType);
-                    if (svcConfig != null) {
-                        AmbariComponent c = new AmbariComponent(componentName,
-                                                                svcConfig.getVersion(),
-                                                                encodedClusterName,
-                                                                serviceName,
-                                                                hostNames,
-                                                                svcConfig.getProperties());
-                        cluster.addComponent(c);
-                    }
+        // Construct the AmbariCluster model
+        for (Entry<String, String> entry : serviceComponents.entrySet()) {
+            String componentName = entry.getKey();
+            String serviceName = entry.getValue();
+            List<String> hostNames = componentHostNames.get(componentName);
+
+            Map<String, AmbariCluster.ServiceConfiguration> configs = serviceConfigurations.get(serviceName);
+            String configType = componentServiceConfigs.get(componentName);
+            if (configType != null) {
+                AmbariCluster.ServiceConfiguration svcConfig = configs.get(configType);
+                if (svcConfig != null) {
+                    AmbariComponent c = new AmbariComponent(componentName,
+                                                            svcConfig.getVersion(),
+                                                            encodedClusterName,
+                                                            serviceName,
+                                                            hostNames,
+                                                            svcConfig.getProperties());
+                    cluster.addComponent(c);
                 }
             }
+        }
 
-            if (configChangeMonitor != null) {
-                // Notify the cluster config monitor about these cluster configuration details
-                configChangeMonitor.addClusterConfigVersions(cluster, config);
+        return cluster;
+    }
+
+    /**
+     * Wait for the completion of the specified fetch or discovery, propagating any exception it completed with.
+     */
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw e;
         }
+    }
 
-        return cluster;
+    private static synchronized ExecutorService getFetchExecutor() {
+        if (fetchExecutor == null) {
+            final ThreadPoolExecutor executor =
+                new ThreadPoolExecutor(FETCH_THREADS, FETCH_THREADS, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                       new BasicThreadFactory.Builder().namingPattern("ambari-discovery-%d").daemon(true).build());
+            executor.allowCoreThreadTimeOut(true);
+            fetchExecutor = executor;
+        }
+        return fetchExecutor;
     }
 
     @Override
@@ -153,4 +153,12 @@ public interface AmbariServiceDiscoveryMessages {
     @Message(level = MessageLevel.WARN,
              text = "The declared nameservice {0} is not defined in the HDFS configuration.")
     void undefinedHDFSNameService(String nameservice);
+
+    @Message(level = MessageLevel.DEBUG,
+             text = "The Ambari response to {0} has not changed since it was last requested")
+    void responseNotModified(String url);
+
+    @Message(level = MessageLevel.DEBUG,
+             text = "Awaiting the discovery of the {0} cluster, which is already in progress")
+    void awaitingClusterDiscovery(String clusterName);
 }
@@ -18,7 +18,9 @@ package org.apache.knox.gateway.topology.discovery.ambari;
 
 import net.minidev.json.JSONObject;
 import net.minidev.json.JSONValue;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
 import org.apache.http.HttpStatus;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
@@ -39,6 +41,8 @@ import org.apache.knox.gateway.util.TruststoreSSLContextUtils;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 class RESTInvoker {
 
@@ -49,12 +53,37 @@ class RESTInvoker {
 
     private static final int DEFAULT_TIMEOUT = 10000;
 
+    // Clients shared by the discoveries and the monitoring of the clusters managed by the same Ambari instance,
+    // keyed by the address of that instance
+    private static final Map<String, RESTInvoker> sharedInvokers = new ConcurrentHashMap<>();
+
     private AliasService aliasService;
 
     private KeystoreService keystoreService;
 
     private CloseableHttpClient httpClient;
 
+    // The most recent response to each request for which Ambari provided an ETag, keyed by user and URL
+    private final Map<String, CachedResponse> responseCache = new ConcurrentHashMap<>();
+
+    /**
+     * Get the RESTInvoker shared by all the interactions with the specified Ambari instance, so that its responses
+     * are revalidated rather than fetched and parsed again, no matter how many descriptors reference its clusters.
+     *
+     * @param address         The address of the Ambari instance
+     * @param config          The gateway configuration
+     * @param aliasService    The AliasService to use for resolving the credentials
+     * @param keystoreService The KeystoreService to use for the truststore
+     *
+     * @return The shared RESTInvoker
+     */
+    static RESTInvoker getSharedInvoker(String address,
+                                        GatewayConfig config,
+                                        AliasService aliasService,
+                                        KeystoreService keystoreService) {
+        return sharedInvokers.computeIfAbsent(address, a -> new RESTInvoker(config, aliasService, keystoreService));
+    }
+
     RESTInvoker(AliasService aliasService, KeystoreService keystoreService) {
         this(null, aliasService, keystoreService);
     }
@@ -145,15 +174,32 @@ class RESTInvoker {
             // Ambari CSRF protection
             request.addHeader("X-Requested-By", "Knox");
 
+            // Revalidate the previous response, if there is one
+            final String cacheKey = username + "@" + url;
+            final CachedResponse cached = responseCache.get(cacheKey);
+            if (cached != null) {
+                request.addHeader(HttpHeaders.IF_NONE_MATCH, cached.etag);
+            }
+
             try(CloseableHttpResponse response = httpClient.execute(request)){
               if (HttpStatus.SC_OK == response.getStatusLine().getStatusCode()) {
                 HttpEntity entity = response.getEntity();
                 if (entity != null) {
                   result = (JSONObject) JSONValue.parse((EntityUtils.toString(entity)));
                   log.debugJSON(result.toJSONString());
+
+                  Header etag = response.getFirstHeader(HttpHeaders.ETAG);
+                  if (etag != null && result != null) {
+                    responseCache.put(cacheKey, new CachedResponse(etag.getValue(), result));
+                  } else {
+                    responseCache.remove(cacheKey);
+                  }
                 } else {
                   log.noJSON(url);
                 }
+              } else if (HttpStatus.SC_NOT_MODIFIED == response.getStatusLine().getStatusCode() && cached != null) {
+                log.responseNotModified(url);
+                result = cached.json;
               } else {
                 log.unexpectedRestResponseStatusCode(url, response.getStatusLine().getStatusCode());
               }
@@ -165,4 +211,14 @@ class RESTInvoker {
         }
         return result;
     }
+
+    private static final class CachedResponse {
+        private final String etag;
+        private final JSONObject json;
+
+        CachedResponse(String etag, JSONObject json) {
+            this.etag = etag;
+            this.json = json;
+        }
+    }
 }
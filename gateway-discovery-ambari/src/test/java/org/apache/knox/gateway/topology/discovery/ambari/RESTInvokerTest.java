@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.topology.discovery.ambari;
+
+import net.minidev.json.JSONObject;
+import org.apache.knox.gateway.services.security.AliasService;
+import org.easymock.EasyMock;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the revalidation of Ambari responses against a local HTTP server.
+ */
+public class RESTInvokerTest {
+
+    private static final String PATH = "/api/v1/clusters/myCluster/configurations/service_config_versions";
+
+    // The If-None-Match header of each request received by the server
+    private final List<String> conditions = new CopyOnWriteArrayList<>();
+
+    private volatile String etag;
+    private volatile String content = "{\"items\":[]}";
+
+    private Server server;
+    private String url;
+    private RESTInvoker invoker;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new Server(0);
+        server.setHandler(new AbstractHandler() {
+            @Override
+            public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+                throws IOException {
+                String condition = request.getHeader("If-None-Match");
+                conditions.add(String.valueOf(condition));
+                if (etag != null && etag.equals(condition)) {
+                    response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                } else {
+                    if (etag != null) {
+                        response.setHeader("ETag", etag);
+                    }
+                    response.setContentType("application/json");
+                    response.getOutputStream().write(content.getBytes(StandardCharsets.UTF_8));
+                }
+                baseRequest.setHandled(true);
+            }
+        });
+        server.start();
+        url = "http://localhost:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort() + PATH;
+
+        AliasService aliasService = EasyMock.createNiceMock(AliasService.class);
+        EasyMock.expect(aliasService.getPasswordFromAliasForGateway(EasyMock.anyString()))
+                .andReturn("password".toCharArray())
+                .anyTimes();
+        EasyMock.replay(aliasService);
+        invoker = new RESTInvoker(aliasService, null);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.stop();
+    }
+
+    @Test
+    public void testUnmodifiedResponseIsReused() {
+        etag = "\"v1\"";
+
+        JSONObject first = invoker.invoke(url, "admin", null);
+        assertNotNull(first);
+        JSONObject second = invoker.invoke(url, "admin", null);
+        assertSame(first, second);
+
+        assertEquals(2, conditions.size());
+        assertEquals("null", conditions.get(0));
+        assertEquals(etag, conditions.get(1));
+    }
+
+    @Test
+    public void testModifiedResponseReplacesPreviousResponse() {
+        etag = "\"v1\"";
+        JSONObject first = invoker.invoke(url, "admin", null);
+
+        etag = "\"v2\"";
+        content = "{\"items\":[{\"service_name\":\"HDFS\",\"configurations\":[]}]}";
+        JSONObject second = invoker.invoke(url, "admin", null);
+        assertNotSame(first, second);
+        assertEquals(1, ((List<?>) second.get("items")).size());
+
+        // The modified response is the one revalidated subsequently
+        assertSame(second, invoker.invoke(url, "admin", null));
+        assertEquals("\"v1\"", conditions.get(1));
+        assertEquals("\"v2\"", conditions.get(2));
+    }
+
+    @Test
+    public void testResponsesAreNotSharedAcrossUsers() {
+        etag = "\"v1\"";
+        invoker.invoke(url, "admin", null);
+        invoker.invoke(url, "other", null);
+        assertEquals("null", conditions.get(1));
+    }
+
+    @Test
+    public void testResponseWithoutETagIsNotRevalidated() {
+        JSONObject first = invoker.invoke(url, "admin", null);
+        JSONObject second = invoker.invoke(url, "admin", null);
+        assertNotSame(first, second);
+        assertEquals("null", conditions.get(1));
+    }
+}
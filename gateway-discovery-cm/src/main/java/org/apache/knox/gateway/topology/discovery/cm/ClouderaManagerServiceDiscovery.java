@@ -25,6 +25,7 @@ import com.cloudera.api.swagger.model.ApiRoleList;
 import com.cloudera.api.swagger.model.ApiService;
 import com.cloudera.api.swagger.model.ApiServiceConfig;
 import com.cloudera.api.swagger.model.ApiServiceList;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.knox.gateway.GatewayServer;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
@@ -49,6 +50,16 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 
@@ -83,6 +94,12 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
     }
   }
 
+  // Discoveries in progress, so that concurrent discoveries of the same cluster share a single set of requests
+  private static final Map<String, CompletableFuture<ClouderaManagerCluster>> discoveriesInProgress = new ConcurrentHashMap<>();
+
+  // Shared by all the discovery instances, to bound the number of concurrent requests sent to Cloudera Manager
+  private static ExecutorService fetchExecutor;
+
   private boolean debug;
 
   private AliasService aliasService;
@@ -95,6 +112,7 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
   private final AtomicInteger retryAttempts = new AtomicInteger(0);
   private final int retrySleepSeconds = 3;  // It's been agreed that we not expose this config
   private int maxRetryAttempts = -1;
+  private int fetchThreads = GatewayConfig.DEFAULT_CM_SERVICE_DISCOVERY_THREADS;
 
   ClouderaManagerServiceDiscovery(GatewayConfig gatewayConfig) {
     this(false, gatewayConfig);
@@ -112,6 +130,9 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
     if (gatewayConfig != null) {
       repository.setCacheEntryTTL(gatewayConfig.getClouderaManagerServiceDiscoveryRepositoryEntryTTL());
       configureRetryParams(gatewayConfig);
+      if (gatewayConfig.getClouderaManagerServiceDiscoveryThreads() > 0) {
+        fetchThreads = gatewayConfig.getClouderaManagerServiceDiscoveryThreads();
+      }
     }
   }
 
@@ -242,6 +263,29 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
 
   private ClouderaManagerCluster discoverCluster(DiscoveryApiClient client, String clusterName, Collection<String> includedServices)
       throws ApiException {
+    final String discoveryKey = client.getConfig().getAddress() + '|' + clusterName + '|'
+                                  + new TreeSet<>(includedServices == null ? Collections.<String>emptySet() : includedServices);
+    final CompletableFuture<ClouderaManagerCluster> discovery = new CompletableFuture<>();
+    final CompletableFuture<ClouderaManagerCluster> inProgress = discoveriesInProgress.putIfAbsent(discoveryKey, discovery);
+    if (inProgress != null) {
+      log.awaitingClusterDiscovery(clusterName);
+      return await(inProgress);
+    }
+
+    try {
+      final ClouderaManagerCluster cluster = doDiscoverCluster(client, clusterName, includedServices);
+      discovery.complete(cluster);
+      return cluster;
+    } catch (ApiException | RuntimeException e) {
+      discovery.completeExceptionally(e);
+      throw e;
+    } finally {
+      discoveriesInProgress.remove(discoveryKey, discovery);
+    }
+  }
+
+  private ClouderaManagerCluster doDiscoverCluster(DiscoveryApiClient client, String clusterName, Collection<String> includedServices)
+      throws ApiException {
     ServicesResourceApi servicesResourceApi = new ServicesResourceApi(client);
     RolesResourceApi rolesResourceApi = new RolesResourceApi(client);
 
@@ -264,36 +308,34 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
       cmService.setType(CM_SERVICE_TYPE);
       serviceList.add(cmService);
 
+      final List<DiscoveredService> services = new ArrayList<>();
       for (ApiService service : serviceList) {
         final List<ServiceModelGenerator> modelGenerators = serviceModelGenerators.get(service.getType());
         if (shouldSkipServiceDiscovery(modelGenerators, includedServices)) {
           log.skipServiceDiscovery(service.getName(), service.getType());
           continue;
         }
+        services.add(new DiscoveredService(service, modelGenerators));
+      }
+
+      fetchConfigurations(client, servicesResourceApi, rolesResourceApi, clusterName, services);
+
+      for (DiscoveredService discovered : services) {
+        final ApiService service = discovered.service;
         log.discoveringService(service.getName(), service.getType());
-        ApiServiceConfig serviceConfig = null;
-        /* no reason to check service config for CM service */
-        if(!CM_SERVICE_TYPE.equals(service.getType())) {
-          serviceConfig = getServiceConfig(client.getConfig(), servicesResourceApi, service);
-        }
-        ApiRoleList roleList = getRoles(client.getConfig(), rolesResourceApi, clusterName, service);
-        if (roleList != null) {
-          for (ApiRole role : roleList.getItems()) {
+        if (discovered.roles != null) {
+          for (ApiRole role : discovered.roles.getItems()) {
             String roleName = role.getName();
             log.discoveringServiceRole(roleName, role.getType());
 
-            ApiConfigList roleConfig = null;
-            /* no reason to check role config for CM service */
-            if (!CM_SERVICE_TYPE.equals(service.getType())) {
-              roleConfig = getRoleConfig(client.getConfig(), rolesResourceApi, service, role);
-            }
-
-            if (modelGenerators != null) {
-              for (ServiceModelGenerator serviceModelGenerator : modelGenerators) {
-                ServiceModelGeneratorHandleResponse response = serviceModelGenerator.handles(service, serviceConfig, role, roleConfig);
+            ApiConfigList roleConfig = discovered.roleConfigs.get(roleName);
+            if (discovered.modelGenerators != null) {
+              for (ServiceModelGenerator serviceModelGenerator : discovered.modelGenerators) {
+                ServiceModelGeneratorHandleResponse response =
+                    serviceModelGenerator.handles(service, discovered.serviceConfig, role, roleConfig);
                 if (response.handled()) {
                   serviceModelGenerator.setApiClient(client);
-                  ServiceModel serviceModel = serviceModelGenerator.generateService(service, serviceConfig, role, roleConfig);
+                  ServiceModel serviceModel = serviceModelGenerator.generateService(service, discovered.serviceConfig, role, roleConfig);
                   serviceModels.add(serviceModel);
                 } else if (!response.getConfigurationIssues().isEmpty()) {
                   log.serviceRoleHasConfigurationIssues(roleName, String.join(";", response.getConfigurationIssues()));
@@ -314,6 +356,111 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
     return null;
   }
 
+  /**
+   * Fetch the configuration and the roles of the specified services, followed by the configuration of those roles
+   * which was not already part of the role listings, with a bounded number of requests in flight.
+   */
+  private void fetchConfigurations(DiscoveryApiClient      client,
+                                   ServicesResourceApi     servicesResourceApi,
+                                   RolesResourceApi        rolesResourceApi,
+                                   String                  clusterName,
+                                   List<DiscoveredService> services) throws ApiException {
+    final long start = System.nanoTime();
+    final ServiceDiscoveryConfig discoveryConfig = client.getConfig();
+
+    final List<Callable<Void>> serviceTasks = new ArrayList<>();
+    for (DiscoveredService discovered : services) {
+      serviceTasks.add(() -> {
+        /* no reason to check service config for CM service */
+        if (!CM_SERVICE_TYPE.equals(discovered.service.getType())) {
+          discovered.serviceConfig = getServiceConfig(discoveryConfig, servicesResourceApi, discovered.service);
+        }
+        discovered.roles = getRoles(discoveryConfig, rolesResourceApi, clusterName, discovered.service);
+        return null;
+      });
+    }
+    invokeAll(serviceTasks);
+
+    int roleCount = 0;
+    final List<Callable<Void>> roleTasks = new ArrayList<>();
+    for (DiscoveredService discovered : services) {
+      /* no reason to check role config for CM service */
+      if (discovered.roles != null && !CM_SERVICE_TYPE.equals(discovered.service.getType())) {
+        for (ApiRole role : discovered.roles.getItems()) {
+          roleCount++;
+          if (hasFullConfig(role)) {
+            discovered.roleConfigs.put(role.getName(), role.getConfig());
+            continue;
+          }
+          roleTasks.add(() -> {
+            ApiConfigList roleConfig = getRoleConfig(discoveryConfig, rolesResourceApi, discovered.service, role);
+            if (roleConfig != null) {
+              discovered.roleConfigs.put(role.getName(), roleConfig);
+            }
+            return null;
+          });
+        }
+      }
+    }
+    invokeAll(roleTasks);
+
+    log.fetchedClusterConfiguration(services.size(), roleCount, clusterName,
+                                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  private void invokeAll(List<Callable<Void>> tasks) throws ApiException {
+    if (tasks.size() == 1) {
+      // Not worth handing off to another thread
+      try {
+        tasks.get(0).call();
+      } catch (ApiException | RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new ApiException(e);
+      }
+    } else if (!tasks.isEmpty()) {
+      final List<Future<Void>> results;
+      try {
+        results = getFetchExecutor(fetchThreads).invokeAll(tasks);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new ApiException(e);
+      }
+      for (Future<Void> result : results) {
+        await(result);
+      }
+    }
+  }
+
+  private static <T> T await(Future<T> future) throws ApiException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ApiException(e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof ApiException) {
+        throw (ApiException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new ApiException(cause);
+    }
+  }
+
+  private static synchronized ExecutorService getFetchExecutor(int threads) {
+    if (fetchExecutor == null) {
+      final ThreadPoolExecutor executor =
+          new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                                 new BasicThreadFactory.Builder().namingPattern("cm-discovery-%d").daemon(true).build());
+      executor.allowCoreThreadTimeOut(true);
+      fetchExecutor = executor;
+    }
+    return fetchExecutor;
+  }
+
   private boolean shouldSkipServiceDiscovery(List<ServiceModelGenerator> modelGenerators, Collection<String> includedServices) {
     if (includedServices == null || includedServices.isEmpty()) {
       // per the contract of org.apache.knox.gateway.topology.discovery.ServiceDiscovery.discover(GatewayConfig, ServiceDiscoveryConfig, String, Collection<String>):
@@ -388,7 +535,8 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
           cmRole.setType(CM_ROLE_TYPE);
           roles.addItemsItem(cmRole);
         } else {
-          roles = rolesResourceApi.readRoles(clusterName, serviceName, "", VIEW_SUMMARY);
+          // The full view includes the configuration of every role, which saves a request per role
+          roles = rolesResourceApi.readRoles(clusterName, serviceName, "", VIEW_FULL);
         }
 
         // make sure that role is populated in the service discovery repository to avoid subsequent CM calls
@@ -402,6 +550,16 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
     return roles;
   }
 
+  /**
+   * @return true if the role listing included the role configuration, along with the metadata (such as the default
+   * values the service model generators fall back to) which is only part of the full view
+   */
+  public static boolean hasFullConfig(ApiRole role) {
+    final ApiConfigList config = role.getConfig();
+    return config != null && config.getItems() != null && !config.getItems().isEmpty()
+             && config.getItems().stream().allMatch(item -> item.getDisplayName() != null);
+  }
+
   private ApiConfigList getRoleConfig(ServiceDiscoveryConfig serviceDiscoveryConfig, RolesResourceApi rolesResourceApi, ApiService service, ApiRole role) throws ApiException {
     log.lookupRoleConfigsFromRepository();
     // first, try in the service discovery repository
@@ -424,8 +582,27 @@ public class ClouderaManagerServiceDiscovery implements ServiceDiscovery, Cluste
 
   @Override
   public void onConfigurationChange(String source, String clusterName) {
-    log.clearServiceDiscoveryRepository();
-    repository.clear();
+    if (source == null || clusterName == null) {
+      log.clearServiceDiscoveryRepository();
+      repository.clear();
+    } else {
+      // Only the details of the changed cluster are stale
+      log.clearClusterFromServiceDiscoveryRepository(clusterName, source);
+      repository.clear(source, clusterName);
+    }
+  }
+
+  private static final class DiscoveredService {
+    private final ApiService service;
+    private final List<ServiceModelGenerator> modelGenerators;
+    private final Map<String, ApiConfigList> roleConfigs = new ConcurrentHashMap<>();
+    private ApiServiceConfig serviceConfig;
+    private ApiRoleList roles;
+
+    DiscoveredService(ApiService service, List<ServiceModelGenerator> modelGenerators) {
+      this.service = service;
+      this.modelGenerators = modelGenerators;
+    }
   }
 
 }
@@ -34,6 +34,12 @@ public interface ClouderaManagerServiceDiscoveryMessages {
   @Message(level = MessageLevel.INFO, text = "Performing cluster discovery for \"{0}\"")
   void discoveringCluster(String clusterName);
 
+  @Message(level = MessageLevel.INFO, text = "Awaiting the cluster discovery already in progress for \"{0}\"")
+  void awaitingClusterDiscovery(String clusterName);
+
+  @Message(level = MessageLevel.DEBUG, text = "Fetched the configuration of {0} services and {1} roles of cluster \"{2}\" in {3} ms")
+  void fetchedClusterConfiguration(int serviceCount, int roleCount, String clusterName, long millis);
+
   @Message(level = MessageLevel.INFO, text = "Discovering service: {0} ({1}) ...")
   void discoveringService(String serviceName, String serviceType);
 
@@ -217,6 +223,10 @@ public interface ClouderaManagerServiceDiscoveryMessages {
            text = "The {0} service configuration has changed, such that it has been enabled for proxying.")
   void serviceEnabled(String serviceName);
 
+  @Message(level = MessageLevel.DEBUG,
+           text = "Ignoring the activation of the {0} service, since no service URLs are discovered for services of type {1}.")
+  void ignoringUndiscoverableServiceActivation(String serviceName, String serviceType);
+
   @Message(level = MessageLevel.INFO, text = "Role type {0} has been removed.")
   void roleTypeRemoved(String roleType);
 
@@ -253,6 +263,9 @@ public interface ClouderaManagerServiceDiscoveryMessages {
   @Message(level = MessageLevel.DEBUG, text = "Clearing service discovery repository...")
   void clearServiceDiscoveryRepository();
 
+  @Message(level = MessageLevel.DEBUG, text = "Clearing cluster {0} @ {1} from the service discovery repository...")
+  void clearClusterFromServiceDiscoveryRepository(String clusterName, String address);
+
   @Message(level = MessageLevel.WARN, text = "The configured maximum retry attempts of {0} may overlap with the configured polling interval settings; using {1} retry attempts")
   void updateMaxRetryAttempts(int configured, int actual);
 }
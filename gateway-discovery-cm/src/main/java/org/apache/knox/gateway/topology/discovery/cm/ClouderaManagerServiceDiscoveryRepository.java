@@ -59,6 +59,10 @@ class ClouderaManagerServiceDiscoveryRepository {
     repository.clear();
   }
 
+  void clear(String address, String clusterName) {
+    repository.remove(new RepositoryKey(address, clusterName));
+  }
+
   void registerCluster(ServiceDiscoveryConfig serviceDiscoveryConfig) {
     repository.putIfAbsent(RepositoryKey.of(serviceDiscoveryConfig), Caffeine.newBuilder().expireAfterWrite(Duration.ofSeconds(cacheEntryTTL)).build());
   }
@@ -156,7 +160,7 @@ class ClouderaManagerServiceDiscoveryRepository {
   }
 
   private static class ServiceDetails {
-    private ApiServiceConfig serviceConfig;
+    private volatile ApiServiceConfig serviceConfig;
     private Map<ApiRole, ApiConfigList> roleConfigsMap = new ConcurrentHashMap<>();
 
     public ApiServiceConfig getServiceConfig() {
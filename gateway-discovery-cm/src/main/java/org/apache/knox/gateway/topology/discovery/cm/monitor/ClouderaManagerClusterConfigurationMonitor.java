@@ -171,6 +171,9 @@ public class ClouderaManagerClusterConfigurationMonitor implements ClusterConfig
       }
     }
 
+    // Compute the fingerprints of the recorded properties, so they are persisted along with them
+    scpMap.values().forEach(ServiceConfigurationModel::getFingerprint);
+
     // Persist the service configurations
     serviceConfigStore.store(address, clusterName, scpMap);
 
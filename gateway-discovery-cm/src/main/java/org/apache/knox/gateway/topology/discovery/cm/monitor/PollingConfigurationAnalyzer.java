@@ -42,7 +42,9 @@ import org.apache.knox.gateway.services.topology.TopologyService;
 import org.apache.knox.gateway.topology.ClusterConfigurationMonitorService;
 import org.apache.knox.gateway.topology.discovery.ServiceDiscoveryConfig;
 import org.apache.knox.gateway.topology.discovery.cm.ClouderaManagerServiceDiscoveryMessages;
+import org.apache.knox.gateway.topology.discovery.cm.ClouderaManagerServiceDiscovery;
 import org.apache.knox.gateway.topology.discovery.cm.DiscoveryApiClient;
+import org.apache.knox.gateway.topology.discovery.cm.ServiceModelGenerator;
 import org.apache.knox.gateway.topology.simple.SimpleDescriptor;
 import org.apache.knox.gateway.topology.simple.SimpleDescriptorFactory;
 
@@ -55,9 +57,11 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
@@ -107,6 +111,15 @@ public class PollingConfigurationAnalyzer implements Runnable {
   // Fully-qualified cluster name delimiter
   private static final String FQCN_DELIM = "::";
 
+  // The ClouderaManager service types for which service URLs can be discovered
+  private static final Set<String> DISCOVERABLE_SERVICE_TYPES = new HashSet<>();
+
+  static {
+    for (ServiceModelGenerator generator : ServiceLoader.load(ServiceModelGenerator.class)) {
+      DISCOVERABLE_SERVICE_TYPES.add(generator.getServiceType());
+    }
+  }
+
   private ClusterConfigurationCache configCache;
 
   // Single listener for configuration change events
@@ -256,7 +269,7 @@ public class PollingConfigurationAnalyzer implements Runnable {
         if (serviceConfig != null) {
           // Get the current config for the started service, and compare with the previously-recorded config
           ServiceConfigurationModel currentConfig =
-                          getCurrentServiceConfiguration(address, clusterName, re.getService());
+                          getCurrentServiceConfiguration(address, clusterName, re.getService(), serviceConfig);
 
           if (currentConfig != null) {
             log.analyzingCurrentServiceConfiguration(re.getService());
@@ -266,12 +279,15 @@ public class PollingConfigurationAnalyzer implements Runnable {
               log.errorAnalyzingCurrentServiceConfiguration(re.getService(), e);
             }
           }
-        } else {
+        } else if (DISCOVERABLE_SERVICE_TYPES.contains(serviceType)) {
           // A new service (no prior config) represent a config change, since a descriptor may have referenced
           // the "new" service, but discovery had previously not succeeded because the service had not been
           // configured (appropriately) at that time.
           log.serviceEnabled(re.getService());
           configHasChanged = true;
+        } else {
+          // Re-discovery cannot yield any URLs for services of this type, so there is nothing to redeploy
+          log.ignoringUndiscoverableServiceActivation(re.getService(), serviceType);
         }
 
         handledServiceTypes.add(serviceType);
@@ -472,18 +488,22 @@ public class PollingConfigurationAnalyzer implements Runnable {
   }
 
   /**
-   * Get the current configuration for the specified service.
+   * Get the current configuration for the specified service, limited to the properties of those role types which were
+   * recorded for it. The service configuration is only requested if service properties were recorded, and the role
+   * configurations are taken from the full role listing whenever it includes them.
    *
    * @param address     The address of the ClouderaManager instance.
    * @param clusterName The name of the cluster.
    * @param service     The name of the service.
+   * @param recorded    The previously-recorded configuration of the service.
    *
    * @return A ServiceConfigurationModel object with the configuration properties associated with the specified
    * service.
    */
-  protected ServiceConfigurationModel getCurrentServiceConfiguration(final String address,
-                                                                     final String clusterName,
-                                                                     final String service) {
+  protected ServiceConfigurationModel getCurrentServiceConfiguration(final String                    address,
+                                                                     final String                    clusterName,
+                                                                     final String                    service,
+                                                                     final ServiceConfigurationModel recorded) {
     ServiceConfigurationModel currentConfig = null;
 
     log.gettingCurrentClusterConfiguration(service, clusterName, address);
@@ -491,14 +511,22 @@ public class PollingConfigurationAnalyzer implements Runnable {
     ApiClient apiClient = getApiClient(configCache.getDiscoveryConfig(address, clusterName));
     ServicesResourceApi api = new ServicesResourceApi(apiClient);
     try {
-      ApiServiceConfig svcConfig = api.readServiceConfig(clusterName, service, "full");
+      ApiServiceConfig svcConfig = null;
+      if (!recorded.getServiceProps().isEmpty()) {
+        svcConfig = api.readServiceConfig(clusterName, service, "full");
+      }
 
       Map<ApiRole, ApiConfigList> roleConfigs = new HashMap<>();
-      RolesResourceApi rolesApi = (new RolesResourceApi(apiClient));
-      ApiRoleList roles = rolesApi.readRoles(clusterName, service, "", "full");
-      for (ApiRole role : roles.getItems()) {
-        ApiConfigList config = rolesApi.readRoleConfig(clusterName, role.getName(), service, "full");
-        roleConfigs.put(role, config);
+      if (!recorded.getRoleTypes().isEmpty()) {
+        RolesResourceApi rolesApi = (new RolesResourceApi(apiClient));
+        ApiRoleList roles = rolesApi.readRoles(clusterName, service, "", "full");
+        for (ApiRole role : roles.getItems()) {
+          if (recorded.getRoleTypes().contains(role.getType())) {
+            ApiConfigList config = ClouderaManagerServiceDiscovery.hasFullConfig(role) ? role.getConfig()
+                                     : rolesApi.readRoleConfig(clusterName, role.getName(), service, "full");
+            roleConfigs.put(role, config);
+          }
+        }
       }
       currentConfig = new ServiceConfigurationModel(svcConfig, roleConfigs);
     } catch (ApiException e) {
@@ -508,7 +536,9 @@ public class PollingConfigurationAnalyzer implements Runnable {
   }
 
   /**
-   * Examine the ServiceConfigurationModel objects for significant differences.
+   * Examine the ServiceConfigurationModel objects for significant differences. Only those properties recorded in the
+   * previous configuration are significant, so the current configuration is first compared by the fingerprint of
+   * those properties, and only examined in detail if it differs.
    *
    * @param previous The previously-recorded service configuration properties.
    * @param current  The current service configuration properties.
@@ -518,6 +548,10 @@ public class PollingConfigurationAnalyzer implements Runnable {
    */
   private boolean hasConfigurationChanged(final ServiceConfigurationModel previous,
                                           final ServiceConfigurationModel current) {
+    if (previous.getFingerprint().equals(current.project(previous).getFingerprint())) {
+      return false;
+    }
+
     boolean hasChanged = false;
 
     // Compare the service configuration properties first
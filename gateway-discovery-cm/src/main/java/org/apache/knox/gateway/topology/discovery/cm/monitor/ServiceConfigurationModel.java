@@ -21,8 +21,14 @@ import com.cloudera.api.swagger.model.ApiConfigList;
 import com.cloudera.api.swagger.model.ApiRole;
 import com.cloudera.api.swagger.model.ApiServiceConfig;
 
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
@@ -35,18 +41,23 @@ final class ServiceConfigurationModel {
   private Map<String, String> serviceProps = new ConcurrentHashMap<>();
   private Map<String, Map<String, String>> roleProps = new ConcurrentHashMap<>();
 
+  // Digest of the recorded properties, computed on demand and persisted along with them
+  private String fingerprint;
+
   ServiceConfigurationModel() {
   }
 
   ServiceConfigurationModel(final ApiServiceConfig            serviceConfig,
                             final Map<ApiRole, ApiConfigList> roles) {
     // Service properties
-    for (ApiConfig item : serviceConfig.getItems()) {
-      String value = item.getValue();
-      if (value == null || value.isEmpty()) {
-        value = item.getDefault();
+    if (serviceConfig != null && serviceConfig.getItems() != null) {
+      for (ApiConfig item : serviceConfig.getItems()) {
+        String value = item.getValue();
+        if (value == null || value.isEmpty()) {
+          value = item.getDefault();
+        }
+        addServiceProperty(item.getName(), value);
       }
-      addServiceProperty(item.getName(), value);
     }
 
     // Role properties
@@ -54,9 +65,11 @@ final class ServiceConfigurationModel {
       for (Map.Entry<ApiRole, ApiConfigList> entry : roles.entrySet()) {
         ApiRole role = entry.getKey();
         ApiConfigList roleConfigList = entry.getValue();
+        if (roleConfigList == null || roleConfigList.getItems() == null) {
+          continue;
+        }
 
         for (ApiConfig roleConfig : roleConfigList.getItems()) {
-          roleConfig.getName();
           String value = roleConfig.getValue();
           if (value == null) {
             value = roleConfig.getDefault();
@@ -69,6 +82,7 @@ final class ServiceConfigurationModel {
 
   void addServiceProperty(final String name, final String value) {
     serviceProps.put(name, (value != null ? value : NULL_VALUE));
+    fingerprint = null;
   }
 
   Map<String, String> getServiceProps() {
@@ -78,6 +92,7 @@ final class ServiceConfigurationModel {
   void addRoleProperty(final String roleType, final String name, final String value) {
     roleProps.computeIfAbsent(roleType, p -> new ConcurrentHashMap<>())
         .put(name, (value != null ? value : NULL_VALUE));
+    fingerprint = null;
   }
 
   Set<String> getRoleTypes() {
@@ -91,4 +106,63 @@ final class ServiceConfigurationModel {
   Map<String, Map<String, String>> getRoleProps() {
     return roleProps;
   }
+
+  /**
+   * Reduce this model to those properties recorded in the specified reference model, such that the two can be
+   * compared by fingerprint. Properties which are absent from this model are represented by the null value, and
+   * role types which are absent from this model are omitted altogether.
+   *
+   * @param reference The model defining the properties of interest.
+   *
+   * @return A new ServiceConfigurationModel comprising only the properties of interest.
+   */
+  ServiceConfigurationModel project(final ServiceConfigurationModel reference) {
+    ServiceConfigurationModel projection = new ServiceConfigurationModel();
+
+    for (String name : reference.getServiceProps().keySet()) {
+      projection.addServiceProperty(name, serviceProps.get(name));
+    }
+
+    for (Map.Entry<String, Map<String, String>> entry : reference.getRoleProps().entrySet()) {
+      Map<String, String> props = roleProps.get(entry.getKey());
+      if (props != null) {
+        for (String name : entry.getValue().keySet()) {
+          projection.addRoleProperty(entry.getKey(), name, props.get(name));
+        }
+      }
+    }
+
+    return projection;
+  }
+
+  /**
+   * @return A digest of the service and role properties, which is independent of the order in which they were added.
+   */
+  String getFingerprint() {
+    if (fingerprint == null) {
+      try {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        update(digest, new TreeMap<>(serviceProps));
+        for (Map.Entry<String, Map<String, String>> entry : new TreeMap<>(roleProps).entrySet()) {
+          digest.update(entry.getKey().getBytes(StandardCharsets.UTF_8));
+          digest.update((byte) 1);
+          update(digest, new TreeMap<>(entry.getValue()));
+        }
+        fingerprint = String.format(Locale.ROOT, "%064x", new BigInteger(1, digest.digest()));
+      } catch (NoSuchAlgorithmException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+    return fingerprint;
+  }
+
+  private static void update(final MessageDigest digest, final Map<String, String> props) {
+    for (Map.Entry<String, String> prop : props.entrySet()) {
+      digest.update(prop.getKey().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(prop.getValue().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+    }
+    digest.update((byte) 2);
+  }
 }
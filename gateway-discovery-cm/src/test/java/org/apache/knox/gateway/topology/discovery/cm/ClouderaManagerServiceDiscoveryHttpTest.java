@@ -0,0 +1,188 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.topology.discovery.cm;
+
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.topology.discovery.ServiceDiscovery;
+import org.apache.knox.gateway.topology.discovery.ServiceDiscoveryConfig;
+import org.apache.knox.gateway.topology.discovery.cm.model.atlas.AtlasServiceModelGenerator;
+import org.easymock.EasyMock;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the Cloudera Manager service discovery against a local HTTP server mocking the Cloudera Manager API.
+ */
+public class ClouderaManagerServiceDiscoveryHttpTest {
+
+  private static final String CLUSTER_NAME = "cluster-1";
+  private static final String ATLAS_HOST = "atlas-host-1";
+
+  private static final String SERVICES_PATH = "/api/v32/clusters/" + CLUSTER_NAME + "/services";
+  private static final String SERVICE_CONFIG_PATH = SERVICES_PATH + "/ATLAS-1/config";
+  private static final String ROLES_PATH = SERVICES_PATH + "/ATLAS-1/roles";
+
+  private static final String SERVICES =
+      "{\"items\":[{\"name\":\"ATLAS-1\",\"type\":\"ATLAS\",\"clusterRef\":{\"clusterName\":\"" + CLUSTER_NAME + "\"}}]}";
+  private static final String SERVICE_CONFIG = "{\"items\":[]}";
+  private static final String ROLES =
+      "{\"items\":[{\"name\":\"ATLAS-ATLAS_SERVER-1\",\"type\":\"ATLAS_SERVER\","
+      + "\"hostRef\":{\"hostId\":\"host-1\",\"hostname\":\"" + ATLAS_HOST + "\"},"
+      + "\"config\":{\"items\":["
+      + "{\"name\":\"atlas_server_http_port\",\"value\":\"21000\",\"displayName\":\"HTTP Port\"},"
+      + "{\"name\":\"atlas_server_https_port\",\"value\":\"21003\",\"displayName\":\"HTTPS Port\"},"
+      + "{\"name\":\"ssl_enabled\",\"default\":\"false\",\"displayName\":\"Enable TLS/SSL\"}]}}]}";
+
+  private final Map<String, AtomicInteger> requestCounts = new ConcurrentHashMap<>();
+  private final CountDownLatch servicesRequested = new CountDownLatch(1);
+  private volatile CountDownLatch servicesReleased = new CountDownLatch(0);
+
+  private Server server;
+  private GatewayConfig gatewayConfig;
+  private ServiceDiscoveryConfig discoveryConfig;
+
+  @Before
+  public void setUp() throws Exception {
+    server = new Server(0);
+    server.setHandler(new MockClouderaManagerHandler());
+    server.start();
+
+    final int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+    discoveryConfig = EasyMock.createNiceMock(ServiceDiscoveryConfig.class);
+    EasyMock.expect(discoveryConfig.getAddress()).andReturn("http://localhost:" + port).anyTimes();
+    EasyMock.expect(discoveryConfig.getUser()).andReturn("itsme").anyTimes();
+    EasyMock.expect(discoveryConfig.getCluster()).andReturn(CLUSTER_NAME).anyTimes();
+    EasyMock.replay(discoveryConfig);
+
+    gatewayConfig = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.replay(gatewayConfig);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    server.stop();
+  }
+
+  @Test
+  public void testRoleConfigurationsAreTakenFromFullRoleListing() {
+    final ClouderaManagerServiceDiscovery discovery = new ClouderaManagerServiceDiscovery(gatewayConfig);
+    discovery.onConfigurationChange(null, null); // clear the repository
+
+    final ServiceDiscovery.Cluster cluster = discovery.discover(gatewayConfig, discoveryConfig, CLUSTER_NAME);
+    assertNotNull(cluster);
+    final List<String> urls = cluster.getServiceURLs(AtlasServiceModelGenerator.SERVICE);
+    assertEquals(Collections.singletonList("http://" + ATLAS_HOST + ":21000"), urls);
+
+    assertEquals(1, getRequestCount(SERVICES_PATH));
+    assertEquals(1, getRequestCount(SERVICE_CONFIG_PATH));
+    assertEquals(1, getRequestCount(ROLES_PATH));
+    // No request for the configuration of the individual roles
+    assertEquals(3, requestCounts.values().stream().mapToInt(AtomicInteger::get).sum());
+  }
+
+  @Test(timeout = 30000L)
+  public void testConcurrentDiscoveriesOfTheSameClusterAreShared() throws Exception {
+    final ClouderaManagerServiceDiscovery discovery = new ClouderaManagerServiceDiscovery(gatewayConfig);
+    discovery.onConfigurationChange(null, null); // clear the repository
+    servicesReleased = new CountDownLatch(1);
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final Future<ServiceDiscovery.Cluster> first =
+          executor.submit(() -> discovery.discover(gatewayConfig, discoveryConfig, CLUSTER_NAME));
+      servicesRequested.await();
+
+      final Future<ServiceDiscovery.Cluster> second =
+          executor.submit(() -> discovery.discover(gatewayConfig, discoveryConfig, CLUSTER_NAME));
+      // Give the second discovery the chance to find the first one in progress
+      TimeUnit.MILLISECONDS.sleep(500L);
+      assertFalse(second.isDone());
+      servicesReleased.countDown();
+
+      assertNotNull(first.get());
+      assertSame(first.get(), second.get());
+      assertEquals(1, getRequestCount(SERVICES_PATH));
+      assertEquals(1, getRequestCount(ROLES_PATH));
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private int getRequestCount(String path) {
+    final AtomicInteger count = requestCounts.get(path);
+    return count == null ? 0 : count.get();
+  }
+
+  private class MockClouderaManagerHandler extends AbstractHandler {
+    @Override
+    public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+        throws IOException {
+      final String path = request.getRequestURI();
+      requestCounts.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+
+      final String body;
+      if (SERVICES_PATH.equals(path)) {
+        servicesRequested.countDown();
+        try {
+          servicesReleased.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        body = SERVICES;
+      } else if (SERVICE_CONFIG_PATH.equals(path)) {
+        body = SERVICE_CONFIG;
+      } else if (ROLES_PATH.equals(path)) {
+        body = ROLES;
+      } else {
+        response.sendError(HttpServletResponse.SC_NOT_FOUND);
+        baseRequest.setHandled(true);
+        return;
+      }
+
+      response.setStatus(HttpServletResponse.SC_OK);
+      response.setContentType("application/json");
+      response.getOutputStream().write(body.getBytes(StandardCharsets.UTF_8));
+      baseRequest.setHandled(true);
+    }
+  }
+}
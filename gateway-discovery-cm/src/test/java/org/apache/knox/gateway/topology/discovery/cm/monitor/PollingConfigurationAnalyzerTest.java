@@ -140,6 +140,26 @@ public class PollingConfigurationAnalyzerTest {
     assertTrue("Expected a change notification", listener.wasNotified(address, clusterName));
   }
 
+  /**
+   * Test the start of a new service of a type for which no service URLs are discovered.
+   */
+  @Test
+  public void testNewUndiscoverableServiceStartEvent() {
+    final String address = "http://host1:1234";
+    final String clusterName = "Cluster U";
+
+    // Simulate a service Start event
+    ApiEvent startEvent = createApiEvent(clusterName,
+                                         "SQOOP_CLIENT",
+                                         "sqoop_client",
+                                         PollingConfigurationAnalyzer.START_COMMAND,
+                                         PollingConfigurationAnalyzer.SUCCEEDED_STATUS);
+
+    ChangeListener listener =
+            doTestEvent(startEvent, address, clusterName, Collections.emptyMap(), Collections.emptyMap());
+    assertFalse("Unexpected change notification", listener.wasNotified(address, clusterName));
+  }
+
   /**
    * Test the start of an existing service when no relevant configuration has changed.
    */
@@ -640,9 +660,10 @@ public class PollingConfigurationAnalyzerTest {
     }
 
     @Override
-    protected ServiceConfigurationModel getCurrentServiceConfiguration(String address,
-                                                                       String clusterName,
-                                                                       String service) {
+    protected ServiceConfigurationModel getCurrentServiceConfiguration(String                    address,
+                                                                       String                    clusterName,
+                                                                       String                    service,
+                                                                       ServiceConfigurationModel recorded) {
       return serviceConfigModels.get(getServiceConfigModelKey(address, clusterName, service));
     }
 
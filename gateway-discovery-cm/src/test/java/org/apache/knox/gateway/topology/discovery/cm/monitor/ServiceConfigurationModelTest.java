@@ -27,8 +27,10 @@ import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class ServiceConfigurationModelTest extends AbstractCMDiscoveryTest {
 
@@ -112,6 +114,75 @@ public class ServiceConfigurationModelTest extends AbstractCMDiscoveryTest {
     validateServiceConfigurationModel(model, serviceConfig, roleConfig);
   }
 
+  @Test
+  public void testFingerprint() {
+    ServiceConfigurationModel model = new ServiceConfigurationModel();
+    model.addServiceProperty("prop1", "value1");
+    model.addRoleProperty("ROLE_1", "prop2", "value2");
+    model.addRoleProperty("ROLE_1", "prop3", null);
+
+    // The fingerprint does not depend on the order in which the properties were added
+    ServiceConfigurationModel other = new ServiceConfigurationModel();
+    other.addRoleProperty("ROLE_1", "prop3", null);
+    other.addRoleProperty("ROLE_1", "prop2", "value2");
+    other.addServiceProperty("prop1", "value1");
+    assertEquals(model.getFingerprint(), other.getFingerprint());
+
+    // Modifying a value modifies the fingerprint
+    other.addRoleProperty("ROLE_1", "prop2", "modified");
+    assertNotEquals(model.getFingerprint(), other.getFingerprint());
+
+    // Moving a property to another role type modifies the fingerprint
+    other = new ServiceConfigurationModel();
+    other.addServiceProperty("prop1", "value1");
+    other.addRoleProperty("ROLE_1", "prop2", "value2");
+    other.addRoleProperty("ROLE_2", "prop3", null);
+    assertNotEquals(model.getFingerprint(), other.getFingerprint());
+  }
+
+  @Test
+  public void testProjection() {
+    ServiceConfigurationModel recorded = new ServiceConfigurationModel();
+    recorded.addServiceProperty("prop1", "value1");
+    recorded.addRoleProperty("ROLE_1", "prop2", "value2");
+    recorded.addRoleProperty("ROLE_1", "prop3", null);
+
+    // Properties which were not recorded are disregarded
+    ServiceConfigurationModel current = new ServiceConfigurationModel();
+    current.addServiceProperty("prop1", "value1");
+    current.addServiceProperty("unrecorded", "value");
+    current.addRoleProperty("ROLE_1", "prop2", "value2");
+    current.addRoleProperty("ROLE_1", "unrecorded", "value");
+    current.addRoleProperty("ROLE_2", "prop4", "value4");
+    ServiceConfigurationModel projection = current.project(recorded);
+    assertEquals(1, projection.getServiceProps().size());
+    assertEquals(Collections.singleton("ROLE_1"), projection.getRoleTypes());
+    assertEquals("null", projection.getRoleProps("ROLE_1").get("prop3"));
+    assertEquals(recorded.getFingerprint(), projection.getFingerprint());
+
+    // Changes to the recorded properties are not
+    current.addRoleProperty("ROLE_1", "prop2", "modified");
+    assertNotEquals(recorded.getFingerprint(), current.project(recorded).getFingerprint());
+
+    // Recorded role types which have been removed are omitted
+    current = new ServiceConfigurationModel();
+    current.addServiceProperty("prop1", "value1");
+    assertNotEquals(recorded.getFingerprint(), current.project(recorded).getFingerprint());
+    assertTrue(current.project(recorded).getRoleTypes().isEmpty());
+  }
+
+  @Test
+  public void testServiceConfigurationModelFromPartialAPI() {
+    Map<ApiRole, ApiConfigList> apiRoleConfigs = new HashMap<>();
+    apiRoleConfigs.put(createApiRoleMock("ROLE_1"), createApiConfigListMock(Collections.singletonMap("prop1", "value1")));
+
+    // The service configuration is not requested when no service properties were recorded
+    ServiceConfigurationModel model = new ServiceConfigurationModel(null, apiRoleConfigs);
+    validateServiceConfigurationModel(model,
+                                      Collections.emptyMap(),
+                                      Collections.singletonMap("ROLE_1", Collections.singletonMap("prop1", "value1")));
+  }
+
 
   private void validateServiceConfigurationModel(final ServiceConfigurationModel        model,
                                                  final Map<String, String>              expectedServiceConfig,
@@ -41,6 +41,15 @@ public class Log4jMessageLogger implements MessageLogger {
     logger.logMessage(toLevel(messageLevel), null, CLASS_NAME, caller, new SimpleMessage(messageText), thrown);
   }
 
+  /**
+   * Leaves the location to Log4j, which only walks the stack when a layout
+   * asks for it and reports the first frame after the given class.
+   */
+  @Override
+  public final void log( final String fqcn, final MessageLevel messageLevel, final String messageId, final String messageText, final Throwable thrown ) {
+    logger.logMessage(toLevel(messageLevel), null, fqcn, null, new SimpleMessage(messageText), thrown);
+  }
+
   private static Level toLevel(final MessageLevel level ) {
     switch( level ) {
       case FATAL: return Level.FATAL;
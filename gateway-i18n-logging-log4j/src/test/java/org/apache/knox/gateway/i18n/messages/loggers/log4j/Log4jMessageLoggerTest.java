@@ -0,0 +1,84 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.i18n.messages.loggers.log4j;
+
+import org.apache.knox.gateway.i18n.messages.MessageLevel;
+import org.apache.knox.gateway.i18n.messages.MessageLogger;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Property;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class Log4jMessageLoggerTest {
+
+  @Test
+  public void testLocationIsTheCallerOfTheGivenClass() {
+    Logger logger = (Logger)LogManager.getLogger( Log4jMessageLoggerTest.class.getName() );
+    RecordingAppender appender = new RecordingAppender();
+    appender.start();
+    logger.addAppender( appender );
+    logger.setAdditive( false );
+    logger.setLevel( Level.INFO );
+    try {
+      Messages messages = new Messages( new Log4jMessageLogger( logger ) );
+
+      messages.info( "text" );
+
+      assertThat( appender.sources.size(), is( 1 ) );
+      StackTraceElement source = appender.sources.get( 0 );
+      assertThat( source.getClassName(), is( Log4jMessageLoggerTest.class.getName() ) );
+      assertThat( source.getMethodName(), is( "testLocationIsTheCallerOfTheGivenClass" ) );
+    } finally {
+      logger.removeAppender( appender );
+    }
+  }
+
+  private static final class Messages {
+    private final MessageLogger logger;
+
+    Messages( MessageLogger logger ) {
+      this.logger = logger;
+    }
+
+    void info( String text ) {
+      logger.log( Messages.class.getName(), MessageLevel.INFO, null, text, null );
+    }
+  }
+
+  private static final class RecordingAppender extends AbstractAppender {
+    private final List<StackTraceElement> sources = new ArrayList<>();
+
+    RecordingAppender() {
+      super( "recording", null, null, true, Property.EMPTY_ARRAY );
+    }
+
+    @Override
+    public void append( LogEvent event ) {
+      sources.add( event.getSource() );
+    }
+  }
+}
@@ -42,6 +42,11 @@ public class Sl4jMessageLogger implements MessageLogger {
     }
   }
 
+  @Override
+  public void log( final String fqcn, final MessageLevel messageLevel, final String messageId, final String messageText, final Throwable thrown ) {
+    log( (StackTraceElement)null, messageLevel, messageId, messageText, thrown );
+  }
+
   @Override
   public void log( final StackTraceElement caller, final MessageLevel messageLevel, final String messageId, final String messageText, final Throwable thrown ) {
     switch( messageLevel ) {
@@ -23,4 +23,23 @@ public interface MessageLogger {
 
   void log( StackTraceElement caller, MessageLevel messageLevel, String messageId, String messageText, Throwable thrown );
 
+  /**
+   * Logs a message on behalf of the code that called into the class named
+   * {@code fqcn}. Loggers that can locate the call site themselves should
+   * skip the frames of that class, the default finds the caller on the stack.
+   */
+  default void log( String fqcn, MessageLevel messageLevel, String messageId, String messageText, Throwable thrown ) {
+    StackTraceElement caller = null;
+    boolean found = false;
+    for( StackTraceElement element : new Throwable().getStackTrace() ) {
+      if( fqcn.equals( element.getClassName() ) ) {
+        found = true;
+      } else if( found ) {
+        caller = element;
+        break;
+      }
+    }
+    log( caller, messageLevel, messageId, messageText, thrown );
+  }
+
 }
@@ -27,6 +27,12 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class MessagesFactory {
 
+  /**
+   * Suffix of the implementation generated for a {@link Messages} interface,
+   * appended to its binary name with '$' replaced by '_'.
+   */
+  public static final String GENERATED_SUFFIX = "_MessagesImpl";
+
   private static MessageLoggerFactory loggers = getMessageLoggerFactory();
   private static Map<Class<?>, Object> proxies = new ConcurrentHashMap<>();
 
@@ -38,13 +44,32 @@ public class MessagesFactory {
       if( anno == null ) {
         throw new IllegalArgumentException( clazz.getName() + " missing @" + Messages.class.getCanonicalName() );
       }
-      MessagesInvoker invoker = new MessagesInvoker( clazz, loggers );
-      proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      proxy = createGenerated( clazz );
+      if( proxy == null ) {
+        MessagesInvoker invoker = new MessagesInvoker( clazz, loggers );
+        proxy = Proxy.newProxyInstance( clazz.getClassLoader(), new Class[]{ clazz }, invoker );
+      }
       proxies.put( clazz, proxy );
     }
     return (T)proxy;
   }
 
+  // Uses the implementation generated at build time if there is one, else the caller falls back to the reflective proxy.
+  private static Object createGenerated( Class<?> clazz ) {
+    String name = clazz.getName().replace( '$', '_' ) + GENERATED_SUFFIX;
+    try {
+      Class<?> impl = Class.forName( name, true, clazz.getClassLoader() );
+      if( clazz.isAssignableFrom( impl ) ) {
+        return impl.getConstructor( MessageLoggerFactory.class ).newInstance( loggers );
+      }
+    } catch( ClassNotFoundException e ) {
+      // The interface was compiled without the processor.
+    } catch( ReflectiveOperationException | LinkageError e ) {
+      // A stale or incompatible generated class, the proxy still works.
+    }
+    return null;
+  }
+
   private static MessageLoggerFactory getMessageLoggerFactory() {
     MessageLoggerFactory factory;
     ServiceLoader<MessageLoggerFactory> loader = ServiceLoader.load( MessageLoggerFactory.class );
@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.i18n.messages;
+
+import org.apache.knox.gateway.i18n.resources.ResourcesInvoker;
+
+import java.text.MessageFormat;
+import java.util.Locale;
+
+/**
+ * Base class of the {@link Messages} implementations generated by
+ * {@link org.apache.knox.gateway.i18n.messages.processor.MessagesProcessor}.
+ * Levels, codes and default patterns are resolved when the implementation is
+ * generated, so a call only checks the level and, if it is enabled, formats
+ * the text. Patterns from the message bundle still take precedence over the
+ * annotation text, as they do for the reflective {@link MessagesInvoker}.
+ */
+public abstract class MessagesSupport {
+
+  private final MessageLogger logger;
+  private final BundlePatterns patterns;
+  private final String fqcn;
+
+  protected MessagesSupport( final Class<?> clazz, final String bundle, final String loggerName, final MessageLoggerFactory loggers ) {
+    this.logger = loggers.getLogger( loggerName );
+    this.patterns = new BundlePatterns( clazz, bundle );
+    this.fqcn = getClass().getName();
+  }
+
+  protected final boolean isEnabled( final MessageLevel level ) {
+    return logger.isLoggable( level );
+  }
+
+  protected final String text( final String key, final String defaultPattern, final Object[] args ) {
+    String pattern = patterns.getPattern( key );
+    if( pattern == null ) {
+      pattern = defaultPattern;
+    }
+    return new MessageFormat( pattern, Locale.ROOT ).format( args );
+  }
+
+  /**
+   * Returns the current throwable if one was already found, else the argument
+   * if it is a throwable whose stack trace level is enabled.
+   */
+  protected final Throwable stackTrace( final Throwable current, final Object arg, final MessageLevel level ) {
+    if( current == null && arg instanceof Throwable && logger.isLoggable( level ) ) {
+      return (Throwable)arg;
+    }
+    return current;
+  }
+
+  /**
+   * Logs on behalf of the caller of the generated method. The generated class
+   * name is passed to the logger so the reported location is the code that
+   * called the {@link Messages} method, not this class.
+   */
+  protected final void log( final MessageLevel level, final String code, final String message, final Throwable throwable ) {
+    logger.log( fqcn, level, code, message, throwable );
+  }
+
+  private static final class BundlePatterns extends ResourcesInvoker {
+    private final String bundle;
+
+    BundlePatterns( final Class<?> clazz, final String bundle ) {
+      super( clazz );
+      this.bundle = bundle;
+    }
+
+    @Override
+    protected String getBundleName() {
+      return bundle;
+    }
+
+    String getPattern( final String key ) {
+      return getBundlePattern( key );
+    }
+  }
+}
@@ -41,8 +41,10 @@ final class JdkMessageLogger implements MessageLogger {
   @Override
   public void log( final StackTraceElement caller, final MessageLevel level, final String id, final String message, final Throwable thrown ) {
     LogRecord record = new LogRecord( toLevel( level ), message );
-    record.setSourceClassName( caller.getClassName() );
-    record.setSourceMethodName( caller.getMethodName() );
+    if( caller != null ) {
+      record.setSourceClassName( caller.getClassName() );
+      record.setSourceMethodName( caller.getMethodName() );
+    }
     if( thrown != null ) {
       record.setThrown( thrown );
     }
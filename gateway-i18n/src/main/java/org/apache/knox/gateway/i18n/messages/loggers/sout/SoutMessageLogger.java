@@ -37,6 +37,11 @@ public class SoutMessageLogger implements MessageLogger {
     return( id == null ) ? FORMAT_WITHOUT_ID : FORMAT_WITH_ID;
   }
 
+  @Override
+  public void log( final String fqcn, final MessageLevel level, final String id, final String message, final Throwable thrown ) {
+    log( (StackTraceElement)null, level, id, message, thrown );
+  }
+
   @Override
   public void log( final StackTraceElement caller, final MessageLevel level, final String id, final String message, final Throwable thrown ) {
     MessageFormat messageFormat = new MessageFormat(getFormat( id ), Locale.ROOT );
@@ -0,0 +1,325 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.i18n.messages.processor;
+
+import org.apache.knox.gateway.i18n.messages.Message;
+import org.apache.knox.gateway.i18n.messages.MessageLevel;
+import org.apache.knox.gateway.i18n.messages.Messages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.i18n.messages.StackTrace;
+import org.apache.knox.gateway.i18n.resources.Resource;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Generates an implementation of every {@link Messages} interface at build
+ * time. The implementations resolve levels, codes and default patterns when
+ * they are generated and do not capture the caller's stack, which the
+ * reflective {@link org.apache.knox.gateway.i18n.messages.MessagesInvoker}
+ * does on every enabled call. {@link MessagesFactory} uses a generated
+ * implementation when one is present and falls back to the reflective proxy
+ * otherwise, e.g. for interfaces this processor cannot implement.
+ */
+@SupportedAnnotationTypes( "org.apache.knox.gateway.i18n.messages.Messages" )
+public class MessagesProcessor extends AbstractProcessor {
+
+  private static final String SUPPORT_CLASS = "org.apache.knox.gateway.i18n.messages.MessagesSupport";
+  private static final String LEVEL_CLASS = MessageLevel.class.getCanonicalName();
+  private static final String FACTORY_CLASS = "org.apache.knox.gateway.i18n.messages.MessageLoggerFactory";
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process( final Set<? extends TypeElement> annotations, final RoundEnvironment roundEnv ) {
+    for( Element element : roundEnv.getElementsAnnotatedWith( Messages.class ) ) {
+      if( element.getKind() == ElementKind.INTERFACE ) {
+        final TypeElement type = (TypeElement)element;
+        final String reason = getUnsupportedReason( type );
+        if( reason == null ) {
+          generate( type );
+        } else {
+          processingEnv.getMessager().printMessage( Diagnostic.Kind.NOTE,
+              "Not generating " + type.getQualifiedName() + ", " + reason + "; the reflective proxy will be used", type );
+        }
+      }
+    }
+    return false;
+  }
+
+  private String getUnsupportedReason( final TypeElement type ) {
+    if( type.getModifiers().contains( Modifier.PRIVATE ) ) {
+      return "it is private";
+    }
+    if( !type.getTypeParameters().isEmpty() ) {
+      return "it is generic";
+    }
+    for( ExecutableElement method : getMessageMethods( type ) ) {
+      if( !method.getTypeParameters().isEmpty() ) {
+        return "method " + method.getSimpleName() + " is generic";
+      }
+      if( !isVoid( method ) && !isString( method.getReturnType() ) ) {
+        return "method " + method.getSimpleName() + " does not return void or String";
+      }
+    }
+    return null;
+  }
+
+  private List<ExecutableElement> getMessageMethods( final TypeElement type ) {
+    final List<ExecutableElement> methods = new ArrayList<>();
+    for( ExecutableElement method : ElementFilter.methodsIn( processingEnv.getElementUtils().getAllMembers( type ) ) ) {
+      if( method.getModifiers().contains( Modifier.ABSTRACT ) ) {
+        methods.add( method );
+      }
+    }
+    return methods;
+  }
+
+  private void generate( final TypeElement type ) {
+    final Elements elements = processingEnv.getElementUtils();
+    final String packageName = elements.getPackageOf( type ).getQualifiedName().toString();
+    final String binaryName = elements.getBinaryName( type ).toString();
+    final String className = getGeneratedSimpleName( packageName, binaryName );
+    final Messages anno = type.getAnnotation( Messages.class );
+    final String canonicalName = type.getQualifiedName().toString();
+
+    final StringBuilder source = new StringBuilder( 4096 );
+    if( !packageName.isEmpty() ) {
+      source.append( "package " ).append( packageName ).append( ";\n\n" );
+    }
+    source.append( "/**\n * Generated implementation of {@link " ).append( canonicalName ).append( "}, do not edit.\n */\n" );
+    source.append( "public final class " ).append( className )
+        .append( " extends " ).append( SUPPORT_CLASS )
+        .append( " implements " ).append( canonicalName ).append( " {\n\n" );
+    source.append( "  public " ).append( className ).append( "( final " ).append( FACTORY_CLASS ).append( " loggers ) {\n" );
+    source.append( "    super( " ).append( canonicalName ).append( ".class, " )
+        .append( literal( getBundleName( canonicalName, anno ) ) ).append( ", " )
+        .append( literal( getLoggerName( canonicalName, anno ) ) ).append( ", loggers );\n" );
+    source.append( "  }\n" );
+
+    final String codes = getCodePattern( canonicalName, anno );
+    for( ExecutableElement method : getMessageMethods( type ) ) {
+      appendMethod( source, method, codes );
+    }
+    source.append( "}\n" );
+
+    try {
+      final JavaFileObject file = processingEnv.getFiler().createSourceFile( getGeneratedName( packageName, className ), type );
+      try( Writer writer = file.openWriter() ) {
+        writer.write( source.toString() );
+      }
+    } catch( IOException e ) {
+      processingEnv.getMessager().printMessage( Diagnostic.Kind.WARNING,
+          "Failed to generate implementation of " + canonicalName + ": " + e, type );
+    }
+  }
+
+  private void appendMethod( final StringBuilder source, final ExecutableElement method, final String codes ) {
+    final String name = method.getSimpleName().toString();
+    final Message anno = method.getAnnotation( Message.class );
+    final MessageLevel level = anno == null ? MessageLevel.INFO : anno.level();
+    final List<? extends VariableElement> params = method.getParameters();
+    final boolean returnsText = !isVoid( method );
+
+    source.append( "\n  @Override\n  public " ).append( returnsText ? "java.lang.String" : "void" )
+        .append( ' ' ).append( name ).append( '(' );
+    for( int i = 0; i < params.size(); i++ ) {
+      source.append( i == 0 ? " " : ", " ).append( "final " )
+          .append( getParameterType( method, i ) ).append( " arg" ).append( i );
+    }
+    source.append( params.isEmpty() ? ")" : " )" );
+    final List<? extends TypeMirror> thrown = method.getThrownTypes();
+    for( int i = 0; i < thrown.size(); i++ ) {
+      source.append( i == 0 ? " throws " : ", " ).append( thrown.get( i ) );
+    }
+    source.append( " {\n" );
+
+    source.append( "    if( isEnabled( " ).append( LEVEL_CLASS ).append( '.' ).append( level ).append( " ) ) {\n" );
+    String throwable = "null";
+    for( int i = 0; i < params.size(); i++ ) {
+      final StackTrace stackTrace = params.get( i ).getAnnotation( StackTrace.class );
+      if( stackTrace != null && isThrowableCandidate( params.get( i ).asType() ) ) {
+        if( "null".equals( throwable ) ) {
+          throwable = "throwable";
+          source.append( "      java.lang.Throwable throwable = null;\n" );
+        }
+        source.append( "      throwable = stackTrace( throwable, arg" ).append( i ).append( ", " )
+            .append( LEVEL_CLASS ).append( '.' ).append( stackTrace.level() ).append( " );\n" );
+      }
+    }
+    source.append( "      final java.lang.String message = text( " ).append( literal( name ) ).append( ", " )
+        .append( literal( getPattern( name, anno, params.size() ) ) ).append( ", new java.lang.Object[]{" );
+    for( int i = 0; i < params.size(); i++ ) {
+      source.append( i == 0 ? " " : ", " ).append( "arg" ).append( i );
+    }
+    source.append( params.isEmpty() ? "} );\n" : " } );\n" );
+    source.append( "      log( " ).append( LEVEL_CLASS ).append( '.' ).append( level ).append( ", " )
+        .append( literal( getCode( codes, anno ) ) ).append( ", message, " ).append( throwable ).append( " );\n" );
+    if( returnsText ) {
+      source.append( "      return message;\n" );
+    }
+    source.append( "    }\n" );
+    if( returnsText ) {
+      source.append( "    return null;\n" );
+    }
+    source.append( "  }\n" );
+  }
+
+  private static String getParameterType( final ExecutableElement method, final int index ) {
+    final TypeMirror type = method.getParameters().get( index ).asType();
+    if( method.isVarArgs() && index == method.getParameters().size() - 1 && type.getKind() == TypeKind.ARRAY ) {
+      return ( (ArrayType)type ).getComponentType() + "...";
+    }
+    return type.toString();
+  }
+
+  /* Primitives can never be a Throwable, any reference type may be at runtime. */
+  private static boolean isThrowableCandidate( final TypeMirror type ) {
+    return type.getKind() == TypeKind.DECLARED || type.getKind() == TypeKind.TYPEVAR;
+  }
+
+  private static boolean isVoid( final ExecutableElement method ) {
+    return method.getReturnType().getKind() == TypeKind.VOID;
+  }
+
+  private static boolean isString( final TypeMirror type ) {
+    return "java.lang.String".equals( type.toString() );
+  }
+
+  static String getGeneratedSimpleName( final String packageName, final String binaryName ) {
+    final String name = packageName.isEmpty() ? binaryName : binaryName.substring( packageName.length() + 1 );
+    return name.replace( '$', '_' ) + MessagesFactory.GENERATED_SUFFIX;
+  }
+
+  private static String getGeneratedName( final String packageName, final String className ) {
+    return packageName.isEmpty() ? className : packageName + '.' + className;
+  }
+
+  /* The same resolution as MessagesInvoker, done once at build time. */
+  private static String getBundleName( final String canonicalName, final Messages anno ) {
+    String bundle = anno.bundle();
+    if( Messages.DEFAULT_BUNDLE.equals( bundle ) ) {
+      bundle = canonicalName.replace( '.', '/' );
+    }
+    return bundle;
+  }
+
+  private static String getLoggerName( final String canonicalName, final Messages anno ) {
+    String logger = anno.logger();
+    if( Messages.DEFAULT_LOGGER.equals( logger ) ) {
+      logger = canonicalName;
+    }
+    return logger;
+  }
+
+  private static String getCodePattern( final String canonicalName, final Messages anno ) {
+    String pattern = anno.codes();
+    if( Messages.DEFAULT_CODES.equals( pattern ) ) {
+      pattern = canonicalName.replace( '.', '/' );
+    }
+    return pattern;
+  }
+
+  private static String getCode( final String codes, final Message anno ) {
+    String code = null;
+    if( anno != null && anno.code() != Message.DEFAULT_CODE ) {
+      code = new MessageFormat( codes, Locale.ROOT ).format( new Object[]{ anno.code() } );
+    }
+    return code;
+  }
+
+  static String getPattern( final String name, final Message anno, final int params ) {
+    String pattern = anno == null ? null : anno.text();
+    if( pattern == null || Resource.DEFAULT_TEXT.equals( pattern ) ) {
+      final StringBuilder builder = new StringBuilder( name );
+      if( params > 0 ) {
+        builder.append( '(' );
+        for( int i = 0; i < params; i++ ) {
+          if( i > 0 ) {
+            builder.append( ',' );
+          }
+          builder.append( "\"{" ).append( i ).append( "}\"" );
+        }
+        builder.append( ')' );
+      }
+      pattern = builder.toString();
+    }
+    return pattern;
+  }
+
+  static String literal( final String value ) {
+    if( value == null ) {
+      return "null";
+    }
+    final StringBuilder builder = new StringBuilder( value.length() + 2 );
+    builder.append( '"' );
+    for( int i = 0; i < value.length(); i++ ) {
+      final char c = value.charAt( i );
+      switch( c ) {
+        case '"':
+          builder.append( "\\\"" );
+          break;
+        case '\\':
+          builder.append( "\\\\" );
+          break;
+        case '\n':
+          builder.append( "\\n" );
+          break;
+        case '\r':
+          builder.append( "\\r" );
+          break;
+        case '\t':
+          builder.append( "\\t" );
+          break;
+        default:
+          if( c < 0x20 || c > 0x7e ) {
+            builder.append( String.format( Locale.ROOT, "\\u%04x", (int)c ) );
+          } else {
+            builder.append( c );
+          }
+      }
+    }
+    builder.append( '"' );
+    return builder.toString();
+  }
+}
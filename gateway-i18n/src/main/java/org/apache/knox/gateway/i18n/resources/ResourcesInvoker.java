@@ -77,10 +77,14 @@ public class ResourcesInvoker implements InvocationHandler {
   }
 
   protected final String getBundlePattern( final Method method ) {
+    return getBundlePattern( method.getName() );
+  }
+
+  protected final String getBundlePattern( final String key ) {
     String pattern = null;
     final ResourceBundle bundle = findBundle();
-    if( bundle != null && bundle.containsKey( method.getName() ) ) {
-      pattern = bundle.getString( method.getName() );
+    if( bundle != null && bundle.containsKey( key ) ) {
+      pattern = bundle.getString( key );
     }
     return pattern;
   }
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.i18n.messages.processor;
+
+import org.apache.knox.gateway.i18n.messages.MessageLevel;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.i18n.messages.loggers.test.TestMessageLogger;
+import org.apache.knox.gateway.i18n.messages.loggers.test.TestMessageLoggerFactory;
+import org.apache.knox.gateway.i18n.messages.loggers.test.TestMessageRecord;
+import org.apache.knox.test.category.FastTests;
+import org.apache.knox.test.category.UnitTests;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+@Category( { UnitTests.class, FastTests.class } )
+public class MessagesProcessorTest {
+
+  private static final String LOGGER = "messages.processor.test";
+
+  private static final String SOURCE =
+      "package org.apache.knox.gateway.i18n.messages.generated;\n"
+      + "import org.apache.knox.gateway.i18n.messages.*;\n"
+      + "@Messages( logger = \"" + LOGGER + "\", codes = \"TEST{0}\" )\n"
+      + "public interface GeneratedSubject {\n"
+      + "  @Message( level = MessageLevel.ERROR, code = 42, text = \"Failed to \\\"process\\\" {0}: {1}\" )\n"
+      + "  void failed( String name, @StackTrace( level = MessageLevel.ERROR ) Exception e );\n"
+      + "  String noAnnotation( long count, String name );\n"
+      + "  void withVarargs( String... names );\n"
+      + "}\n";
+
+  private static final String CALLER_SOURCE =
+      "package org.apache.knox.gateway.i18n.messages.generated;\n"
+      + "public class GeneratedSubjectCaller {\n"
+      + "  public static void callFailed( GeneratedSubject log, Exception e ) {\n"
+      + "    log.failed( \"caller\", e );\n"
+      + "  }\n"
+      + "}\n";
+
+  @ClassRule
+  public static final TemporaryFolder FOLDER = new TemporaryFolder();
+
+  private static Class<?> subject;
+  private static Class<?> caller;
+
+  @BeforeClass
+  public static void compileSubject() throws Exception {
+    File output = FOLDER.newFolder();
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    JavaCompiler.CompilationTask task = compiler.getTask( null, null, null,
+        Arrays.asList( "-d", output.getAbsolutePath(), "-classpath", System.getProperty( "java.class.path" ) ),
+        null, Arrays.asList( source( "GeneratedSubject", SOURCE ), source( "GeneratedSubjectCaller", CALLER_SOURCE ) ) );
+    task.setProcessors( Collections.singletonList( new MessagesProcessor() ) );
+    assertTrue( task.call() );
+
+    ClassLoader loader = new URLClassLoader( new URL[]{ output.toURI().toURL() }, MessagesProcessorTest.class.getClassLoader() );
+    subject = Class.forName( "org.apache.knox.gateway.i18n.messages.generated.GeneratedSubject", true, loader );
+    caller = Class.forName( "org.apache.knox.gateway.i18n.messages.generated.GeneratedSubjectCaller", true, loader );
+  }
+
+  private static JavaFileObject source( final String name, final String code ) {
+    return new SimpleJavaFileObject( URI.create( "string:///" + name + ".java" ), JavaFileObject.Kind.SOURCE ) {
+      @Override
+      public CharSequence getCharContent( boolean ignoreEncodingErrors ) {
+        return code;
+      }
+    };
+  }
+
+  @Test
+  public void testFactoryUsesGeneratedImplementation() {
+    Object log = MessagesFactory.get( subject );
+    assertThat( log.getClass().getName(), is( subject.getName() + MessagesFactory.GENERATED_SUFFIX ) );
+    assertThat( MessagesFactory.get( subject ), sameInstance( log ) );
+  }
+
+  @Test
+  public void testAnnotatedMessage() throws Exception {
+    Object log = MessagesFactory.get( subject );
+    TestMessageLogger logger = (TestMessageLogger)TestMessageLoggerFactory.getFactory().getLogger( LOGGER );
+    logger.records.clear();
+    Exception failure = new IllegalStateException( "boom" );
+
+    subject.getMethod( "failed", String.class, Exception.class ).invoke( log, "topology", failure );
+
+    assertThat( logger.records.size(), equalTo( 1 ) );
+    TestMessageRecord record = logger.records.get( 0 );
+    assertThat( record.getLevel(), is( MessageLevel.ERROR ) );
+    assertThat( record.getId(), is( "TEST42" ) );
+    assertThat( record.getMessage(), is( "Failed to \"process\" topology: " + failure ) );
+    assertThat( record.getThrowable(), sameInstance( (Throwable)failure ) );
+  }
+
+  @Test
+  public void testCallerIsTheCodeCallingTheMessagesMethod() throws Exception {
+    Object log = MessagesFactory.get( subject );
+    TestMessageLogger logger = (TestMessageLogger)TestMessageLoggerFactory.getFactory().getLogger( LOGGER );
+    logger.records.clear();
+
+    caller.getMethod( "callFailed", subject, Exception.class ).invoke( null, log, new IllegalStateException( "boom" ) );
+
+    assertThat( logger.records.size(), equalTo( 1 ) );
+    StackTraceElement location = logger.records.get( 0 ).getCaller();
+    assertThat( location.getClassName(), is( caller.getName() ) );
+    assertThat( location.getMethodName(), is( "callFailed" ) );
+  }
+
+  @Test
+  public void testDefaultPattern() throws Exception {
+    Object log = MessagesFactory.get( subject );
+    TestMessageLogger logger = (TestMessageLogger)TestMessageLoggerFactory.getFactory().getLogger( LOGGER );
+    logger.records.clear();
+
+    Object text = subject.getMethod( "noAnnotation", long.class, String.class ).invoke( log, 3L, "name" );
+
+    assertThat( text, is( "noAnnotation(\"3\",\"name\")" ) );
+    assertThat( logger.records.size(), equalTo( 1 ) );
+    TestMessageRecord record = logger.records.get( 0 );
+    assertThat( record.getLevel(), is( MessageLevel.INFO ) );
+    assertThat( record.getId(), nullValue() );
+    assertThat( record.getThrowable(), nullValue() );
+  }
+
+  @Test
+  public void testLiteralEscaping() {
+    assertThat( MessagesProcessor.literal( null ), is( "null" ) );
+    assertThat( MessagesProcessor.literal( "a\"b\\c\n\u00e9" ), is( "\"a\\\"b\\\\c\\n\\u00e9\"" ) );
+  }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.performance.benchmark;
+
+import static java.util.stream.Collectors.toCollection;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.message.BasicHeader;
+import org.apache.knox.gateway.dispatch.ResponseHeaderFilter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares filtering the headers of a typical 20 header response with the
+ * compiled {@link ResponseHeaderFilter} against the per response maps and
+ * regular expressions used before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseHeaderFilterBenchmark {
+  private static final String SET_COOKIE = "SET-COOKIE";
+  private static final String EXCLUDE_ALL = "*";
+  private static final Set<String> EXCLUDE_SET_COOKIES_DEFAULT =
+      new HashSet<>(Arrays.asList("hadoop.auth", "hive.server2.auth", "impala.auth"));
+
+  private final Set<String> excludeHeaders = Collections.singleton("WWW-AUTHENTICATE");
+  private final Set<String> setCookieDirectives = new HashSet<>(Arrays.asList("Secure", "hadoop.auth"));
+  private Header[] headers;
+  private ResponseHeaderFilter filter;
+
+  @Setup
+  public void setUp() {
+    headers = new Header[] {
+        new BasicHeader("Date", "Fri, 13 Nov 2020 17:26:18 GMT"),
+        new BasicHeader("Server", "Jetty(9.4.31.v20200723)"),
+        new BasicHeader("Content-Type", "application/json;charset=utf-8"),
+        new BasicHeader("Content-Length", "1024"),
+        new BasicHeader("Cache-Control", "no-cache, no-store, must-revalidate"),
+        new BasicHeader("Pragma", "no-cache"),
+        new BasicHeader("Expires", "Thu, 01 Jan 1970 00:00:00 GMT"),
+        new BasicHeader("X-Content-Type-Options", "nosniff"),
+        new BasicHeader("X-Frame-Options", "SAMEORIGIN"),
+        new BasicHeader("X-XSS-Protection", "1; mode=block"),
+        new BasicHeader("Strict-Transport-Security", "max-age=31536000; includeSubDomains"),
+        new BasicHeader("Vary", "Accept-Encoding, User-Agent"),
+        new BasicHeader("ETag", "\"5f7c3a1e-400\""),
+        new BasicHeader("Last-Modified", "Fri, 13 Nov 2020 17:20:00 GMT"),
+        new BasicHeader("X-Request-Id", "0190d2b6-62f1-7c3a-9b3e-1f2a3b4c5d6e"),
+        new BasicHeader("Access-Control-Allow-Origin", "*"),
+        new BasicHeader("Set-Cookie", "JSESSIONID=ba760126-414f-406d-baa1-99e14eb47656; Path=/; Secure; HttpOnly"),
+        new BasicHeader("Set-Cookie", "hadoop.auth=\"u=knox&t=kerberos\"; Path=/; Expires=Fri, 13-Nov-2020 17:26:18 GMT; HttpOnly"),
+        new BasicHeader("Set-Cookie", "SESSION=e69d3d08-7452-45cb-90bb-9cdde3fa1342;Path=/;HttpOnly"),
+        new BasicHeader("WWW-Authenticate", "Negotiate")
+    };
+    filter = new ResponseHeaderFilter(excludeHeaders, setCookieDirectives);
+  }
+
+  @Benchmark
+  public void compiledFilter(Blackhole blackhole) {
+    for (Header header : headers) {
+      if (!filter.isBlocked(header.getValue())) {
+        blackhole.consume(filter.getResponseHeaderValue(header.getName(), header.getValue()));
+      }
+    }
+  }
+
+  /* The filtering DefaultDispatch.copyResponseHeaderFields did per response before. */
+  @Benchmark
+  public void perResponseMaps(Blackhole blackhole) {
+    final TreeMap<String, Set<String>> excludedHeaderDirectives = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    excludeHeaders.stream().forEach(excludeHeader ->
+        excludedHeaderDirectives.put(excludeHeader, Collections.singleton(EXCLUDE_ALL)));
+    excludedHeaderDirectives.put(SET_COOKIE, setCookieDirectives);
+    for (Header header : headers) {
+      boolean isBlockedAuthHeader = Arrays.stream(header.getElements())
+          .anyMatch(h -> EXCLUDE_SET_COOKIES_DEFAULT.contains(h.getName()) && setCookieDirectives.contains(h.getName()));
+      if (!isBlockedAuthHeader) {
+        blackhole.consume(calculateResponseHeaderValue(header, excludedHeaderDirectives));
+      }
+    }
+  }
+
+  private static String calculateResponseHeaderValue(Header headerToCheck, Map<String, Set<String>> excludedHeaderDirectives) {
+    final String headerNameToCheck = headerToCheck.getName();
+    if (excludedHeaderDirectives.containsKey(headerNameToCheck)) {
+      final Set<String> excludedHeaderValues = excludedHeaderDirectives.get(headerNameToCheck);
+      if (!excludedHeaderValues.isEmpty()) {
+        if (excludedHeaderValues.stream().anyMatch(e -> e.equals(EXCLUDE_ALL))) {
+          return "";
+        }
+        final String separator = SET_COOKIE.equalsIgnoreCase(headerNameToCheck) ? "; " : " ";
+        LinkedHashSet<String> headerValuesToCheck;
+        if (headerToCheck.getName().equalsIgnoreCase(SET_COOKIE)) {
+          headerValuesToCheck = new LinkedHashSet<>(Arrays.asList(headerToCheck.getValue().trim().split(";")));
+          headerValuesToCheck = headerValuesToCheck.stream().map(String::trim).collect(toCollection(LinkedHashSet::new));
+        } else {
+          headerValuesToCheck = new LinkedHashSet<>(Arrays.asList(headerToCheck.getValue().trim().split("\\s+")));
+        }
+        headerValuesToCheck = headerValuesToCheck.stream().map(h -> h.replaceAll(separator.trim(), "")).collect(toCollection(LinkedHashSet::new));
+        headerValuesToCheck.removeIf(h -> excludedHeaderValues.stream().anyMatch(h::contains));
+        return headerValuesToCheck.isEmpty() ? "" : String.join(separator, headerValuesToCheck);
+      }
+    }
+    return headerToCheck.getValue();
+  }
+}
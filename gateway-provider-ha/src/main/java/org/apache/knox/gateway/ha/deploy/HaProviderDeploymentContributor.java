@@ -132,6 +132,26 @@ public class HaProviderDeploymentContributor extends ProviderDeploymentContribut
          if (zkNamespace != null) {
             config.setZookeeperNamespace(zkNamespace);
          }
+
+         String healthCheckEnabled = serviceLevelParams.get(HaServiceConfigConstants.CONFIG_HEALTH_CHECK_ENABLED);
+         if (healthCheckEnabled != null) {
+            config.setHealthCheckEnabled(Boolean.parseBoolean(healthCheckEnabled));
+         }
+
+         String healthCheckPath = serviceLevelParams.get(HaServiceConfigConstants.CONFIG_HEALTH_CHECK_PATH);
+         if (healthCheckPath != null) {
+            config.setHealthCheckPath(healthCheckPath);
+         }
+
+         String healthCheckInterval = serviceLevelParams.get(HaServiceConfigConstants.CONFIG_HEALTH_CHECK_INTERVAL);
+         if (healthCheckInterval != null) {
+            config.setHealthCheckInterval(Integer.parseInt(healthCheckInterval));
+         }
+
+         String hedgingEnabled = serviceLevelParams.get(HaServiceConfigConstants.CONFIG_HEDGING_ENABLED);
+         if (hedgingEnabled != null) {
+            config.setHedgingEnabled(Boolean.parseBoolean(hedgingEnabled));
+         }
       }
    }
 
@@ -17,9 +17,12 @@
  */
 package org.apache.knox.gateway.ha.dispatch;
 
+import com.codahale.metrics.MetricRegistry;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpHead;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.utils.URIBuilder;
@@ -32,7 +35,14 @@ import org.apache.knox.gateway.ha.provider.HaProvider;
 import org.apache.knox.gateway.ha.provider.HaServiceConfig;
 import org.apache.knox.gateway.ha.provider.impl.HaServiceConfigConstants;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
-
+import org.apache.knox.gateway.services.GatewayServices;
+import org.apache.knox.gateway.services.ServiceType;
+import org.apache.knox.gateway.services.metrics.MetricsContext;
+import org.apache.knox.gateway.services.metrics.MetricsService;
+import org.apache.knox.gateway.trace.Span;
+import org.apache.knox.gateway.trace.Tracing;
+
+import javax.servlet.ServletContext;
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
@@ -75,6 +85,11 @@ public class ConfigurableHADispatch extends ConfigurableDispatch {
   private boolean noFallbackEnabled = HaServiceConfigConstants.DEFAULT_NO_FALLBACK_ENABLED;
   private String stickySessionCookieName = HaServiceConfigConstants.DEFAULT_STICKY_SESSION_COOKIE_NAME;
   private List<String> disableLoadBalancingForUserAgents = Arrays.asList(HaServiceConfigConstants.DEFAULT_DISABLE_LB_USER_AGENTS);
+  private boolean healthCheckEnabled = HaServiceConfigConstants.DEFAULT_HEALTH_CHECK_ENABLED;
+
+  /* only set when hedging of idempotent requests is enabled for the service */
+  private HedgingPolicy hedgingPolicy;
+  private volatile boolean hedgingMetricsBound;
 
   /**
    *  This activeURL is used to track urls when LB is turned off for some clients
@@ -106,6 +121,15 @@ public class ConfigurableHADispatch extends ConfigurableDispatch {
       }
 
       disableLoadBalancingForUserAgents = serviceConfig.getStickySessionDisabledUserAgents();
+      healthCheckEnabled = serviceConfig.isHealthCheckEnabled() && serviceConfig.getHealthCheckInterval() > 0;
+
+      /* hedging would send requests of a sticky session to another backend */
+      if (serviceConfig.isHedgingEnabled() && !stickySessionsEnabled) {
+        hedgingPolicy = new HedgingPolicy(serviceConfig.getHedgingPercentile(), serviceConfig.getHedgingMinDelay(),
+            serviceConfig.getHedgingBudget());
+        LOG.hedgingEnabled(getServiceRole(), serviceConfig.getHedgingPercentile(), serviceConfig.getHedgingMinDelay(),
+            serviceConfig.getHedgingBudget());
+      }
 
       setupUrlHashLookup();
     }
@@ -206,12 +230,87 @@ public class ConfigurableHADispatch extends ConfigurableDispatch {
   protected void executeRequest(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse) throws
       IOException {
     HttpResponse inboundResponse = null;
+    /* the request whose backend serves the response, the hedge if it answered first */
+    HttpUriRequest servedRequest = outboundRequest;
     try {
+      final HttpUriRequest hedgeRequest = createHedgeRequest(outboundRequest);
+      if (hedgeRequest != null) {
+        bindHedgingMetrics(inboundRequest);
+        final HedgedRequest.Result result =
+            new HedgedRequest(outboundRequest, hedgeRequest, this::executeOutboundRequest, hedgingPolicy).execute();
+        servedRequest = result.getRequest();
+        inboundResponse = result.getResponse();
+        writeOutboundResponse(servedRequest, inboundRequest, outboundResponse, inboundResponse);
+        return;
+      }
       inboundResponse = executeOutboundRequest(outboundRequest);
       writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
     } catch ( IOException e ) {
-      LOG.errorConnectingToServer(outboundRequest.getURI().toString(), e);
-      failoverRequest(outboundRequest, inboundRequest, outboundResponse, inboundResponse, e);
+      LOG.errorConnectingToServer(servedRequest.getURI().toString(), e);
+      failoverRequest(servedRequest, inboundRequest, outboundResponse, inboundResponse, e);
+    }
+  }
+
+  /**
+   * Creates a copy of an idempotent request that targets a different URL of the
+   * service, or returns null if the request is not to be hedged. With health
+   * checks on, only URLs that passed their last check are hedged to.
+   */
+  HttpUriRequest createHedgeRequest(HttpUriRequest outboundRequest) {
+    if (hedgingPolicy == null) {
+      return null;
+    }
+    final String method = outboundRequest.getMethod();
+    if (!HttpGet.METHOD_NAME.equals(method) && !HttpHead.METHOD_NAME.equals(method)) {
+      return null;
+    }
+    final URI primary = outboundRequest.getURI();
+    final Optional<String> alternateURL = haProvider.getURLs(getServiceRole())
+        .stream()
+        .filter(url -> !isSameHostAndPort(primary, url))
+        .filter(url -> !healthCheckEnabled || haProvider.isURLHealthy(getServiceRole(), url))
+        .findFirst();
+    if (!alternateURL.isPresent()) {
+      return null;
+    }
+    try {
+      final URI hedgeURI = updateHostURL(primary, alternateURL.get());
+      final HttpRequestBase hedgeRequest = HttpHead.METHOD_NAME.equals(method) ? new HttpHead(hedgeURI) : new HttpGet(hedgeURI);
+      hedgeRequest.setHeaders(outboundRequest.getAllHeaders());
+      if (outboundRequest instanceof HttpRequestBase) {
+        hedgeRequest.setConfig(((HttpRequestBase) outboundRequest).getConfig());
+      }
+      return hedgeRequest;
+    } catch (URISyntaxException e) {
+      return null;
+    }
+  }
+
+  private static boolean isSameHostAndPort(URI uri, String url) {
+    final URI other = URI.create(url);
+    return StringUtils.equalsIgnoreCase(uri.getHost(), other.getHost()) && uri.getPort() == other.getPort();
+  }
+
+  private void bindHedgingMetrics(HttpServletRequest inboundRequest) {
+    if (hedgingMetricsBound) {
+      return;
+    }
+    hedgingMetricsBound = true;
+    final ServletContext servletContext = inboundRequest.getServletContext();
+    if (servletContext == null) {
+      return;
+    }
+    final GatewayConfig config = (GatewayConfig) servletContext.getAttribute(GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE);
+    final GatewayServices services = (GatewayServices) servletContext.getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
+    if (config != null && config.isMetricsEnabled() && services != null) {
+      final MetricsService metricsService = services.getService(ServiceType.METRICS_SERVICE);
+      if (metricsService != null && metricsService.getContext() != null) {
+        final MetricRegistry registry = (MetricRegistry) metricsService.getContext().getProperty(MetricsContext.METRICS_REGISTRY);
+        if (registry != null) {
+          hedgingPolicy.bindMetrics(registry,
+              (String) servletContext.getAttribute(GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE), getServiceRole());
+        }
+      }
     }
   }
 
@@ -303,27 +402,18 @@ public class ConfigurableHADispatch extends ConfigurableDispatch {
     }
     inboundRequest.setAttribute(FAILOVER_COUNTER_ATTRIBUTE, counter);
     if ( counter.incrementAndGet() <= maxFailoverAttempts ) {
-      setupUrlHashLookup(); // refresh the url hash after failing a url
-      //null out target url so that rewriters run again
-      inboundRequest.setAttribute(AbstractGatewayFilter.TARGET_REQUEST_URL_ATTRIBUTE_NAME, null);
-      // Make sure to remove the cookie ha cookie from the request
-      inboundRequest = new StickySessionCookieRemovedRequest(stickySessionCookieName, inboundRequest);
-      URI uri = getDispatchUrl(inboundRequest);
-      ((HttpRequestBase) outboundRequest).setURI(uri);
-      if ( failoverSleep > 0 ) {
-        try {
-          Thread.sleep(failoverSleep);
-        } catch ( InterruptedException e ) {
-          LOG.failoverSleepFailed(getServiceRole(), e);
-          Thread.currentThread().interrupt();
-        }
+      final Span span = Tracing.startSpan("ha.failover")
+          .setAttribute("knox.service", getServiceRole())
+          .setAttribute("ha.failed_url", Tracing.toSpanUrl(outboundRequest.getURI()))
+          .setAttribute("ha.attempt", counter.get());
+      try {
+        failover(outboundRequest, inboundRequest, outboundResponse);
+      } catch (IOException | RuntimeException e) {
+        span.setError(e);
+        throw e;
+      } finally {
+        span.end();
       }
-      LOG.failingOverRequest(outboundRequest.getURI().toString());
-
-      /* in case of failover update the activeURL variable */
-      activeURL.set(outboundRequest.getURI().toString());
-
-      executeRequest(outboundRequest, inboundRequest, outboundResponse);
     } else {
       LOG.maxFailoverAttemptsReached(maxFailoverAttempts, getServiceRole());
       if ( inboundResponse != null ) {
@@ -334,6 +424,40 @@ public class ConfigurableHADispatch extends ConfigurableDispatch {
     }
   }
 
+  private void failover(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse) throws IOException {
+    setupUrlHashLookup(); // refresh the url hash after failing a url
+    //null out target url so that rewriters run again
+    inboundRequest.setAttribute(AbstractGatewayFilter.TARGET_REQUEST_URL_ATTRIBUTE_NAME, null);
+    // Make sure to remove the cookie ha cookie from the request
+    inboundRequest = new StickySessionCookieRemovedRequest(stickySessionCookieName, inboundRequest);
+    URI uri = getDispatchUrl(inboundRequest);
+    ((HttpRequestBase) outboundRequest).setURI(uri);
+    if ( failoverSleep > 0 && !isHealthyURL(uri) ) {
+      try {
+        Thread.sleep(failoverSleep);
+      } catch ( InterruptedException e ) {
+        LOG.failoverSleepFailed(getServiceRole(), e);
+        Thread.currentThread().interrupt();
+      }
+    }
+    LOG.failingOverRequest(outboundRequest.getURI().toString());
+
+    /* in case of failover update the activeURL variable */
+    activeURL.set(outboundRequest.getURI().toString());
+
+    executeRequest(outboundRequest, inboundRequest, outboundResponse);
+  }
+
+  /*
+   * The failover sleep gives the backends time to recover. A URL that passed its
+   * last health check is known to be up, so the request is retried right away.
+   */
+  private boolean isHealthyURL(URI uri) {
+    return healthCheckEnabled && haProvider.getURLs(getServiceRole())
+        .stream()
+        .anyMatch(url -> isSameHostAndPort(uri, url) && haProvider.isURLHealthy(getServiceRole(), url));
+  }
+
   private String hash(String url) {
     return DigestUtils.sha256Hex(url);
   }
@@ -0,0 +1,238 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.ha.dispatch;
+
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.util.EntityUtils;
+import org.apache.knox.gateway.ha.dispatch.i18n.HaDispatchMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.trace.Span;
+import org.apache.knox.gateway.trace.Tracing;
+import org.apache.logging.log4j.ThreadContext;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A single hedged exchange: the primary request runs on the calling thread and,
+ * if it has not been answered within the hedging delay, the hedge request is
+ * sent to another URL. The first response wins and the other request is aborted.
+ */
+class HedgedRequest {
+
+  private static final HaDispatchMessages LOG = MessagesFactory.get(HaDispatchMessages.class);
+
+  private static final int PENDING = 0;
+  private static final int HEDGING = 1;
+  private static final int DONE = 2;
+
+  private static final int MAX_CONCURRENT_HEDGES = 64;
+
+  /**
+   * Executes an outbound request, e.g. DefaultDispatch#executeOutboundRequest.
+   */
+  interface RequestExecutor {
+    HttpResponse execute(HttpUriRequest request) throws IOException;
+  }
+
+  /**
+   * The request that won the exchange together with its response.
+   */
+  static class Result {
+    private final HttpUriRequest request;
+    private final HttpResponse response;
+
+    Result(HttpUriRequest request, HttpResponse response) {
+      this.request = request;
+      this.response = response;
+    }
+
+    HttpUriRequest getRequest() {
+      return request;
+    }
+
+    HttpResponse getResponse() {
+      return response;
+    }
+  }
+
+  private final HttpUriRequest primary;
+  private final HttpUriRequest hedge;
+  private final RequestExecutor executor;
+  private final HedgingPolicy policy;
+  private final Span parentSpan;
+  /* the audit and correlation context of the request, the hedge runs on a pool thread */
+  private final Map<String, String> logContext;
+
+  private final AtomicInteger state = new AtomicInteger(PENDING);
+  private final AtomicReference<HttpUriRequest> winner = new AtomicReference<>();
+  private final CountDownLatch hedgeDone = new CountDownLatch(1);
+  private volatile HttpResponse hedgeResponse;
+  private ScheduledFuture<?> hedgeTimer;
+  /* written before the hedge is scheduled, so the hedge thread sees it */
+  private long start;
+
+  HedgedRequest(HttpUriRequest primary, HttpUriRequest hedge, RequestExecutor executor, HedgingPolicy policy) {
+    this.primary = primary;
+    this.hedge = hedge;
+    this.executor = executor;
+    this.policy = policy;
+    this.parentSpan = Tracing.currentSpan();
+    this.logContext = ThreadContext.getImmutableContext();
+  }
+
+  Result execute() throws IOException {
+    policy.recordRequest();
+    start = System.nanoTime();
+    hedgeTimer = Executors.TIMER.schedule(this::startHedge, policy.getHedgeDelay(), TimeUnit.MILLISECONDS);
+
+    final HttpResponse response;
+    try {
+      response = executor.execute(primary);
+    } catch (IOException e) {
+      if (state.compareAndSet(PENDING, DONE)) {
+        // no hedge in flight, let the caller fail over
+        hedgeTimer.cancel(false);
+        throw e;
+      }
+      return awaitHedge(e);
+    }
+
+    if (winner.compareAndSet(null, primary)) {
+      if (state.getAndSet(DONE) == HEDGING) {
+        abort(hedge);
+      } else {
+        hedgeTimer.cancel(false);
+      }
+      recordLatency();
+      return new Result(primary, response);
+    }
+    // the hedge answered first, this response is no longer needed
+    discard(response);
+    return awaitHedge(null);
+  }
+
+  private Result awaitHedge(IOException primaryFailure) throws IOException {
+    try {
+      hedgeDone.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      abort(hedge);
+      throw primaryFailure != null ? primaryFailure : new IOException(e);
+    }
+    if (winner.get() == hedge) {
+      return new Result(hedge, hedgeResponse);
+    }
+    throw primaryFailure != null ? primaryFailure : new IOException("Hedged request to " + hedge.getURI() + " failed");
+  }
+
+  private void startHedge() {
+    if (!state.compareAndSet(PENDING, HEDGING)) {
+      return;
+    }
+    if (!policy.tryAcquireHedge()) {
+      hedgeDone.countDown();
+      return;
+    }
+    try {
+      Executors.HEDGES.execute(this::runHedge);
+    } catch (RejectedExecutionException e) {
+      policy.releaseHedge();
+      hedgeDone.countDown();
+    }
+  }
+
+  private void runHedge() {
+    ThreadContext.putAll(logContext);
+    LOG.hedgingRequest(hedge.getURI().toString(), policy.getHedgeDelay());
+    try (Tracing.Scope ignored = Tracing.activate(parentSpan)) {
+      final HttpResponse response = executor.execute(hedge);
+      hedgeResponse = response;
+      if (winner.compareAndSet(null, hedge)) {
+        recordLatency();
+        policy.hedgeWon();
+        LOG.hedgedRequestWon(hedge.getURI().toString());
+        abort(primary);
+      } else {
+        discard(response);
+      }
+    } catch (IOException e) {
+      LOG.hedgedRequestFailed(hedge.getURI().toString(), e);
+    } finally {
+      ThreadContext.clearMap();
+      hedgeDone.countDown();
+    }
+  }
+
+  /*
+   * The time until the first response, whichever request sent it. When the hedge
+   * wins, the primary would have taken at least that long, so slow primaries
+   * still raise the hedging delay.
+   */
+  private void recordLatency() {
+    policy.recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+  }
+
+  private static void abort(HttpUriRequest request) {
+    if (request instanceof HttpRequestBase) {
+      ((HttpRequestBase) request).abort();
+    }
+  }
+
+  /* closing drops the connection instead of reading a body nobody wants */
+  private static void discard(HttpResponse response) {
+    if (response instanceof Closeable) {
+      try {
+        ((Closeable) response).close();
+      } catch (IOException e) {
+        // the response is discarded anyway
+      }
+    } else {
+      EntityUtils.consumeQuietly(response.getEntity());
+    }
+  }
+
+  /* shared by all HA dispatches of the gateway */
+  private static class Executors {
+    static final ScheduledThreadPoolExecutor TIMER = newTimer();
+
+    static final ThreadPoolExecutor HEDGES = new ThreadPoolExecutor(0, MAX_CONCURRENT_HEDGES, 60, TimeUnit.SECONDS,
+        new SynchronousQueue<>(), new BasicThreadFactory.Builder().namingPattern("HaHedgedRequest-%d").daemon(true).build());
+
+    /* timers of requests answered before the hedging delay are cancelled, don't keep them queued */
+    private static ScheduledThreadPoolExecutor newTimer() {
+      final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+          new BasicThreadFactory.Builder().namingPattern("HaHedgingTimer-%d").daemon(true).build());
+      timer.setRemoveOnCancelPolicy(true);
+      return timer;
+    }
+  }
+}
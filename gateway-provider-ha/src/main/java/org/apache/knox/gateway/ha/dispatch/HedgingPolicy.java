@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.ha.dispatch;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Decides when a request of a HA service is hedged and keeps the hedges within
+ * the configured budget.
+ *
+ * The hedging delay is the configured percentile of the recently observed
+ * backend latencies, but never less than the configured minimum. The budget is a
+ * token bucket: every hedgeable request earns <code>budget</code> percent of a
+ * hedge, so hedges never add more than that percentage of extra load.
+ */
+class HedgingPolicy {
+
+  private static final int SAMPLE_SIZE = 512;
+
+  private static final int RECALCULATION_INTERVAL = 64;
+
+  /* budget units needed for a single hedge; a request earns 'budget' units */
+  private static final long HEDGE_COST = 100;
+
+  /* cap on the saved up budget so a quiet period can't be followed by a hedge storm */
+  private static final long MAX_SAVED_BUDGET = 10 * HEDGE_COST;
+
+  private final int percentile;
+
+  private final int minDelay;
+
+  private final int budget;
+
+  private final AtomicLongArray latencies = new AtomicLongArray(SAMPLE_SIZE);
+
+  private final AtomicLong latencyCount = new AtomicLong();
+
+  private final AtomicLong savedBudget = new AtomicLong();
+
+  private volatile Counter hedgesIssued = new Counter();
+
+  private volatile Counter hedgesWon = new Counter();
+
+  private volatile long hedgeDelay;
+
+  HedgingPolicy(int percentile, int minDelay, int budget) {
+    this.percentile = Math.max(1, Math.min(100, percentile));
+    this.minDelay = Math.max(0, minDelay);
+    this.budget = Math.max(0, budget);
+    this.hedgeDelay = this.minDelay;
+  }
+
+  long getHedgeDelay() {
+    return hedgeDelay;
+  }
+
+  /**
+   * Records the time a hedged exchange took until its first response, from the
+   * primary or from the hedge.
+   *
+   * @param millis the time until the first response
+   */
+  void recordLatency(long millis) {
+    final long count = latencyCount.getAndIncrement();
+    latencies.set((int) (count % SAMPLE_SIZE), millis);
+    if ((count + 1) % RECALCULATION_INTERVAL == 0) {
+      recalculateHedgeDelay((int) Math.min(count + 1, SAMPLE_SIZE));
+    }
+  }
+
+  private void recalculateHedgeDelay(int samples) {
+    final long[] sorted = new long[samples];
+    for (int i = 0; i < samples; i++) {
+      sorted[i] = latencies.get(i);
+    }
+    Arrays.sort(sorted);
+    final int index = (int) Math.ceil(percentile / 100.0 * samples) - 1;
+    hedgeDelay = Math.max(minDelay, sorted[Math.max(0, Math.min(index, samples - 1))]);
+  }
+
+  /**
+   * Called for every hedgeable request, adds its share to the hedging budget.
+   */
+  void recordRequest() {
+    savedBudget.accumulateAndGet(budget, (current, earned) -> Math.min(MAX_SAVED_BUDGET, current + earned));
+  }
+
+  /**
+   * @return true if the budget allows another hedge, which is then counted as issued
+   */
+  boolean tryAcquireHedge() {
+    long current;
+    do {
+      current = savedBudget.get();
+      if (current < HEDGE_COST) {
+        return false;
+      }
+    } while (!savedBudget.compareAndSet(current, current - HEDGE_COST));
+    hedgesIssued.inc();
+    return true;
+  }
+
+  /**
+   * Returns the budget of a hedge that was acquired but could not be issued.
+   */
+  void releaseHedge() {
+    savedBudget.accumulateAndGet(HEDGE_COST, (current, refund) -> Math.min(MAX_SAVED_BUDGET, current + refund));
+    hedgesIssued.dec();
+  }
+
+  void hedgeWon() {
+    hedgesWon.inc();
+  }
+
+  Counter getHedgesIssued() {
+    return hedgesIssued;
+  }
+
+  Counter getHedgesWon() {
+    return hedgesWon;
+  }
+
+  /**
+   * Switches to the counters of the gateway metrics registry. They are shared by
+   * all dispatches of the service in the topology and survive redeployments.
+   */
+  void bindMetrics(MetricRegistry registry, String topology, String serviceRole) {
+    hedgesIssued = registry.counter(MetricRegistry.name("ha", "hedging", topology, serviceRole, "issued"));
+    hedgesWon = registry.counter(MetricRegistry.name("ha", "hedging", topology, serviceRole, "won"));
+  }
+}
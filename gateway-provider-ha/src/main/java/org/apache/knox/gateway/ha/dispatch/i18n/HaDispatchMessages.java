@@ -53,4 +53,16 @@ public interface HaDispatchMessages {
 
   @Message(level = MessageLevel.ERROR, text = "Unsupported encoding, cause: {0}")
   void unsupportedEncodingException(String cause);
+
+  @Message(level = MessageLevel.DEBUG, text = "Hedging request to {0} after {1} ms without a response")
+  void hedgingRequest(String uri, long delay);
+
+  @Message(level = MessageLevel.DEBUG, text = "Hedged request to {0} answered first")
+  void hedgedRequestWon(String uri);
+
+  @Message(level = MessageLevel.DEBUG, text = "Hedged request to {0} failed: {1}")
+  void hedgedRequestFailed(String uri, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
+  @Message(level = MessageLevel.INFO, text = "Hedging enabled for {0}, percentile: {1}, minimum delay: {2} ms, budget: {3}%")
+  void hedgingEnabled(String serviceRole, int percentile, int minDelay, int budget);
 }
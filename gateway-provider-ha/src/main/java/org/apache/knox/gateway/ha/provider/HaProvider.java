@@ -79,4 +79,25 @@ public interface HaProvider {
    * @param serviceName the name of the service
    */
   List<String> getURLs(String serviceName);
+
+  /**
+   * Records the result of a background health check of one of the service URLs.
+   * URLs reported unhealthy are skipped when choosing the next active URL, as long
+   * as at least one healthy URL remains.
+   *
+   * @param serviceName the name of the service
+   * @param url         the URL that was probed
+   * @param healthy     true if the URL passed the health check; false otherwise
+   */
+  void setURLHealthy(String serviceName, String url, boolean healthy);
+
+  /**
+   * Returns whether the last background health check of the URL succeeded.
+   *
+   * @param serviceName the name of the service
+   * @param url         the URL to look up
+   * @return true if the URL passed its last health check; false if it failed, was not checked yet
+   * or the service is not found
+   */
+  boolean isURLHealthy(String serviceName, String url);
 }
@@ -63,4 +63,36 @@ public interface HaServiceConfig {
   void setDisableStickySessionForUserAgents(List<String> disableStickySessionForUserAgents);
 
   List<String> getStickySessionDisabledUserAgents();
+
+  boolean isHealthCheckEnabled();
+
+  void setHealthCheckEnabled(boolean healthCheckEnabled);
+
+  String getHealthCheckPath();
+
+  void setHealthCheckPath(String healthCheckPath);
+
+  int getHealthCheckInterval();
+
+  void setHealthCheckInterval(int healthCheckInterval);
+
+  int getHealthCheckTimeout();
+
+  void setHealthCheckTimeout(int healthCheckTimeout);
+
+  boolean isHedgingEnabled();
+
+  void setHedgingEnabled(boolean hedgingEnabled);
+
+  int getHedgingPercentile();
+
+  void setHedgingPercentile(int hedgingPercentile);
+
+  int getHedgingMinDelay();
+
+  void setHedgingMinDelay(int hedgingMinDelay);
+
+  int getHedgingBudget();
+
+  void setHedgingBudget(int hedgingBudget);
 }
@@ -17,12 +17,15 @@
  */
 package org.apache.knox.gateway.ha.provider;
 
+import org.apache.knox.gateway.dispatch.DefaultHttpClientFactory;
 import org.apache.knox.gateway.ha.provider.impl.DefaultHaProvider;
+import org.apache.knox.gateway.ha.provider.impl.HaHealthChecker;
 import org.apache.knox.gateway.ha.provider.impl.HaDescriptorManager;
 import org.apache.knox.gateway.services.ServiceType;
 import org.apache.knox.gateway.services.GatewayServices;
 import org.apache.knox.gateway.services.registry.ServiceRegistry;
 
+import javax.net.ssl.SSLContext;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
@@ -34,6 +37,7 @@ import java.util.List;
 
 public class HaServletContextListener implements ServletContextListener {
    public static final String PROVIDER_ATTRIBUTE_NAME = "haProvider";
+   public static final String HEALTH_CHECKER_ATTRIBUTE_NAME = "haHealthChecker";
    public static final String DESCRIPTOR_LOCATION_INIT_PARAM_NAME = "haDescriptorLocation";
    public static final String DESCRIPTOR_DEFAULT_FILE_NAME = "ha.xml";
    public static final String DESCRIPTOR_DEFAULT_LOCATION = "/WEB-INF/" + DESCRIPTOR_DEFAULT_FILE_NAME;
@@ -53,6 +57,11 @@ public class HaServletContextListener implements ServletContextListener {
 
    @Override
    public void contextDestroyed(ServletContextEvent event) {
+      HaHealthChecker healthChecker = (HaHealthChecker) event.getServletContext().getAttribute(HEALTH_CHECKER_ATTRIBUTE_NAME);
+      if (healthChecker != null) {
+         healthChecker.stop();
+         event.getServletContext().removeAttribute(HEALTH_CHECKER_ATTRIBUTE_NAME);
+      }
       event.getServletContext().removeAttribute(PROVIDER_ATTRIBUTE_NAME);
    }
 
@@ -70,6 +79,13 @@ public class HaServletContextListener implements ServletContextListener {
          provider.addHaService(serviceName, serviceRegistry.lookupServiceURLs(clusterName, serviceName));
       }
       servletContext.setAttribute(PROVIDER_ATTRIBUTE_NAME, provider);
+
+      /* probe with the truststore of the dispatches, backends may use certificates of an internal CA */
+      SSLContext sslContext = services.getService(ServiceType.KEYSTORE_SERVICE) == null
+          ? null : DefaultHttpClientFactory.createSSLContext(services, false, null);
+      HaHealthChecker healthChecker = new HaHealthChecker(provider, sslContext);
+      healthChecker.start();
+      servletContext.setAttribute(HEALTH_CHECKER_ATTRIBUTE_NAME, healthChecker);
    }
 
    private static URL locateDescriptor(ServletContext context) throws IOException {
@@ -35,4 +35,23 @@ public interface URLManager {
   void markFailed(String url);
 
   void makeNextActiveURLAvailable();
+
+  /**
+   * Record the outcome of an out-of-band health check for the URL. Managers that
+   * track backend liveness by other means (e.g. ZooKeeper) may ignore it.
+   *
+   * @param url     the URL that was probed
+   * @param healthy true if the URL responded to the health check; false otherwise
+   */
+  default void setHealthy(String url, boolean healthy) {
+    //no-op
+  }
+
+  /**
+   * @param url the URL to look up
+   * @return true if the last health check of the URL succeeded; false if it failed or the URL was not checked
+   */
+  default boolean isHealthy(String url) {
+    return false;
+  }
 }
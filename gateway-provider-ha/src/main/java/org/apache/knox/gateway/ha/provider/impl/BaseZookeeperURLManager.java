@@ -18,29 +18,16 @@
 package org.apache.knox.gateway.ha.provider.impl;
 
 import java.io.IOException;
-import java.security.Principal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
-import org.apache.knox.gateway.config.GatewayConfig;
-import org.apache.knox.gateway.dispatch.KnoxSpnegoAuthSchemeFactory;
 import org.apache.knox.gateway.ha.provider.HaServiceConfig;
 import org.apache.knox.gateway.ha.provider.URLManager;
 import org.apache.knox.gateway.ha.provider.impl.i18n.HaMessages;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
-import org.apache.http.auth.AuthSchemeProvider;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.Credentials;
-import org.apache.http.client.CredentialsProvider;
-import org.apache.http.client.config.AuthSchemes;
-import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.config.Registry;
-import org.apache.http.config.RegistryBuilder;
-import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
 
 /**
  * Base implementation of URLManager intended for query of Zookeeper active hosts. In
@@ -168,7 +155,7 @@ public abstract class BaseZookeeperURLManager implements URLManager {
    */
   protected List<String> validateHosts(List<String> hosts, String suffix, String acceptHeader) {
     List<String> result = new ArrayList<>();
-    try (CloseableHttpClient client = buildHttpClient()) {
+    try (CloseableHttpClient client = HaHttpClientBuilder.build(TIMEOUT)) {
       for(String host: hosts) {
         try {
           HttpGet get = new HttpGet(host + suffix);
@@ -193,55 +180,4 @@ public abstract class BaseZookeeperURLManager implements URLManager {
 
     return result;
   }
-
-  /**
-   * Construct an Apache HttpClient with suitable timeout and authentication.
-   *
-   * @return Apache HttpClient
-   */
-  private CloseableHttpClient buildHttpClient() {
-    CloseableHttpClient client;
-
-    // Construct a HttpClient with short term timeout
-    RequestConfig.Builder requestBuilder = RequestConfig.custom()
-                                                        .setConnectTimeout(TIMEOUT)
-                                                        .setSocketTimeout(TIMEOUT)
-                                                        .setConnectionRequestTimeout(TIMEOUT);
-
-    // If Kerberos is enabled, allow for challenge/response transparent to client
-    if (Boolean.getBoolean(GatewayConfig.HADOOP_KERBEROS_SECURED)) {
-      CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
-      credentialsProvider.setCredentials(AuthScope.ANY, new NullCredentials());
-
-      Registry<AuthSchemeProvider> authSchemeRegistry =
-                            RegistryBuilder.<AuthSchemeProvider>create()
-                                           .register(AuthSchemes.SPNEGO, new KnoxSpnegoAuthSchemeFactory(true))
-                                           .build();
-
-      client = HttpClientBuilder.create()
-                                .setDefaultRequestConfig(requestBuilder.build())
-                                .setDefaultAuthSchemeRegistry(authSchemeRegistry)
-                                .setDefaultCredentialsProvider(credentialsProvider)
-                                .build();
-    } else {
-      client = HttpClientBuilder.create()
-                                .setDefaultRequestConfig(requestBuilder.build())
-                                .build();
-    }
-
-    return client;
-  }
-
-  private static class NullCredentials implements Credentials {
-    @Override
-    public Principal getUserPrincipal() {
-      return null;
-    }
-
-    @Override
-    public String getPassword() {
-      return null;
-    }
-  }
-
 }
@@ -125,6 +125,31 @@ public class DefaultHaProvider implements HaProvider {
     }
   }
 
+  @Override
+  public void setURLHealthy(String serviceName, String url, boolean healthy) {
+    rwl.writeLock().lock();
+    try {
+      if (haServices.containsKey(serviceName)) {
+        haServices.get(serviceName).setHealthy(url, healthy);
+      } else {
+        LOG.noServiceFound(serviceName);
+      }
+    } finally {
+      rwl.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean isURLHealthy(String serviceName, String url) {
+    rwl.readLock().lock();
+    try {
+      final URLManager manager = haServices.get(serviceName);
+      return manager != null && manager.isHealthy(url);
+    } finally {
+      rwl.readLock().unlock();
+    }
+  }
+
   @Override
   public List<String> getURLs(String serviceName) {
     if ( haServices.containsKey(serviceName) ) {
@@ -45,6 +45,22 @@ public class DefaultHaServiceConfig implements HaServiceConfig, HaServiceConfigC
 
   private List<String> disableStickySessionForUserAgents;
 
+  private boolean isHealthCheckEnabled = DEFAULT_HEALTH_CHECK_ENABLED;
+
+  private String healthCheckPath = DEFAULT_HEALTH_CHECK_PATH;
+
+  private int healthCheckInterval = DEFAULT_HEALTH_CHECK_INTERVAL;
+
+  private int healthCheckTimeout = DEFAULT_HEALTH_CHECK_TIMEOUT;
+
+  private boolean isHedgingEnabled = DEFAULT_HEDGING_ENABLED;
+
+  private int hedgingPercentile = DEFAULT_HEDGING_PERCENTILE;
+
+  private int hedgingMinDelay = DEFAULT_HEDGING_MIN_DELAY;
+
+  private int hedgingBudget = DEFAULT_HEDGING_BUDGET;
+
   public DefaultHaServiceConfig(String name) {
     this.name = name;
   }
@@ -158,4 +174,84 @@ public class DefaultHaServiceConfig implements HaServiceConfig, HaServiceConfigC
   public List<String> getStickySessionDisabledUserAgents() {
     return disableStickySessionForUserAgents;
   }
+
+  @Override
+  public boolean isHealthCheckEnabled() {
+    return isHealthCheckEnabled;
+  }
+
+  @Override
+  public void setHealthCheckEnabled(boolean healthCheckEnabled) {
+    this.isHealthCheckEnabled = healthCheckEnabled;
+  }
+
+  @Override
+  public String getHealthCheckPath() {
+    return healthCheckPath;
+  }
+
+  @Override
+  public void setHealthCheckPath(String healthCheckPath) {
+    this.healthCheckPath = healthCheckPath;
+  }
+
+  @Override
+  public int getHealthCheckInterval() {
+    return healthCheckInterval;
+  }
+
+  @Override
+  public void setHealthCheckInterval(int healthCheckInterval) {
+    this.healthCheckInterval = healthCheckInterval;
+  }
+
+  @Override
+  public int getHealthCheckTimeout() {
+    return healthCheckTimeout;
+  }
+
+  @Override
+  public void setHealthCheckTimeout(int healthCheckTimeout) {
+    this.healthCheckTimeout = healthCheckTimeout;
+  }
+
+  @Override
+  public boolean isHedgingEnabled() {
+    return isHedgingEnabled;
+  }
+
+  @Override
+  public void setHedgingEnabled(boolean hedgingEnabled) {
+    this.isHedgingEnabled = hedgingEnabled;
+  }
+
+  @Override
+  public int getHedgingPercentile() {
+    return hedgingPercentile;
+  }
+
+  @Override
+  public void setHedgingPercentile(int hedgingPercentile) {
+    this.hedgingPercentile = hedgingPercentile;
+  }
+
+  @Override
+  public int getHedgingMinDelay() {
+    return hedgingMinDelay;
+  }
+
+  @Override
+  public void setHedgingMinDelay(int hedgingMinDelay) {
+    this.hedgingMinDelay = hedgingMinDelay;
+  }
+
+  @Override
+  public int getHedgingBudget() {
+    return hedgingBudget;
+  }
+
+  @Override
+  public void setHedgingBudget(int hedgingBudget) {
+    this.hedgingBudget = hedgingBudget;
+  }
 }
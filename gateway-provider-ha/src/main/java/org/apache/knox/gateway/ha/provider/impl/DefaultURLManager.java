@@ -24,7 +24,9 @@ import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class DefaultURLManager implements URLManager {
@@ -33,6 +35,12 @@ public class DefaultURLManager implements URLManager {
 
   private final ConcurrentLinkedQueue<String> urls = new ConcurrentLinkedQueue<>();
 
+  /* URLs the background health check currently reports as down */
+  private final Set<String> unhealthyUrls = new HashSet<>();
+
+  /* URLs whose last health check succeeded */
+  private final Set<String> healthyUrls = new HashSet<>();
+
   @Override
   public boolean supportsConfig(HaServiceConfig config) {
     return true;
@@ -73,6 +81,8 @@ public class DefaultURLManager implements URLManager {
     if (urls != null && !urls.isEmpty()) {
       this.urls.clear();
       this.urls.addAll(urls);
+      this.unhealthyUrls.retainAll(urls);
+      this.healthyUrls.retainAll(urls);
     }
   }
 
@@ -92,6 +102,7 @@ public class DefaultURLManager implements URLManager {
       if (pushToBottom) {
         String failed = urls.poll();
         urls.offer(failed);
+        skipUnhealthyURLs();
         LOG.markedFailedUrl(failed, urls.peek());
       }
     }
@@ -101,5 +112,41 @@ public class DefaultURLManager implements URLManager {
   public synchronized void makeNextActiveURLAvailable() {
     String head = urls.poll();
     urls.offer(head);
+    skipUnhealthyURLs();
+  }
+
+  @Override
+  public synchronized void setHealthy(String url, boolean healthy) {
+    if (!urls.contains(url)) {
+      return;
+    }
+    if (healthy) {
+      healthyUrls.add(url);
+    } else {
+      healthyUrls.remove(url);
+    }
+    boolean changed = healthy ? unhealthyUrls.remove(url) : unhealthyUrls.add(url);
+    if (changed) {
+      LOG.urlHealthChanged(url, healthy);
+      skipUnhealthyURLs();
+    }
+  }
+
+  @Override
+  public synchronized boolean isHealthy(String url) {
+    return healthyUrls.contains(url);
+  }
+
+  /**
+   * Rotates the URLs until a healthy one is on top. If every URL is reported
+   * unhealthy the order is left alone, so requests still have a URL to try.
+   */
+  private void skipUnhealthyURLs() {
+    if (unhealthyUrls.isEmpty() || unhealthyUrls.size() >= urls.size()) {
+      return;
+    }
+    while (unhealthyUrls.contains(urls.peek())) {
+      urls.offer(urls.poll());
+    }
   }
 }
@@ -51,4 +51,20 @@ public interface HaDescriptorConstants {
    String ENABLE_NO_FALLBACK = "noFallback";
 
    String STICKY_SESSION_COOKIE_NAME = "stickySessionCookieName";
+
+   String ENABLE_HEALTH_CHECK = "enableHealthCheck";
+
+   String HEALTH_CHECK_PATH = "healthCheckPath";
+
+   String HEALTH_CHECK_INTERVAL = "healthCheckInterval";
+
+   String HEALTH_CHECK_TIMEOUT = "healthCheckTimeout";
+
+   String ENABLE_HEDGING = "enableHedging";
+
+   String HEDGING_PERCENTILE = "hedgingPercentile";
+
+   String HEDGING_MIN_DELAY = "hedgingMinDelay";
+
+   String HEDGING_BUDGET = "hedgingBudget";
 }
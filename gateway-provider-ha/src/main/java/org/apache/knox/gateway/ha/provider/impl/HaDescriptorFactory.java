@@ -54,8 +54,19 @@ public abstract class HaDescriptorFactory implements HaServiceConfigConstants {
               .trim()
               .split("\\s*,\\s*"));
     }
-    return createServiceConfig(serviceName, enabled, maxFailoverAttempts, failoverSleep, zookeeperEnsemble, zookeeperNamespace, stickySessionsEnabled, loadBalancingEnabled,
-            stickySessionCookieName, noFallbackEnabled, disableLoadBalancingForUserAgents);
+    final DefaultHaServiceConfig serviceConfig = createServiceConfig(serviceName, enabled, maxFailoverAttempts, failoverSleep, zookeeperEnsemble, zookeeperNamespace,
+            stickySessionsEnabled, loadBalancingEnabled, stickySessionCookieName, noFallbackEnabled, disableLoadBalancingForUserAgents);
+
+    serviceConfig.setHealthCheckEnabled(Boolean.parseBoolean(configMap.getOrDefault(CONFIG_HEALTH_CHECK_ENABLED, Boolean.toString(DEFAULT_HEALTH_CHECK_ENABLED))));
+    serviceConfig.setHealthCheckPath(configMap.getOrDefault(CONFIG_HEALTH_CHECK_PATH, DEFAULT_HEALTH_CHECK_PATH));
+    serviceConfig.setHealthCheckInterval(Integer.parseInt(configMap.getOrDefault(CONFIG_HEALTH_CHECK_INTERVAL, Integer.toString(DEFAULT_HEALTH_CHECK_INTERVAL))));
+    serviceConfig.setHealthCheckTimeout(Integer.parseInt(configMap.getOrDefault(CONFIG_HEALTH_CHECK_TIMEOUT, Integer.toString(DEFAULT_HEALTH_CHECK_TIMEOUT))));
+
+    serviceConfig.setHedgingEnabled(Boolean.parseBoolean(configMap.getOrDefault(CONFIG_HEDGING_ENABLED, Boolean.toString(DEFAULT_HEDGING_ENABLED))));
+    serviceConfig.setHedgingPercentile(Integer.parseInt(configMap.getOrDefault(CONFIG_HEDGING_PERCENTILE, Integer.toString(DEFAULT_HEDGING_PERCENTILE))));
+    serviceConfig.setHedgingMinDelay(Integer.parseInt(configMap.getOrDefault(CONFIG_HEDGING_MIN_DELAY, Integer.toString(DEFAULT_HEDGING_MIN_DELAY))));
+    serviceConfig.setHedgingBudget(Integer.parseInt(configMap.getOrDefault(CONFIG_HEDGING_BUDGET, Integer.toString(DEFAULT_HEDGING_BUDGET))));
+    return serviceConfig;
   }
 
   /**
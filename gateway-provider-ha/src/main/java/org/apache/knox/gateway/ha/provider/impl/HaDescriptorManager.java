@@ -66,6 +66,16 @@ public class HaDescriptorManager implements HaDescriptorConstants {
                if (config.getStickySessionCookieName() != null) {
                  serviceElement.setAttribute(STICKY_SESSION_COOKIE_NAME, config.getStickySessionCookieName());
                }
+               serviceElement.setAttribute(ENABLE_HEALTH_CHECK, Boolean.toString(config.isHealthCheckEnabled()));
+               if (config.getHealthCheckPath() != null) {
+                 serviceElement.setAttribute(HEALTH_CHECK_PATH, config.getHealthCheckPath());
+               }
+               serviceElement.setAttribute(HEALTH_CHECK_INTERVAL, Integer.toString(config.getHealthCheckInterval()));
+               serviceElement.setAttribute(HEALTH_CHECK_TIMEOUT, Integer.toString(config.getHealthCheckTimeout()));
+               serviceElement.setAttribute(ENABLE_HEDGING, Boolean.toString(config.isHedgingEnabled()));
+               serviceElement.setAttribute(HEDGING_PERCENTILE, Integer.toString(config.getHedgingPercentile()));
+               serviceElement.setAttribute(HEDGING_MIN_DELAY, Integer.toString(config.getHedgingMinDelay()));
+               serviceElement.setAttribute(HEDGING_BUDGET, Integer.toString(config.getHedgingBudget()));
                root.appendChild(serviceElement);
             }
          }
@@ -96,6 +106,8 @@ public class HaDescriptorManager implements HaDescriptorConstants {
                      element.getAttribute(ENABLE_STICKY_SESSIONS),
                      element.getAttribute(STICKY_SESSION_COOKIE_NAME),
                      element.getAttribute(ENABLE_NO_FALLBACK));
+               applyHealthCheckAttributes(config, element);
+               applyHedgingAttributes(config, element);
                descriptor.addServiceConfig(config);
             }
          }
@@ -106,4 +118,42 @@ public class HaDescriptorManager implements HaDescriptorConstants {
      return descriptor;
    }
 
+   private static void applyHealthCheckAttributes(HaServiceConfig config, Element element) {
+      String enabled = element.getAttribute(ENABLE_HEALTH_CHECK);
+      if (!enabled.trim().isEmpty()) {
+         config.setHealthCheckEnabled(Boolean.parseBoolean(enabled));
+      }
+      String path = element.getAttribute(HEALTH_CHECK_PATH);
+      if (!path.trim().isEmpty()) {
+         config.setHealthCheckPath(path);
+      }
+      String interval = element.getAttribute(HEALTH_CHECK_INTERVAL);
+      if (!interval.trim().isEmpty()) {
+         config.setHealthCheckInterval(Integer.parseInt(interval));
+      }
+      String timeout = element.getAttribute(HEALTH_CHECK_TIMEOUT);
+      if (!timeout.trim().isEmpty()) {
+         config.setHealthCheckTimeout(Integer.parseInt(timeout));
+      }
+   }
+
+   private static void applyHedgingAttributes(HaServiceConfig config, Element element) {
+      String enabled = element.getAttribute(ENABLE_HEDGING);
+      if (!enabled.trim().isEmpty()) {
+         config.setHedgingEnabled(Boolean.parseBoolean(enabled));
+      }
+      String percentile = element.getAttribute(HEDGING_PERCENTILE);
+      if (!percentile.trim().isEmpty()) {
+         config.setHedgingPercentile(Integer.parseInt(percentile));
+      }
+      String minDelay = element.getAttribute(HEDGING_MIN_DELAY);
+      if (!minDelay.trim().isEmpty()) {
+         config.setHedgingMinDelay(Integer.parseInt(minDelay));
+      }
+      String budget = element.getAttribute(HEDGING_BUDGET);
+      if (!budget.trim().isEmpty()) {
+         config.setHedgingBudget(Integer.parseInt(budget));
+      }
+   }
+
 }
@@ -0,0 +1,209 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.ha.provider.impl;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
+import org.apache.knox.gateway.ha.provider.HaProvider;
+import org.apache.knox.gateway.ha.provider.HaServiceConfig;
+import org.apache.knox.gateway.ha.provider.impl.i18n.HaMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+/**
+ * Actively probes the URLs of the HA enabled services of a topology and reports
+ * their health to the {@link HaProvider}, so that dead backends are taken out of
+ * rotation before a user request has to fail over.
+ *
+ * The rounds of all topologies are scheduled by a single, gateway wide timer and
+ * the probes run on a separate, bounded pool. A URL is only probed again once its
+ * previous probe has finished, so backends that hang until the probe timeout
+ * never hold up the probes of other URLs, nor pile up in the pool.
+ */
+public class HaHealthChecker {
+
+  private static final HaMessages LOG = MessagesFactory.get(HaMessages.class);
+
+  private static final int MAX_CONCURRENT_PROBES = 16;
+
+  private final HaProvider haProvider;
+
+  private final SSLContext sslContext;
+
+  private final List<CloseableHttpClient> clients = new ArrayList<>();
+
+  /* service and URL of the probes that are queued or running */
+  private final Set<String> probing = ConcurrentHashMap.newKeySet();
+
+  private volatile boolean stopped;
+
+  public HaHealthChecker(HaProvider haProvider) {
+    this(haProvider, null);
+  }
+
+  /**
+   * @param haProvider the provider of the probed services
+   * @param sslContext the context the service dispatches use for TLS, null for the HttpClient default
+   */
+  public HaHealthChecker(HaProvider haProvider, SSLContext sslContext) {
+    this.haProvider = haProvider;
+    this.sslContext = sslContext;
+  }
+
+  /**
+   * Schedules the health checks of every enabled service that has health checking
+   * turned on. The first round of probes runs immediately.
+   */
+  public synchronized void start() {
+    for (HaServiceConfig config : haProvider.getHaDescriptor().getServiceConfigs()) {
+      if (config.isEnabled() && config.isHealthCheckEnabled() && config.getHealthCheckInterval() > 0) {
+        final String serviceName = config.getServiceName();
+        final String path = config.getHealthCheckPath();
+        final CloseableHttpClient client = HaHttpClientBuilder.build(config.getHealthCheckTimeout(), sslContext);
+        clients.add(client);
+        LOG.startingHealthCheck(serviceName, config.getHealthCheckInterval(), path);
+        schedule(() -> checkService(serviceName, path, client), 0, config.getHealthCheckInterval());
+      }
+    }
+  }
+
+  /**
+   * Stops the health checks and releases their HTTP clients. Checks are rescheduled
+   * one round at a time, so nothing is left on the shared scheduler afterwards, and
+   * probes still queued on the shared pool are skipped.
+   */
+  public synchronized void stop() {
+    stopped = true;
+    for (CloseableHttpClient client : clients) {
+      try {
+        client.close();
+      } catch (IOException e) {
+        LOG.failedToCloseHealthCheckClient(e);
+      }
+    }
+    clients.clear();
+  }
+
+  private void schedule(Runnable check, long delay, long interval) {
+    if (!stopped) {
+      ExecutorHolder.SCHEDULER.schedule(() -> {
+        if (!stopped) {
+          try {
+            check.run();
+          } finally {
+            schedule(check, interval, interval);
+          }
+        }
+      }, delay, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  void checkService(String serviceName, String path, CloseableHttpClient client) {
+    for (String url : haProvider.getURLs(serviceName)) {
+      final String probe = serviceName + ' ' + url;
+      if (probing.add(probe)) {
+        ExecutorHolder.PROBES.execute(() -> {
+          try {
+            if (!stopped) {
+              final boolean healthy = isHealthy(serviceName, url, path, client);
+              if (!stopped) {
+                haProvider.setURLHealthy(serviceName, url, healthy);
+              }
+            }
+          } finally {
+            probing.remove(probe);
+          }
+        });
+      }
+    }
+  }
+
+  /*
+   * Any response below 500 proves the backend is up and serving; e.g. a 401 from a
+   * secured endpoint still counts as healthy.
+   */
+  private boolean isHealthy(String serviceName, String url, String path, CloseableHttpClient client) {
+    try {
+      final HttpGet probe = new HttpGet(getProbeURI(url, path));
+      try (CloseableHttpResponse response = client.execute(probe)) {
+        EntityUtils.consumeQuietly(response.getEntity());
+        final int status = response.getStatusLine().getStatusCode();
+        if (status >= 500) {
+          LOG.healthCheckFailed(url, serviceName, response.getStatusLine().toString());
+          return false;
+        }
+        return true;
+      }
+    } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+      LOG.healthCheckFailed(url, serviceName, e.toString());
+      return false;
+    }
+  }
+
+  /**
+   * Absolute paths are resolved against the scheme, host and port of the service
+   * URL (e.g. /jmx), relative paths are appended to the service URL.
+   *
+   * @param url  the service URL
+   * @param path the configured health check path
+   * @return the URI to probe
+   */
+  static URI getProbeURI(String url, String path) {
+    final URI serviceUri = URI.create(url);
+    if (StringUtils.isBlank(path)) {
+      return serviceUri;
+    }
+    if (path.startsWith("/")) {
+      return serviceUri.resolve(path);
+    }
+    return URI.create(StringUtils.removeEnd(url, "/") + "/" + path);
+  }
+
+  private static class ExecutorHolder {
+    static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(
+        new BasicThreadFactory.Builder().namingPattern("HaHealthChecker-%d").daemon(true).build());
+
+    /* the queue holds at most one probe per URL, see checkService */
+    static final ThreadPoolExecutor PROBES = newProbePool();
+
+    private static ThreadPoolExecutor newProbePool() {
+      final ThreadPoolExecutor pool = new ThreadPoolExecutor(MAX_CONCURRENT_PROBES, MAX_CONCURRENT_PROBES,
+          60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+          new BasicThreadFactory.Builder().namingPattern("HaHealthProbe-%d").daemon(true).build());
+      pool.allowCoreThreadTimeOut(true);
+      return pool;
+    }
+  }
+}
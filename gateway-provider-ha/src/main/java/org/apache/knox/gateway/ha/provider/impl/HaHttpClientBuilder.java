@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ * <p/>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p/>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.ha.provider.impl;
+
+import java.security.Principal;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.auth.AuthSchemeProvider;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.Credentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.AuthSchemes;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.dispatch.KnoxSpnegoAuthSchemeFactory;
+
+/**
+ * Builds the lightweight Apache HttpClients the HA provider uses to ping
+ * backend hosts outside of the dispatch path.
+ */
+final class HaHttpClientBuilder {
+
+  private HaHttpClientBuilder() {
+  }
+
+  /**
+   * Construct an Apache HttpClient with suitable timeout and authentication.
+   *
+   * @param timeout connect, socket and connection request timeout in milliseconds
+   * @return Apache HttpClient
+   */
+  static CloseableHttpClient build(int timeout) {
+    return build(timeout, null);
+  }
+
+  /**
+   * Construct an Apache HttpClient with suitable timeout, authentication and TLS settings.
+   *
+   * @param timeout connect, socket and connection request timeout in milliseconds
+   * @param sslContext the context for TLS connections, null for the HttpClient default
+   * @return Apache HttpClient
+   */
+  static CloseableHttpClient build(int timeout, SSLContext sslContext) {
+    CloseableHttpClient client;
+
+    // Construct a HttpClient with short term timeout
+    RequestConfig.Builder requestBuilder = RequestConfig.custom()
+                                                        .setConnectTimeout(timeout)
+                                                        .setSocketTimeout(timeout)
+                                                        .setConnectionRequestTimeout(timeout);
+
+    // If Kerberos is enabled, allow for challenge/response transparent to client
+    if (Boolean.getBoolean(GatewayConfig.HADOOP_KERBEROS_SECURED)) {
+      CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+      credentialsProvider.setCredentials(AuthScope.ANY, new NullCredentials());
+
+      Registry<AuthSchemeProvider> authSchemeRegistry =
+                            RegistryBuilder.<AuthSchemeProvider>create()
+                                           .register(AuthSchemes.SPNEGO, new KnoxSpnegoAuthSchemeFactory(true))
+                                           .build();
+
+      client = createBuilder(sslContext)
+                                .setDefaultRequestConfig(requestBuilder.build())
+                                .setDefaultAuthSchemeRegistry(authSchemeRegistry)
+                                .setDefaultCredentialsProvider(credentialsProvider)
+                                .build();
+    } else {
+      client = createBuilder(sslContext)
+                                .setDefaultRequestConfig(requestBuilder.build())
+                                .build();
+    }
+
+    return client;
+  }
+
+  private static HttpClientBuilder createBuilder(SSLContext sslContext) {
+    HttpClientBuilder builder = HttpClientBuilder.create();
+    if (sslContext != null) {
+      builder.setSSLSocketFactory(new SSLConnectionSocketFactory(sslContext));
+    }
+    return builder;
+  }
+
+  private static class NullCredentials implements Credentials {
+    @Override
+    public Principal getUserPrincipal() {
+      return null;
+    }
+
+    @Override
+    public String getPassword() {
+      return null;
+    }
+  }
+}
@@ -46,6 +46,50 @@ public interface HaServiceConfigConstants {
     */
    String DISABLE_LB_USER_AGENTS = "disableLoadBalancingForUserAgents";
 
+   /**
+    * Enable active background probing of the service URLs so that dead
+    * endpoints are taken out of rotation before requests hit them.
+    * A failed request is retried without the failoverSleep when the next URL
+    * passed its last health check; the sleep only applies to URLs that failed
+    * their check or were not checked yet.
+    */
+   String CONFIG_HEALTH_CHECK_ENABLED = "enableHealthCheck";
+
+   /**
+    * The path probed by the health check. Absolute paths (e.g. /jmx) are
+    * resolved against the scheme, host and port of each service URL,
+    * relative paths against the full service URL.
+    */
+   String CONFIG_HEALTH_CHECK_PATH = "healthCheckPath";
+
+   String CONFIG_HEALTH_CHECK_INTERVAL = "healthCheckInterval";
+
+   String CONFIG_HEALTH_CHECK_TIMEOUT = "healthCheckTimeout";
+
+   /**
+    * Enable hedging of idempotent (GET/HEAD) requests: when the active URL has not
+    * answered within the hedging delay the request is also sent to another URL and
+    * the first response wins.
+    */
+   String CONFIG_HEDGING_ENABLED = "enableHedging";
+
+   /**
+    * The percentile of the observed backend latency after which a request is hedged.
+    */
+   String CONFIG_HEDGING_PERCENTILE = "hedgingPercentile";
+
+   /**
+    * Lower bound of the hedging delay in milliseconds, also used until enough
+    * latency samples have been collected.
+    */
+   String CONFIG_HEDGING_MIN_DELAY = "hedgingMinDelay";
+
+   /**
+    * Upper bound of the extra load caused by hedging, as a percentage of the
+    * hedgeable requests.
+    */
+   String CONFIG_HEDGING_BUDGET = "hedgingBudget";
+
    int DEFAULT_MAX_FAILOVER_ATTEMPTS = 3;
 
    int DEFAULT_FAILOVER_SLEEP = 1000;
@@ -61,4 +105,20 @@ public interface HaServiceConfigConstants {
    String DEFAULT_STICKY_SESSION_COOKIE_NAME = "KNOX_BACKEND";
 
    String DEFAULT_DISABLE_LB_USER_AGENTS = "ClouderaODBCDriverforApacheHive";
+
+   boolean DEFAULT_HEALTH_CHECK_ENABLED = false;
+
+   String DEFAULT_HEALTH_CHECK_PATH = "/";
+
+   int DEFAULT_HEALTH_CHECK_INTERVAL = 10000;
+
+   int DEFAULT_HEALTH_CHECK_TIMEOUT = 2000;
+
+   boolean DEFAULT_HEDGING_ENABLED = false;
+
+   int DEFAULT_HEDGING_PERCENTILE = 95;
+
+   int DEFAULT_HEDGING_MIN_DELAY = 100;
+
+   int DEFAULT_HEDGING_BUDGET = 5;
 }
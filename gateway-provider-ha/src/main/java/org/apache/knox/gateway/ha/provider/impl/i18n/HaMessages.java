@@ -20,6 +20,7 @@ package org.apache.knox.gateway.ha.provider.impl.i18n;
 import org.apache.knox.gateway.i18n.messages.Message;
 import org.apache.knox.gateway.i18n.messages.MessageLevel;
 import org.apache.knox.gateway.i18n.messages.Messages;
+import org.apache.knox.gateway.i18n.messages.StackTrace;
 
 @Messages(logger = "org.apache.knox.gateway")
 public interface HaMessages {
@@ -42,4 +43,16 @@ public interface HaMessages {
   @Message(level = MessageLevel.ERROR, text = "Failed to get Zookeeper URLs : {0}")
   void failedToGetZookeeperUrls(Exception e);
 
+  @Message(level = MessageLevel.INFO, text = "Health check changed the state of URL {0}, healthy: {1}")
+  void urlHealthChanged(String url, boolean healthy);
+
+  @Message(level = MessageLevel.DEBUG, text = "Health check of URL {0} for service {1} failed: {2}")
+  void healthCheckFailed(String url, String serviceName, String reason);
+
+  @Message(level = MessageLevel.INFO, text = "Starting health checks for service {0} every {1} ms using path {2}")
+  void startingHealthCheck(String serviceName, int interval, String path);
+
+  @Message(level = MessageLevel.ERROR, text = "Error while closing the health check client: {0}")
+  void failedToCloseHealthCheckClient(@StackTrace(level = MessageLevel.DEBUG) Exception e);
+
 }
@@ -24,6 +24,10 @@ import java.io.IOException;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.FilterConfig;
@@ -36,12 +40,16 @@ import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.http.Header;
 import org.apache.http.HeaderElement;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
 import org.apache.http.StatusLine;
 import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.ha.provider.HaDescriptor;
@@ -198,4 +206,127 @@ public class ConfigurableHADispatchTest {
     Assert.assertEquals(DigestUtils.sha256Hex(activeURL), captureCookieValue.getValue().getValue());
   }
 
+  @Test
+  public void testHedgeIsOnlySentToHealthyURLs() throws Exception {
+    String serviceName = "WEBHDFS";
+    HaDescriptor descriptor = HaDescriptorFactory.createDescriptor();
+    descriptor.addServiceConfig(HaDescriptorFactory.createServiceConfig(serviceName,
+        "enabled=true;enableHedging=true;enableHealthCheck=true"));
+    HaProvider provider = new DefaultHaProvider(descriptor);
+    provider.addHaService(serviceName,
+        Arrays.asList("http://host1:8080/webhdfs", "http://host2:8080/webhdfs", "http://host3:8080/webhdfs"));
+
+    ConfigurableHADispatch dispatch = new ConfigurableHADispatch();
+    dispatch.setHaProvider(provider);
+    dispatch.setServiceRole(serviceName);
+    dispatch.init();
+
+    HttpGet request = new HttpGet("http://host1:8080/webhdfs/v1/tmp?op=LISTSTATUS");
+    /* no URL passed a health check yet */
+    Assert.assertNull(dispatch.createHedgeRequest(request));
+
+    provider.setURLHealthy(serviceName, "http://host2:8080/webhdfs", false);
+    provider.setURLHealthy(serviceName, "http://host3:8080/webhdfs", true);
+    Assert.assertEquals("http://host3:8080/webhdfs/v1/tmp?op=LISTSTATUS",
+        dispatch.createHedgeRequest(request).getURI().toString());
+  }
+
+  /**
+   * A hedge that won the exchange but whose response could not be written fails
+   * over from the hedge URL, the primary URL never served the response.
+   */
+  @Test
+  public void testFailedHedgeResponseFailsOverFromTheHedgeURL() throws Exception {
+    String serviceName = "WEBHDFS";
+    HaDescriptor descriptor = HaDescriptorFactory.createDescriptor();
+    descriptor.addServiceConfig(HaDescriptorFactory.createServiceConfig(serviceName,
+        "enabled=true;failoverSleep=0;enableHedging=true;hedgingMinDelay=10;hedgingBudget=100"));
+    HaProvider provider = new DefaultHaProvider(descriptor);
+    provider.addHaService(serviceName, Arrays.asList("http://host1:8080/webhdfs", "http://host2:8080/webhdfs"));
+
+    final HttpGet primary = new HttpGet("http://host1:8080/webhdfs/v1/tmp");
+    final List<URI> failedOver = new ArrayList<>();
+    ConfigurableHADispatch dispatch = new ConfigurableHADispatch() {
+      @Override
+      protected HttpResponse executeOutboundRequest(HttpUriRequest outboundRequest) throws IOException {
+        if (outboundRequest == primary) {
+          long deadline = System.currentTimeMillis() + 5000;
+          while (!primary.isAborted() && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+          }
+          throw new IOException("aborted");
+        }
+        return new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+      }
+
+      @Override
+      protected void writeOutboundResponse(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest,
+          HttpServletResponse outboundResponse, HttpResponse inboundResponse) throws IOException {
+        throw new IOException("Broken pipe");
+      }
+
+      @Override
+      protected void failoverRequest(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest,
+          HttpServletResponse outboundResponse, HttpResponse inboundResponse, Exception exception) {
+        failedOver.add(outboundRequest.getURI());
+      }
+    };
+    dispatch.setHaProvider(provider);
+    dispatch.setServiceRole(serviceName);
+    dispatch.init();
+
+    HttpServletRequest inboundRequest = EasyMock.createNiceMock(HttpServletRequest.class);
+    HttpServletResponse outboundResponse = EasyMock.createNiceMock(HttpServletResponse.class);
+    EasyMock.replay(inboundRequest, outboundResponse);
+
+    dispatch.executeRequest(primary, inboundRequest, outboundResponse);
+
+    Assert.assertTrue(primary.isAborted());
+    Assert.assertEquals(Collections.singletonList(URI.create("http://host2:8080/webhdfs/v1/tmp")), failedOver);
+  }
+
+  @Test
+  public void testNoFailoverSleepBeforeAHealthyURL() throws Exception {
+    String serviceName = "WEBHDFS";
+    HaDescriptor descriptor = HaDescriptorFactory.createDescriptor();
+    descriptor.addServiceConfig(HaDescriptorFactory.createServiceConfig(serviceName,
+        "enabled=true;maxFailoverAttempts=1;failoverSleep=10000;enableHealthCheck=true"));
+    HaProvider provider = new DefaultHaProvider(descriptor);
+    provider.addHaService(serviceName, Arrays.asList("http://host1:8080/webhdfs", "http://host2:8080/webhdfs"));
+    provider.setURLHealthy(serviceName, "http://host2:8080/webhdfs", true);
+
+    final List<URI> dispatched = new ArrayList<>();
+    ConfigurableHADispatch dispatch = new ConfigurableHADispatch() {
+      @Override
+      protected HttpResponse executeOutboundRequest(HttpUriRequest outboundRequest) throws IOException {
+        dispatched.add(outboundRequest.getURI());
+        if ("host1".equals(outboundRequest.getURI().getHost())) {
+          throw new IOException("Connection refused");
+        }
+        return new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+      }
+
+      @Override
+      protected void writeOutboundResponse(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest,
+          HttpServletResponse outboundResponse, HttpResponse inboundResponse) {
+        /* nothing to write */
+      }
+    };
+    dispatch.setHaProvider(provider);
+    dispatch.setServiceRole(serviceName);
+    dispatch.init();
+
+    HttpServletRequest inboundRequest = EasyMock.createNiceMock(HttpServletRequest.class);
+    EasyMock.expect(inboundRequest.getRequestURL()).andReturn(new StringBuffer("http://host2:8080/webhdfs/v1/tmp")).anyTimes();
+    HttpServletResponse outboundResponse = EasyMock.createNiceMock(HttpServletResponse.class);
+    EasyMock.replay(inboundRequest, outboundResponse);
+
+    long start = System.nanoTime();
+    dispatch.executeRequest(new HttpGet("http://host1:8080/webhdfs/v1/tmp"), inboundRequest, outboundResponse);
+
+    Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 10000);
+    Assert.assertEquals(Arrays.asList(URI.create("http://host1:8080/webhdfs/v1/tmp"),
+        URI.create("http://host2:8080/webhdfs/v1/tmp")), dispatched);
+  }
+
 }
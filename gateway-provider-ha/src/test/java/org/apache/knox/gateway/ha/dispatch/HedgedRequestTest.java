@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.ha.dispatch;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpRequestBase;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.logging.log4j.ThreadContext;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HedgedRequestTest {
+
+  private static final long TIMEOUT = 5000;
+
+  @Test
+  public void testFastPrimaryIsNotHedged() throws Exception {
+    HedgingPolicy policy = new HedgingPolicy(95, 50, 100);
+    HttpGet primary = new HttpGet("http://host1:8080/foo");
+    HttpGet hedge = new HttpGet("http://host2:8080/foo");
+
+    HedgedRequest.Result result = new HedgedRequest(primary, hedge, request -> ok(), policy).execute();
+
+    assertSame(primary, result.getRequest());
+    assertEquals(200, result.getResponse().getStatusLine().getStatusCode());
+    assertEquals(0, policy.getHedgesWon().getCount());
+  }
+
+  @Test
+  public void testSlowPrimaryLosesToHedge() throws Exception {
+    HedgingPolicy policy = new HedgingPolicy(95, 10, 100);
+    HttpGet primary = new HttpGet("http://host1:8080/foo");
+    HttpGet hedge = new HttpGet("http://host2:8080/foo");
+
+    HedgedRequest.Result result = new HedgedRequest(primary, hedge, request -> {
+      if (request == primary) {
+        waitUntilAborted(primary);
+        throw new IOException("aborted");
+      }
+      return ok();
+    }, policy).execute();
+
+    assertSame(hedge, result.getRequest());
+    assertTrue(primary.isAborted());
+    assertEquals(1, policy.getHedgesIssued().getCount());
+    assertEquals(1, policy.getHedgesWon().getCount());
+  }
+
+  @Test
+  public void testLatencyIsRecordedWhenTheHedgeWins() throws Exception {
+    List<Long> latencies = new CopyOnWriteArrayList<>();
+    HedgingPolicy policy = new HedgingPolicy(95, 10, 100) {
+      @Override
+      void recordLatency(long millis) {
+        latencies.add(millis);
+      }
+    };
+    HttpGet primary = new HttpGet("http://host1:8080/foo");
+    HttpGet hedge = new HttpGet("http://host2:8080/foo");
+
+    new HedgedRequest(primary, hedge, request -> {
+      if (request == primary) {
+        waitUntilAborted(primary);
+        throw new IOException("aborted");
+      }
+      return ok();
+    }, policy).execute();
+
+    assertEquals(1, latencies.size());
+    assertTrue(latencies.get(0) >= 10);
+  }
+
+  @Test
+  public void testNoHedgeWithoutBudget() throws Exception {
+    HedgingPolicy policy = new HedgingPolicy(95, 10, 0);
+    HttpGet primary = new HttpGet("http://host1:8080/foo");
+    HttpGet hedge = new HttpGet("http://host2:8080/foo");
+
+    HedgedRequest.Result result = new HedgedRequest(primary, hedge, request -> {
+      if (request == hedge) {
+        fail("The hedge must not be sent without budget");
+      }
+      sleep(100);
+      return ok();
+    }, policy).execute();
+
+    assertSame(primary, result.getRequest());
+    assertEquals(0, policy.getHedgesIssued().getCount());
+  }
+
+  @Test
+  public void testHedgeRunsInTheRequestLogContext() throws Exception {
+    HedgingPolicy policy = new HedgingPolicy(95, 10, 100);
+    HttpGet primary = new HttpGet("http://host1:8080/foo");
+    HttpGet hedge = new HttpGet("http://host2:8080/foo");
+    AtomicReference<String> hedgeTraceId = new AtomicReference<>();
+
+    ThreadContext.put("trace_id", "4cf1ae5b");
+    try {
+      new HedgedRequest(primary, hedge, request -> {
+        if (request == primary) {
+          waitUntilAborted(primary);
+          throw new IOException("aborted");
+        }
+        hedgeTraceId.set(ThreadContext.get("trace_id"));
+        return ok();
+      }, policy).execute();
+    } finally {
+      ThreadContext.remove("trace_id");
+    }
+
+    assertEquals("4cf1ae5b", hedgeTraceId.get());
+  }
+
+  @Test
+  public void testPrimaryFailureWithoutHedge() {
+    HedgingPolicy policy = new HedgingPolicy(95, 1000, 100);
+    HttpGet primary = new HttpGet("http://host1:8080/foo");
+    HttpGet hedge = new HttpGet("http://host2:8080/foo");
+
+    try {
+      new HedgedRequest(primary, hedge, request -> {
+        throw new IOException("connection refused");
+      }, policy).execute();
+      fail("The primary failure should be propagated");
+    } catch (IOException e) {
+      assertEquals("connection refused", e.getMessage());
+    }
+  }
+
+  private static HttpResponse ok() {
+    return new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, "OK");
+  }
+
+  private static void waitUntilAborted(HttpRequestBase request) {
+    long deadline = System.currentTimeMillis() + TIMEOUT;
+    while (!request.isAborted() && System.currentTimeMillis() < deadline) {
+      sleep(5);
+    }
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.ha.dispatch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HedgingPolicyTest {
+
+  @Test
+  public void testHedgeDelayFollowsPercentile() {
+    HedgingPolicy policy = new HedgingPolicy(95, 10, 5);
+    assertEquals(10, policy.getHedgeDelay());
+
+    for (int i = 1; i <= 100; i++) {
+      policy.recordLatency(i);
+    }
+    // recalculated after 64 samples: the 95th percentile of 1..64
+    assertEquals(61, policy.getHedgeDelay());
+
+    for (int i = 0; i < 28; i++) {
+      policy.recordLatency(1);
+    }
+    // 128 samples: 1..100 plus 28 ones
+    assertEquals(94, policy.getHedgeDelay());
+  }
+
+  @Test
+  public void testHedgeDelayNeverBelowMinimum() {
+    HedgingPolicy policy = new HedgingPolicy(50, 200, 5);
+    for (int i = 0; i < 64; i++) {
+      policy.recordLatency(5);
+    }
+    assertEquals(200, policy.getHedgeDelay());
+  }
+
+  @Test
+  public void testBudgetLimitsHedges() {
+    HedgingPolicy policy = new HedgingPolicy(95, 10, 10);
+    assertFalse(policy.tryAcquireHedge());
+
+    int hedges = 0;
+    for (int i = 0; i < 100; i++) {
+      policy.recordRequest();
+      if (policy.tryAcquireHedge()) {
+        hedges++;
+      }
+    }
+    assertEquals(10, hedges);
+    assertEquals(10, policy.getHedgesIssued().getCount());
+  }
+
+  @Test
+  public void testSavedBudgetIsCapped() {
+    HedgingPolicy policy = new HedgingPolicy(95, 10, 100);
+    for (int i = 0; i < 1000; i++) {
+      policy.recordRequest();
+    }
+    int hedges = 0;
+    while (policy.tryAcquireHedge()) {
+      hedges++;
+    }
+    assertTrue(hedges > 0);
+    assertEquals(10, hedges);
+  }
+
+  @Test
+  public void testReleasedHedgeIsRefunded() {
+    HedgingPolicy policy = new HedgingPolicy(95, 10, 100);
+    policy.recordRequest();
+    assertTrue(policy.tryAcquireHedge());
+    assertFalse(policy.tryAcquireHedge());
+
+    policy.releaseHedge();
+    assertEquals(0, policy.getHedgesIssued().getCount());
+    assertTrue(policy.tryAcquireHedge());
+  }
+}
@@ -20,8 +20,10 @@ package org.apache.knox.gateway.ha.provider.impl;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -106,4 +108,56 @@ public class DefaultURLManagerTest {
       }
    }
 
+   @Test
+   public void testUnhealthyURLsAreSkipped() {
+      ArrayList<String> urls = new ArrayList<>();
+      String url1 = "http://host1:4555";
+      urls.add(url1);
+      String url2 = "http://host2:4555";
+      urls.add(url2);
+      String url3 = "http://host3:4555";
+      urls.add(url3);
+      DefaultURLManager manager = new DefaultURLManager();
+      manager.setURLs(urls);
+      assertEquals(url1, manager.getActiveURL());
+
+      // the active URL going down moves a healthy URL to the top
+      manager.setHealthy(url1, false);
+      assertEquals(url2, manager.getActiveURL());
+
+      // rotation never lands on the unhealthy URL
+      manager.setHealthy(url3, false);
+      manager.makeNextActiveURLAvailable();
+      assertEquals(url2, manager.getActiveURL());
+      manager.markFailed(url2);
+      assertEquals(url2, manager.getActiveURL());
+
+      // once every URL is down the order is left alone
+      manager.setHealthy(url2, false);
+      assertEquals(url2, manager.getActiveURL());
+
+      manager.setHealthy(url3, true);
+      assertEquals(url3, manager.getActiveURL());
+
+      // unknown URLs are ignored
+      manager.setHealthy("http://host4:4555", false);
+      assertEquals(3, manager.getURLs().size());
+   }
+
+   @Test
+   public void testURLsAreHealthyOnlyAfterAPassedCheck() {
+      String url1 = "http://host1:4555";
+      String url2 = "http://host2:4555";
+      DefaultURLManager manager = new DefaultURLManager();
+      manager.setURLs(Arrays.asList(url1, url2));
+      assertFalse(manager.isHealthy(url1));
+
+      manager.setHealthy(url1, true);
+      manager.setHealthy(url2, false);
+      assertTrue(manager.isHealthy(url1));
+      assertFalse(manager.isHealthy(url2));
+
+      manager.setHealthy(url1, false);
+      assertFalse(manager.isHealthy(url1));
+   }
 }
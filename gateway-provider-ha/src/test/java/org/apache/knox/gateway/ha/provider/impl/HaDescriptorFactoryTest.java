@@ -107,4 +107,20 @@ public class HaDescriptorFactoryTest {
     assertTrue(serviceConfig.isNoFallbackEnabled());
     assertEquals("abc", serviceConfig.getStickySessionCookieName());
   }
+
+  @Test
+  public void testCreateServiceConfigHealthCheck() {
+    HaServiceConfig serviceConfig = HaDescriptorFactory.createServiceConfig("foo", "enabled=true");
+    assertFalse(serviceConfig.isHealthCheckEnabled());
+    assertEquals(HaServiceConfigConstants.DEFAULT_HEALTH_CHECK_PATH, serviceConfig.getHealthCheckPath());
+    assertEquals(HaServiceConfigConstants.DEFAULT_HEALTH_CHECK_INTERVAL, serviceConfig.getHealthCheckInterval());
+    assertEquals(HaServiceConfigConstants.DEFAULT_HEALTH_CHECK_TIMEOUT, serviceConfig.getHealthCheckTimeout());
+
+    serviceConfig = HaDescriptorFactory.createServiceConfig("foo",
+        "enabled=true;enableHealthCheck=true;healthCheckPath=/jmx;healthCheckInterval=5000;healthCheckTimeout=500");
+    assertTrue(serviceConfig.isHealthCheckEnabled());
+    assertEquals("/jmx", serviceConfig.getHealthCheckPath());
+    assertEquals(5000, serviceConfig.getHealthCheckInterval());
+    assertEquals(500, serviceConfig.getHealthCheckTimeout());
+  }
 }
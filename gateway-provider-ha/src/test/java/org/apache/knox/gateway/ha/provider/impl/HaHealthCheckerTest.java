@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.ha.provider.impl;
+
+import org.apache.http.StatusLine;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.knox.gateway.ha.provider.HaDescriptor;
+import org.apache.knox.gateway.ha.provider.HaProvider;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HaHealthCheckerTest {
+
+  private static final long TIMEOUT = 5000;
+
+  @Test
+  public void testHangingProbeDoesNotHoldUpOtherURLs() throws Exception {
+    String serviceName = "WEBHDFS";
+    String url1 = "http://host1:50070/webhdfs";
+    String url2 = "http://host2:50070/webhdfs";
+    HaDescriptor descriptor = HaDescriptorFactory.createDescriptor();
+    descriptor.addServiceConfig(HaDescriptorFactory.createServiceConfig(serviceName, "enabled=true;enableHealthCheck=true"));
+    HaProvider provider = new DefaultHaProvider(descriptor);
+    provider.addHaService(serviceName, Arrays.asList(url1, url2));
+
+    CountDownLatch release = new CountDownLatch(1);
+    AtomicInteger host1Probes = new AtomicInteger();
+    StatusLine ok = EasyMock.createNiceMock(StatusLine.class);
+    EasyMock.expect(ok.getStatusCode()).andReturn(200).anyTimes();
+    CloseableHttpResponse response = EasyMock.createNiceMock(CloseableHttpResponse.class);
+    EasyMock.expect(response.getStatusLine()).andReturn(ok).anyTimes();
+    CloseableHttpClient client = EasyMock.createNiceMock(CloseableHttpClient.class);
+    EasyMock.expect(client.execute(EasyMock.anyObject(HttpUriRequest.class))).andAnswer(() -> {
+      HttpUriRequest probe = (HttpUriRequest) EasyMock.getCurrentArguments()[0];
+      if ("host1".equals(probe.getURI().getHost())) {
+        host1Probes.incrementAndGet();
+        release.await(TIMEOUT, TimeUnit.MILLISECONDS);
+        throw new ConnectTimeoutException("Connect timed out");
+      }
+      return response;
+    }).anyTimes();
+    // the probes call the client concurrently, one of them blocked in the answer
+    EasyMock.makeThreadSafe(client, false);
+    EasyMock.replay(ok, response, client);
+
+    HaHealthChecker checker = new HaHealthChecker(provider);
+    try {
+      checker.checkService(serviceName, "/", client);
+      checker.checkService(serviceName, "/", client);
+
+      long deadline = System.currentTimeMillis() + TIMEOUT;
+      while (!provider.isURLHealthy(serviceName, url2) && System.currentTimeMillis() < deadline) {
+        Thread.sleep(5);
+      }
+      assertTrue(provider.isURLHealthy(serviceName, url2));
+      // the second round does not queue another probe behind the hanging one
+      assertEquals(1, host1Probes.get());
+    } finally {
+      release.countDown();
+      checker.stop();
+    }
+  }
+
+  @Test
+  public void testProbeURIForAbsolutePath() {
+    assertEquals("http://host1:50070/jmx",
+        HaHealthChecker.getProbeURI("http://host1:50070/webhdfs", "/jmx").toString());
+    assertEquals("https://host1:8090/ws/v1/cluster/info",
+        HaHealthChecker.getProbeURI("https://host1:8090/ws", "/ws/v1/cluster/info").toString());
+  }
+
+  @Test
+  public void testProbeURIForRelativePath() {
+    assertEquals("http://host1:21000/api/atlas/admin/status",
+        HaHealthChecker.getProbeURI("http://host1:21000/api/atlas", "admin/status").toString());
+    assertEquals("http://host1:21000/api/atlas/admin/status",
+        HaHealthChecker.getProbeURI("http://host1:21000/api/atlas/", "admin/status").toString());
+  }
+
+  @Test
+  public void testProbeURIForBlankPath() {
+    assertEquals("http://host1:10001/cliservice",
+        HaHealthChecker.getProbeURI("http://host1:10001/cliservice", "").toString());
+  }
+}
@@ -21,7 +21,6 @@ import org.apache.knox.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.knox.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
 import org.apache.knox.gateway.svcregfunc.api.ServiceAddressFunctionDescriptor;
 import org.apache.knox.gateway.util.urltemplate.Host;
-import org.apache.knox.gateway.util.urltemplate.Parser;
 import org.apache.knox.gateway.util.urltemplate.Port;
 import org.apache.knox.gateway.util.urltemplate.Template;
 
@@ -54,7 +53,7 @@ public class ServiceAddressFunctionProcessor
     String addr = parameter;
     String url = lookupServiceUrl( parameter );
     if( url != null ) {
-      Template template = Parser.parseLiteral( url );
+      Template template = parseServiceUrl( url );
       Host host = template.getHost();
       String hostStr = null;
       if( host != null ) {
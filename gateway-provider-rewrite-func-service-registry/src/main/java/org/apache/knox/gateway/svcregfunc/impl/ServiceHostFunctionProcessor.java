@@ -21,7 +21,6 @@ import org.apache.knox.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.knox.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
 import org.apache.knox.gateway.svcregfunc.api.ServiceHostFunctionDescriptor;
 import org.apache.knox.gateway.util.urltemplate.Host;
-import org.apache.knox.gateway.util.urltemplate.Parser;
 import org.apache.knox.gateway.util.urltemplate.Template;
 
 import java.util.ArrayList;
@@ -44,7 +43,7 @@ public class ServiceHostFunctionProcessor
       for( String parameter : parameters ) {
         String url = lookupServiceUrl( parameter );
         if( url != null ) {
-          Template template = Parser.parseLiteral( url );
+          Template template = parseServiceUrl( url );
           Host host = template.getHost();
           if( host != null ) {
             parameter = host.getFirstValue().getPattern();
@@ -25,7 +25,6 @@ import org.apache.knox.gateway.services.hostmap.HostMapper;
 import org.apache.knox.gateway.services.hostmap.HostMapperService;
 import org.apache.knox.gateway.svcregfunc.api.ServiceMappedAddressFunctionDescriptor;
 import org.apache.knox.gateway.util.urltemplate.Host;
-import org.apache.knox.gateway.util.urltemplate.Parser;
 import org.apache.knox.gateway.util.urltemplate.Port;
 import org.apache.knox.gateway.util.urltemplate.Template;
 import org.apache.knox.gateway.filter.rewrite.api.UrlRewriter;
@@ -71,7 +70,7 @@ public class ServiceMappedAddressFunctionProcessor
     String addr = parameter;
     String url = lookupServiceUrl( parameter );
     if( url != null ) {
-      Template template = Parser.parseLiteral( url );
+      Template template = parseServiceUrl( url );
       Host host = template.getHost();
       String hostStr = null;
       if( host != null ) {
@@ -25,7 +25,6 @@ import org.apache.knox.gateway.services.hostmap.HostMapper;
 import org.apache.knox.gateway.services.hostmap.HostMapperService;
 import org.apache.knox.gateway.svcregfunc.api.ServiceMappedHostFunctionDescriptor;
 import org.apache.knox.gateway.util.urltemplate.Host;
-import org.apache.knox.gateway.util.urltemplate.Parser;
 import org.apache.knox.gateway.util.urltemplate.Template;
 
 import java.util.ArrayList;
@@ -59,7 +58,7 @@ public class ServiceMappedHostFunctionProcessor
       for( String parameter : parameters ) {
         String url = lookupServiceUrl( parameter );
         if( url != null ) {
-          Template template = Parser.parseLiteral( url );
+          Template template = parseServiceUrl( url );
           Host host = template.getHost();
           if( host != null ) {
             String hostStr = host.getFirstValue().getPattern();
@@ -68,7 +68,7 @@ public class ServiceMappedUrlFunctionProcessor
     String url = lookupServiceUrl( parameter );
     if( url != null ) {
       URI outputUri;
-      URI inputUri = new URI( url );
+      URI inputUri = toServiceUri( url );
       String host = inputUri.getHost();
       if( host != null && hostmap != null ) {
         switch( direction ) {
@@ -20,7 +20,6 @@ package org.apache.knox.gateway.svcregfunc.impl;
 import org.apache.knox.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.knox.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
 import org.apache.knox.gateway.svcregfunc.api.ServicePortFunctionDescriptor;
-import org.apache.knox.gateway.util.urltemplate.Parser;
 import org.apache.knox.gateway.util.urltemplate.Port;
 import org.apache.knox.gateway.util.urltemplate.Template;
 
@@ -44,7 +43,7 @@ public class ServicePortFunctionProcessor
       for( String parameter : parameters ) {
         String url = lookupServiceUrl( parameter );
         if( url != null ) {
-          Template template = Parser.parseLiteral( url );
+          Template template = parseServiceUrl( url );
           Port port = template.getPort();
           if( port != null ) {
             parameter = port.getFirstValue().getPattern();
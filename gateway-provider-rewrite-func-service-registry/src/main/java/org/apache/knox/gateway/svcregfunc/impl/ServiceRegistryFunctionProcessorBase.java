@@ -25,13 +25,26 @@ import org.apache.knox.gateway.ha.provider.HaServletContextListener;
 import org.apache.knox.gateway.services.ServiceType;
 import org.apache.knox.gateway.services.GatewayServices;
 import org.apache.knox.gateway.services.registry.ServiceRegistry;
+import org.apache.knox.gateway.util.urltemplate.Parser;
+import org.apache.knox.gateway.util.urltemplate.Template;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 abstract class ServiceRegistryFunctionProcessorBase<T extends UrlRewriteFunctionDescriptor> implements UrlRewriteFunctionProcessor<T> {
 
+  // The service URLs are parsed once, rather than for every occurrence of a function in every rewritten response.
+  // The number of distinct URLs is bounded by the registered and active HA URLs, so the limit is only a safeguard.
+  private static final int MAX_PARSED_URLS = 1000;
+
   private String cluster;
   private GatewayServices services;
   private ServiceRegistry registry;
   private HaProvider haProvider;
+  private final Map<String, Template> parsedTemplates = new ConcurrentHashMap<>();
+  private final Map<String, URI> parsedUris = new ConcurrentHashMap<>();
 
   @Override
   public void initialize( UrlRewriteEnvironment environment, T descriptor ) throws Exception {
@@ -57,6 +70,8 @@ abstract class ServiceRegistryFunctionProcessorBase<T extends UrlRewriteFunction
   public void destroy() throws Exception {
     registry = null;
     cluster = null;
+    parsedTemplates.clear();
+    parsedUris.clear();
   }
 
   public String lookupServiceUrl( String role ) throws Exception {
@@ -66,6 +81,31 @@ abstract class ServiceRegistryFunctionProcessorBase<T extends UrlRewriteFunction
     return registry.lookupServiceURL( cluster, role );
   }
 
+  Template parseServiceUrl( String url ) throws URISyntaxException {
+    Template template = parsedTemplates.get( url );
+    if( template == null ) {
+      template = Parser.parseLiteral( url );
+      remember( parsedTemplates, url, template );
+    }
+    return template;
+  }
+
+  URI toServiceUri( String url ) throws URISyntaxException {
+    URI uri = parsedUris.get( url );
+    if( uri == null ) {
+      uri = new URI( url );
+      remember( parsedUris, url, uri );
+    }
+    return uri;
+  }
+
+  private static <T> void remember( Map<String, T> parsed, String url, T value ) {
+    if( parsed.size() >= MAX_PARSED_URLS ) {
+      parsed.clear();
+    }
+    parsed.put( url, value );
+  }
+
   String cluster() {
     return cluster;
   }
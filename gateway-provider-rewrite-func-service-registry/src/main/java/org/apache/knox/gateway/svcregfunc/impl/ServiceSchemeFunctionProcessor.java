@@ -20,7 +20,6 @@ package org.apache.knox.gateway.svcregfunc.impl;
 import org.apache.knox.gateway.filter.rewrite.spi.UrlRewriteContext;
 import org.apache.knox.gateway.filter.rewrite.spi.UrlRewriteFunctionProcessor;
 import org.apache.knox.gateway.svcregfunc.api.ServiceSchemeFunctionDescriptor;
-import org.apache.knox.gateway.util.urltemplate.Parser;
 import org.apache.knox.gateway.util.urltemplate.Scheme;
 import org.apache.knox.gateway.util.urltemplate.Template;
 
@@ -44,7 +43,7 @@ public class ServiceSchemeFunctionProcessor
       for( String parameter : parameters ) {
         String url = lookupServiceUrl( parameter );
         if( url != null && !url.equals( parameter ) ) {
-          Template template = Parser.parseLiteral( url );
+          Template template = parseServiceUrl( url );
           Scheme scheme = template.getScheme();
           if( scheme != null ) {
             parameter = scheme.getFirstValue().getPattern();
@@ -51,7 +51,7 @@ public class ServiceUrlFunctionProcessor
      String url = lookupServiceUrl( parameter );
      if( url != null ) {
         URI outputUri;
-        URI inputUri = new URI( url );
+        URI inputUri = toServiceUri( url );
         String host = inputUri.getHost();
         outputUri = new URI( inputUri.getScheme(), inputUri.getUserInfo(), host, inputUri.getPort(), inputUri.getPath(), inputUri.getQuery(), inputUri.getFragment() );
         parameter = outputUri.toString();
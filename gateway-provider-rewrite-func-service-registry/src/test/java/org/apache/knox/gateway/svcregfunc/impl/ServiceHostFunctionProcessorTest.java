@@ -142,4 +142,16 @@ public class ServiceHostFunctionProcessorTest {
     func.destroy();
   }
 
+  @Test
+  public void testServiceUrlIsParsedOnce() throws Exception {
+    ServiceHostFunctionProcessor func = new ServiceHostFunctionProcessor();
+    func.initialize( env, desc );
+
+    String url = "test-scheme://test-host:777/test-path";
+    assertThat( func.parseServiceUrl( url ), sameInstance( func.parseServiceUrl( url ) ) );
+    assertThat( func.resolve( ctx, Collections.singletonList("test-service")), contains( "test-host" ) );
+
+    func.destroy();
+  }
+
 }
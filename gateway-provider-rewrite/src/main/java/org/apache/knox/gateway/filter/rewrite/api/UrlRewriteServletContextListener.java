@@ -17,17 +17,17 @@
  */
 package org.apache.knox.gateway.filter.rewrite.api;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteRulesDescriptorCache;
+
 import javax.servlet.ServletContext;
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.nio.charset.StandardCharsets;
 
 public class UrlRewriteServletContextListener implements ServletContextListener {
 
@@ -84,10 +84,10 @@ public class UrlRewriteServletContextListener implements ServletContextListener
     return url;
   }
 
+  // The parsed rules are shared with the other topologies using the same rules.
   private static UrlRewriteRulesDescriptor loadDescriptor( URL url ) throws IOException {
-    try (InputStream stream = url.openStream();
-         Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)){
-      return UrlRewriteRulesDescriptorFactory.load( "xml", reader );
+    try (InputStream stream = url.openStream()) {
+      return UrlRewriteRulesDescriptorCache.load( IOUtils.toByteArray( stream ) );
     }
   }
 }
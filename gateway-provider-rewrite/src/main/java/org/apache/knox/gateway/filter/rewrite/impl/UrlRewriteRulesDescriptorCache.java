@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl;
+
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFilterDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteFunctionDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRuleDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptor;
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptorFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A gateway wide cache of parsed rewrite rules shared by reference between the
+ * topologies that use the same rules.
+ * <p>
+ * A rules descriptor is cached by the hash of the rewrite.xml it was loaded from,
+ * so topologies with the same services share the whole descriptor. The rules and
+ * filters of a newly parsed descriptor are interned by the hash of their own
+ * content, so a rule contributed by a service definition, along with its compiled
+ * template, is held once however many topologies use it.
+ * <p>
+ * The descriptors handed out are shared and must not be modified. Entries are
+ * only weakly referenced and drop out once no deployed topology uses them.
+ */
+public final class UrlRewriteRulesDescriptorCache {
+
+  private static final Map<String, Entry<UrlRewriteRulesDescriptor>> DESCRIPTORS = new ConcurrentHashMap<>();
+  private static final Map<String, Entry<UrlRewriteRuleDescriptor>> RULES = new ConcurrentHashMap<>();
+  private static final Map<String, Entry<UrlRewriteFilterDescriptor>> FILTERS = new ConcurrentHashMap<>();
+  private static final AtomicLong HITS = new AtomicLong();
+  private static final AtomicLong MISSES = new AtomicLong();
+
+  private UrlRewriteRulesDescriptorCache() {
+  }
+
+  /**
+   * Returns the rules described by the given rewrite.xml content, parsing it only
+   * if no deployed topology uses the same content.
+   *
+   * @param content the content of a rewrite.xml
+   * @return the shared, read only rules descriptor
+   * @throws IOException if the content cannot be parsed
+   */
+  public static UrlRewriteRulesDescriptor load( byte[] content ) throws IOException {
+    purge();
+    String key = hash( content );
+    Entry<UrlRewriteRulesDescriptor> entry = DESCRIPTORS.get( key );
+    UrlRewriteRulesDescriptor descriptor = entry == null ? null : entry.get();
+    if( descriptor != null ) {
+      HITS.incrementAndGet();
+      return descriptor;
+    }
+    MISSES.incrementAndGet();
+    try( Reader reader = new InputStreamReader( new ByteArrayInputStream( content ), StandardCharsets.UTF_8 ) ) {
+      descriptor = intern( UrlRewriteRulesDescriptorFactory.load( "xml", reader ) );
+    }
+    return intern( DESCRIPTORS, key, descriptor, content.length );
+  }
+
+  /**
+   * @return the number of cached descriptors, rules and filters still in use,
+   * their estimated size and the cache hits and misses since startup
+   */
+  public static Statistics getStatistics() {
+    purge();
+    return new Statistics( DESCRIPTORS.size(), RULES.size(), FILTERS.size(),
+        size( RULES ) + size( FILTERS ), HITS.get(), MISSES.get() );
+  }
+
+  static void clear() {
+    DESCRIPTORS.clear();
+    RULES.clear();
+    FILTERS.clear();
+    HITS.set( 0 );
+    MISSES.set( 0 );
+  }
+
+  private static UrlRewriteRulesDescriptor intern( UrlRewriteRulesDescriptor parsed ) throws IOException {
+    UrlRewriteRulesDescriptorImpl descriptor = new UrlRewriteRulesDescriptorImpl();
+    for( UrlRewriteFunctionDescriptor function : parsed.getFunctions() ) {
+      descriptor.addFunction( function );
+    }
+    for( UrlRewriteRuleDescriptor rule : parsed.getRules() ) {
+      UrlRewriteRulesDescriptorImpl single = new UrlRewriteRulesDescriptorImpl();
+      single.addRule( rule );
+      byte[] content = serialize( single );
+      descriptor.addRule( intern( RULES, hash( content ), rule, content.length ) );
+    }
+    for( UrlRewriteFilterDescriptor filter : parsed.getFilters() ) {
+      UrlRewriteRulesDescriptorImpl single = new UrlRewriteRulesDescriptorImpl();
+      single.addFilter( filter );
+      byte[] content = serialize( single );
+      descriptor.addFilter( intern( FILTERS, hash( content ), filter, content.length ) );
+    }
+    return descriptor;
+  }
+
+  private static <T> T intern( Map<String, Entry<T>> entries, String key, T value, int size ) {
+    Entry<T> entry = entries.compute( key,
+        ( k, existing ) -> existing != null && existing.get() != null ? existing : new Entry<>( value, size ) );
+    T interned = entry.get();
+    return interned == null ? value : interned;
+  }
+
+  private static void purge() {
+    DESCRIPTORS.values().removeIf( entry -> entry.get() == null );
+    RULES.values().removeIf( entry -> entry.get() == null );
+    FILTERS.values().removeIf( entry -> entry.get() == null );
+  }
+
+  private static long size( Map<String, ? extends Entry<?>> entries ) {
+    long size = 0;
+    for( Entry<?> entry : entries.values() ) {
+      size += entry.size;
+    }
+    return size;
+  }
+
+  private static byte[] serialize( UrlRewriteRulesDescriptor descriptor ) throws IOException {
+    StringWriter writer = new StringWriter();
+    UrlRewriteRulesDescriptorFactory.store( descriptor, "xml", writer );
+    return writer.toString().getBytes( StandardCharsets.UTF_8 );
+  }
+
+  private static String hash( byte[] content ) {
+    try {
+      return Base64.getEncoder().encodeToString( MessageDigest.getInstance( "SHA-256" ).digest( content ) );
+    } catch( NoSuchAlgorithmException e ) {
+      throw new IllegalStateException( e );
+    }
+  }
+
+  private static class Entry<T> extends WeakReference<T> {
+    private final int size;
+
+    Entry( T value, int size ) {
+      super( value );
+      this.size = size;
+    }
+  }
+
+  public static class Statistics {
+    private final int descriptors;
+    private final int rules;
+    private final int filters;
+    private final long estimatedBytes;
+    private final long hits;
+    private final long misses;
+
+    Statistics( int descriptors, int rules, int filters, long estimatedBytes, long hits, long misses ) {
+      this.descriptors = descriptors;
+      this.rules = rules;
+      this.filters = filters;
+      this.estimatedBytes = estimatedBytes;
+      this.hits = hits;
+      this.misses = misses;
+    }
+
+    public int getDescriptors() {
+      return descriptors;
+    }
+
+    public int getRules() {
+      return rules;
+    }
+
+    public int getFilters() {
+      return filters;
+    }
+
+    /**
+     * @return the size of the cached rules and filters, estimated from their serialized form
+     */
+    public long getEstimatedBytes() {
+      return estimatedBytes;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.filter.rewrite.impl;
+
+import org.apache.knox.gateway.filter.rewrite.api.UrlRewriteRulesDescriptor;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class UrlRewriteRulesDescriptorCacheTest {
+
+  private static final String SHARED_RULE =
+      "<rule name=\"shared-rule\" url=\"{scheme=*}://{host=*}:{port=*}/{path=**}\">"
+          + "<rewrite param=\"{scheme}://{host}:{port}/shared-path\"/></rule>";
+
+  @Before
+  public void setUp() {
+    UrlRewriteRulesDescriptorCache.clear();
+  }
+
+  @Test
+  public void testSameContentSharesDescriptor() throws Exception {
+    byte[] content = rules( SHARED_RULE ).getBytes( StandardCharsets.UTF_8 );
+    UrlRewriteRulesDescriptor first = UrlRewriteRulesDescriptorCache.load( content );
+    UrlRewriteRulesDescriptor second = UrlRewriteRulesDescriptorCache.load( content.clone() );
+
+    assertThat( second, sameInstance( first ) );
+    assertThat( first.getRule( "shared-rule" ).pattern(), is( "{scheme=*}://{host=*}:{port=*}/{path=**}" ) );
+    assertThat( UrlRewriteRulesDescriptorCache.getStatistics().getHits(), is( 1L ) );
+    assertThat( UrlRewriteRulesDescriptorCache.getStatistics().getMisses(), is( 1L ) );
+    assertThat( UrlRewriteRulesDescriptorCache.getStatistics().getDescriptors(), is( 1 ) );
+  }
+
+  @Test
+  public void testRulesAreSharedBetweenDescriptors() throws Exception {
+    UrlRewriteRulesDescriptor first = UrlRewriteRulesDescriptorCache.load( rules( SHARED_RULE
+        + "<rule name=\"first-rule\" url=\"/first/{path=**}\"><rewrite template=\"/{path}\"/></rule>" )
+        .getBytes( StandardCharsets.UTF_8 ) );
+    UrlRewriteRulesDescriptor second = UrlRewriteRulesDescriptorCache.load( rules( SHARED_RULE
+        + "<rule name=\"second-rule\" url=\"/second/{path=**}\"><rewrite template=\"/{path}\"/></rule>" )
+        .getBytes( StandardCharsets.UTF_8 ) );
+
+    assertThat( second, not( sameInstance( first ) ) );
+    assertThat( second.getRule( "shared-rule" ), sameInstance( first.getRule( "shared-rule" ) ) );
+    assertThat( first.getRules().size(), is( 2 ) );
+    assertThat( second.getRules().size(), is( 2 ) );
+    assertThat( UrlRewriteRulesDescriptorCache.getStatistics().getRules(), is( 3 ) );
+    assertThat( UrlRewriteRulesDescriptorCache.getStatistics().getEstimatedBytes() > 0, is( true ) );
+  }
+
+  private static String rules( String rules ) {
+    return "<rules>" + rules + "</rules>";
+  }
+}
@@ -23,10 +23,13 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.servlet.Filter;
 import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
@@ -38,6 +41,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
 
+import com.codahale.metrics.Timer;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.knox.gateway.audit.api.Action;
 import org.apache.knox.gateway.audit.api.ActionOutcome;
@@ -55,7 +59,11 @@ import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.filter.AbstractGatewayFilter;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.i18n.resources.ResourcesFactory;
+import org.apache.knox.gateway.services.metrics.DispatchTimers;
+import org.apache.knox.gateway.services.metrics.impl.instr.StageMetrics;
 import org.apache.knox.gateway.topology.Topology;
+import org.apache.knox.gateway.trace.Span;
+import org.apache.knox.gateway.trace.Tracing;
 import org.apache.knox.gateway.util.ServletRequestUtils;
 import org.apache.knox.gateway.util.urltemplate.Matcher;
 import org.apache.knox.gateway.util.urltemplate.Parser;
@@ -79,11 +87,14 @@ public class GatewayFilter implements Filter {
       AuditConstants.KNOX_COMPONENT_NAME );
 
   private Set<Holder> holders;
-  private Matcher<Chain> chains;
+  private Map<Template, Chain> chainsByTemplate;
+  private volatile Matcher<Chain> chains;
   private FilterConfig config;
+  private volatile StageMetrics stageMetrics;
 
   public GatewayFilter() {
     holders = new HashSet<>();
+    chainsByTemplate = new LinkedHashMap<>();
     chains = new Matcher<>();
   }
 
@@ -130,7 +141,8 @@ public class GatewayFilter implements Filter {
     servletRequest.setAttribute(
         AbstractGatewayFilter.SOURCE_REQUEST_CONTEXT_URL_ATTRIBUTE_NAME, contextWithPathAndQuery );
 
-    Matcher<Chain>.Match match = chains.match( pathWithQueryTemplate );
+    Template matchTemplate = pathWithQueryTemplate;
+    Matcher<Chain>.Match match = chains.match( matchTemplate );
 
     // if there was no match then look for a default service for the topology
     if (match == null) {
@@ -140,7 +152,8 @@ public class GatewayFilter implements Filter {
         if (defaultServicePath != null) {
           try {
             String newPathWithQuery = defaultServicePath + "/" + pathWithQueryTemplate;
-            match = chains.match(Parser.parseLiteral(newPathWithQuery));
+            matchTemplate = Parser.parseLiteral(newPathWithQuery);
+            match = chains.match(matchTemplate);
             String origUrl = ((HttpServletRequest) servletRequest).getRequestURL().toString();
             String url = origUrl;
             if (path == null || "/".equals(path)) {
@@ -159,13 +172,7 @@ public class GatewayFilter implements Filter {
       }
     }
 
-    /* If request contains X-Request-Id header use it else use random uuid as correlation id */
-    final String reqID =
-        StringUtils.isBlank(((HttpServletRequest) servletRequest).getHeader(REQUEST_ID_HEADER_NAME)) ?
-            UUID.randomUUID().toString() :
-            ((HttpServletRequest) servletRequest).getHeader(REQUEST_ID_HEADER_NAME);
-
-    assignCorrelationRequestId(reqID);
+    assignCorrelationRequestId(httpRequest);
 
     // Populate Audit/correlation parameters
     AuditContext auditContext = auditService.getContext();
@@ -180,19 +187,12 @@ public class GatewayFilter implements Filter {
         Action.ACCESS, contextWithPathAndQuery, ResourceType.URI,
         ActionOutcome.UNAVAILABLE, RES.requestMethod(((HttpServletRequest)servletRequest).getMethod()));
 
-    if( match != null ) {
-      Chain chain = match.getValue();
-      servletRequest.setAttribute( AbstractGatewayFilter.TARGET_SERVICE_ROLE, chain.getResourceRole() );
+    Chain chain = acquireChain( match, matchTemplate );
+    if( chain != null ) {
       try {
-        chain.doFilter( servletRequest, servletResponse );
-      } catch( IOException | RuntimeException | ThreadDeath | ServletException e ) {
-        LOG.failedToExecuteFilter( e );
-        auditor.audit( Action.ACCESS, contextWithPathAndQuery, ResourceType.URI, ActionOutcome.FAILURE );
-        throw e;
-      } catch( Throwable e ) {
-        LOG.failedToExecuteFilter( e );
-        auditor.audit( Action.ACCESS, contextWithPathAndQuery, ResourceType.URI, ActionOutcome.FAILURE );
-        throw new ServletException( e );
+        doFilter( chain, servletRequest, servletResponse, requestPath, contextWithPathAndQuery );
+      } finally {
+        chain.release();
       }
     } else {
       LOG.failedToMatchPath( requestPath );
@@ -204,6 +204,57 @@ public class GatewayFilter implements Filter {
     //]
   }
 
+  /*
+   * A chain retired by replaceServices after it was matched has already been
+   * destroyed, so the request is matched again against the current chains.
+   */
+  private Chain acquireChain( Matcher<Chain>.Match match, Template template ) {
+    while( match != null ) {
+      Chain chain = match.getValue();
+      if( chain.acquire() ) {
+        return chain;
+      }
+      match = chains.match( template );
+    }
+    return null;
+  }
+
+  private void doFilter( Chain chain, ServletRequest servletRequest, ServletResponse servletResponse,
+                         String requestPath, String contextWithPathAndQuery ) throws IOException, ServletException {
+    HttpServletRequest httpRequest = (HttpServletRequest)servletRequest;
+    HttpServletResponse httpResponse = (HttpServletResponse)servletResponse;
+    servletRequest.setAttribute( AbstractGatewayFilter.TARGET_SERVICE_ROLE, chain.getResourceRole() );
+    ChainMetrics chainMetrics = chain.getMetrics( servletRequest );
+    if( chainMetrics != null ) {
+      servletRequest.setAttribute( DispatchTimers.REQUEST_ATTRIBUTE, chainMetrics.dispatchTimers );
+    }
+    final Span requestSpan = Tracing.startRequest( "gateway.request", httpRequest.getHeader( Tracing.TRACEPARENT_HEADER ) );
+    if( requestSpan.isRecording() ) {
+      requestSpan.setAttribute( "http.method", httpRequest.getMethod() )
+          .setAttribute( "http.target", requestPath )
+          .setAttribute( "knox.topology", getTopologyName( servletRequest ) )
+          .setAttribute( "knox.service", chain.getResourceRole() );
+    }
+    try {
+      chain.doFilter( servletRequest, servletResponse );
+    } catch( IOException | RuntimeException | ThreadDeath | ServletException e ) {
+      LOG.failedToExecuteFilter( e );
+      auditor.audit( Action.ACCESS, contextWithPathAndQuery, ResourceType.URI, ActionOutcome.FAILURE );
+      requestSpan.setError( e );
+      throw e;
+    } catch( Throwable e ) {
+      LOG.failedToExecuteFilter( e );
+      auditor.audit( Action.ACCESS, contextWithPathAndQuery, ResourceType.URI, ActionOutcome.FAILURE );
+      requestSpan.setError( e );
+      throw new ServletException( e );
+    } finally {
+      if( requestSpan.isRecording() ) {
+        requestSpan.setAttribute( "http.status_code", httpResponse.getStatus() );
+        requestSpan.end();
+      }
+    }
+  }
+
   private String getRemoteAddress(ServletRequest servletRequest) {
     GatewayConfig gatewayConfig =
         (GatewayConfig) servletRequest.getServletContext().
@@ -218,7 +269,7 @@ public class GatewayFilter implements Filter {
   }
 
   @Override
-  public void destroy() {
+  public synchronized void destroy() {
     for( Holder holder : holders ) {
       holder.destroy();
     }
@@ -226,30 +277,104 @@ public class GatewayFilter implements Filter {
 
   private void addHolder( Holder holder ) {
     holders.add( holder );
-    Chain chain = chains.get( holder.template );
+    Chain chain = chainsByTemplate.get( holder.template );
     if( chain == null ) {
       chain = new Chain();
       chain.setResourceRole( holder.getResourceRole() );
+      chainsByTemplate.put( holder.template, chain );
       chains.add( holder.template, chain );
     }
     chain.chainList.add( holder );
   }
 
+  /**
+   * Replaces the chains of the given services with the chains of another filter
+   * while requests are being served. The chains of all other services, and so
+   * the filter instances and the connection pools they hold, are kept. A
+   * replaced chain is destroyed once the requests still using it complete.
+   *
+   * @param update a filter built from the redeployed topology, it is initialized
+   *               with the configuration of this filter
+   * @param resourceRoles the roles of the services whose chains are replaced
+   */
+  public synchronized void replaceServices( GatewayFilter update, Set<String> resourceRoles ) throws ServletException {
+    update.init( config );
+    update.setStageMetrics( stageMetrics );
+
+    final Map<Template, Chain> next = new LinkedHashMap<>();
+    final List<Chain> retired = new ArrayList<>();
+    for( Map.Entry<Template, Chain> entry : chainsByTemplate.entrySet() ) {
+      if( resourceRoles.contains( entry.getValue().getResourceRole() ) ) {
+        retired.add( entry.getValue() );
+      } else {
+        next.put( entry.getKey(), entry.getValue() );
+      }
+    }
+    for( Map.Entry<Template, Chain> entry : update.chainsByTemplate.entrySet() ) {
+      if( resourceRoles.contains( entry.getValue().getResourceRole() ) ) {
+        next.put( entry.getKey(), entry.getValue() );
+      }
+    }
+
+    final Matcher<Chain> matcher = new Matcher<>();
+    final Set<Holder> nextHolders = new HashSet<>();
+    for( Map.Entry<Template, Chain> entry : next.entrySet() ) {
+      matcher.add( entry.getKey(), entry.getValue() );
+      nextHolders.addAll( entry.getValue().chainList );
+    }
+    chainsByTemplate = next;
+    holders = nextHolders;
+    chains = matcher;
+
+    for( Chain chain : retired ) {
+      chain.retire();
+    }
+  }
+
   public void addFilter( String path, String name, Filter filter, Map<String,String> params, String resourceRole ) throws URISyntaxException {
-    Holder holder = new Holder( path, name, filter, params, resourceRole );
-    addHolder( holder );
+    addFilter( path, name, filter, params, resourceRole, null );
   }
 
   public void addFilter( String path, String name, String clazz, Map<String,String> params, String resourceRole ) throws URISyntaxException {
-    Holder holder = new Holder( path, name, clazz, params, resourceRole );
+    addFilter( path, name, clazz, params, resourceRole, null );
+  }
+
+  /**
+   * Adds a filter to the chain of a service.
+   *
+   * @param filterRole the provider role of the filter (e.g. authentication, rewrite, dispatch),
+   *                   used to name its stage timer; the filter name is used when null
+   */
+  public void addFilter( String path, String name, Filter filter, Map<String,String> params, String resourceRole, String filterRole ) throws URISyntaxException {
+    Holder holder = new Holder( path, name, filter, params, resourceRole, filterRole );
     addHolder( holder );
   }
 
+  public void addFilter( String path, String name, String clazz, Map<String,String> params, String resourceRole, String filterRole ) throws URISyntaxException {
+    Holder holder = new Holder( path, name, clazz, params, resourceRole, filterRole );
+    addHolder( holder );
+  }
+
+  /**
+   * Enables per stage timers for every service chain of this filter. The timer
+   * handles of a chain are resolved on its first request.
+   *
+   * @param stageMetrics factory for the stage timers or null to disable them
+   */
+  public void setStageMetrics( StageMetrics stageMetrics ) {
+    this.stageMetrics = stageMetrics;
+  }
+
   // Now creating the correlation context only if required since it may be created upstream in the CorrelationHandler.
-  private void assignCorrelationRequestId(final String requestID) {
+  private void assignCorrelationRequestId(final HttpServletRequest request) {
     CorrelationService correlationService = CorrelationServiceFactory.getCorrelationService();
     CorrelationContext correlationContext = correlationService.getContext();
     if( correlationContext == null ) {
+      /* If request contains X-Request-Id header use it else generate a new id as correlation id */
+      String requestID = request.getHeader(REQUEST_ID_HEADER_NAME);
+      if( StringUtils.isBlank(requestID) ) {
+        requestID = CorrelationServiceFactory.getIdGenerator().generate();
+      }
       correlationService.attachContext(new Log4jCorrelationContext(requestID, null, null));
     }
   }
@@ -267,35 +392,140 @@ public class GatewayFilter implements Filter {
     auditor.audit(Action.ACCESS, requestUri, ResourceType.URI, actionOutcome, RES.responseStatus(status));
   }
 
+  private static class ChainMetrics {
+    private final Timer[] stageTimers;
+    private final DispatchTimers dispatchTimers;
+
+    ChainMetrics( Timer[] stageTimers, DispatchTimers dispatchTimers ) {
+      this.stageTimers = stageTimers;
+      this.dispatchTimers = dispatchTimers;
+    }
+  }
+
+  /*
+   * The chain registered for a service is the root; a request walks it through
+   * short lived sub-chains that share the root's holder list and timers. Each
+   * sub-chain records how long the rest of the chain took so that the timer of
+   * a filter only measures the time spent in that filter.
+   */
   private class Chain implements FilterChain {
-    private List<Holder> chainList;
+    private final List<Holder> chainList;
+    private final int index;
+    private final Chain root;
     private String resourceRole;
+    private volatile ChainMetrics metrics;
+    private long elapsed;
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean retired;
+    private final AtomicBoolean destroyed = new AtomicBoolean();
 
     Chain() {
       this.chainList = new ArrayList<>();
+      this.index = 0;
+      this.root = this;
     }
 
-    Chain( List<Holder> chainList) {
-      this.chainList = chainList;
+    Chain( Chain root, int index ) {
+      this.chainList = root.chainList;
+      this.index = index;
+      this.root = root;
     }
 
     @Override
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse ) throws IOException, ServletException {
-      if( chainList != null && !chainList.isEmpty() ) {
-        final Filter filter = chainList.get( 0 );
-        final FilterChain chain = subChain();
-        filter.doFilter( servletRequest, servletResponse, chain );
+      if( index < chainList.size() ) {
+        final Holder filter = chainList.get( index );
+        final ChainMetrics chainMetrics = root.metrics;
+        final Span span = Tracing.startSpan( filter.getStageName() );
+        try {
+          if( chainMetrics == null || index >= chainMetrics.stageTimers.length ) {
+            filter.doFilter( servletRequest, servletResponse, subChain() );
+          } else {
+            timedDoFilter( filter, chainMetrics.stageTimers[ index ], servletRequest, servletResponse );
+          }
+        } catch( IOException | ServletException | RuntimeException e ) {
+          span.setError( e );
+          throw e;
+        } finally {
+          span.end();
+        }
+      }
+    }
+
+    private void timedDoFilter( Filter filter, Timer timer, ServletRequest servletRequest, ServletResponse servletResponse ) throws IOException, ServletException {
+      final Chain next = index + 1 < chainList.size() ? new Chain( root, index + 1 ) : null;
+      final long start = System.nanoTime();
+      try {
+        filter.doFilter( servletRequest, servletResponse, next == null ? EMPTY_CHAIN : next );
+      } finally {
+        final long inclusive = System.nanoTime() - start;
+        if( this != root ) {
+          elapsed = inclusive;
+        }
+        timer.update( inclusive - ( next == null ? 0L : next.elapsed ), TimeUnit.NANOSECONDS );
       }
     }
 
     private FilterChain subChain() {
-      if( chainList != null && chainList.size() > 1 ) {
-        return new Chain( chainList.subList( 1, chainList.size() ) );
+      if( index + 1 < chainList.size() ) {
+        return new Chain( root, index + 1 );
       } else {
         return EMPTY_CHAIN;
       }
     }
 
+    /*
+     * Resolving twice under a race is harmless since the registry hands out
+     * the same timers for the same names.
+     */
+    private ChainMetrics getMetrics( ServletRequest servletRequest ) {
+      final StageMetrics factory = stageMetrics;
+      if( factory == null ) {
+        return null;
+      }
+      ChainMetrics chainMetrics = metrics;
+      if( chainMetrics == null ) {
+        final String topology = getTopologyName( servletRequest );
+        final Timer[] timers = new Timer[ chainList.size() ];
+        for( int i = 0; i < timers.length; i++ ) {
+          timers[ i ] = factory.stageTimer( topology, resourceRole, chainList.get( i ).getStageName() );
+        }
+        chainMetrics = new ChainMetrics( timers, factory.dispatchTimers( topology, resourceRole ) );
+        metrics = chainMetrics;
+      }
+      return chainMetrics;
+    }
+
+    private boolean acquire() {
+      active.incrementAndGet();
+      if( retired ) {
+        release();
+        return false;
+      }
+      return true;
+    }
+
+    private void release() {
+      if( active.decrementAndGet() == 0 && retired ) {
+        destroyHolders();
+      }
+    }
+
+    private void retire() {
+      retired = true;
+      if( active.get() == 0 ) {
+        destroyHolders();
+      }
+    }
+
+    private void destroyHolders() {
+      if( destroyed.compareAndSet( false, true ) ) {
+        for( Holder holder : chainList ) {
+          holder.destroy();
+        }
+      }
+    }
+
     private String getResourceRole() {
       return resourceRole;
     }
@@ -305,6 +535,15 @@ public class GatewayFilter implements Filter {
     }
   }
 
+  private static String getTopologyName( ServletRequest servletRequest ) {
+    final ServletContext context = servletRequest.getServletContext();
+    if( context == null ) {
+      return null;
+    }
+    final Object topology = context.getAttribute( "org.apache.knox.gateway.topology" );
+    return topology instanceof Topology ? ( (Topology) topology ).getName() : context.getContextPath();
+  }
+
   public class Holder implements Filter, FilterConfig {
     private Template template;
     private String name;
@@ -313,8 +552,9 @@ public class GatewayFilter implements Filter {
     private Class<? extends Filter> clazz;
     private String type;
     private String resourceRole;
+    private String filterRole;
 
-    Holder( String path, String name, Filter filter, Map<String,String> params, String resourceRole ) throws URISyntaxException {
+    Holder( String path, String name, Filter filter, Map<String,String> params, String resourceRole, String filterRole ) throws URISyntaxException {
       this.template = Parser.parseTemplate( path );
       this.name = name;
       this.params = params;
@@ -322,9 +562,10 @@ public class GatewayFilter implements Filter {
       this.clazz = filter.getClass();
       this.type = clazz.getCanonicalName();
       this.resourceRole = resourceRole;
+      this.filterRole = filterRole;
     }
 
-    Holder( String path, String name, String clazz, Map<String,String> params, String resourceRole ) throws URISyntaxException {
+    Holder( String path, String name, String clazz, Map<String,String> params, String resourceRole, String filterRole ) throws URISyntaxException {
       this.template = Parser.parseTemplate( path );
       this.name = name;
       this.params = params;
@@ -332,6 +573,7 @@ public class GatewayFilter implements Filter {
       this.clazz = null;
       this.type = clazz;
       this.resourceRole = resourceRole;
+      this.filterRole = filterRole;
     }
 
     @Override
@@ -413,6 +655,10 @@ public class GatewayFilter implements Filter {
       return resourceRole;
     }
 
+    private String getStageName() {
+      return filterRole == null ? name : filterRole;
+    }
+
   }
 
   /**
@@ -87,6 +87,21 @@ public interface GatewayMessages {
   @Message( level = MessageLevel.DEBUG, text = "Redeployed topology {0}." )
   void redeployedTopology( String clusterName );
 
+  @Message( level = MessageLevel.INFO, text = "Deploying topology {0} in memory" )
+  void deployingTopologyInMemory( String clusterName );
+
+  @Message( level = MessageLevel.INFO, text = "Redeployed services {1} of topology {0}" )
+  void redeployedTopologyServices( String clusterName, Set<String> roles );
+
+  @Message( level = MessageLevel.WARN, text = "Failed to redeploy the changed services of topology {0}, redeploying the whole topology: {1}" )
+  void failedToRedeployTopologyServices( String clusterName, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.INFO, text = "Deployed topology {0} in {1} ms." )
+  void deployedTopologyTime( String clusterName, long millis );
+
+  @Message( level = MessageLevel.INFO, text = "Deploying {0} topologies using {1} threads." )
+  void deployingTopologiesConcurrently( int topologies, int threads );
+
   @Message( level = MessageLevel.INFO, text = "Activating topology {0}" )
   void activatingTopology( String name );
 
@@ -406,6 +421,9 @@ public interface GatewayMessages {
   @Message( level = MessageLevel.DEBUG, text = "No rewrite file found in service directory {0}" )
   void noRewriteFileFound(String path);
 
+  @Message( level = MessageLevel.DEBUG, text = "Loaded {0} service definitions from {1} in {2} ms" )
+  void loadedServiceDefinitions(int count, String path, long millis);
+
   @Message( level = MessageLevel.DEBUG, text = "Added Service definition name: {0}, role : {1}, version : {2}" )
   void addedServiceDefinition(String serviceName, String serviceRole, String version);
 
@@ -530,6 +548,15 @@ public interface GatewayMessages {
   @Message(level = MessageLevel.INFO, text = "Stopped monitoring {0}")
   void stoppedMonitor(String monitorName);
 
+  @Message(level = MessageLevel.WARN, text = "Unable to watch {0} for changes, falling back to polling every {1} ms: {2}")
+  void watchServiceUnavailable(String directory, long interval, String reason);
+
+  @Message(level = MessageLevel.DEBUG, text = "Processed {0} change notifications for {1} in {2} ms")
+  void processedMonitorChanges(int count, String monitorName, long millis);
+
+  @Message(level = MessageLevel.ERROR, text = "Failed to process changes for {0}: {1}")
+  void failedToProcessMonitorChanges(String monitorName, String error, @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
   @Message( level = MessageLevel.ERROR, text = "Error registering listener for remote configuration path {0} : {1}" )
   void errorAddingRemoteConfigurationListenerForPath(String path,
                                                      @StackTrace( level = MessageLevel.DEBUG ) Exception e);
@@ -17,10 +17,13 @@
  */
 package org.apache.knox.gateway;
 
+import com.codahale.metrics.MetricRegistry;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.ParseException;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.knox.gateway.audit.api.Action;
 import org.apache.knox.gateway.audit.api.ActionOutcome;
 import org.apache.knox.gateway.audit.api.AuditServiceFactory;
@@ -30,20 +33,25 @@ import org.apache.knox.gateway.audit.log4j.audit.AuditConstants;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.config.GatewayConfigurationException;
 import org.apache.knox.gateway.config.impl.GatewayConfigImpl;
+import org.apache.knox.gateway.deploy.ArchiveContextHandler;
 import org.apache.knox.gateway.deploy.DeploymentException;
 import org.apache.knox.gateway.deploy.DeploymentFactory;
+import org.apache.knox.gateway.descriptor.GatewayDescriptorFactory;
 import org.apache.knox.gateway.filter.CorrelationHandler;
 import org.apache.knox.gateway.filter.PortMappingHelperHandler;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.i18n.resources.ResourcesFactory;
 import org.apache.knox.gateway.services.GatewayServices;
 import org.apache.knox.gateway.services.ServiceType;
+import org.apache.knox.gateway.services.metrics.MetricsContext;
+import org.apache.knox.gateway.services.metrics.MetricsService;
 import org.apache.knox.gateway.services.registry.ServiceDefinitionRegistry;
 import org.apache.knox.gateway.services.registry.ServiceRegistry;
 import org.apache.knox.gateway.services.security.AliasServiceException;
 import org.apache.knox.gateway.services.security.SSLService;
 import org.apache.knox.gateway.services.topology.TopologyService;
 import org.apache.knox.gateway.topology.Application;
+import org.apache.knox.gateway.topology.Service;
 import org.apache.knox.gateway.topology.Topology;
 import org.apache.knox.gateway.topology.TopologyEvent;
 import org.apache.knox.gateway.topology.TopologyListener;
@@ -69,11 +77,16 @@ import org.eclipse.jetty.server.handler.ContextHandler;
 import org.eclipse.jetty.server.handler.ContextHandlerCollection;
 import org.eclipse.jetty.server.handler.HandlerCollection;
 import org.eclipse.jetty.server.handler.RequestLogHandler;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
 import org.eclipse.jetty.util.thread.QueuedThreadPool;
 import org.eclipse.jetty.webapp.Configuration;
 import org.eclipse.jetty.webapp.WebAppContext;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.ArchivePath;
 import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.Asset;
 import org.jboss.shrinkwrap.api.exporter.ExplodedExporter;
 import org.jboss.shrinkwrap.api.spec.EnterpriseArchive;
 import org.jboss.shrinkwrap.api.spec.WebArchive;
@@ -83,6 +96,8 @@ import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 import org.xml.sax.SAXException;
 
+import javax.servlet.Servlet;
+import javax.servlet.ServletException;
 import javax.servlet.SessionCookieConfig;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.transform.TransformerException;
@@ -90,8 +105,10 @@ import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.Serializable;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
@@ -114,6 +131,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -121,6 +139,11 @@ import java.util.Properties;
 import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.regex.Pattern;
 
@@ -131,6 +154,7 @@ public class GatewayServer {
       AuditConstants.KNOX_SERVICE_NAME, AuditConstants.KNOX_COMPONENT_NAME);
 
   private static final String TOPOLOGY_EXTENSION = ".topo.";
+  private static final String GATEWAY_XML = "/WEB-INF/" + GatewayServlet.GATEWAY_DESCRIPTOR_LOCATION_DEFAULT;
 
   static final String KNOXSESSIONCOOKIENAME = "KNOXSESSIONID";
 
@@ -144,7 +168,12 @@ public class GatewayServer {
   private ContextHandlerCollection contexts;
   private TopologyService monitor;
   private TopologyListener listener;
-  private Map<String, WebAppContext> deployments;
+  private Map<String, ServletContextHandler> deployments;
+  // Serializes the swap of deployed contexts; everything else in a deployment may run concurrently.
+  private final Object deploymentsLock = new Object();
+  // The last topology deployed in memory by name, used to find the services changed by a redeploy.
+  private final Map<String, Topology> inMemoryTopologies = new ConcurrentHashMap<>();
+  private ExecutorService deploymentExecutor;
   private AtomicBoolean stopped = new AtomicBoolean(false);
 
   public static void main( String[] args ) {
@@ -454,9 +483,9 @@ public class GatewayServer {
     final Map<String, Handler> contextToHandlerMap = new HashMap<>();
     if(contexts.getHandlers() != null) {
       Arrays.asList(contexts.getHandlers()).stream()
-          .filter(h -> h instanceof WebAppContext)
+          .filter(h -> h instanceof ContextHandler)
           .forEach(h -> contextToHandlerMap
-              .put(((WebAppContext) h).getContextPath(), h));
+              .put(((ContextHandler) h).getContextPath(), h));
     }
 
     HandlerCollection handlers = new HandlerCollection();
@@ -498,7 +527,7 @@ public class GatewayServer {
                 .get("/" + config.getGatewayPath() + "/" + entry.getKey());
 
             if(context !=  null) {
-              ((WebAppContext) context).setVirtualHosts(
+              ((ContextHandler) context).setVirtualHosts(
                   new String[] { "@" + entry.getKey().toLowerCase(Locale.ROOT) });
             } else {
               // no topology found for mapping entry.getKey()
@@ -720,6 +749,9 @@ public class GatewayServer {
         log.stoppingGateway();
         services.stop();
         monitor.stopMonitor();
+        if (deploymentExecutor != null) {
+          deploymentExecutor.shutdown();
+        }
         jetty.stop();
         jetty.join();
         log.stoppedGateway();
@@ -785,23 +817,35 @@ public class GatewayServer {
   }
 
   private WebAppContext createWebAppContext( Topology topology, File warFile, String warPath ) {
-    String topoName = topology.getName();
     WebAppContext context = new WebAppContext();
+    context.setWar( warFile.getAbsolutePath() );
+    configureContext( context, topology, warPath );
+    // Add support for JSPs.
+    context.setAttribute(
+        "org.eclipse.jetty.server.webapp.ContainerIncludeJarPattern",
+        ".*/[^/]*servlet-api-[^/]*\\.jar$|.*/javax.servlet.jsp.jstl-.*\\.jar$|.*/[^/]*taglibs.*\\.jar$" );
+    context.setTempDirectory( FileUtils.getFile( warFile, "META-INF", "temp" ) );
+    return context;
+  }
+
+  private ArchiveContextHandler createArchiveContext( Topology topology, WebArchive war ) throws IOException, ReflectiveOperationException {
+    ArchiveContextHandler context = new ArchiveContextHandler( war );
+    configureContext( context, topology, Urls.decode( war.getName() ) );
+    context.configure( context.getClassLoader() );
+    return context;
+  }
+
+  private void configureContext( ServletContextHandler context, Topology topology, String warPath ) {
+    String topoName = topology.getName();
     String contextPath;
     contextPath = "/" + Urls.trimLeadingAndTrailingSlashJoin( config.getGatewayPath(), topoName, warPath );
     context.setContextPath( contextPath );
     SessionCookieConfig sessionCookieConfig = context.getServletContext().getSessionCookieConfig();
     sessionCookieConfig.setName(KNOXSESSIONCOOKIENAME);
-    context.setWar( warFile.getAbsolutePath() );
     context.setAttribute( GatewayServices.GATEWAY_CLUSTER_ATTRIBUTE, topoName );
     context.setAttribute( "org.apache.knox.gateway.frontend.uri", getFrontendUri( context, config ) );
     context.setAttribute( GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE, config );
     context.setAttribute( GatewayServices.GATEWAY_NAME, config.getGatewayPath());
-    // Add support for JSPs.
-    context.setAttribute(
-        "org.eclipse.jetty.server.webapp.ContainerIncludeJarPattern",
-        ".*/[^/]*servlet-api-[^/]*\\.jar$|.*/javax.servlet.jsp.jstl-.*\\.jar$|.*/[^/]*taglibs.*\\.jar$" );
-    context.setTempDirectory( FileUtils.getFile( warFile, "META-INF", "temp" ) );
     context.setErrorHandler( createErrorHandler() );
     context.setInitParameter("org.eclipse.jetty.servlet.Default.dirAllowed", "false");
     ClassLoader jspClassLoader = new URLClassLoader(new URL[0], this.getClass().getClassLoader());
@@ -810,7 +854,6 @@ public class GatewayServer {
     log.setMaxFormContentSize(config.getJettyMaxFormContentSize());
     context.setMaxFormKeys(config.getJettyMaxFormKeys());
     log.setMaxFormKeys(config.getJettyMaxFormKeys());
-    return context;
   }
 
   private static void explodeWar( File source, File target ) throws IOException {
@@ -855,7 +898,7 @@ public class GatewayServer {
     }
   }
 
-  private synchronized void internalDeployApplications( Topology topology, File topoDir ) throws IOException, ParserConfigurationException, TransformerException, SAXException {
+  private void internalDeployApplications( Topology topology, File topoDir ) throws IOException, ParserConfigurationException, TransformerException, SAXException {
     if( topology != null ) {
       Collection<Application> applications = topology.getApplications();
       if( applications != null ) {
@@ -873,7 +916,7 @@ public class GatewayServer {
     }
   }
 
-  private synchronized void internalDeployApplication( File topoDir, Application application, String url ) throws IOException, TransformerException, SAXException, ParserConfigurationException {
+  private void internalDeployApplication( File topoDir, Application application, String url ) throws IOException, TransformerException, SAXException, ParserConfigurationException {
     File appsDir = new File( config.getGatewayApplicationsDir() );
     File appDir = new File( appsDir, application.getName() );
     File[] implFiles = appDir.listFiles( new RegexFilenameFilter( "app|app\\..*" ) );
@@ -888,7 +931,7 @@ public class GatewayServer {
     createArchiveTempDir( warDir );
   }
 
-  private synchronized void internalActivateTopology( Topology topology, File topoDir ) {
+  private void internalActivateTopology( Topology topology, File topoDir ) {
     log.activatingTopology( topology.getName() );
     File[] files = topoDir.listFiles( new RegexFilenameFilter( "%.*" ) );
     if( files != null ) {
@@ -898,21 +941,40 @@ public class GatewayServer {
     }
   }
 
-  private synchronized void internalActivateArchive( Topology topology, File warDir ) {
+  private void internalActivateArchive( Topology topology, File warDir ) {
     log.activatingTopologyArchive( topology.getName(), warDir.getName() );
     try {
-      WebAppContext newContext = createWebAppContext( topology, warDir, Urls.decode( warDir.getName() ) );
-      WebAppContext oldContext = deployments.get( newContext.getContextPath() );
-      deployments.put( newContext.getContextPath(), newContext );
-      if( oldContext != null ) {
-        contexts.removeHandler( oldContext );
+      internalActivateContext( topology, createWebAppContext( topology, warDir, Urls.decode( warDir.getName() ) ) );
+    } catch( Throwable e ) {
+      auditor.audit( Action.DEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.FAILURE );
+      log.failedToDeployTopology( topology.getName(), e );
+    }
+  }
+
+  private void internalActivateContext( Topology topology, ServletContextHandler newContext ) {
+    try {
+      boolean started = false;
+      try {
+        // The new context is started before it is swapped in so that only the swap holds the lock.
+        if( contexts.isRunning() ) {
+          newContext.setServer( contexts.getServer() );
+          newContext.start();
+          started = true;
+        }
+      } finally {
+        synchronized( deploymentsLock ) {
+          ServletContextHandler oldContext = deployments.put( newContext.getContextPath(), newContext );
+          if( oldContext != null ) {
+            contexts.removeHandler( oldContext );
+          }
+          contexts.addHandler( newContext );
+        }
       }
-      contexts.addHandler( newContext );
-      if( contexts.isRunning() && !newContext.isRunning() ) {
-        newContext.start();
-        if(!newContext.isAvailable()) {
-          throw newContext.getUnavailableException();
+      if( started && !newContext.isAvailable() ) {
+        if( newContext instanceof WebAppContext ) {
+          throw ((WebAppContext) newContext).getUnavailableException();
         }
+        throw new DeploymentException( "Failed to start context " + newContext.getContextPath() );
       }
 
     } catch( Throwable e ) {
@@ -921,34 +983,43 @@ public class GatewayServer {
     }
   }
 
-  private synchronized void internalDeactivateTopology( Topology topology ) {
+  private void internalDeactivateTopology( Topology topology ) {
 
     log.deactivatingTopology( topology.getName() );
 
     String topoName = topology.getName();
-    String topoPath = "/" + Urls.trimLeadingAndTrailingSlashJoin( config.getGatewayPath(), topoName );
-    String topoPathSlash = topoPath + "/";
 
     ServiceRegistry sr = getGatewayServices().getService(ServiceType.SERVICE_REGISTRY_SERVICE);
     if (sr != null) {
       sr.removeClusterServices( topoName );
     }
+    inMemoryTopologies.remove( topoName );
+
+    internalDeactivateContexts( topology );
+  }
+
+  private void internalDeactivateContexts( Topology topology ) {
+    String topoPath = "/" + Urls.trimLeadingAndTrailingSlashJoin( config.getGatewayPath(), topology.getName() );
+    String topoPathSlash = topoPath + "/";
 
     // Find all the deployed contexts we need to deactivate.
     if( deployments != null ) {
-      List<WebAppContext> deactivate = new ArrayList<>();
-      for( WebAppContext app : deployments.values() ) {
-        String appPath = app.getContextPath();
-        if( appPath.equals( topoPath ) || appPath.startsWith( topoPathSlash ) ) {
-          deactivate.add( app );
+      List<ServletContextHandler> deactivate = new ArrayList<>();
+      synchronized( deploymentsLock ) {
+        for( ServletContextHandler app : deployments.values() ) {
+          String appPath = app.getContextPath();
+          if( appPath.equals( topoPath ) || appPath.startsWith( topoPathSlash ) ) {
+            deactivate.add( app );
+          }
+        }
+        for( ServletContextHandler context : deactivate ) {
+          deployments.remove( context.getContextPath() );
+          contexts.removeHandler( context );
         }
       }
 
-      // Deactivate the required deployed contexts.
-      for( WebAppContext context : deactivate ) {
-        String contextPath = context.getContextPath();
-        deployments.remove( contextPath );
-        contexts.removeHandler( context );
+      // Stop the deactivated contexts.
+      for( ServletContextHandler context : deactivate ) {
         try {
           context.stop();
         } catch( Exception e ) {
@@ -966,13 +1037,80 @@ public class GatewayServer {
     @Override
     public void handleTopologyEvent( List<TopologyEvent> events ) {
       synchronized ( GatewayServer.this ) {
+        File deployDir = calculateAbsoluteDeploymentsDir();
+        // Events for one topology are applied in order, different topologies are deployed independently.
+        Map<String, List<TopologyEvent>> topologyEvents = new LinkedHashMap<>();
         for( TopologyEvent event : events ) {
-          Topology topology = event.getTopology();
-          File deployDir = calculateAbsoluteDeploymentsDir();
-          if( event.getType().equals( TopologyEvent.Type.DELETED ) ) {
-            handleDeleteDeployment(topology, deployDir);
-          } else {
-            handleCreateDeployment(topology, deployDir);
+          topologyEvents.computeIfAbsent( event.getTopology().getName(), name -> new ArrayList<>() ).add( event );
+        }
+        int threads = config.getGatewayDeploymentThreads();
+        if( threads <= 1 || topologyEvents.size() <= 1 ) {
+          for( List<TopologyEvent> batch : topologyEvents.values() ) {
+            handleTopologyEvents( batch, deployDir );
+          }
+        } else {
+          log.deployingTopologiesConcurrently( topologyEvents.size(), Math.min( threads, topologyEvents.size() ) );
+          Map<String, Future<?>> deploying = new LinkedHashMap<>();
+          for( Map.Entry<String, List<TopologyEvent>> entry : topologyEvents.entrySet() ) {
+            deploying.put( entry.getKey(),
+                getDeploymentExecutor( threads ).submit( () -> handleTopologyEvents( entry.getValue(), deployDir ) ) );
+          }
+          awaitDeployments( deploying );
+        }
+      }
+    }
+
+    private ExecutorService getDeploymentExecutor( int threads ) {
+      if( deploymentExecutor == null ) {
+        deploymentExecutor = Executors.newFixedThreadPool( threads,
+            new BasicThreadFactory.Builder().namingPattern( "topology-deployer-%d" ).daemon( true ).build() );
+      }
+      return deploymentExecutor;
+    }
+
+    // Waits for every deployment, even when interrupted, so that the next batch never overlaps this one.
+    private void awaitDeployments( Map<String, Future<?>> deploying ) {
+      boolean interrupted = false;
+      for( Map.Entry<String, Future<?>> entry : deploying.entrySet() ) {
+        while( true ) {
+          try {
+            entry.getValue().get();
+            break;
+          } catch( InterruptedException e ) {
+            interrupted = true;
+          } catch( ExecutionException e ) {
+            log.failedToDeployTopology( entry.getKey(), e.getCause() );
+            break;
+          }
+        }
+      }
+      if( interrupted ) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void handleTopologyEvents( List<TopologyEvent> events, File deployDir ) {
+      for( TopologyEvent event : events ) {
+        Topology topology = event.getTopology();
+        if( event.getType().equals( TopologyEvent.Type.DELETED ) ) {
+          handleDeleteDeployment(topology, deployDir);
+        } else {
+          long start = System.nanoTime();
+          handleCreateDeployment(topology, deployDir);
+          recordDeploymentTime( topology.getName(), System.nanoTime() - start );
+        }
+      }
+    }
+
+    private void recordDeploymentTime( String topologyName, long nanos ) {
+      log.deployedTopologyTime( topologyName, TimeUnit.NANOSECONDS.toMillis( nanos ) );
+      if( config.isMetricsEnabled() && services != null ) {
+        MetricsService metricsService = services.getService( ServiceType.METRICS_SERVICE );
+        if( metricsService != null && metricsService.getContext() != null ) {
+          Object registry = metricsService.getContext().getProperty( MetricsContext.METRICS_REGISTRY );
+          if( registry instanceof MetricRegistry ) {
+            ((MetricRegistry) registry).timer( MetricRegistry.name( "topology", topologyName, "deployment" ) )
+                .update( nanos, TimeUnit.NANOSECONDS );
           }
         }
       }
@@ -981,10 +1119,12 @@ public class GatewayServer {
     private void handleDeleteDeployment(Topology topology, File deployDir) {
       log.deletingTopology( topology.getName() );
       File[] files = deployDir.listFiles( new RegexFilenameFilter( topology.getName() + "\\.(war|topo)\\.[0-9A-Fa-f]+" ) );
-      if( files != null ) {
+      if( files != null || config.isGatewayInMemoryDeploymentEnabled() ) {
         auditor.audit(Action.UNDEPLOY, topology.getName(), ResourceType.TOPOLOGY,
           ActionOutcome.UNAVAILABLE);
         internalDeactivateTopology( topology );
+      }
+      if( files != null ) {
         for( File file : files ) {
           log.deletingDeployment( file.getAbsolutePath() );
           FileUtils.deleteQuietly( file );
@@ -995,7 +1135,9 @@ public class GatewayServer {
     private void handleCreateDeployment(Topology topology, File deployDir) {
       try {
         File topoDir = calculateDeploymentDir( topology );
-        if( !topoDir.exists() ) {
+        if( isInMemoryDeployment( topology ) ) {
+          handleInMemoryDeployment( topology );
+        } else if( !topoDir.exists() ) {
           auditor.audit( Action.DEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE );
 
 //          KNOX-564 - Topology should fail to deploy with no providers configured.
@@ -1008,7 +1150,7 @@ public class GatewayServer {
           internalDeactivateTopology( topology ); // KNOX-152
 
           EnterpriseArchive ear = DeploymentFactory.createDeployment( config, topology );
-          if( !deployDir.exists() && !deployDir.mkdirs() ) {
+          if( !deployDir.mkdirs() && !deployDir.isDirectory() ) {
             throw new DeploymentException( "Failed to create topology deployment temporary directory: " + deployDir.getAbsolutePath() );
           }
           File tmp = ear.as( ExplodedExporter.class ).exportExploded( deployDir, topoDir.getName() + ".tmp" );
@@ -1031,6 +1173,159 @@ public class GatewayServer {
         log.failedToDeployTopology( topology.getName(), e );
       }
     }
+
+    // Applications are exploded from the applications directory, so only topologies without any are kept in memory.
+    private boolean isInMemoryDeployment( Topology topology ) {
+      return config.isGatewayInMemoryDeploymentEnabled()
+          && ( topology.getApplications() == null || topology.getApplications().isEmpty() );
+    }
+
+    private void handleInMemoryDeployment( Topology topology ) throws IOException, ReflectiveOperationException {
+      auditor.audit( Action.DEPLOY, topology.getName(), ResourceType.TOPOLOGY, ActionOutcome.UNAVAILABLE );
+      if( topology.getProviders().isEmpty() ) {
+        throw new DeploymentException( "No providers found inside topology." );
+      }
+      log.deployingTopologyInMemory( topology.getName() );
+      ArchiveContextHandler running = getRunningArchiveContext( topology );
+      Set<String> changedRoles = null;
+      if( running != null && config.isGatewayIncrementalDeploymentEnabled() ) {
+        changedRoles = getChangedServiceRoles( inMemoryTopologies.get( topology.getName() ), topology );
+      }
+      if( changedRoles == null ) {
+        internalDeactivateTopology( topology );
+      }
+      // The services of the topology are registered again, replacing those of the running deployment.
+      EnterpriseArchive ear = DeploymentFactory.createDeployment( config, topology );
+      WebArchive war = ear.getAsType( WebArchive.class, Urls.encode( "/" ) );
+      if( changedRoles == null || !redeployServices( running, topology, war, changedRoles ) ) {
+        if( changedRoles != null ) {
+          internalDeactivateContexts( topology );
+        }
+        if( war != null ) {
+          log.activatingTopology( topology.getName() );
+          internalActivateContext( topology, createArchiveContext( topology, war ) );
+        }
+      }
+      inMemoryTopologies.put( topology.getName(), topology );
+      log.deployedTopology( topology.getName() );
+    }
+
+    private ArchiveContextHandler getRunningArchiveContext( Topology topology ) {
+      String contextPath = "/" + Urls.trimLeadingAndTrailingSlashJoin( config.getGatewayPath(), topology.getName(), "/" );
+      ServletContextHandler context;
+      synchronized( deploymentsLock ) {
+        context = deployments == null ? null : deployments.get( contextPath );
+      }
+      if( context instanceof ArchiveContextHandler && context.isAvailable() ) {
+        return (ArchiveContextHandler) context;
+      }
+      return null;
+    }
+
+    /*
+     * Returns the roles whose services were added or changed, or null when the
+     * topology has to be redeployed as a whole because its providers changed or
+     * a service role was removed. Custom dispatches are not part of
+     * Service#equals so a role using one is always treated as changed.
+     */
+    private Set<String> getChangedServiceRoles( Topology previous, Topology topology ) {
+      if( previous == null || !new HashSet<>( previous.getProviders() ).equals( new HashSet<>( topology.getProviders() ) ) ) {
+        return null;
+      }
+      Map<String, List<Service>> previousServices = groupServicesByRole( previous );
+      Map<String, List<Service>> services = groupServicesByRole( topology );
+      if( !services.keySet().containsAll( previousServices.keySet() ) ) {
+        return null;
+      }
+      Set<String> changed = new HashSet<>();
+      for( Map.Entry<String, List<Service>> entry : services.entrySet() ) {
+        List<Service> before = previousServices.get( entry.getKey() );
+        List<Service> after = entry.getValue();
+        if( before == null || before.size() != after.size()
+            || !before.containsAll( after ) || !after.containsAll( before )
+            || hasCustomDispatch( before ) || hasCustomDispatch( after ) ) {
+          changed.add( entry.getKey() );
+        }
+      }
+      return changed;
+    }
+
+    private Map<String, List<Service>> groupServicesByRole( Topology topology ) {
+      Map<String, List<Service>> services = new HashMap<>();
+      for( Service service : topology.getServices() ) {
+        services.computeIfAbsent( service.getRole(), role -> new ArrayList<>() ).add( service );
+      }
+      return services;
+    }
+
+    private boolean hasCustomDispatch( List<Service> services ) {
+      for( Service service : services ) {
+        if( service.getDispatch() != null ) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    /*
+     * Swaps the chains of the changed services into the running context. This
+     * is only possible when every other resource of the archive, such as the
+     * web.xml, rewrite rules and HA configuration read by the context
+     * listeners, is unchanged; false is returned otherwise.
+     */
+    private boolean redeployServices( ArchiveContextHandler context, Topology topology, WebArchive war, Set<String> roles ) {
+      try {
+        if( war == null || !sameResources( context.getArchive(), war ) ) {
+          return false;
+        }
+        context.setArchive( war );
+        context.getServletContext().setAttribute( "org.apache.knox.gateway.topology", topology );
+        if( !roles.isEmpty() ) {
+          for( ServletHolder holder : context.getServletHandler().getServlets() ) {
+            Servlet servlet = holder.getServletInstance();
+            if( servlet instanceof GatewayServlet && ((GatewayServlet) servlet).getFilter() != null ) {
+              try( Reader reader = new InputStreamReader(
+                  war.get( GATEWAY_XML ).getAsset().openStream(), StandardCharsets.UTF_8 ) ) {
+                ((GatewayServlet) servlet).updateServices( GatewayDescriptorFactory.load( "xml", reader ), roles );
+              }
+            }
+          }
+        }
+        log.redeployedTopologyServices( topology.getName(), roles );
+        return true;
+      } catch( IOException | ServletException | RuntimeException e ) {
+        log.failedToRedeployTopologyServices( topology.getName(), e );
+        return false;
+      }
+    }
+
+    private boolean sameResources( Archive<?> previous, Archive<?> archive ) throws IOException {
+      Map<ArchivePath, Asset> previousAssets = getResourceAssets( previous );
+      Map<ArchivePath, Asset> assets = getResourceAssets( archive );
+      if( !previousAssets.keySet().equals( assets.keySet() ) ) {
+        return false;
+      }
+      for( Map.Entry<ArchivePath, Asset> entry : assets.entrySet() ) {
+        try( InputStream before = previousAssets.get( entry.getKey() ).openStream();
+             InputStream after = entry.getValue().openStream() ) {
+          if( !IOUtils.contentEquals( before, after ) ) {
+            return false;
+          }
+        }
+      }
+      return true;
+    }
+
+    // The assets of an archive other than the gateway.xml holding the service chains.
+    private Map<ArchivePath, Asset> getResourceAssets( Archive<?> archive ) {
+      Map<ArchivePath, Asset> assets = new HashMap<>();
+      archive.getContent().forEach( ( path, node ) -> {
+        if( node.getAsset() != null && !GATEWAY_XML.equals( path.get() ) ) {
+          assets.put( path, node.getAsset() );
+        }
+      } );
+      return assets;
+    }
   }
 
   private File createArchiveTempDir( File warDir ) {
@@ -1093,7 +1388,7 @@ public class GatewayServer {
     }
   }
 
-  public URI getFrontendUri( WebAppContext context, GatewayConfig config ) {
+  public URI getFrontendUri( ContextHandler context, GatewayConfig config ) {
     URI frontendUri = null;
     String frontendStr = config.getFrontendUrl();
     if( frontendStr != null && !frontendStr.trim().isEmpty() ) {
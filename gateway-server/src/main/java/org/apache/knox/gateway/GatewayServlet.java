@@ -45,6 +45,7 @@ import java.io.InputStreamReader;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.util.Enumeration;
+import java.util.Set;
 
 public class GatewayServlet implements Servlet, Filter {
   public static final String GATEWAY_DESCRIPTOR_LOCATION_DEFAULT = "gateway.xml";
@@ -81,6 +82,22 @@ public class GatewayServlet implements Servlet, Filter {
     }
   }
 
+  /**
+   * Rebuilds the chains of the given services from a redeployed descriptor and
+   * swaps them into the running filter, leaving the chains of the other
+   * services untouched.
+   */
+  public synchronized void updateServices( GatewayDescriptor descriptor, Set<String> resourceRoles ) throws ServletException {
+    if( filter == null ) {
+      throw new ServletException( "Gateway filter is not initialized" );
+    }
+    try {
+      filter.replaceServices( GatewayFactory.create( descriptor ), resourceRoles );
+    } catch( URISyntaxException e ) {
+      throw new ServletException( e );
+    }
+  }
+
   @Override
   public synchronized void init( ServletConfig servletConfig ) throws ServletException {
     try {
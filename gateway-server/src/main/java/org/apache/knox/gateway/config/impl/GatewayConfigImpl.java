@@ -135,12 +135,19 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   public static final String HTTP_SERVER_RESPONSE_HEADER_BUFFER = GATEWAY_CONFIG_FILE_PREFIX + ".httpserver.responseHeaderBuffer";
   public static final String DEPLOYMENTS_BACKUP_VERSION_LIMIT = GATEWAY_CONFIG_FILE_PREFIX + ".deployment.backup.versionLimit";
   public static final String DEPLOYMENTS_BACKUP_AGE_LIMIT = GATEWAY_CONFIG_FILE_PREFIX + ".deployment.backup.ageLimit";
+  public static final String DEPLOYMENT_THREADS = GATEWAY_CONFIG_FILE_PREFIX + ".deployment.threads";
+  public static final String DEPLOYMENT_IN_MEMORY = GATEWAY_CONFIG_FILE_PREFIX + ".deployment.inMemory";
+  public static final String DEPLOYMENT_INCREMENTAL = GATEWAY_CONFIG_FILE_PREFIX + ".deployment.incremental";
+  public static final String TOPOLOGY_MONITOR_WATCH_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".topology.monitor.watch.enabled";
+  public static final String TOPOLOGY_MONITOR_DEBOUNCE_INTERVAL = GATEWAY_CONFIG_FILE_PREFIX + ".topology.monitor.debounce";
   public static final String METRICS_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".metrics.enabled";
   public static final String JMX_METRICS_REPORTING_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".jmx.metrics.reporting.enabled";
   public static final String GRAPHITE_METRICS_REPORTING_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".graphite.metrics.reporting.enabled";
   public static final String GRAPHITE_METRICS_REPORTING_HOST = GATEWAY_CONFIG_FILE_PREFIX + ".graphite.metrics.reporting.host";
   public static final String GRAPHITE_METRICS_REPORTING_PORT = GATEWAY_CONFIG_FILE_PREFIX + ".graphite.metrics.reporting.port";
   public static final String GRAPHITE_METRICS_REPORTING_FREQUENCY = GATEWAY_CONFIG_FILE_PREFIX + ".graphite.metrics.reporting.frequency";
+  public static final String PROMETHEUS_METRICS_REPORTING_ENABLED = GATEWAY_CONFIG_FILE_PREFIX + ".prometheus.metrics.reporting.enabled";
+  public static final String PROMETHEUS_METRICS_ALLOWLIST = GATEWAY_CONFIG_FILE_PREFIX + ".prometheus.metrics.allowlist";
   public static final String GATEWAY_IDLE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".idle.timeout";
   public static final String REMOTE_IP_HEADER_NAME = GATEWAY_CONFIG_FILE_PREFIX + ".remote.ip.header.name";
   private static final String JETTY_MAX_FORM_CONTENT_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".jetty.max.form.content.size";
@@ -156,6 +163,11 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   public static final String WEBSOCKET_ASYNC_WRITE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.async.write.timeout";
   public static final String WEBSOCKET_IDLE_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.idle.timeout";
   public static final String WEBSOCKET_MAX_WAIT_BUFFER_COUNT = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.max.wait.buffer.count";
+  public static final String WEBSOCKET_MAX_WAIT_BUFFER_BYTES = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.max.wait.buffer.bytes";
+  public static final String WEBSOCKET_MAX_OUTSTANDING_BYTES = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.max.outstanding.bytes";
+  public static final String WEBSOCKET_KEEPALIVE_INTERVAL = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.keepalive.interval";
+  public static final String WEBSOCKET_IDLE_REAP_TIMEOUT = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.idle.reap.timeout";
+  public static final String WEBSOCKET_THREAD_POOL_SIZE = GATEWAY_CONFIG_FILE_PREFIX + ".websocket.thread.pool.size";
 
   /**
    * Properties for for gateway port mapping feature
@@ -207,6 +219,11 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   public static final int DEFAULT_WEBSOCKET_ASYNC_WRITE_TIMEOUT = 60000;
   public static final int DEFAULT_WEBSOCKET_IDLE_TIMEOUT = 300000;
   public static final int DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_COUNT = 100;
+  public static final long DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_BYTES = 4L * 1024 * 1024;
+  public static final long DEFAULT_WEBSOCKET_MAX_OUTSTANDING_BYTES = 1024L * 1024;
+  public static final long DEFAULT_WEBSOCKET_KEEPALIVE_INTERVAL = 0L;
+  public static final long DEFAULT_WEBSOCKET_IDLE_REAP_TIMEOUT = 0L;
+  public static final int DEFAULT_WEBSOCKET_THREAD_POOL_SIZE = 10;
 
   public static final boolean DEFAULT_GATEWAY_PORT_MAPPING_ENABLED = true;
   public static final boolean DEFAULT_REMOTE_ALIAS_SERVICE_ENABLED = true;
@@ -262,6 +279,7 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
   private static final String CLOUDERA_MANAGER_ADVANCED_SERVICE_DISCOVERY_CONF_MONITOR_INTERVAL = GATEWAY_CONFIG_FILE_PREFIX + ".cloudera.manager.advanced.service.discovery.config.monitor.interval";
   private static final String CLOUDERA_MANAGER_SERVICE_DISCOVERY_REPOSITORY_CACHE_ENTRY_TTL = GATEWAY_CONFIG_FILE_PREFIX + ".cloudera.manager.service.discovery.repository.cache.entry.ttl";
   private static final String CLOUDERA_MANAGER_SERVICE_DISCOVERY_MAX_RETRY_ATTEMPS = GATEWAY_CONFIG_FILE_PREFIX + ".cloudera.manager.service.discovery.maximum.retry.attemps";
+  static final String CLOUDERA_MANAGER_SERVICE_DISCOVERY_THREADS = GATEWAY_CONFIG_FILE_PREFIX + ".cloudera.manager.service.discovery.threads";
 
   private static final String KNOX_TOKEN_EVICTION_INTERVAL = GATEWAY_CONFIG_FILE_PREFIX + ".knox.token.eviction.interval";
   private static final String KNOX_TOKEN_EVICTION_GRACE_PERIOD = GATEWAY_CONFIG_FILE_PREFIX + ".knox.token.eviction.grace.period";
@@ -734,6 +752,35 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return i;
   }
 
+  @Override
+  public int getGatewayDeploymentThreads() {
+    int i = getInt( DEPLOYMENT_THREADS, Math.min( 4, Runtime.getRuntime().availableProcessors() ) );
+    if( i < 1 ) {
+      i = 1;
+    }
+    return i;
+  }
+
+  @Override
+  public boolean isGatewayInMemoryDeploymentEnabled() {
+    return getBoolean( DEPLOYMENT_IN_MEMORY, false );
+  }
+
+  @Override
+  public boolean isGatewayIncrementalDeploymentEnabled() {
+    return getBoolean( DEPLOYMENT_INCREMENTAL, true );
+  }
+
+  @Override
+  public boolean isTopologyMonitorWatchServiceEnabled() {
+    return getBoolean( TOPOLOGY_MONITOR_WATCH_ENABLED, true );
+  }
+
+  @Override
+  public long getTopologyMonitorDebounceInterval() {
+    return Math.max( 0L, getLong( TOPOLOGY_MONITOR_DEBOUNCE_INTERVAL, 500L ) );
+  }
+
   @Override
   public long getGatewayIdleTimeout() {
     return getLong(GATEWAY_IDLE_TIMEOUT, 300000L);
@@ -874,6 +921,16 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return getInt( GRAPHITE_METRICS_REPORTING_FREQUENCY, 1 );
   }
 
+  @Override
+  public boolean isPrometheusMetricsReportingEnabled() {
+    return Boolean.parseBoolean(get( PROMETHEUS_METRICS_REPORTING_ENABLED, "false" ));
+  }
+
+  @Override
+  public List<String> getPrometheusMetricsAllowlist() {
+    return new ArrayList<>(getTrimmedStringCollection(PROMETHEUS_METRICS_ALLOWLIST));
+  }
+
   @Override
   public boolean isWebsocketEnabled() {
     final String result = get( WEBSOCKET_FEATURE_ENABLED, Boolean.toString(DEFAULT_WEBSOCKET_FEATURE_ENABLED));
@@ -920,6 +977,31 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return getInt( WEBSOCKET_MAX_WAIT_BUFFER_COUNT, DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_COUNT);
   }
 
+  @Override
+  public long getWebsocketMaxWaitBufferBytes() {
+    return getLong( WEBSOCKET_MAX_WAIT_BUFFER_BYTES, DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_BYTES);
+  }
+
+  @Override
+  public long getWebsocketMaxOutstandingBytes() {
+    return getLong( WEBSOCKET_MAX_OUTSTANDING_BYTES, DEFAULT_WEBSOCKET_MAX_OUTSTANDING_BYTES);
+  }
+
+  @Override
+  public long getWebsocketKeepaliveInterval() {
+    return getLong( WEBSOCKET_KEEPALIVE_INTERVAL, DEFAULT_WEBSOCKET_KEEPALIVE_INTERVAL);
+  }
+
+  @Override
+  public long getWebsocketIdleReapTimeout() {
+    return getLong( WEBSOCKET_IDLE_REAP_TIMEOUT, DEFAULT_WEBSOCKET_IDLE_REAP_TIMEOUT);
+  }
+
+  @Override
+  public int getWebsocketThreadPoolSize() {
+    return getInt( WEBSOCKET_THREAD_POOL_SIZE, DEFAULT_WEBSOCKET_THREAD_POOL_SIZE);
+  }
+
   @Override
   public Map<String, Integer> getGatewayPortMappings() {
 
@@ -1183,6 +1265,11 @@ public class GatewayConfigImpl extends Configuration implements GatewayConfig {
     return getInt(CLOUDERA_MANAGER_SERVICE_DISCOVERY_MAX_RETRY_ATTEMPS, DEFAULT_CM_SERVICE_DISCOVERY_MAX_RETRY_ATTEMPTS);
   }
 
+  @Override
+  public int getClouderaManagerServiceDiscoveryThreads() {
+    return Math.max(1, getInt(CLOUDERA_MANAGER_SERVICE_DISCOVERY_THREADS, DEFAULT_CM_SERVICE_DISCOVERY_THREADS));
+  }
+
   @Override
   public boolean isServerManagedTokenStateEnabled() {
     return getBoolean(TOKEN_STATE_SERVER_MANAGED, false);
@@ -0,0 +1,206 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.jboss.shrinkwrap.api.Archive;
+import org.jboss.shrinkwrap.api.Node;
+import org.jboss.shrinkwrap.api.asset.Asset;
+import org.jboss.shrinkwrap.descriptor.api.Descriptors;
+import org.jboss.shrinkwrap.descriptor.api.webapp30.WebAppDescriptor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+import java.util.EventListener;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A servlet context that runs a generated topology web archive straight from memory.
+ * <p>
+ * The context parameters, listeners, servlets and session settings of the archive's
+ * web.xml are registered programmatically and resources such as WEB-INF/gateway.xml
+ * are served from the archive. Nothing is exported to the deployment directory and
+ * none of the WebAppContext configuration and annotation scanning is run.
+ */
+public class ArchiveContextHandler extends ServletContextHandler {
+
+  static final String WEB_XML = "/WEB-INF/web.xml";
+  private static final String URL_PROTOCOL = "knox-archive";
+
+  private volatile Archive<?> archive;
+
+  public ArchiveContextHandler( Archive<?> archive ) {
+    super( SESSIONS );
+    this.archive = archive;
+    _scontext = new ArchiveContext();
+  }
+
+  public Archive<?> getArchive() {
+    return archive;
+  }
+
+  /**
+   * Serves the resources of this context from a redeployed archive. The web.xml
+   * of the archive is expected to match the one this context was configured with.
+   */
+  public void setArchive( Archive<?> archive ) {
+    this.archive = archive;
+  }
+
+  /**
+   * Registers the content of the archive's web.xml with this context.
+   *
+   * @param classLoader the class loader used to instantiate the listeners
+   * @throws IOException if the web.xml cannot be read
+   * @throws ReflectiveOperationException if a listener cannot be instantiated
+   */
+  public void configure( ClassLoader classLoader ) throws IOException, ReflectiveOperationException {
+    Asset webXml = getAsset( WEB_XML );
+    if( webXml == null ) {
+      throw new DeploymentException( "Missing " + WEB_XML + " in archive " + archive.getName() );
+    }
+    WebAppDescriptor descriptor;
+    try( InputStream stream = webXml.openStream() ) {
+      descriptor = Descriptors.importAs( WebAppDescriptor.class ).fromStream( stream );
+    }
+
+    descriptor.getAllContextParam().forEach( param -> setInitParameter( param.getParamName(), param.getParamValue() ) );
+
+    // Listeners are notified in the order they are declared, as they would be from the web.xml.
+    List<String> listeners = descriptor.getAllListener().stream()
+        .map( listener -> listener.getListenerClass() )
+        .collect( Collectors.toList() );
+    for( String listener : listeners ) {
+      addEventListener( (EventListener) classLoader.loadClass( listener ).getDeclaredConstructor().newInstance() );
+    }
+
+    Map<String, ServletHolder> servlets = new HashMap<>();
+    descriptor.getAllServlet().forEach( servlet -> {
+      ServletHolder holder = new ServletHolder();
+      holder.setName( servlet.getServletName() );
+      holder.setClassName( servlet.getServletClass() );
+      servlet.getAllInitParam().forEach( param -> holder.setInitParameter( param.getParamName(), param.getParamValue() ) );
+      servlets.put( holder.getName(), holder );
+    } );
+    descriptor.getAllServletMapping().forEach( mapping -> {
+      ServletHolder holder = servlets.get( mapping.getServletName() );
+      if( holder == null ) {
+        throw new DeploymentException( "Missing servlet " + mapping.getServletName() );
+      }
+      mapping.getAllUrlPattern().forEach( pattern -> addServlet( holder, pattern ) );
+    } );
+
+    descriptor.getAllSessionConfig().forEach( session -> {
+      Integer timeout = session.getSessionTimeout();
+      if( timeout != null ) {
+        getSessionHandler().setMaxInactiveInterval( timeout * 60 );
+      }
+      if( Boolean.TRUE.equals( session.getOrCreateCookieConfig().isHttpOnly() ) ) {
+        getSessionHandler().setHttpOnly( true );
+      }
+      if( Boolean.TRUE.equals( session.getOrCreateCookieConfig().isSecure() ) ) {
+        getSessionHandler().getSessionCookieConfig().setSecure( true );
+      }
+    } );
+  }
+
+  private Asset getAsset( String path ) {
+    if( path == null || !path.startsWith( "/" ) ) {
+      return null;
+    }
+    Node node = archive.get( path );
+    return node == null ? null : node.getAsset();
+  }
+
+  /**
+   * Serves the resources of the servlet context from the archive.
+   */
+  public class ArchiveContext extends ServletContextHandler.Context {
+
+    @Override
+    public URL getResource( String path ) throws MalformedURLException {
+      Asset asset = getAsset( path );
+      if( asset == null ) {
+        return null;
+      }
+      return new URL( null, URL_PROTOCOL + ":" + archive.getName() + path, new AssetUrlStreamHandler( asset ) );
+    }
+
+    @Override
+    public InputStream getResourceAsStream( String path ) {
+      Asset asset = getAsset( path );
+      return asset == null ? null : asset.openStream();
+    }
+
+    @Override
+    public Set<String> getResourcePaths( String path ) {
+      if( path == null || !path.startsWith( "/" ) ) {
+        return null;
+      }
+      Node node = archive.get( path );
+      if( node == null || node.getAsset() != null ) {
+        return null;
+      }
+      Set<String> paths = new HashSet<>();
+      for( Node child : node.getChildren() ) {
+        String childPath = child.getPath().get();
+        paths.add( child.getAsset() == null ? childPath + "/" : childPath );
+      }
+      return paths;
+    }
+
+    @Override
+    public String getRealPath( String path ) {
+      // There is no file system location behind an in-memory archive.
+      return null;
+    }
+  }
+
+  private static class AssetUrlStreamHandler extends URLStreamHandler {
+    private final Asset asset;
+
+    AssetUrlStreamHandler( Asset asset ) {
+      this.asset = asset;
+    }
+
+    @Override
+    protected URLConnection openConnection( URL url ) {
+      return new URLConnection( url ) {
+        @Override
+        public void connect() {
+          connected = true;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+          return asset.openStream();
+        }
+      };
+    }
+  }
+}
@@ -73,7 +73,10 @@ public abstract class DeploymentFactory {
   private static final GatewayMessages log = MessagesFactory.get( GatewayMessages.class );
   private static GatewayServices gatewayServices;
 
-  private static Map<String,Map<String,Map<Version, ServiceDeploymentContributor>>> SERVICE_CONTRIBUTOR_MAP;
+  // Replaced copy-on-write so that topologies can be deployed concurrently while the
+  // stack service definitions are reloaded.
+  private static final Object SERVICE_CONTRIBUTOR_LOCK = new Object();
+  private static volatile Map<String,Map<String,Map<Version, ServiceDeploymentContributor>>> SERVICE_CONTRIBUTOR_MAP;
   static {
     loadServiceContributors();
   }
@@ -695,17 +698,31 @@ public abstract class DeploymentFactory {
     log.usingServicesDirectory(stacks);
     File stacksDir = new File(stacks);
     Set<ServiceDeploymentContributor> deploymentContributors = ServiceDefinitionsLoader.loadServiceDefinitionDeploymentContributors(stacksDir);
-    addServiceDeploymentContributors(deploymentContributors.iterator());
+    synchronized( SERVICE_CONTRIBUTOR_LOCK ) {
+      Map<String,Map<String,Map<Version, ServiceDeploymentContributor>>> roleMap = new HashMap<>();
+      for( Map.Entry<String,Map<String,Map<Version, ServiceDeploymentContributor>>> role : SERVICE_CONTRIBUTOR_MAP.entrySet() ) {
+        Map<String,Map<Version, ServiceDeploymentContributor>> nameMap = new HashMap<>();
+        for( Map.Entry<String,Map<Version, ServiceDeploymentContributor>> name : role.getValue().entrySet() ) {
+          nameMap.put( name.getKey(), new TreeMap<>( name.getValue() ) );
+        }
+        roleMap.put( role.getKey(), nameMap );
+      }
+      addServiceDeploymentContributors(roleMap, deploymentContributors.iterator());
+      SERVICE_CONTRIBUTOR_MAP = roleMap;
+    }
   }
 
   private static void loadServiceContributors() {
-    SERVICE_CONTRIBUTOR_MAP = new HashMap<>();
+    Map<String,Map<String,Map<Version, ServiceDeploymentContributor>>> roleMap = new HashMap<>();
     ServiceLoader<ServiceDeploymentContributor> loader = ServiceLoader.load( ServiceDeploymentContributor.class );
     Iterator<ServiceDeploymentContributor> contributors = loader.iterator();
-    addServiceDeploymentContributors(contributors);
+    addServiceDeploymentContributors(roleMap, contributors);
+    SERVICE_CONTRIBUTOR_MAP = roleMap;
   }
 
-   private static void addServiceDeploymentContributors(Iterator<ServiceDeploymentContributor> contributors) {
+   private static void addServiceDeploymentContributors(
+       Map<String,Map<String,Map<Version, ServiceDeploymentContributor>>> roleMap,
+       Iterator<ServiceDeploymentContributor> contributors) {
       while( contributors.hasNext() ) {
         ServiceDeploymentContributor contributor = contributors.next();
         if( contributor.getName() == null ) {
@@ -720,10 +737,10 @@ public abstract class DeploymentFactory {
           log.ignoringServiceContributorWithMissingVersion(contributor.getClass().getName());
           continue;
         }
-        Map<String,Map<Version, ServiceDeploymentContributor>> nameMap = SERVICE_CONTRIBUTOR_MAP.get( contributor.getRole() );
+        Map<String,Map<Version, ServiceDeploymentContributor>> nameMap = roleMap.get( contributor.getRole() );
         if( nameMap == null ) {
           nameMap = new HashMap<>();
-          SERVICE_CONTRIBUTOR_MAP.put( contributor.getRole(), nameMap );
+          roleMap.put( contributor.getRole(), nameMap );
         }
         Map<Version, ServiceDeploymentContributor> versionMap = nameMap.get(contributor.getName());
         if (versionMap == null) {
@@ -18,7 +18,6 @@
 package org.apache.knox.gateway.filter;
 
 import java.io.IOException;
-import java.util.UUID;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -39,11 +38,9 @@ public class CorrelationHandler extends HandlerWrapper {
   public void handle( String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response )
       throws IOException, ServletException {
     CorrelationService correlationService = CorrelationServiceFactory.getCorrelationService();
-    /* If request contains X-Request-Id header use it else use random uuid as correlation id */
-    final String reqID =
-        StringUtils.isBlank(request.getHeader(REQUEST_ID_HEADER_NAME)) ?
-            UUID.randomUUID().toString() :
-            request.getHeader(REQUEST_ID_HEADER_NAME);
+    /* If request contains X-Request-Id header use it else generate a new id as correlation id */
+    final String header = request.getHeader(REQUEST_ID_HEADER_NAME);
+    final String reqID = StringUtils.isBlank(header) ? CorrelationServiceFactory.getIdGenerator().generate() : header;
 
     correlationService.attachContext(
             new Log4jCorrelationContext(reqID,
@@ -48,7 +48,7 @@ public class DefaultMetricsService implements MetricsService {
 
   private static final MetricRegistry metrics = new MetricRegistry();
 
-  public static final String METRICS_REGISTRY = "metrics-registry";
+  public static final String METRICS_REGISTRY = MetricsContext.METRICS_REGISTRY;
 
   private Map<Class<?>, InstrumentationProvider> instrumentationProviders;
 
@@ -161,6 +161,7 @@ public class DefaultMetricsService implements MetricsService {
     return metricsReporters;
   }
 
+  @Override
   public MetricsContext getContext() {
     return context;
   }
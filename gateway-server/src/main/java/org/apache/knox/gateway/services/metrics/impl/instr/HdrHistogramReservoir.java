@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.metrics.impl.instr;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import org.HdrHistogram.AbstractHistogram;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.IntCountsHistogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link Reservoir} backed by an HdrHistogram {@link Recorder}.
+ * <p>
+ * Recording is wait-free and allocation-free on the request path. Snapshots
+ * cover a sliding window: recorded values are collected into a ring of
+ * interval histograms, and the ones within the window are merged on read. The
+ * percentiles therefore reflect every recent value with a fixed relative error
+ * instead of a random sample, and follow latency changes within the window.
+ * <p>
+ * The histograms track values up to one hour in nanoseconds, larger values are
+ * recorded as one hour, and never resize. Each reservoir therefore holds a fixed
+ * 128 KiB: the two recording histograms (36.5 KiB each) and three window chunks
+ * with int counts (18.5 KiB each). A snapshot adds a transient 18.5 KiB copy.
+ */
+public class HdrHistogramReservoir implements Reservoir {
+
+  private static final int SIGNIFICANT_DIGITS = 2;
+
+  private static final long HIGHEST_TRACKABLE_VALUE = TimeUnit.HOURS.toNanos(1);
+
+  private static final long DEFAULT_WINDOW_SECONDS = 60L;
+
+  private static final int CHUNKS = 3;
+
+  private final Recorder recorder;
+  private final Clock clock;
+  private final long chunkNanos;
+  private final IntCountsHistogram[] chunks = new IntCountsHistogram[CHUNKS];
+  private Histogram interval;
+  private int current;
+  private long currentChunkStart;
+
+  public HdrHistogramReservoir() {
+    this(DEFAULT_WINDOW_SECONDS, TimeUnit.SECONDS, Clock.defaultClock());
+  }
+
+  /**
+   * @param window the time span covered by the snapshots
+   * @param unit the unit of the window
+   * @param clock the clock deciding when recorded values leave the window
+   */
+  public HdrHistogramReservoir(long window, TimeUnit unit, Clock clock) {
+    this.recorder = new Recorder(1L, HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+    this.clock = clock;
+    this.chunkNanos = Math.max(1L, unit.toNanos(window) / CHUNKS);
+    for (int i = 0; i < CHUNKS; i++) {
+      chunks[i] = newWindowHistogram();
+    }
+    this.currentChunkStart = clock.getTick();
+  }
+
+  @Override
+  public int size() {
+    return getSnapshot().size();
+  }
+
+  @Override
+  public void update(long value) {
+    recorder.recordValue(Math.min(Math.max(value, 0L), HIGHEST_TRACKABLE_VALUE));
+  }
+
+  @Override
+  public Snapshot getSnapshot() {
+    return new HistogramSnapshot(collect());
+  }
+
+  /* a bucket would need more than 2^31 values within the window to overflow the int counts */
+  private static IntCountsHistogram newWindowHistogram() {
+    return new IntCountsHistogram(1L, HIGHEST_TRACKABLE_VALUE, SIGNIFICANT_DIGITS);
+  }
+
+  private synchronized AbstractHistogram collect() {
+    rotate(clock.getTick());
+    interval = recorder.getIntervalHistogram(interval);
+    chunks[current].add(interval);
+
+    final AbstractHistogram window = newWindowHistogram();
+    for (AbstractHistogram chunk : chunks) {
+      window.add(chunk);
+    }
+    return window;
+  }
+
+  /* values recorded since the previous snapshot are attributed to the chunk of this snapshot */
+  private void rotate(long now) {
+    final long elapsed = (now - currentChunkStart) / chunkNanos;
+    if (elapsed > 0) {
+      for (long i = 0; i < Math.min(elapsed, CHUNKS); i++) {
+        current = (current + 1) % CHUNKS;
+        chunks[current].reset();
+      }
+      currentChunkStart += elapsed * chunkNanos;
+    }
+  }
+
+  private static class HistogramSnapshot extends Snapshot {
+    private final AbstractHistogram histogram;
+
+    HistogramSnapshot(AbstractHistogram histogram) {
+      this.histogram = histogram;
+    }
+
+    @Override
+    public double getValue(double quantile) {
+      return histogram.getValueAtPercentile(quantile * 100.0D);
+    }
+
+    /**
+     * Returns one entry per distinct recorded value (at histogram precision)
+     * rather than one entry per recorded sample.
+     */
+    @Override
+    public long[] getValues() {
+      long[] values = new long[countDistinct()];
+      int i = 0;
+      for (HistogramIterationValue value : histogram.recordedValues()) {
+        if (i == values.length) {
+          break;
+        }
+        values[i++] = value.getValueIteratedTo();
+      }
+      return values;
+    }
+
+    private int countDistinct() {
+      int count = 0;
+      for (HistogramIterationValue ignored : histogram.recordedValues()) {
+        count++;
+      }
+      return count;
+    }
+
+    @Override
+    public int size() {
+      return (int) Math.min(histogram.getTotalCount(), Integer.MAX_VALUE);
+    }
+
+    @Override
+    public long getMax() {
+      return histogram.getTotalCount() == 0 ? 0 : histogram.getMaxValue();
+    }
+
+    @Override
+    public double getMean() {
+      return histogram.getTotalCount() == 0 ? 0 : histogram.getMean();
+    }
+
+    @Override
+    public long getMin() {
+      return histogram.getTotalCount() == 0 ? 0 : histogram.getMinValue();
+    }
+
+    @Override
+    public double getStdDev() {
+      return histogram.getTotalCount() == 0 ? 0 : histogram.getStdDeviation();
+    }
+
+    @Override
+    public void dump(OutputStream output) {
+      try (PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8))) {
+        for (long value : getValues()) {
+          out.printf(Locale.ROOT, "%d%n", value);
+        }
+      }
+    }
+  }
+}
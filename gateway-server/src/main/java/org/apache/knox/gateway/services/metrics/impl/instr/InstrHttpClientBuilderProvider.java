@@ -21,14 +21,20 @@ import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.httpclient.HttpClientMetricNameStrategy;
 import com.codahale.metrics.httpclient.InstrumentedHttpRequestExecutor;
 import org.apache.http.Header;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
 import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
 import org.apache.http.RequestLine;
 import org.apache.http.client.utils.URIBuilder;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.protocol.HttpContext;
+import org.apache.knox.gateway.services.metrics.ConnectionTimestamp;
 import org.apache.knox.gateway.services.metrics.InstrumentationProvider;
 import org.apache.knox.gateway.services.metrics.MetricsContext;
 import org.apache.knox.gateway.services.metrics.impl.DefaultMetricsService;
 
+import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.Locale;
 
@@ -38,7 +44,7 @@ public class InstrHttpClientBuilderProvider implements
   @Override
   public HttpClientBuilder getInstrumented(MetricsContext metricsContext) {
     MetricRegistry registry = (MetricRegistry) metricsContext.getProperty(DefaultMetricsService.METRICS_REGISTRY);
-    return  HttpClientBuilder.create().setRequestExecutor(new InstrumentedHttpRequestExecutor(registry, TOPOLOGY_URL_AND_METHOD));
+    return  HttpClientBuilder.create().setRequestExecutor(new ConnectionMarkingRequestExecutor(registry, TOPOLOGY_URL_AND_METHOD));
   }
 
   @Override
@@ -68,4 +74,21 @@ public class InstrHttpClientBuilderProvider implements
       return request.getRequestLine().getMethod().toLowerCase(Locale.ROOT) + "-requests";
     }
   };
+
+  /*
+   * The request executor is only invoked once a connection has been leased and
+   * established, which lets DefaultDispatch separate connect time from time to
+   * first byte.
+   */
+  private static class ConnectionMarkingRequestExecutor extends InstrumentedHttpRequestExecutor {
+    ConnectionMarkingRequestExecutor(MetricRegistry registry, HttpClientMetricNameStrategy metricNameStrategy) {
+      super(registry, metricNameStrategy);
+    }
+
+    @Override
+    public HttpResponse execute(HttpRequest request, HttpClientConnection conn, HttpContext context) throws HttpException, IOException {
+      ConnectionTimestamp.mark();
+      return super.execute(request, conn, context);
+    }
+  }
 }
@@ -17,17 +17,8 @@
  */
 package org.apache.knox.gateway.services.metrics.impl.instr;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 public class InstrUtils {
 
-    //This regular expression pattern is used to parse the *first* two elements
-    //of a path. For example, if the path is “/webhdfs/v1/d1/d2/d2/d4”, this pattern
-    //can be used to get the first two ("/webhdfs/v1/"). The "?" in pattern
-    //ensures not to be greedy in matching.
-    private static Pattern p = Pattern.compile("/.*?/.*?/");
-
     /**
      * This function parses the pathinfo provided  in any servlet context and
      * returns the segment that is related to the resource.
@@ -39,12 +30,12 @@ public class InstrUtils {
     public static String getResourcePath(String fullPath) {
         String resourcePath = "";
         if (fullPath != null && !fullPath.isEmpty()) {
-            Matcher m = p.matcher(fullPath);
-            if (m.find()) {
-                resourcePath = m.group(0);
-            } else {
-                resourcePath = fullPath;
-            }
+            // The *first* two elements of the path, e.g. "/webhdfs/v1/" for
+            // "/webhdfs/v1/d1/d2/d2/d4". Scanned by hand as this runs per request.
+            int first = fullPath.indexOf('/');
+            int second = first < 0 ? -1 : fullPath.indexOf('/', first + 1);
+            int third = second < 0 ? -1 : fullPath.indexOf('/', second + 1);
+            resourcePath = third < 0 ? fullPath : fullPath.substring(first, third + 1);
         }
         return resourcePath;
     }
@@ -31,6 +31,9 @@ import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public class InstrumentedGatewayFilter extends GatewayFilter {
 
@@ -38,9 +41,13 @@ public class InstrumentedGatewayFilter extends GatewayFilter {
 
   private MetricRegistry metricRegistry;
 
+  /* Request timers keyed by method and then by resource path. */
+  private final ConcurrentMap<String, ConcurrentMap<String, Timer>> timers = new ConcurrentHashMap<>();
+
   public InstrumentedGatewayFilter(GatewayFilter gatewayFilter, MetricRegistry metricRegistry) {
     this.gatewayFilter = gatewayFilter;
     this.metricRegistry = metricRegistry;
+    gatewayFilter.setStageMetrics(new StageMetrics(metricRegistry));
   }
 
   @Override
@@ -63,6 +70,26 @@ public class InstrumentedGatewayFilter extends GatewayFilter {
     gatewayFilter.addFilter(path, name, clazz, params, resourceRole);
   }
 
+  @Override
+  public void addFilter(String path, String name, Filter filter, Map<String, String> params, String resourceRole, String filterRole) throws URISyntaxException {
+    gatewayFilter.addFilter(path, name, filter, params, resourceRole, filterRole);
+  }
+
+  @Override
+  public void addFilter(String path, String name, String clazz, Map<String, String> params, String resourceRole, String filterRole) throws URISyntaxException {
+    gatewayFilter.addFilter(path, name, clazz, params, resourceRole, filterRole);
+  }
+
+  @Override
+  public void replaceServices(GatewayFilter update, Set<String> resourceRoles) throws ServletException {
+    gatewayFilter.replaceServices(update, resourceRoles);
+  }
+
+  @Override
+  public void setStageMetrics(StageMetrics stageMetrics) {
+    gatewayFilter.setStageMetrics(stageMetrics);
+  }
+
   @Override
   public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain) throws IOException, ServletException {
     Timer.Context timerContext = this.timer(servletRequest).time();
@@ -84,6 +111,23 @@ public class InstrumentedGatewayFilter extends GatewayFilter {
   }
 
   private Timer timer(ServletRequest request) {
+    String method = "";
+    String resourcePath = "";
+    if (request instanceof HttpServletRequest) {
+      HttpServletRequest httpServletRequest = (HttpServletRequest) request;
+      method = httpServletRequest.getMethod();
+      resourcePath = InstrUtils.getResourcePath(httpServletRequest.getPathInfo());
+    }
+    ConcurrentMap<String, Timer> methodTimers = timers.computeIfAbsent(String.valueOf(method), key -> new ConcurrentHashMap<>());
+    Timer timer = methodTimers.get(resourcePath);
+    if (timer == null) {
+      timer = metricRegistry.timer(timerName(request));
+      methodTimers.putIfAbsent(resourcePath, timer);
+    }
+    return timer;
+  }
+
+  private static String timerName(ServletRequest request) {
     StringBuilder builder = new StringBuilder();
     builder.append("client.")
         .append(request.getServletContext().getContextPath());
@@ -94,6 +138,6 @@ public class InstrumentedGatewayFilter extends GatewayFilter {
       builder.append(httpServletRequest.getMethod());
       builder.append("-requests");
     }
-    return metricRegistry.timer(builder.toString());
+    return builder.toString();
   }
 }
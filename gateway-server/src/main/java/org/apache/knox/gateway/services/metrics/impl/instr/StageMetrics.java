@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.metrics.impl.instr;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.knox.gateway.services.metrics.DispatchTimers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creates the per topology and per service timers used to break a request
+ * down into the stages of its filter chain and of the dispatch to the backend.
+ * <p>
+ * Timers are named {@code topology.<topology>.service.<role>.stage.<stage>} and
+ * {@code topology.<topology>.service.<role>.dispatch.<connect|first-byte|body>}
+ * and are {@link SummingTimer}s backed by an {@link HdrHistogramReservoir}.
+ * Callers are expected to resolve them once and keep the handles.
+ */
+public class StageMetrics {
+
+  static final String UNKNOWN = "unknown";
+
+  private static final MetricRegistry.MetricSupplier<Timer> HDR_TIMER = () -> new SummingTimer(new HdrHistogramReservoir());
+
+  private final MetricRegistry registry;
+
+  public StageMetrics(MetricRegistry registry) {
+    this.registry = registry;
+  }
+
+  public Timer stageTimer(String topology, String serviceRole, String stage) {
+    return registry.timer(MetricRegistry.name("topology", orUnknown(topology), "service", orUnknown(serviceRole),
+        "stage", orUnknown(stage)), HDR_TIMER);
+  }
+
+  public DispatchTimers dispatchTimers(String topology, String serviceRole) {
+    final String prefix = MetricRegistry.name("topology", orUnknown(topology), "service", orUnknown(serviceRole), "dispatch");
+    return new TimerDispatchTimers(
+        registry.timer(MetricRegistry.name(prefix, "connect"), HDR_TIMER),
+        registry.timer(MetricRegistry.name(prefix, "first-byte"), HDR_TIMER),
+        registry.timer(MetricRegistry.name(prefix, "body"), HDR_TIMER));
+  }
+
+  private static String orUnknown(String value) {
+    return value == null || value.isEmpty() ? UNKNOWN : value;
+  }
+
+  private static class TimerDispatchTimers implements DispatchTimers {
+    private final Timer connect;
+    private final Timer firstByte;
+    private final Timer body;
+
+    TimerDispatchTimers(Timer connect, Timer firstByte, Timer body) {
+      this.connect = connect;
+      this.firstByte = firstByte;
+      this.body = body;
+    }
+
+    @Override
+    public void connect(long nanos) {
+      connect.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void firstByte(long nanos) {
+      firstByte.update(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void body(long nanos) {
+      body.update(nanos, TimeUnit.NANOSECONDS);
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.metrics.impl.instr;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A {@link Timer} that also keeps the total of all recorded durations since it
+ * was created, e.g. for the {@code _sum} of a Prometheus summary. Unlike a sum
+ * derived from the reservoir, the total never decreases.
+ */
+public class SummingTimer extends Timer {
+
+  private final LongAdder sum;
+
+  public SummingTimer(Reservoir reservoir) {
+    this(reservoir, new LongAdder());
+  }
+
+  private SummingTimer(Reservoir reservoir, LongAdder sum) {
+    super(new Meter(), new SummingHistogram(reservoir, sum), Clock.defaultClock());
+    this.sum = sum;
+  }
+
+  /**
+   * @return the total of the recorded durations in nanoseconds
+   */
+  public long getSum() {
+    return sum.sum();
+  }
+
+  /* every update of the timer ends up here, whichever time or update method was used */
+  private static class SummingHistogram extends Histogram {
+    private final LongAdder sum;
+
+    SummingHistogram(Reservoir reservoir, LongAdder sum) {
+      super(reservoir);
+      this.sum = sum;
+    }
+
+    @Override
+    public void update(long value) {
+      super.update(value);
+      sum.add(value);
+    }
+  }
+}
@@ -0,0 +1,378 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.metrics.impl.reporters;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import org.apache.knox.gateway.services.metrics.impl.instr.SummingTimer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Writes the metric registry in the Prometheus text exposition format
+ * (version 0.0.4) or in the OpenMetrics text format.
+ * <p>
+ * The dotted names used by the gateway are mapped to metric families with
+ * labels, e.g. {@code topology.sandbox.service.WEBHDFS.stage.authentication}
+ * becomes {@code knox_stage_duration_seconds{topology="sandbox",service="WEBHDFS",stage="authentication"}}.
+ * Names that do not follow a known scheme are exposed without labels. Samples
+ * are written to the given writer one at a time, so the exposition is never
+ * held in memory as a whole.
+ */
+public class PrometheusExporter {
+
+  public static final String PROMETHEUS_CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  public static final String OPENMETRICS_CONTENT_TYPE = "application/openmetrics-text; version=1.0.0; charset=utf-8";
+
+  private static final String PREFIX = "knox_";
+  private static final double[] QUANTILES = {0.5, 0.75, 0.95, 0.98, 0.99, 0.999};
+  private static final double NANOS_PER_SECOND = 1_000_000_000.0D;
+  private static final int MAX_CACHED_NAMES = 100_000;
+
+  private static final List<Rule> RULES = new ArrayList<>();
+  static {
+    RULES.add(new Rule("^topology\\.([^.]+)\\.service\\.([^.]+)\\.stage\\.(.+)$",
+        "stage_duration", "topology", "service", "stage"));
+    RULES.add(new Rule("^topology\\.([^.]+)\\.service\\.([^.]+)\\.dispatch\\.(.+)$",
+        "dispatch_duration", "topology", "service", "phase"));
+    RULES.add(new Rule("^client\\./[^/]*/([^/]+)(.*)\\.([^.]+)-requests$",
+        "client_requests_duration", "topology", "path", "method"));
+    RULES.add(new Rule("^service\\.(.*)\\.([^.]+)-requests$",
+        "backend_requests_duration", "target", "method"));
+    RULES.add(new Rule("^websocket\\.([^.]+)\\.([^.]+)\\.(.+)$",
+        "websocket", "topology", "service", null));
+    RULES.add(new Rule("^(.+)\\.([1-5]xx)-responses$",
+        "{}_responses", "status"));
+  }
+
+  private final MetricRegistry registry;
+  private final MetricFilter filter;
+  private final ConcurrentMap<String, Sample> samples = new ConcurrentHashMap<>();
+
+  /**
+   * @param registry  the registry to expose
+   * @param allowlist regular expressions a metric name has to match to be exposed;
+   *                  every metric is exposed when empty
+   */
+  public PrometheusExporter(MetricRegistry registry, Collection<String> allowlist) {
+    this.registry = registry;
+    this.filter = createFilter(allowlist);
+  }
+
+  private static MetricFilter createFilter(Collection<String> allowlist) {
+    if (allowlist == null || allowlist.isEmpty()) {
+      return MetricFilter.ALL;
+    }
+    final List<Pattern> patterns = new ArrayList<>();
+    for (String expression : allowlist) {
+      patterns.add(Pattern.compile(expression));
+    }
+    return (name, metric) -> {
+      for (Pattern pattern : patterns) {
+        if (pattern.matcher(name).matches()) {
+          return true;
+        }
+      }
+      return false;
+    };
+  }
+
+  public void write(Writer out, boolean openMetrics) throws IOException {
+    final Map<String, Family> families = new TreeMap<>();
+    collect(families, Type.GAUGE, registry.getGauges(filter));
+    collect(families, Type.COUNTER, registry.getCounters(filter));
+    collect(families, Type.METER, registry.getMeters(filter));
+    collect(families, Type.HISTOGRAM, registry.getHistograms(filter));
+    collect(families, Type.TIMER, registry.getTimers(filter));
+    for (Family family : families.values()) {
+      family.write(out, openMetrics);
+    }
+    if (openMetrics) {
+      out.write("# EOF\n");
+    }
+  }
+
+  private void collect(Map<String, Family> families, Type type, Map<String, ? extends Metric> metrics) {
+    if (samples.size() > MAX_CACHED_NAMES) {
+      samples.clear();
+    }
+    for (Map.Entry<String, ? extends Metric> entry : metrics.entrySet()) {
+      final Sample sample = samples.computeIfAbsent(entry.getKey(), PrometheusExporter::toSample);
+      String name = type.familyName(sample.name);
+      Family family = families.get(name);
+      if (family != null && family.type != type) {
+        name = name + '_' + type.name().toLowerCase(Locale.ROOT);
+        family = families.get(name);
+      }
+      if (family == null) {
+        family = new Family(name, type);
+        families.put(name, family);
+      }
+      family.add(sample.labels, entry.getValue());
+    }
+  }
+
+  static Sample toSample(String metricName) {
+    for (Rule rule : RULES) {
+      final Sample sample = rule.apply(metricName);
+      if (sample != null) {
+        return sample;
+      }
+    }
+    return new Sample(PREFIX + sanitize(metricName), "");
+  }
+
+  static String sanitize(String name) {
+    final StringBuilder builder = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); i++) {
+      final char c = name.charAt(i);
+      if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_' || c == ':') {
+        builder.append(c);
+      } else if (builder.length() == 0 || builder.charAt(builder.length() - 1) != '_') {
+        builder.append('_');
+      }
+    }
+    return builder.toString();
+  }
+
+  static void appendLabel(StringBuilder builder, String name, String value) {
+    if (builder.length() > 0) {
+      builder.append(',');
+    }
+    builder.append(name).append("=\"");
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          builder.append("\\\\");
+          break;
+        case '"':
+          builder.append("\\\"");
+          break;
+        case '\n':
+          builder.append("\\n");
+          break;
+        default:
+          builder.append(c);
+      }
+    }
+    builder.append('"');
+  }
+
+  private static String format(double value) {
+    if (Double.isNaN(value)) {
+      return "NaN";
+    }
+    if (Double.isInfinite(value)) {
+      return value > 0 ? "+Inf" : "-Inf";
+    }
+    return Double.toString(value);
+  }
+
+  /* The family name and the rendered label pairs of one registry metric. */
+  static class Sample {
+    final String name;
+    final String labels;
+
+    Sample(String name, String labels) {
+      this.name = name;
+      this.labels = labels;
+    }
+  }
+
+  private static class Rule {
+    private final Pattern pattern;
+    private final String family;
+    private final String[] labels;
+
+    /*
+     * Each label takes the next group. A "{}" in the family is replaced by the
+     * first group; a null label appends its group to the family name instead.
+     */
+    Rule(String regex, String family, String... labels) {
+      this.pattern = Pattern.compile(regex);
+      this.family = family;
+      this.labels = labels;
+    }
+
+    Sample apply(String metricName) {
+      final Matcher matcher = pattern.matcher(metricName);
+      if (!matcher.matches()) {
+        return null;
+      }
+      int group = 1;
+      String name = family;
+      if (name.contains("{}")) {
+        name = name.replace("{}", sanitize(matcher.group(group++)));
+      }
+      final StringBuilder builder = new StringBuilder();
+      for (String label : labels) {
+        final String value = matcher.group(group++);
+        if (label == null) {
+          name = name + '_' + sanitize(value);
+        } else {
+          appendLabel(builder, label, "method".equals(label) ? value.toUpperCase(Locale.ROOT) : value);
+        }
+      }
+      return new Sample(PREFIX + name, builder.toString());
+    }
+  }
+
+  private enum Type {
+    GAUGE, COUNTER, METER, HISTOGRAM, TIMER;
+
+    String familyName(String name) {
+      switch (this) {
+        case COUNTER:
+        case METER:
+          return name.endsWith("_total") ? name.substring(0, name.length() - 6) : name;
+        case TIMER:
+          return name.endsWith("_seconds") ? name : name + "_seconds";
+        default:
+          return name;
+      }
+    }
+  }
+
+  private static class Family {
+    private final String name;
+    private final Type type;
+    private final List<String> labels = new ArrayList<>();
+    private final List<Metric> metrics = new ArrayList<>();
+
+    Family(String name, Type type) {
+      this.name = name;
+      this.type = type;
+    }
+
+    void add(String labels, Metric metric) {
+      this.labels.add(labels);
+      this.metrics.add(metric);
+    }
+
+    void write(Writer out, boolean openMetrics) throws IOException {
+      switch (type) {
+        case GAUGE:
+          writeType(out, name, "gauge");
+          for (int i = 0; i < metrics.size(); i++) {
+            final Object value = getValue((Gauge<?>) metrics.get(i));
+            if (value instanceof Number) {
+              writeSample(out, name, labels.get(i), null, format(((Number) value).doubleValue()));
+            } else if (value instanceof Boolean) {
+              writeSample(out, name, labels.get(i), null, (Boolean) value ? "1" : "0");
+            }
+          }
+          break;
+        case COUNTER:
+        case METER:
+          writeType(out, openMetrics ? name : name + "_total", "counter");
+          for (int i = 0; i < metrics.size(); i++) {
+            final Metric metric = metrics.get(i);
+            final long count = metric instanceof Counter ? ((Counter) metric).getCount() : ((Meter) metric).getCount();
+            writeSample(out, name + "_total", labels.get(i), null, Long.toString(count));
+          }
+          break;
+        case HISTOGRAM:
+          writeType(out, name, "summary");
+          for (int i = 0; i < metrics.size(); i++) {
+            final Histogram histogram = (Histogram) metrics.get(i);
+            writeSummary(out, labels.get(i), histogram.getSnapshot(), null, histogram.getCount(), 1.0D);
+          }
+          break;
+        case TIMER:
+          writeType(out, name, "summary");
+          for (int i = 0; i < metrics.size(); i++) {
+            final Timer timer = (Timer) metrics.get(i);
+            final Long sum = timer instanceof SummingTimer ? ((SummingTimer) timer).getSum() : null;
+            writeSummary(out, labels.get(i), timer.getSnapshot(), sum, timer.getCount(), 1.0D / NANOS_PER_SECOND);
+          }
+          break;
+        default:
+          break;
+      }
+    }
+
+    /*
+     * Prometheus treats _sum as a counter. Dropwizard metrics do not keep a running
+     * total, so _sum is only written for timers that do, see SummingTimer.
+     */
+    private void writeSummary(Writer out, String labels, Snapshot snapshot, Long sum, long count, double factor)
+        throws IOException {
+      for (double quantile : QUANTILES) {
+        writeSample(out, name, labels, "quantile=\"" + quantile + '"', format(snapshot.getValue(quantile) * factor));
+      }
+      if (sum != null) {
+        writeSample(out, name + "_sum", labels, null, format(sum * factor));
+      }
+      writeSample(out, name + "_count", labels, null, Long.toString(count));
+    }
+
+    private static Object getValue(Gauge<?> gauge) {
+      try {
+        return gauge.getValue();
+      } catch (RuntimeException e) {
+        // a failing gauge must not break the whole exposition
+        return null;
+      }
+    }
+
+    private static void writeType(Writer out, String name, String type) throws IOException {
+      out.write("# TYPE ");
+      out.write(name);
+      out.write(' ');
+      out.write(type);
+      out.write('\n');
+    }
+
+    private static void writeSample(Writer out, String name, String labels, String extra, String value) throws IOException {
+      out.write(name);
+      if (!labels.isEmpty() || extra != null) {
+        out.write('{');
+        out.write(labels);
+        if (extra != null) {
+          if (!labels.isEmpty()) {
+            out.write(',');
+          }
+          out.write(extra);
+        }
+        out.write('}');
+      }
+      out.write(' ');
+      out.write(value);
+      out.write('\n');
+    }
+  }
+}
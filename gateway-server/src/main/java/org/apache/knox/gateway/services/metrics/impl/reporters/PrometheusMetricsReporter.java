@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.metrics.impl.reporters;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.services.metrics.MetricsContext;
+import org.apache.knox.gateway.services.metrics.MetricsReporterException;
+import org.apache.knox.gateway.services.metrics.impl.DefaultMetricsService;
+
+import java.util.List;
+
+/**
+ * Publishes a {@link PrometheusExporter} for the gateway registry in the
+ * metrics context so that it can be scraped through the health service.
+ */
+public class PrometheusMetricsReporter extends AbstractMetricsReporter {
+
+  public static final String NAME = "prometheus-reporter";
+
+  /**
+   * Name of the metrics context property holding the {@link PrometheusExporter}.
+   */
+  public static final String EXPORTER = "prometheus-exporter";
+
+  private List<String> allowlist;
+
+  private MetricsContext metricsContext;
+
+  @Override
+  public void init(GatewayConfig config) throws MetricsReporterException {
+    if (config.isMetricsEnabled() && config.isPrometheusMetricsReportingEnabled()) {
+      allowlist = config.getPrometheusMetricsAllowlist();
+      setEnabled(true);
+    }
+  }
+
+  @Override
+  public void start(MetricsContext metricsContext) throws MetricsReporterException {
+    MetricRegistry registry = (MetricRegistry) metricsContext.getProperty(
+        DefaultMetricsService.METRICS_REGISTRY);
+    try {
+      metricsContext.setProperty(EXPORTER, new PrometheusExporter(registry, allowlist));
+    } catch (IllegalArgumentException e) {
+      throw new MetricsReporterException("Invalid Prometheus metrics allowlist", e);
+    }
+    this.metricsContext = metricsContext;
+  }
+
+  @Override
+  public void stop() throws MetricsReporterException {
+    if (metricsContext != null) {
+      metricsContext.setProperty(EXPORTER, null);
+    }
+  }
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+}
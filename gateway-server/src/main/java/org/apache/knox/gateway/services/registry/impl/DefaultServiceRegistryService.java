@@ -35,6 +35,8 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -51,6 +53,10 @@ public class DefaultServiceRegistryService implements ServiceRegistry, Service {
   private CryptoService crypto;
   private Registry registry = new Registry();
 
+  // Immutable view of the registered URLs, keyed by cluster and then by service, which is replaced whenever the
+  // registry changes so that lookups never contend with registrations
+  private volatile Map<String, Map<String, List<String>>> snapshot = Collections.emptyMap();
+
   private String registryFileName;
 
   public DefaultServiceRegistryService() {
@@ -79,8 +85,9 @@ public class DefaultServiceRegistryService implements ServiceRegistry, Service {
   }
 
   @Override
-  public void removeClusterServices(String clusterName) {
+  public synchronized void removeClusterServices(String clusterName) {
     registry.remove(clusterName);
+    publishSnapshot(clusterName);
   }
 
   @Override
@@ -95,31 +102,51 @@ public class DefaultServiceRegistryService implements ServiceRegistry, Service {
     // part one is the code and part two is the signature
     boolean verified = crypto.verify("SHA256withRSA", parts[0], Base64.decodeBase64(parts[1]));
     if (verified) {
-      Map<String,RegEntry> clusterServices = registry.get(clusterName);
-      if (clusterServices == null) {
-        synchronized(this) {
-          clusterServices = new HashMap<>();
-          registry.put(clusterName, clusterServices);
-        }
-      }
       RegEntry regEntry = new RegEntry();
       regEntry.setClusterName(clusterName);
       regEntry.setServiceName(serviceName);
       regEntry.setUrls(urls);
-      clusterServices.put(serviceName , regEntry);
-      String json = renderAsJsonString(registry);
-      try {
-        FileUtils.write(new File(registryFileName), json, StandardCharsets.UTF_8);
-        rc = true;
-      } catch (IOException e) {
-        // log appropriately
-        e.printStackTrace(); //TODO: I18N
+
+      // Written under the lock as well, so an older rendering can never overwrite a newer one
+      synchronized(this) {
+        registry.computeIfAbsent(clusterName, c -> new HashMap<>()).put(serviceName , regEntry);
+        publishSnapshot(clusterName);
+        String json = renderAsJsonString(registry);
+        try {
+          FileUtils.write(new File(registryFileName), json, StandardCharsets.UTF_8);
+          rc = true;
+        } catch (IOException e) {
+          // log appropriately
+          e.printStackTrace(); //TODO: I18N
+        }
       }
     }
 
     return rc;
   }
 
+  /**
+   * Publish a new snapshot, in which the services of the specified cluster reflect the current registry content.
+   * This must be invoked while holding the lock guarding the registry.
+   */
+  private void publishSnapshot(String clusterName) {
+    Map<String, Map<String, List<String>>> updated = new HashMap<>(snapshot);
+    Map<String, RegEntry> clusterServices = registry.get(clusterName);
+    if (clusterServices == null) {
+      updated.remove(clusterName);
+    } else {
+      Map<String, List<String>> services = new HashMap<>();
+      for (Map.Entry<String, RegEntry> service : clusterServices.entrySet()) {
+        List<String> urls = service.getValue().getUrls();
+        if (urls != null) {
+          services.put(service.getKey(), Collections.unmodifiableList(new ArrayList<>(urls)));
+        }
+      }
+      updated.put(clusterName, Collections.unmodifiableMap(services));
+    }
+    snapshot = Collections.unmodifiableMap(updated);
+  }
+
   private String renderAsJsonString(Map<String,Map<String,RegEntry>> registry) {
     String json = null;
     ObjectMapper mapper = new ObjectMapper();
@@ -145,13 +172,9 @@ public class DefaultServiceRegistryService implements ServiceRegistry, Service {
 
   @Override
   public List<String> lookupServiceURLs( String clusterName, String serviceName ) {
-    RegEntry entry;
-    Map<String, RegEntry> clusterServices = registry.get(clusterName);
+    Map<String, List<String>> clusterServices = snapshot.get(clusterName);
     if (clusterServices != null) {
-      entry = clusterServices.get(serviceName);
-      if( entry != null ) {
-        return entry.getUrls();
-      }
+      return clusterServices.get(serviceName);
     }
     return null;
   }
@@ -185,7 +208,13 @@ public class DefaultServiceRegistryService implements ServiceRegistry, Service {
         String json = FileUtils.readFileToString(registryFile, StandardCharsets.UTF_8);
         Registry reg = (Registry) getMapFromJsonString(json);
         if (reg != null) {
-          registry = reg;
+          synchronized(this) {
+            registry = reg;
+            snapshot = Collections.emptyMap();
+            for (String clusterName : reg.keySet()) {
+              publishSnapshot(clusterName);
+            }
+          }
         }
       } catch (Exception e) {
         throw new ServiceLifecycleException("Unable to load the persisted registry.", e);
@@ -17,6 +17,8 @@
  */
 package org.apache.knox.gateway.services.security.impl;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.knox.gateway.GatewayMessages;
@@ -45,6 +47,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * An {@link AliasService} implementation based on zookeeper remote service registry.
@@ -61,6 +64,7 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
     public static final String OPTION_NAME_SHOULD_USE_LOCAL_ALIAS = "zkShouldUseLocalAlias";
     public static final String TOKENS_SUB_NODE_NAME = "tokens";
     public static final String TOKENS_SUB_NODE_PATH = PATH_SEPARATOR + TOKENS_SUB_NODE_NAME;
+    private static final int MAX_DECRYPTED_ALIAS_VALUES = 1000;
 
     private static final GatewayMessages LOG = MessagesFactory.get(GatewayMessages.class);
     // N.B. This is ZooKeeper-specific, and should be abstracted when another registry is supported
@@ -124,6 +128,14 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
     private final MasterService ms;
     private final RemoteConfigurationRegistryClientService remoteConfigurationRegistryClientService;
     private final Collection<RemoteTokenStateChangeListener> remoteTokenStateChangeListeners = new HashSet<>();
+    /* Local view of the encrypted alias entries, keyed by entry path and kept current by the registry listeners */
+    private final Map<String, String> remoteAliasEntries = new ConcurrentHashMap<>();
+    /* Set once the alias tree has been loaded into the local view, from then on a miss in the view is authoritative */
+    private volatile boolean remoteAliasEntriesLoaded;
+    /* Decrypted values keyed by their encrypted form, so a replaced entry can never be served from here */
+    private final Cache<String, String> decryptedAliasValues = Caffeine.newBuilder()
+        .maximumSize(MAX_DECRYPTED_ALIAS_VALUES)
+        .build();
 
     private RemoteConfigurationRegistryClient remoteClient;
     private ConfigurableEncryptor encryptor;
@@ -145,16 +157,28 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
      * Build an entry path for the given cluster and alias
      */
     private String buildAliasEntryName(final String clusterName, final String alias) {
+      return buildAliasEntryName(clusterName, alias, true);
+    }
+
+    /**
+     * Build an entry path for the given cluster and alias, optionally creating the intermediate
+     * token sub-nodes in the remote registry
+     */
+    private String buildAliasEntryName(final String clusterName, final String alias, final boolean ensureSubNodes) {
       final StringBuilder aliasEntryNameBuilder = new StringBuilder(buildClusterEntryName(clusterName));
       // Convert all alias names to lower case (JDK-4891485)
       final String lowercaseAlias = alias.toLowerCase(Locale.ROOT);
       if (shouldCreateTokensSubNode) {
         aliasEntryNameBuilder.append(TOKENS_SUB_NODE_PATH);
-        ensureEntry(aliasEntryNameBuilder.toString(), remoteClient); // the 'tokens' sub-node has to be created in ZK
+        if (ensureSubNodes) {
+          ensureEntry(aliasEntryNameBuilder.toString(), remoteClient); // the 'tokens' sub-node has to be created in ZK
+        }
         // the new sub-node name is the first 2 characters (if any) of the provided alias name
         final String newSubnodeName = lowercaseAlias.length() < 2 ? lowercaseAlias : lowercaseAlias.substring(0, 2);
         aliasEntryNameBuilder.append(PATH_SEPARATOR).append(newSubnodeName);
-        ensureEntry(aliasEntryNameBuilder.toString(), remoteClient); // the new sub-node has to be created in ZK
+        if (ensureSubNodes) {
+          ensureEntry(aliasEntryNameBuilder.toString(), remoteClient); // the new sub-node has to be created in ZK
+        }
       }
 
       return aliasEntryNameBuilder.append(PATH_SEPARATOR).append(lowercaseAlias).toString();
@@ -247,11 +271,13 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
             /* Ensure the entries are properly set up */
             checkPathsExist(remoteClient);
             ensureEntry(buildClusterEntryName(clusterName), remoteClient);
+            final String encrypted;
             try {
+              encrypted = encrypt(value);
               if (remoteClient.entryExists(aliasEntryPath)) {
-                remoteClient.setEntryData(aliasEntryPath, encrypt(value));
+                remoteClient.setEntryData(aliasEntryPath, encrypted);
               } else {
-                remoteClient.createEntry(aliasEntryPath, encrypt(value));
+                remoteClient.createEntry(aliasEntryPath, encrypted);
               }
             } catch (Exception e) {
                 throw new AliasServiceException(e);
@@ -260,6 +286,9 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
             if (remoteClient.getEntryData(aliasEntryPath) == null) {
                 throw new IllegalStateException(String.format(Locale.ROOT, "Failed to store alias %s for cluster %s in remote registry", alias, clusterName));
             }
+
+            /* Make the new value visible locally without waiting for the entry listener */
+            updateRemoteAliasEntry(aliasEntryPath, encrypted, value);
         }
     }
 
@@ -283,6 +312,7 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
                     throw new IllegalStateException(String.format(Locale.ROOT, "Failed to delete alias %s for cluster %s in remote registry", alias, clusterName));
                 }
             }
+            removeRemoteAliasEntry(aliasEntryPath);
         }
     }
 
@@ -304,11 +334,16 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
 
         /* try to get it from remote registry */
         if (password == null && remoteClient != null) {
-            checkPathsExist(remoteClient);
-            String encrypted = null;
-
-            if (remoteClient.entryExists(buildAliasEntryName(clusterName, alias))) {
-                encrypted = remoteClient.getEntryData(buildAliasEntryName(clusterName, alias));
+            /* Served from the local view, which the registry listeners keep current */
+            final String aliasEntryPath = buildAliasEntryName(clusterName, alias, false);
+            String encrypted = remoteAliasEntries.get(aliasEntryPath);
+
+            /*
+             * Only ask the registry if the view could not be loaded, or before generating a value, so an alias
+             * another instance has just added is not overwritten before its listener event arrives
+             */
+            if (encrypted == null && (!remoteAliasEntriesLoaded || generate) && remoteClient.entryExists(aliasEntryPath)) {
+                encrypted = remoteClient.getEntryData(aliasEntryPath);
             }
 
             if (encrypted == null) {
@@ -318,7 +353,7 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
                 }
             } else {
                 try {
-                    password = decrypt(encrypted).toCharArray();
+                    password = decryptAliasValue(encrypted).toCharArray();
                 } catch (final Exception e) {
                     throw new AliasServiceException(e);
                 }
@@ -402,6 +437,9 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
             encryptor.init(config);
 
             this.shouldCreateTokensSubNode = Boolean.parseBoolean(options.getOrDefault(OPTION_NAME_SHOULD_CREATE_TOKENS_SUB_NODE, "false"));
+
+            /* The listeners only report what changes from now on, so load what is already there */
+            remoteAliasEntriesLoaded = loadRemoteAliasEntries();
         } else {
             LOG.missingClientConfigurationForRemoteMonitoring();
         }
@@ -420,6 +458,9 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
             } catch (final Exception e) {
                 LOG.errorRemovingRemoteListener(PATH_KNOX_ALIAS_STORE_TOPOLOGY, e.toString());
             }
+            remoteAliasEntriesLoaded = false;
+            remoteAliasEntries.clear();
+            decryptedAliasValues.invalidateAll();
         }
     }
 
@@ -457,6 +498,88 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
         return new String(encryptor.decrypt(Base64.decodeBase64(parts[0]), Base64.decodeBase64(parts[1]), Base64.decodeBase64(parts[2])), StandardCharsets.UTF_8);
     }
 
+    /**
+     * Decrypt an alias value, reusing the result of an earlier decryption of the same encrypted value.
+     */
+    private String decryptAliasValue(final String encrypted) throws Exception {
+        String decrypted = decryptedAliasValues.getIfPresent(encrypted);
+        if (decrypted == null) {
+            decrypted = decrypt(encrypted);
+            decryptedAliasValues.put(encrypted, decrypted);
+        }
+        return decrypted;
+    }
+
+    /**
+     * Record the current encrypted value of an alias entry, dropping the decryption of the value it replaces.
+     */
+    private void updateRemoteAliasEntry(final String path, final String encrypted, final String decrypted) {
+        decryptedAliasValues.put(encrypted, decrypted);
+        final String previous = remoteAliasEntries.put(path, encrypted);
+        if (previous != null && !previous.equals(encrypted)) {
+            decryptedAliasValues.invalidate(previous);
+        }
+    }
+
+    /**
+     * Forget an alias entry that no longer exists in the remote registry.
+     */
+    private void removeRemoteAliasEntry(final String path) {
+        final String previous = remoteAliasEntries.remove(path);
+        if (previous != null) {
+            decryptedAliasValues.invalidate(previous);
+        }
+    }
+
+    /**
+     * Load the encrypted values of all the alias entries into the local view. Entries the listeners have
+     * already reported are kept, they are at least as recent as what is read here.
+     *
+     * @return false if part of the tree could not be read, in which case misses still go to the registry
+     */
+    private boolean loadRemoteAliasEntries() {
+        final List<String> clusters = remoteClient.listChildEntries(PATH_KNOX_ALIAS_STORE_TOPOLOGY);
+        if (clusters == null) {
+            return false;
+        }
+        for (String cluster : clusters) {
+            final String clusterPath = buildClusterEntryName(cluster);
+            final List<String> children = remoteClient.listChildEntries(clusterPath);
+            if (children == null) {
+                return false;
+            }
+            for (String child : children) {
+                final String childPath = clusterPath + PATH_SEPARATOR + child;
+                if (TOKENS_SUB_NODE_NAME.equals(child)) {
+                    final List<String> tokenSubNodes = remoteClient.listChildEntries(childPath);
+                    if (tokenSubNodes == null) {
+                        return false;
+                    }
+                    for (String tokenSubNode : tokenSubNodes) {
+                        final String tokenSubNodePath = childPath + PATH_SEPARATOR + tokenSubNode;
+                        final List<String> tokenAliases = remoteClient.listChildEntries(tokenSubNodePath);
+                        if (tokenAliases == null) {
+                            return false;
+                        }
+                        for (String tokenAlias : tokenAliases) {
+                            loadRemoteAliasEntry(tokenSubNodePath + PATH_SEPARATOR + tokenAlias);
+                        }
+                    }
+                } else {
+                    loadRemoteAliasEntry(childPath);
+                }
+            }
+        }
+        return true;
+    }
+
+    private void loadRemoteAliasEntry(final String path) {
+        final String encrypted = remoteClient.getEntryData(path);
+        if (StringUtils.isNotEmpty(encrypted)) {
+            remoteAliasEntries.putIfAbsent(path, encrypted);
+        }
+    }
+
     /**
      * Ensure that the nodes are properly set up.
      */
@@ -501,6 +624,7 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
                 try {
                     /* remove listener */
                     client.removeEntryListener(path);
+                    removeRemoteAliasEntry(path);
                     if (!alias.isEmpty()) {
                       for (RemoteTokenStateChangeListener changeListener : remoteTokenStateChangeListeners) {
                         changeListener.onRemoved(alias);
@@ -557,12 +681,14 @@ public class ZookeeperRemoteAliasService extends AbstractAliasService {
         @Override
         public void entryChanged(final RemoteConfigurationRegistryClient client, final String path, final byte[] data) {
           if (!TOKENS_SUB_NODE_NAME.equals(alias) && isAliasPath(path)) {
+            final String encryptedData = new String(data, StandardCharsets.UTF_8);
             String decryptedData = null;
             try {
-              decryptedData = decrypt(new String(data, StandardCharsets.UTF_8));
+              decryptedData = decryptAliasValue(encryptedData);
             } catch (Exception e) {
               throw new IllegalArgumentException("An error occurred while trying to decrypt data for alias " + alias, e);
             }
+            updateRemoteAliasEntry(path, encryptedData, decryptedData);
 
             //if this is a token related alias, notify listeners
             if (path.contains(TOKENS_SUB_NODE_PATH)) {
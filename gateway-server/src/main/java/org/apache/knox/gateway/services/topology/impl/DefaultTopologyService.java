@@ -17,12 +17,12 @@
  */
 package org.apache.knox.gateway.services.topology.impl;
 
+import com.codahale.metrics.MetricRegistry;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.filefilter.TrueFileFilter;
 import org.apache.commons.io.monitor.FileAlterationListener;
 import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
-import org.apache.commons.io.monitor.FileAlterationMonitor;
 import org.apache.commons.io.monitor.FileAlterationObserver;
 import org.apache.knox.gateway.GatewayMessages;
 import org.apache.knox.gateway.GatewayServer;
@@ -40,10 +40,13 @@ import org.apache.knox.gateway.services.GatewayServices;
 import org.apache.knox.gateway.services.ServiceLifecycleException;
 import org.apache.knox.gateway.services.ServiceType;
 import org.apache.knox.gateway.services.config.client.RemoteConfigurationRegistryClient;
+import org.apache.knox.gateway.services.metrics.MetricsContext;
+import org.apache.knox.gateway.services.metrics.MetricsService;
 import org.apache.knox.gateway.services.security.AliasService;
 import org.apache.knox.gateway.services.topology.TopologyService;
 import org.apache.knox.gateway.services.topology.monitor.DescriptorsMonitor;
 import org.apache.knox.gateway.services.topology.monitor.SharedProviderConfigMonitor;
+import org.apache.knox.gateway.services.topology.monitor.WatchingFileAlterationMonitor;
 import org.apache.knox.gateway.topology.ClusterConfigurationMonitorService;
 import org.apache.knox.gateway.topology.Service;
 import org.apache.knox.gateway.topology.Topology;
@@ -84,6 +87,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 public class DefaultTopologyService extends FileAlterationListenerAdaptor implements TopologyService, TopologyMonitor,
     TopologyProvider, FileFilter, FileAlterationListener, ServiceDefinitionChangeListener {
@@ -99,7 +103,7 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
   public static final List<String> SUPPORTED_TOPOLOGY_FILE_EXTENSIONS = Collections.unmodifiableList(Arrays.asList("xml", "conf"));
 
   private static final GatewayMessages log = MessagesFactory.get(GatewayMessages.class);
-  private final Map<String, FileAlterationMonitor> monitors = new ConcurrentHashMap<>();
+  private final Map<String, WatchingFileAlterationMonitor> monitors = new ConcurrentHashMap<>();
   private File topologiesDirectory;
   private File sharedProvidersDirectory;
   private File descriptorsDirectory;
@@ -255,7 +259,7 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
     return configDir.getAbsoluteFile();
   }
 
-  private void initListener(String monitorName, FileAlterationMonitor monitor, File directory, FileFilter filter, FileAlterationListener listener) {
+  private void initListener(String monitorName, WatchingFileAlterationMonitor monitor, File directory, FileFilter filter, FileAlterationListener listener) {
     monitors.put(monitorName, monitor);
     FileAlterationObserver observer = new FileAlterationObserver(directory, filter);
     observer.addListener(listener);
@@ -265,7 +269,30 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
   private void initListener(String monitorName, File directory, FileFilter filter, FileAlterationListener listener) {
     // Increasing the monitoring interval to 5 seconds as profiling has shown
     // this is rather expensive in terms of generated garbage objects.
-    initListener(monitorName, new FileAlterationMonitor(5000L), directory, filter, listener);
+    // When enabled, only fall back to polling for directories without file system notifications
+    WatchingFileAlterationMonitor monitor =
+        new WatchingFileAlterationMonitor(monitorName, 5000L, config.getTopologyMonitorDebounceInterval(),
+                                          config.isTopologyMonitorWatchServiceEnabled(),
+                                          nanos -> recordMonitorLatency(monitorName, nanos));
+    initListener(monitorName, monitor, directory, filter, listener);
+  }
+
+  /**
+   * Record the time between the first change notification for a monitored directory and the completion of the
+   * resulting (re)deployments, which are performed synchronously by the topology listeners.
+   */
+  private void recordMonitorLatency(String monitorName, long nanos) {
+    GatewayServices services = GatewayServer.getGatewayServices();
+    if (config.isMetricsEnabled() && services != null) {
+      MetricsService metricsService = services.getService(ServiceType.METRICS_SERVICE);
+      if (metricsService != null && metricsService.getContext() != null) {
+        Object registry = metricsService.getContext().getProperty(MetricsContext.METRICS_REGISTRY);
+        if (registry instanceof MetricRegistry) {
+          ((MetricRegistry) registry).timer(MetricRegistry.name("topology", "monitor", monitorName.replace(' ', '-'), "latency"))
+              .update(nanos, TimeUnit.NANOSECONDS);
+        }
+      }
+    }
   }
 
   private Map<File, Topology> loadTopologies(File directory) {
@@ -543,7 +570,7 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
   @Override
   public void startMonitor() throws Exception {
     // Start the local configuration monitors
-    for (Entry<String, FileAlterationMonitor> monitor : monitors.entrySet()) {
+    for (Entry<String, WatchingFileAlterationMonitor> monitor : monitors.entrySet()) {
       monitor.getValue().start();
       log.startedMonitor(monitor.getKey());
     }
@@ -570,7 +597,7 @@ public class DefaultTopologyService extends FileAlterationListenerAdaptor implem
   @Override
   public void stopMonitor() throws Exception {
     // Stop the local configuration monitors
-    for (Entry<String, FileAlterationMonitor> monitor : monitors.entrySet()) {
+    for (Entry<String, WatchingFileAlterationMonitor> monitor : monitors.entrySet()) {
       monitor.getValue().stop();
       log.stoppedMonitor(monitor.getKey());
     }
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.topology.monitor;
+
+import org.apache.commons.io.monitor.FileAlterationMonitor;
+import org.apache.commons.io.monitor.FileAlterationObserver;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.apache.knox.gateway.GatewayMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+
+/**
+ * A monitor for {@link FileAlterationObserver}s which is driven by file system notifications instead of a fixed
+ * polling interval. Bursts of notifications are coalesced until the watched directories have been quiet for the
+ * debounce interval (but for no longer than the polling interval), after which every affected observer is
+ * checked once. The registered listeners therefore receive the same callbacks they would receive when polled.
+ * <p>
+ * Directories which cannot be watched, because they do not exist (yet) or because the file system does not
+ * provide native notifications, are polled at the regular interval instead. When notifications are disabled or
+ * not available at all, the observers are handed to a regular {@link FileAlterationMonitor}.
+ */
+public class WatchingFileAlterationMonitor {
+
+  private static final GatewayMessages log = MessagesFactory.get(GatewayMessages.class);
+
+  private final String name;
+  private final long interval;
+  private final long debounceInterval;
+  private final boolean watchEnabled;
+  private final LongConsumer latencyListener;
+  private final List<FileAlterationObserver> observers = new CopyOnWriteArrayList<>();
+
+  private final Map<WatchKey, FileAlterationObserver> watched = new HashMap<>();
+  private final List<FileAlterationObserver> polled = new ArrayList<>();
+
+  private WatchService watchService;
+  private ExecutorService executor;
+  private FileAlterationMonitor pollingMonitor;
+  private volatile boolean running;
+
+  /**
+   * @param name             the name of the monitor, used for logging
+   * @param interval         the number of milliseconds between checks of directories which cannot be watched
+   * @param debounceInterval the number of milliseconds without further notifications before changes are processed
+   * @param latencyListener  receives the number of nanoseconds between the first notification of a burst and the
+   *                         completion of the listener callbacks; may be null
+   */
+  public WatchingFileAlterationMonitor(String name, long interval, long debounceInterval, LongConsumer latencyListener) {
+    this(name, interval, debounceInterval, true, latencyListener);
+  }
+
+  /**
+   * @param name             the name of the monitor, used for logging
+   * @param interval         the number of milliseconds between checks of directories which cannot be watched
+   * @param debounceInterval the number of milliseconds without further notifications before changes are processed
+   * @param watchEnabled     false to always poll all directories at the regular interval
+   * @param latencyListener  receives the number of nanoseconds between the first notification of a burst and the
+   *                         completion of the listener callbacks; may be null
+   */
+  public WatchingFileAlterationMonitor(String name, long interval, long debounceInterval, boolean watchEnabled,
+                                       LongConsumer latencyListener) {
+    this.name = name;
+    this.interval = interval;
+    this.debounceInterval = debounceInterval;
+    this.watchEnabled = watchEnabled;
+    this.latencyListener = latencyListener;
+  }
+
+  /**
+   * @return the number of milliseconds between checks of directories which cannot be watched
+   */
+  public long getInterval() {
+    return interval;
+  }
+
+  /**
+   * @param observer the observer to notify of changes; must be added before the monitor is started
+   */
+  public void addObserver(FileAlterationObserver observer) {
+    if (observer != null) {
+      observers.add(observer);
+    }
+  }
+
+  /**
+   * @return the observers of this monitor
+   */
+  public Iterable<FileAlterationObserver> getObservers() {
+    return observers;
+  }
+
+  /**
+   * @return true if file system notifications are used for at least one of the observed directories
+   */
+  public synchronized boolean isWatching() {
+    return running && pollingMonitor == null;
+  }
+
+  public synchronized void start() throws Exception {
+    if (running) {
+      throw new IllegalStateException("Monitor is already running");
+    }
+
+    watchService = watchEnabled ? openWatchService() : null;
+    if (watchService == null) {
+      // Without notifications there is nothing to gain over the regular polling monitor
+      pollingMonitor = new FileAlterationMonitor(interval);
+      for (FileAlterationObserver observer : observers) {
+        pollingMonitor.addObserver(observer);
+      }
+      pollingMonitor.start();
+      running = true;
+      return;
+    }
+
+    for (FileAlterationObserver observer : observers) {
+      observer.initialize();
+      if (!register(observer)) {
+        polled.add(observer);
+      }
+    }
+
+    running = true;
+    executor = Executors.newSingleThreadExecutor(
+        new BasicThreadFactory.Builder().namingPattern("file-monitor-%d").daemon(true).build());
+    executor.execute(this::watch);
+  }
+
+  public void stop() throws Exception {
+    stop(interval);
+  }
+
+  public synchronized void stop(long stopInterval) throws Exception {
+    if (!running) {
+      throw new IllegalStateException("Monitor is not running");
+    }
+    running = false;
+
+    if (pollingMonitor != null) {
+      pollingMonitor.stop(stopInterval);
+      pollingMonitor = null;
+      return;
+    }
+
+    watchService.close();
+    executor.shutdown();
+    if (!executor.awaitTermination(stopInterval, TimeUnit.MILLISECONDS)) {
+      executor.shutdownNow();
+    }
+    watched.clear();
+    polled.clear();
+    for (FileAlterationObserver observer : observers) {
+      observer.destroy();
+    }
+  }
+
+  private WatchService openWatchService() {
+    try {
+      WatchService service = FileSystems.getDefault().newWatchService();
+      // The JDK falls back to a polling implementation on platforms without native notifications
+      if (service.getClass().getSimpleName().toLowerCase(Locale.ROOT).contains("polling")) {
+        service.close();
+        log.watchServiceUnavailable(name, getInterval(), "no native file system notifications");
+        return null;
+      }
+      return service;
+    } catch (IOException | UnsupportedOperationException e) {
+      log.watchServiceUnavailable(name, getInterval(), e.toString());
+      return null;
+    }
+  }
+
+  private boolean register(FileAlterationObserver observer) {
+    File directory = observer.getDirectory();
+    if (!directory.isDirectory()) {
+      return false;
+    }
+
+    try {
+      WatchKey key = directory.toPath().register(watchService,
+                                                 StandardWatchEventKinds.ENTRY_CREATE,
+                                                 StandardWatchEventKinds.ENTRY_DELETE,
+                                                 StandardWatchEventKinds.ENTRY_MODIFY);
+      watched.put(key, observer);
+      return true;
+    } catch (IOException | UnsupportedOperationException e) {
+      log.watchServiceUnavailable(directory.getAbsolutePath(), getInterval(), e.toString());
+      return false;
+    }
+  }
+
+  private void watch() {
+    final long intervalNanos = TimeUnit.MILLISECONDS.toNanos(getInterval());
+    long nextPoll = System.nanoTime() + intervalNanos;
+    try {
+      while (running) {
+        if (System.nanoTime() - nextPoll >= 0) {
+          checkUnwatched();
+          nextPoll = System.nanoTime() + intervalNanos;
+        }
+
+        WatchKey key = watchService.poll(getInterval(), TimeUnit.MILLISECONDS);
+        if (key != null) {
+          final long first = System.nanoTime();
+          final Set<FileAlterationObserver> changed = new LinkedHashSet<>();
+          int count = 0;
+          do {
+            count += drain(key, changed);
+          } while (System.nanoTime() - first < intervalNanos
+                   && (key = watchService.poll(debounceInterval, TimeUnit.MILLISECONDS)) != null);
+
+          for (FileAlterationObserver observer : changed) {
+            check(observer);
+          }
+
+          final long latency = System.nanoTime() - first;
+          log.processedMonitorChanges(count, name, TimeUnit.NANOSECONDS.toMillis(latency));
+          if (latencyListener != null) {
+            latencyListener.accept(latency);
+          }
+        }
+      }
+    } catch (ClosedWatchServiceException e) {
+      // The monitor has been stopped
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private int drain(WatchKey key, Set<FileAlterationObserver> changed) {
+    int count = key.pollEvents().size();
+    FileAlterationObserver observer = watched.get(key);
+    if (observer != null) {
+      changed.add(observer);
+      if (!key.reset()) {
+        // The directory is no longer accessible, so poll it until it re-appears
+        watched.remove(key);
+        polled.add(observer);
+      }
+    }
+    return count;
+  }
+
+  private void checkUnwatched() {
+    Iterator<FileAlterationObserver> iterator = polled.iterator();
+    while (iterator.hasNext()) {
+      FileAlterationObserver observer = iterator.next();
+      if (register(observer)) {
+        iterator.remove();
+      }
+      check(observer);
+    }
+  }
+
+  private void check(FileAlterationObserver observer) {
+    try {
+      observer.checkAndNotify();
+    } catch (RuntimeException e) {
+      log.failedToProcessMonitorChanges(name, e.getMessage(), e);
+    }
+  }
+}
@@ -17,6 +17,8 @@
  */
 package org.apache.knox.gateway.util;
 
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.IOFileFilter;
 import org.apache.commons.io.filefilter.TrueFileFilter;
@@ -34,6 +36,7 @@ import org.apache.knox.gateway.service.definition.ServiceDefinitionPairComparato
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -42,10 +45,17 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.security.MessageDigest;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 public class ServiceDefinitionsLoader {
   private static final JAXBContext jaxbContext = getJAXBContext();
@@ -56,6 +66,15 @@ public class ServiceDefinitionsLoader {
 
   private static final String REWRITE_FILE = "rewrite.xml";
 
+  /*
+   * A file modified within this interval of being cached may be modified again
+   * without its timestamp or size changing, so its content hash is checked.
+   */
+  private static final long RACY_INTERVAL_MILLIS = 2000L;
+
+  // Parsed service definitions by service file, reused for as long as the files are unchanged.
+  private static final Map<File, CachedServiceDefinition> cache = new ConcurrentHashMap<>();
+
   private static JAXBContext getJAXBContext() {
     try {
       return JAXBContext.newInstance(ServiceDefinition.class);
@@ -79,30 +98,82 @@ public class ServiceDefinitionsLoader {
     return contributors;
   }
 
+  /**
+   * Loads the service definitions found in the given directory. Definitions whose
+   * files are unchanged since they were last loaded are reused, the others are
+   * parsed in parallel. The returned definitions may therefore be shared and must
+   * not be modified.
+   */
   public static Set<ServiceDefinitionPair> loadServiceDefinitions(File servicesDir) {
     final Set<ServiceDefinitionPair> serviceDefinitions = new TreeSet<>(new ServiceDefinitionPairComparator());
     if (servicesDir.exists() && servicesDir.isDirectory()) {
-      final Unmarshaller unmarshaller = createUnmarshaller();
-      getFileList(servicesDir).forEach(serviceFile -> {
-        try {
-          serviceDefinitions.add(loadServiceDefinition(unmarshaller, serviceFile));
-        } catch (FileNotFoundException e) {
-          log.failedToFindServiceDefinitionFile(serviceFile.getAbsolutePath(), e);
-        } catch (IOException | JAXBException e) {
-          log.failedToLoadServiceDefinition(serviceFile.getAbsolutePath(), e);
-        }
-      });
+      final long start = System.nanoTime();
+      final Collection<File> serviceFiles = getFileList(servicesDir);
+      // Collected in the order of the files so that the same definition wins duplicates as before.
+      final List<ServiceDefinitionPair> loaded = serviceFiles.parallelStream()
+          .map(ServiceDefinitionsLoader::getServiceDefinition)
+          .filter(Objects::nonNull)
+          .collect(Collectors.toList());
+      serviceDefinitions.addAll(loaded);
+      cache.keySet().removeIf(serviceFile -> !serviceFile.exists());
+      log.loadedServiceDefinitions(loaded.size(), servicesDir.getAbsolutePath(),
+          TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
     }
 
     return serviceDefinitions;
   }
 
-  private static ServiceDefinitionPair loadServiceDefinition(Unmarshaller unmarshaller, File serviceFile) throws IOException, JAXBException {
-    try (InputStream inputStream = Files.newInputStream(serviceFile.toPath())) {
-      final ServiceDefinition service = (ServiceDefinition) unmarshaller.unmarshal(serviceFile);
-      final UrlRewriteRulesDescriptor rewriteRules = loadRewriteRules(serviceFile.getParentFile());
-      return new ServiceDefinitionPair(service, rewriteRules);
+  private static ServiceDefinitionPair getServiceDefinition(File serviceFile) {
+    final File rewriteFile = new File(serviceFile.getParentFile(), REWRITE_FILE);
+    final CachedServiceDefinition cached = cache.get(serviceFile);
+    if (cached != null && cached.isUnchanged(serviceFile, rewriteFile)) {
+      return cached.serviceDefinition;
+    }
+    try {
+      final byte[] service = Files.readAllBytes(serviceFile.toPath());
+      final byte[] rewrite = rewriteFile.exists() ? Files.readAllBytes(rewriteFile.toPath()) : null;
+      final String hash = hash(service, rewrite);
+      ServiceDefinitionPair serviceDefinition;
+      if (cached != null && cached.hash.equals(hash)) {
+        serviceDefinition = cached.serviceDefinition;
+      } else {
+        serviceDefinition = loadServiceDefinition(serviceFile, service, rewriteFile, rewrite);
+      }
+      cache.put(serviceFile, new CachedServiceDefinition(serviceFile, rewriteFile, hash, serviceDefinition));
+      return serviceDefinition;
+    } catch (FileNotFoundException e) {
+      log.failedToFindServiceDefinitionFile(serviceFile.getAbsolutePath(), e);
+    } catch (IOException | JAXBException e) {
+      log.failedToLoadServiceDefinition(serviceFile.getAbsolutePath(), e);
+    }
+    cache.remove(serviceFile);
+    return null;
+  }
+
+  // Unmarshallers are not thread safe, so one is created for each file parsed.
+  private static ServiceDefinitionPair loadServiceDefinition(File serviceFile, byte[] service, File rewriteFile, byte[] rewrite) throws JAXBException {
+    final ServiceDefinition serviceDefinition = (ServiceDefinition) createUnmarshaller().unmarshal(new ByteArrayInputStream(service));
+    UrlRewriteRulesDescriptor rewriteRules = null;
+    if (rewrite != null) {
+      try (Reader reader = new InputStreamReader(new ByteArrayInputStream(rewrite), StandardCharsets.UTF_8)) {
+        rewriteRules = UrlRewriteRulesDescriptorFactory.load("xml", reader);
+      } catch (IOException e) {
+        log.failedToLoadRewriteFile(rewriteFile.getAbsolutePath(), e);
+      }
+    }
+    if (rewriteRules == null) {
+      log.noRewriteFileFound(serviceFile.getParentFile().getAbsolutePath());
+    }
+    return new ServiceDefinitionPair(serviceDefinition, rewriteRules);
+  }
+
+  private static String hash(byte[] service, byte[] rewrite) {
+    final MessageDigest digest = DigestUtils.getSha256Digest();
+    digest.update(service);
+    if (rewrite != null) {
+      digest.update(rewrite);
     }
+    return Hex.encodeHexString(digest.digest());
   }
 
   public static Set<ServiceDefinition> getServiceDefinitions(File servicesDir) {
@@ -153,4 +224,36 @@ public class ServiceDefinitionsLoader {
     log.noRewriteFileFound(servicesDir.getAbsolutePath());
     return null;
   }
+
+  static void clearCache() {
+    cache.clear();
+  }
+
+  private static class CachedServiceDefinition {
+    private final long serviceModified;
+    private final long serviceLength;
+    private final long rewriteModified;
+    private final long rewriteLength;
+    private final long cachedAt;
+    private final String hash;
+    private final ServiceDefinitionPair serviceDefinition;
+
+    CachedServiceDefinition(File serviceFile, File rewriteFile, String hash, ServiceDefinitionPair serviceDefinition) {
+      this.serviceModified = serviceFile.lastModified();
+      this.serviceLength = serviceFile.length();
+      this.rewriteModified = rewriteFile.lastModified();
+      this.rewriteLength = rewriteFile.length();
+      this.cachedAt = System.currentTimeMillis();
+      this.hash = hash;
+      this.serviceDefinition = serviceDefinition;
+    }
+
+    boolean isUnchanged(File serviceFile, File rewriteFile) {
+      return serviceFile.lastModified() == serviceModified
+          && serviceFile.length() == serviceLength
+          && rewriteFile.lastModified() == rewriteModified
+          && rewriteFile.length() == rewriteLength
+          && Math.max(serviceModified, rewriteModified) < cachedAt - RACY_INTERVAL_MILLIS;
+    }
+  }
 }
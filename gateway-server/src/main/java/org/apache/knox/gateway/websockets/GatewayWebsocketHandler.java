@@ -17,16 +17,24 @@
  */
 package org.apache.knox.gateway.websockets;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.codahale.metrics.MetricRegistry;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.services.GatewayServices;
 import org.apache.knox.gateway.services.ServiceType;
+import org.apache.knox.gateway.services.metrics.MetricsContext;
+import org.apache.knox.gateway.services.metrics.MetricsService;
 import org.apache.knox.gateway.services.registry.ServiceDefEntry;
 import org.apache.knox.gateway.services.registry.ServiceDefinitionRegistry;
 import org.apache.knox.gateway.services.registry.ServiceRegistry;
 import org.apache.knox.gateway.services.security.KeystoreService;
 import org.apache.knox.gateway.services.security.KeystoreServiceException;
+import org.apache.knox.gateway.services.topology.TopologyService;
+import org.apache.knox.gateway.topology.TopologyEvent;
 import org.eclipse.jetty.websocket.server.WebSocketHandler;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeRequest;
 import org.eclipse.jetty.websocket.servlet.ServletUpgradeResponse;
@@ -36,15 +44,15 @@ import org.eclipse.jetty.websocket.servlet.WebSocketServletFactory;
 import javax.websocket.ClientEndpointConfig;
 import java.net.MalformedURLException;
 import java.net.URI;
-import java.net.URISyntaxException;
 import java.net.URL;
 import java.security.KeyStore;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
+import java.util.Objects;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 /**
  * Websocket handler that will handle websocket connection request. This class
@@ -67,24 +75,45 @@ public class GatewayWebsocketHandler extends WebSocketHandler
 
   static final String REGEX_SPLIT_SERVICE_PATH = "^((?:[^/]*/){3}[^/]*)";
 
-  private static final int POOL_SIZE = 10;
+  private static final int BACKEND_URL_CACHE_SIZE = 1000;
 
   /**
    * Manage the threads that are spawned
    * @since 0.13
    */
-  private final ExecutorService pool;
+  private final ScheduledExecutorService pool;
+
+  /* Live proxied sessions, their metrics and keepalive */
+  private final WebsocketSessionTracker sessionTracker;
+
+  /* Client containers used to connect to the backends */
+  private final WebsocketClientContainerPool containerPool;
 
   final GatewayConfig config;
   final GatewayServices services;
 
+  /* Resolved backend URLs, without the request path and query string, per topology and service */
+  private final Cache<BackendKey, BackendTarget> backendURLCache = Caffeine.newBuilder()
+      .maximumSize(BACKEND_URL_CACHE_SIZE).build();
+
   public GatewayWebsocketHandler(final GatewayConfig config,
       final GatewayServices services) {
     super();
 
     this.config = config;
     this.services = services;
-    pool = Executors.newFixedThreadPool(POOL_SIZE);
+    pool = Executors.newScheduledThreadPool(Math.max(1, config.getWebsocketThreadPoolSize()),
+        new BasicThreadFactory.Builder().namingPattern("websocket-proxy-%d").daemon(true).build());
+    containerPool = new WebsocketClientContainerPool(config);
+    sessionTracker = new WebsocketSessionTracker(getMetricRegistry(services),
+        config.getWebsocketKeepaliveInterval(), config.getWebsocketIdleReapTimeout());
+    sessionTracker.start(pool);
+
+    final TopologyService topologyService = services
+        .getService(ServiceType.TOPOLOGY_SERVICE);
+    if (topologyService != null) {
+      topologyService.addTopologyChangeListener(this::invalidateBackendURLs);
+    }
   }
 
   @Override
@@ -109,6 +138,13 @@ public class GatewayWebsocketHandler extends WebSocketHandler
 
   }
 
+  @Override
+  protected void doStop() throws Exception {
+    super.doStop();
+    sessionTracker.stop();
+    containerPool.stop();
+  }
+
   @Override
   public Object createWebSocket(ServletUpgradeRequest req,
       ServletUpgradeResponse resp) {
@@ -117,13 +153,15 @@ public class GatewayWebsocketHandler extends WebSocketHandler
       final URI requestURI = req.getRequestURI();
 
       /* URL used to connect to websocket backend */
-      final String backendURL = getMatchedBackendURL(requestURI);
-      LOG.debugLog("Generated backend URL for websocket connection: " + backendURL);
+      final BackendTarget backend = getMatchedBackend(requestURI);
+      final URI backendURL = URI.create(backend.getURL(requestURI.getRawPath(), requestURI.getRawQuery()));
+      LOG.generatedBackendURL(backendURL);
 
       /* Upgrade happens here */
-      final ClientEndpointConfig clientConfig = getClientEndpointConfig(req);
+      final ClientEndpointConfig clientConfig = getClientEndpointConfig(req, backendURL);
       clientConfig.getUserProperties().put("org.apache.knox.gateway.websockets.truststore", getTruststore());
-      return new ProxyWebSocketAdapter(URI.create(backendURL), pool, clientConfig, config);
+      return new ProxyWebSocketAdapter(backendURL, pool, clientConfig, config, containerPool, sessionTracker,
+          sessionTracker.getServiceMetrics(getTopologyName(requestURI.getRawPath()), backend.service));
     } catch (final Exception e) {
       LOG.failedCreatingWebSocket(e);
       throw new RuntimeException(e);
@@ -131,6 +169,14 @@ public class GatewayWebsocketHandler extends WebSocketHandler
   }
 
 
+  private static MetricRegistry getMetricRegistry(final GatewayServices services) {
+    final MetricsService metricsService = services.getService(ServiceType.METRICS_SERVICE);
+    if (metricsService != null && metricsService.getContext() != null) {
+      return (MetricRegistry) metricsService.getContext().getProperty(MetricsContext.METRICS_REGISTRY);
+    }
+    return null;
+  }
+
   private KeyStore getTruststore() throws KeystoreServiceException {
     final KeystoreService ks = this.services
         .getService(ServiceType.KEYSTORE_SERVICE);
@@ -148,7 +194,8 @@ public class GatewayWebsocketHandler extends WebSocketHandler
    * to be passed to the backend.
    * @since 0.14.0
    */
-  private ClientEndpointConfig getClientEndpointConfig(final ServletUpgradeRequest req) {
+  private ClientEndpointConfig getClientEndpointConfig(final ServletUpgradeRequest req,
+      final URI backendURL) {
 
     return ClientEndpointConfig.Builder.create()
         .configurator(new ClientEndpointConfig.Configurator() {
@@ -158,14 +205,7 @@ public class GatewayWebsocketHandler extends WebSocketHandler
 
             /* Add request headers */
             req.getHeaders().forEach(headers::putIfAbsent);
-            try {
-              final URI backendURL = new URI(getMatchedBackendURL(req.getRequestURI()));
-              headers.put("Host", Arrays.asList(backendURL.getHost() + ":" + backendURL.getPort()));
-            } catch (final URISyntaxException e) {
-              LOG.onError(String.format(Locale.ROOT,
-                  "Error getting backend url, this could cause 'Host does not match SNI' exception. Cause: ",
-                  e.toString()));
-            }
+            headers.put("Host", Arrays.asList(backendURL.getHost() + ":" + backendURL.getPort()));
           }
         }).build();
   }
@@ -174,15 +214,19 @@ public class GatewayWebsocketHandler extends WebSocketHandler
    * This method looks at the context path and returns the backend websocket
    * url. If websocket url is found it is used as is, or we default to
    * ws://{host}:{port} which might or might not be right.
+   * Resolved urls are cached per topology and service until the topology is
+   * redeployed, the rest of the request path is appended to them per request.
    * @param requestURI url to match
    * @return Websocket backend url
    */
-  protected synchronized String getMatchedBackendURL(final URI requestURI) {
-    final String path = requestURI.getRawPath();
-    final String query = requestURI.getRawQuery();
+  protected String getMatchedBackendURL(final URI requestURI) {
+    return getMatchedBackend(requestURI).getURL(requestURI.getRawPath(), requestURI.getRawQuery());
+  }
 
-    final ServiceRegistry serviceRegistryService = services
-        .getService(ServiceType.SERVICE_REGISTRY_SERVICE);
+  private BackendTarget getMatchedBackend(final URI requestURI) {
+    final String path = requestURI.getRawPath();
+    final boolean websocketRequest = StringUtils.containsAny(requestURI.toString(),
+        WEBSOCKET_PROTOCOL_STRING, SECURE_WEBSOCKET_PROTOCOL_STRING);
 
     final ServiceDefinitionRegistry serviceDefinitionService = services
         .getService(ServiceType.SERVICE_DEFINITION_REGISTRY);
@@ -198,22 +242,42 @@ public class GatewayWebsocketHandler extends WebSocketHandler
           String.format(Locale.ROOT, "Cannot find service for the given path: %s", path));
     }
 
-    /* Filter out /cluster/topology/service to get endpoint */
-    String[] pathService = path.split(REGEX_SPLIT_SERVICE_PATH);
+    final String topologyName = getTopologyName(path);
+    final BackendKey key = new BackendKey(topologyName, entry.getName(), websocketRequest);
+    return backendURLCache.get(key, k -> resolveBackendURL(topologyName, entry, websocketRequest));
+  }
+
+  private void invalidateBackendURLs(final List<TopologyEvent> events) {
+    for (final TopologyEvent event : events) {
+      final String topologyName = event.getTopology().getName();
+      backendURLCache.asMap().keySet()
+          .removeIf(key -> key.topology.equals(topologyName));
+    }
+  }
+
+  private static String getTopologyName(final String path) {
+    final String[] contexts = path.split("/");
+    return contexts.length > 2 ? contexts[2] : "";
+  }
+
+  private BackendTarget resolveBackendURL(final String topologyName, final ServiceDefEntry entry,
+      final boolean websocketRequest) {
+    final ServiceRegistry serviceRegistryService = services
+        .getService(ServiceType.SERVICE_REGISTRY_SERVICE);
 
     /* URL used to connect to websocket backend */
-    String backendURL = urlFromServiceDefinition(serviceRegistryService, entry, path);
+    String backendURL = urlFromServiceDefinition(serviceRegistryService, entry, topologyName);
     LOG.debugLog("Url obtained from services definition: " + backendURL);
 
+    /* the endpoint path is appended per request, see BackendTarget#getURL */
+    boolean appendPath = true;
     StringBuilder backend = new StringBuilder();
     try {
       if (StringUtils.containsAny(backendURL, WEBSOCKET_PROTOCOL_STRING, SECURE_WEBSOCKET_PROTOCOL_STRING)) {
         LOG.debugLog("ws or wss protocol found in service url");
         URI serviceUri = new URI(backendURL);
         backend.append(serviceUri);
-        String pathSuffix = generateUrlSuffix(backend.toString(), pathService);
-        backend.append(pathSuffix);
-      } else if (StringUtils.containsAny(requestURI.toString(), WEBSOCKET_PROTOCOL_STRING, SECURE_WEBSOCKET_PROTOCOL_STRING)) {
+      } else if (websocketRequest) {
         LOG.debugLog("ws or wss protocol found in request url");
         URL serviceUrl = new URL(backendURL);
         final String protocol = (serviceUrl.getProtocol().equals("https")) ? "wss" : "ws";
@@ -221,8 +285,6 @@ public class GatewayWebsocketHandler extends WebSocketHandler
         backend.append(serviceUrl.getHost()).append(':');
         backend.append(serviceUrl.getPort()).append('/');
         backend.append(serviceUrl.getPath());
-        String pathSuffix = generateUrlSuffix(backend.toString(), pathService);
-        backend.append(pathSuffix);
       } else {
         LOG.debugLog("ws or wss protocol not found in service url or request url");
         URL serviceUrl = new URL(backendURL);
@@ -235,10 +297,7 @@ public class GatewayWebsocketHandler extends WebSocketHandler
         backend.append(serviceUrl.getHost()).append(':');
         backend.append(serviceUrl.getPort()).append('/');
         backend.append(serviceUrl.getPath());
-      }
-      /* in case we have query params */
-      if(!StringUtils.isBlank(query)) {
-        backend.append('?').append(query);
+        appendPath = false;
       }
       backendURL = backend.toString();
 
@@ -250,26 +309,24 @@ public class GatewayWebsocketHandler extends WebSocketHandler
         throw new RuntimeException(e1.toString());
     }
 
-    return backendURL;
+    return new BackendTarget(backendURL, entry.getName(), appendPath);
   }
 
   private static String urlFromServiceDefinition(
       final ServiceRegistry serviceRegistry, final ServiceDefEntry entry,
-      final String path) {
-
-    final String[] contexts = path.split("/");
+      final String topologyName) {
 
     /*
      * we have a match, if ws:// is present it is returned else http:// is
      * returned
      */
-    return serviceRegistry.lookupServiceURL(contexts[2],
+    return serviceRegistry.lookupServiceURL(topologyName,
         entry.getName().toUpperCase(Locale.ROOT));
   }
 
-  private String generateUrlSuffix(String backendPart, String[] pathService) {
+  private static String generateUrlSuffix(String backendPart, String[] pathService) {
     /* Avoid Zeppelin Regression - as this would require ambari changes and break current knox websocket use case*/
-    if (!StringUtils.endsWith(backendPart, "/ws") && pathService.length > 0
+    if (!StringUtils.endsWith(backendPart, "/ws") && pathService.length > 1
               &&  pathService[1] != null) {
       String newPathSuffix = pathService[1];
       if ((backendPart.endsWith("/")) && (pathService[1].startsWith("/"))) {
@@ -279,4 +336,60 @@ public class GatewayWebsocketHandler extends WebSocketHandler
     }
     return "";
   }
+
+  /* Resolved backend url of a service, without the endpoint path and query string */
+  private static final class BackendTarget {
+    final String url;
+    final String service;
+    final boolean appendPath;
+
+    BackendTarget(final String url, final String service, final boolean appendPath) {
+      this.url = url;
+      this.service = service;
+      this.appendPath = appendPath;
+    }
+
+    String getURL(final String path, final String query) {
+      String backendURL = url;
+      if (appendPath) {
+        /* Filter out /cluster/topology/service to get endpoint */
+        backendURL += generateUrlSuffix(url, path.split(REGEX_SPLIT_SERVICE_PATH));
+      }
+      /* in case we have query params */
+      if (!StringUtils.isBlank(query)) {
+        return backendURL + '?' + query;
+      }
+      return backendURL;
+    }
+  }
+
+  private static final class BackendKey {
+    final String topology;
+    final String service;
+    final boolean websocketRequest;
+
+    BackendKey(final String topology, final String service, final boolean websocketRequest) {
+      this.topology = topology;
+      this.service = service;
+      this.websocketRequest = websocketRequest;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final BackendKey that = (BackendKey) o;
+      return websocketRequest == that.websocketRequest
+          && topology.equals(that.topology) && service.equals(that.service);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(topology, service, websocketRequest);
+    }
+  }
 }
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds the number of bytes handed to asynchronous websocket writes that
+ * have not completed yet. Senders block in {@link #acquire(long)} while the
+ * window is full, which stops the reading side and propagates back-pressure
+ * to the peer that is producing the messages.
+ */
+class OutstandingBytesWindow {
+
+  private final long limit;
+  private final long timeout;
+  private long outstanding;
+
+  /**
+   * @param limit maximum outstanding bytes, a non-positive value disables the window
+   * @param timeout milliseconds to wait for room in the window, a non-positive value waits indefinitely
+   */
+  OutstandingBytesWindow(final long limit, final long timeout) {
+    this.limit = limit;
+    this.timeout = timeout;
+  }
+
+  /**
+   * Reserves room for a message of the given size. A message larger than the
+   * whole window is admitted once nothing else is outstanding.
+   */
+  synchronized void acquire(final long bytes) throws IOException {
+    if (limit <= 0) {
+      return;
+    }
+    final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    try {
+      while (outstanding > 0 && outstanding + bytes > limit) {
+        if (timeout > 0) {
+          final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+          if (remaining <= 0) {
+            throw new IOException("Timed out waiting for " + outstanding + " outstanding websocket bytes to be written");
+          }
+          wait(remaining);
+        } else {
+          wait();
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for outstanding websocket writes");
+    }
+    outstanding += bytes;
+  }
+
+  /**
+   * Returns the room taken by a completed, or failed, write.
+   */
+  synchronized void release(final long bytes) {
+    if (limit <= 0) {
+      return;
+    }
+    outstanding = Math.max(0, outstanding - bytes);
+    notifyAll();
+  }
+
+  synchronized long getOutstanding() {
+    return outstanding;
+  }
+}
@@ -19,16 +19,22 @@ package org.apache.knox.gateway.websockets;
 
 import java.io.IOException;
 import java.net.URI;
-import java.util.List;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import javax.websocket.ClientEndpointConfig;
 import javax.websocket.CloseReason;
+import javax.websocket.CloseReason.CloseCodes;
 import javax.websocket.ContainerProvider;
 import javax.websocket.DeploymentException;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
 import javax.websocket.WebSocketContainer;
 
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
@@ -40,6 +46,10 @@ import org.eclipse.jetty.websocket.api.RemoteEndpoint;
 import org.eclipse.jetty.websocket.api.Session;
 import org.eclipse.jetty.websocket.api.StatusCode;
 import org.eclipse.jetty.websocket.api.WebSocketAdapter;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.common.WebSocketRemoteEndpoint;
+import org.eclipse.jetty.websocket.common.frames.PingFrame;
+import com.codahale.metrics.Timer;
 import java.security.KeyStore;
 /**
  * Handles outbound/inbound Websocket connections and sessions.
@@ -49,6 +59,9 @@ import java.security.KeyStore;
 public class ProxyWebSocketAdapter extends WebSocketAdapter {
   private static final WebsocketLogMessages LOG = MessagesFactory.get(WebsocketLogMessages.class);
 
+  /* Payload of the keepalive pings, their pongs are not proxied */
+  private static final byte[] KEEPALIVE_PAYLOAD = "knox-keepalive".getBytes(StandardCharsets.UTF_8);
+
   /* URI for the backend */
   private final URI backend;
 
@@ -60,13 +73,32 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
 
   private WebSocketContainer container;
 
+  /* Shared client containers, when null a container is created for this connection only */
+  private final WebsocketClientContainerPool containerPool;
+
   private ExecutorService pool;
 
-  /* Message buffer for holding data frames temporarily in memory till connection is setup.
-   Keeping the max size of the buffer as 100 messages for now. */
-  private List<String> messageBuffer = new ArrayList<>();
+  /* Message buffer for holding text (String) and binary (ByteBuffer) messages temporarily in memory
+   till connection is setup, bounded both by message count and by size. Guarded by remoteLock. */
+  private final Deque<Object> messageBuffer = new ArrayDeque<>();
+  private long messageBufferSize;
   private Lock remoteLock = new ReentrantLock();
 
+  /* Bytes of asynchronous writes not yet completed, in each direction */
+  private final OutstandingBytesWindow frontendWindow;
+  private final OutstandingBytesWindow backendWindow;
+
+  /* Tracks the session for keepalive and idle reaping, may be null */
+  private final WebsocketSessionTracker sessionTracker;
+
+  /* Metrics of the proxied service, may be null */
+  private final WebsocketSessionTracker.ServiceMetrics metrics;
+
+  private final AtomicBoolean open = new AtomicBoolean();
+
+  /* Time of the last data message in either direction */
+  private volatile long lastActivity = System.currentTimeMillis();
+
   private final GatewayConfig config;
 
   /**
@@ -81,11 +113,25 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
 
   public ProxyWebSocketAdapter(final URI backend, final ExecutorService pool, final ClientEndpointConfig clientConfig,
                                GatewayConfig config) {
+    this(backend, pool, clientConfig, config, null, null, null);
+  }
+
+  public ProxyWebSocketAdapter(final URI backend, final ExecutorService pool, final ClientEndpointConfig clientConfig,
+                               GatewayConfig config, final WebsocketClientContainerPool containerPool,
+                               final WebsocketSessionTracker sessionTracker,
+                               final WebsocketSessionTracker.ServiceMetrics metrics) {
     super();
     this.backend = backend;
     this.pool = pool;
     this.clientConfig = clientConfig;
     this.config = config;
+    this.containerPool = containerPool;
+    this.sessionTracker = sessionTracker;
+    this.metrics = metrics;
+    this.frontendWindow = new OutstandingBytesWindow(config.getWebsocketMaxOutstandingBytes(),
+        config.getWebsocketAsyncWriteTimeout());
+    this.backendWindow = new OutstandingBytesWindow(config.getWebsocketMaxOutstandingBytes(),
+        config.getWebsocketAsyncWriteTimeout());
   }
 
   @Override
@@ -94,27 +140,15 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
      * Let's connect to the backend, this is where the Backend-to-frontend
      * plumbing takes place
      */
-    container = ContainerProvider.getWebSocketContainer();
-    container.setDefaultMaxTextMessageBufferSize(frontEndSession.getPolicy().getMaxTextMessageBufferSize());
-    container.setDefaultMaxBinaryMessageBufferSize(frontEndSession.getPolicy().getMaxBinaryMessageBufferSize());
-    container.setAsyncSendTimeout(frontEndSession.getPolicy().getAsyncWriteTimeout());
-    container.setDefaultMaxSessionIdleTimeout(frontEndSession.getPolicy().getIdleTimeout());
-
     KeyStore ks = null;
     if(clientConfig != null) {
       ks = (KeyStore) clientConfig.getUserProperties().get("org.apache.knox.gateway.websockets.truststore");
     }
 
-    /*
-       Currently javax.websocket API has no provisions to configure SSL
-       https://github.com/eclipse-ee4j/websocket-api/issues/210
-       Until that gets fixed we'll have to resort to this.
-    */
-    if(container instanceof org.eclipse.jetty.websocket.jsr356.ClientContainer &&
-        ((org.eclipse.jetty.websocket.jsr356.ClientContainer)container).getClient() != null &&
-        ((org.eclipse.jetty.websocket.jsr356.ClientContainer)container).getClient().getSslContextFactory() != null ) {
-      ((org.eclipse.jetty.websocket.jsr356.ClientContainer)container).getClient().getHttpClient().getSslContextFactory().setTrustStore(ks);
-      LOG.logMessage("Truststore for websocket setup");
+    if (containerPool != null) {
+      container = containerPool.getContainer(backend, ks);
+    } else {
+      container = createContainer(frontEndSession, ks);
     }
 
     final ProxyInboundClient backendSocket = new ProxyInboundClient(getMessageCallback());
@@ -122,8 +156,12 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
     /* build the configuration */
 
     /* Attempt Connect */
+    final Timer.Context connectTimer = metrics == null ? null : metrics.connect.time();
     try {
       backendSession = container.connectToServer(backendSocket, clientConfig, backend);
+      if (connectTimer != null) {
+        connectTimer.stop();
+      }
 
       LOG.onConnectionOpen(backend.toString());
 
@@ -138,6 +176,7 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
     remoteLock.lock();
     super.onWebSocketConnect(frontEndSession);
     this.frontendSession = frontEndSession;
+    opened();
 
     final RemoteEndpoint remote = frontEndSession.getRemote();
     try {
@@ -160,14 +199,47 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
     }
   }
 
+  /**
+   * Creates a container used by this connection only, this is used when
+   * no shared container pool is available.
+   */
+  private WebSocketContainer createContainer(final Session frontEndSession, final KeyStore ks) {
+    final WebSocketContainer connectionContainer = ContainerProvider.getWebSocketContainer();
+    connectionContainer.setDefaultMaxTextMessageBufferSize(frontEndSession.getPolicy().getMaxTextMessageBufferSize());
+    connectionContainer.setDefaultMaxBinaryMessageBufferSize(frontEndSession.getPolicy().getMaxBinaryMessageBufferSize());
+    connectionContainer.setAsyncSendTimeout(frontEndSession.getPolicy().getAsyncWriteTimeout());
+    connectionContainer.setDefaultMaxSessionIdleTimeout(frontEndSession.getPolicy().getIdleTimeout());
+
+    /*
+       Currently javax.websocket API has no provisions to configure SSL
+       https://github.com/eclipse-ee4j/websocket-api/issues/210
+       Until that gets fixed we'll have to resort to this.
+    */
+    if(connectionContainer instanceof org.eclipse.jetty.websocket.jsr356.ClientContainer &&
+        ((org.eclipse.jetty.websocket.jsr356.ClientContainer)connectionContainer).getClient() != null &&
+        ((org.eclipse.jetty.websocket.jsr356.ClientContainer)connectionContainer).getClient().getSslContextFactory() != null ) {
+      ((org.eclipse.jetty.websocket.jsr356.ClientContainer)connectionContainer).getClient().getHttpClient().getSslContextFactory().setTrustStore(ks);
+      LOG.logMessage("Truststore for websocket setup");
+    }
+    return connectionContainer;
+  }
+
   @Override
   public void onWebSocketBinary(final byte[] payload, final int offset, final int length) {
     if (isNotConnected()) {
       return;
     }
 
-    throw new UnsupportedOperationException(
-        "Websocket support for binary messages is not supported at this time.");
+    onFrontendMessage(length);
+
+    /* Proxy message to backend, fragmented messages have already been assembled by the server */
+    try {
+      backendWindow.acquire(length);
+      backendSession.getAsyncRemote().sendBinary(ByteBuffer.wrap(payload, offset, length),
+          new BackendSendHandler(length));
+    } catch (IOException e) {
+      LOG.connectionFailed(e);
+    }
   }
 
   @Override
@@ -176,11 +248,13 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
       return;
     }
 
-    LOG.logMessage("[From Frontend --->]" + message);
+    LOG.onFrontendMessage(message);
+    onFrontendMessage(message.length());
 
     /* Proxy message to backend */
     try {
-      backendSession.getBasicRemote().sendText(message);
+      backendWindow.acquire(message.length());
+      backendSession.getAsyncRemote().sendText(message, new BackendSendHandler(message.length()));
 
     } catch (IOException e) {
       LOG.connectionFailed(e);
@@ -249,48 +323,23 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
 
       @Override
       public void onMessageText(String message, Object session) {
-        LOG.logMessage("[From Backend <---]" + message);
-        remoteLock.lock();
-        final RemoteEndpoint remote = getRemote();
-        try {
-          if (remote == null) {
-            LOG.debugLog("Remote endpoint is null");
-            if (messageBuffer.size() >= config.getWebsocketMaxWaitBufferCount()) {
-              throw new RuntimeIOException("Remote is null and message buffer is full. Cannot buffer anymore ");
-            }
-            LOG.debugLog("Buffering message: " + message);
-            messageBuffer.add(message);
-            return;
-          }
-
-          /* Proxy message to frontend */
-          flushBufferedMessages(remote);
-
-          LOG.debugLog("Sending current message [From Backend <---]: " + message);
-          remote.sendString(message);
-          if (remote.getBatchMode() == BatchMode.ON) {
-            remote.flush();
-          }
-        } catch (IOException e) {
-          LOG.connectionFailed(e);
-          throw new RuntimeIOException(e);
-        }
-        finally
-        {
-          remoteLock.unlock();
-        }
+        LOG.onBackendMessage(message);
+        onBackendMessage(message.length());
+        proxyToFrontend(message, message.length());
       }
 
       @Override
       public void onMessageBinary(byte[] message, boolean last,
           Object session) {
-        throw new UnsupportedOperationException(
-            "Websocket support for binary messages is not supported at this time.");
-
+        onBackendMessage(message.length);
+        proxyToFrontend(ByteBuffer.wrap(message), message.length);
       }
 
       @Override
       public void onMessagePong(javax.websocket.PongMessage message, Object session) {
+        if (ByteBuffer.wrap(KEEPALIVE_PAYLOAD).equals(message.getApplicationData())) {
+          return;
+        }
         LOG.logMessage("[From Backend <---]: PING");
         remoteLock.lock();
         final RemoteEndpoint remote = getRemote();
@@ -322,8 +371,161 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
 
   }
 
+  /*
+   * Send a text (String) or binary (ByteBuffer) message from the backend to the frontend,
+   * buffering it if the frontend is not connected yet.
+   */
+  private void proxyToFrontend(final Object message, final int size) {
+    remoteLock.lock();
+    final RemoteEndpoint remote = getRemote();
+    try {
+      if (remote == null) {
+        LOG.debugLog("Remote endpoint is null");
+        if (messageBuffer.size() >= config.getWebsocketMaxWaitBufferCount()) {
+          throw new RuntimeIOException("Remote is null and message buffer is full. Cannot buffer anymore ");
+        }
+        final long maxBufferSize = config.getWebsocketMaxWaitBufferBytes();
+        if (maxBufferSize > 0 && messageBufferSize + size > maxBufferSize) {
+          throw new RuntimeIOException("Remote is null and message buffer size limit reached. Cannot buffer anymore ");
+        }
+        LOG.debugLog("Buffering message");
+        messageBuffer.add(message);
+        messageBufferSize += size;
+        return;
+      }
+
+      /* Proxy message to frontend */
+      flushBufferedMessages(remote);
+
+      LOG.debugLog("Sending current message [From Backend <---]");
+      sendToFrontend(remote, message);
+      if (remote.getBatchMode() == BatchMode.ON) {
+        remote.flush();
+      }
+    } catch (IOException e) {
+      LOG.connectionFailed(e);
+      throw new RuntimeIOException(e);
+    }
+    finally
+    {
+      remoteLock.unlock();
+    }
+  }
+
+  /*
+   * Asynchronously send a message to the frontend, waiting while too many bytes are
+   * outstanding. Should be called with remoteLock held.
+   */
+  private void sendToFrontend(final RemoteEndpoint remote, final Object message) throws IOException {
+    if (message instanceof ByteBuffer) {
+      final ByteBuffer data = (ByteBuffer) message;
+      final int size = data.remaining();
+      frontendWindow.acquire(size);
+      remote.sendBytes(data, new FrontendWriteCallback(size));
+    } else {
+      final String text = (String) message;
+      frontendWindow.acquire(text.length());
+      remote.sendString(text, new FrontendWriteCallback(text.length()));
+    }
+  }
+
+  private void onFrontendMessage(final int size) {
+    lastActivity = System.currentTimeMillis();
+    if (metrics != null) {
+      metrics.onFrontendMessage(size);
+    }
+  }
+
+  private void onBackendMessage(final int size) {
+    lastActivity = System.currentTimeMillis();
+    if (metrics != null) {
+      metrics.onBackendMessage(size);
+    }
+  }
+
+  private void opened() {
+    if (open.compareAndSet(false, true)) {
+      if (metrics != null) {
+        metrics.openSessions.add(this);
+      }
+      if (sessionTracker != null) {
+        sessionTracker.register(this);
+      }
+    }
+  }
+
+  private void closed() {
+    if (open.compareAndSet(true, false)) {
+      if (metrics != null) {
+        metrics.openSessions.remove(this);
+      }
+      if (sessionTracker != null) {
+        sessionTracker.unregister(this);
+      }
+    }
+  }
+
+  URI getBackend() {
+    return backend;
+  }
+
+  long getLastActivity() {
+    return lastActivity;
+  }
+
+  /**
+   * Ping both ends of the connection so that intermediaries do not drop it.
+   * Both pings are queued without waiting for them to be written, so a slow
+   * client cannot hold up the checks of the other connections.
+   */
+  void sendKeepalive() {
+    try {
+      final RemoteEndpoint remote = getRemote();
+      if (remote instanceof WebSocketRemoteEndpoint) {
+        /* a control frame, so it may be sent while a data message is being written */
+        ((WebSocketRemoteEndpoint) remote).uncheckedSendFrame(new PingFrame().setPayload(KEEPALIVE_PAYLOAD),
+            new WriteCallback() {
+              @Override
+              public void writeFailed(final Throwable e) {
+                LOG.keepaliveFailed(backend.toString(), e.toString());
+              }
+
+              @Override
+              public void writeSuccess() {
+              }
+            });
+      } else if (remote != null) {
+        remote.sendPing(ByteBuffer.wrap(KEEPALIVE_PAYLOAD));
+      }
+      if (backendSession != null && backendSession.isOpen()) {
+        backendSession.getAsyncRemote().sendPing(ByteBuffer.wrap(KEEPALIVE_PAYLOAD));
+      }
+    } catch (IOException e) {
+      LOG.keepaliveFailed(backend.toString(), e.toString());
+    }
+  }
+
+  /**
+   * Close both ends of a connection that has not carried any message for too long.
+   */
+  void closeIdle(final long timeout) {
+    LOG.closingIdleConnection(backend.toString(), timeout);
+    try {
+      if (backendSession != null && backendSession.isOpen()) {
+        backendSession.close(new CloseReason(CloseCodes.GOING_AWAY, "Idle timeout"));
+      }
+    } catch (IOException e) {
+      LOG.connectionFailed(e);
+    }
+    if (frontendSession != null && frontendSession.isOpen()) {
+      frontendSession.close(StatusCode.SHUTDOWN, "Idle timeout");
+    }
+    closed();
+  }
+
   @SuppressWarnings("PMD.DoNotUseThreads")
   private void cleanup() {
+    closed();
     /* do the cleaning business in separate thread so we don't block */
     pool.execute(new Runnable() {
       @Override
@@ -342,7 +544,8 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
       LOG.connectionFailed(e);
     }
 
-    if (container instanceof LifeCycle) {
+    /* Shared containers are stopped with the pool */
+    if (containerPool == null && container instanceof LifeCycle) {
       try {
         ((LifeCycle) container).stop();
       } catch (Exception e) {
@@ -360,10 +563,47 @@ public class ProxyWebSocketAdapter extends WebSocketAdapter {
    */
   private void flushBufferedMessages(final RemoteEndpoint remote) throws IOException {
     LOG.debugLog("Flushing old buffered messages");
-    for(String obj:messageBuffer) {
-      LOG.debugLog("Sending old buffered message [From Backend <---]: " + obj);
-      remote.sendString(obj);
+    Object message;
+    while ((message = messageBuffer.poll()) != null) {
+      sendToFrontend(remote, message);
+    }
+    messageBufferSize = 0;
+  }
+
+  /* Releases the outstanding window once a write to the frontend completes */
+  private class FrontendWriteCallback implements WriteCallback {
+    private final int size;
+
+    FrontendWriteCallback(final int size) {
+      this.size = size;
+    }
+
+    @Override
+    public void writeFailed(final Throwable x) {
+      frontendWindow.release(size);
+      LOG.onError(x.toString());
+    }
+
+    @Override
+    public void writeSuccess() {
+      frontendWindow.release(size);
+    }
+  }
+
+  /* Releases the outstanding window once a write to the backend completes */
+  private class BackendSendHandler implements SendHandler {
+    private final int size;
+
+    BackendSendHandler(final int size) {
+      this.size = size;
+    }
+
+    @Override
+    public void onResult(final SendResult result) {
+      backendWindow.release(size);
+      if (!result.isOK()) {
+        LOG.onError(result.getException().toString());
+      }
     }
-    messageBuffer.clear();
   }
 }
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.eclipse.jetty.client.HttpClient;
+import org.eclipse.jetty.io.ByteBufferPool;
+import org.eclipse.jetty.io.MappedByteBufferPool;
+import org.eclipse.jetty.util.ssl.SslContextFactory;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+import org.eclipse.jetty.websocket.jsr356.ClientContainer;
+
+import javax.websocket.WebSocketContainer;
+import java.net.URI;
+import java.security.KeyStore;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gateway wide pool of websocket client containers used to connect to
+ * websocket backends. Plain websocket backends share a single container,
+ * secure backends get one container per host and port so that each has its
+ * own SSL context. All containers share one thread pool and one buffer pool,
+ * instead of every proxied connection starting and stopping a container with
+ * its own threads and selector.
+ *
+ * @since 2.0.0
+ */
+public class WebsocketClientContainerPool {
+
+  private static final WebsocketLogMessages LOG = MessagesFactory.get(WebsocketLogMessages.class);
+
+  private static final String SECURE_SCHEME = "wss";
+  private static final String PLAIN_KEY = "ws";
+  private static final int MIN_THREADS = 8;
+  private static final int MAX_THREADS = 200;
+
+  private final GatewayConfig config;
+  private final Map<String, ClientContainer> containers = new ConcurrentHashMap<>();
+  private final ByteBufferPool bufferPool = new MappedByteBufferPool();
+  private final QueuedThreadPool executor;
+
+  public WebsocketClientContainerPool(final GatewayConfig config) {
+    this.config = config;
+    this.executor = new QueuedThreadPool(MAX_THREADS, MIN_THREADS);
+    this.executor.setName("knox-websocket-client");
+    this.executor.setDaemon(true);
+  }
+
+  /**
+   * Returns the shared container used to connect to the given backend,
+   * starting it on first use.
+   * @param backend websocket backend url
+   * @param truststore truststore used to validate secure backends
+   * @return started client container
+   */
+  public WebSocketContainer getContainer(final URI backend, final KeyStore truststore) {
+    final boolean secure = SECURE_SCHEME.equalsIgnoreCase(backend.getScheme());
+    final String key = secure
+        ? String.format(Locale.ROOT, "%s:%d", backend.getHost(), backend.getPort()) : PLAIN_KEY;
+    return containers.computeIfAbsent(key, k -> createContainer(secure ? truststore : null));
+  }
+
+  private ClientContainer createContainer(final KeyStore truststore) {
+    try {
+      synchronized (executor) {
+        if (!executor.isStarted()) {
+          executor.start();
+        }
+      }
+
+      final SslContextFactory.Client sslContextFactory = new SslContextFactory.Client();
+      if (truststore != null) {
+        sslContextFactory.setTrustStore(truststore);
+        LOG.logMessage("Truststore for websocket setup");
+      }
+      final HttpClient httpClient = new HttpClient(sslContextFactory);
+      httpClient.setExecutor(executor);
+      httpClient.setByteBufferPool(bufferPool);
+
+      final ClientContainer container = new ClientContainer(httpClient);
+      container.setDefaultMaxTextMessageBufferSize(config.getWebsocketMaxTextMessageBufferSize());
+      container.setDefaultMaxBinaryMessageBufferSize(config.getWebsocketMaxBinaryMessageBufferSize());
+      container.setAsyncSendTimeout(config.getWebsocketAsyncWriteTimeout());
+      container.setDefaultMaxSessionIdleTimeout(config.getWebsocketIdleTimeout());
+      container.start();
+      return container;
+    } catch (final Exception e) {
+      LOG.failedCreatingWebSocket(e);
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Stops all containers and the shared thread pool.
+   */
+  public void stop() {
+    for (final ClientContainer container : containers.values()) {
+      try {
+        container.stop();
+      } catch (final Exception e) {
+        LOG.connectionFailed(e);
+      }
+    }
+    containers.clear();
+    try {
+      executor.stop();
+    } catch (final Exception e) {
+      LOG.connectionFailed(e);
+    }
+  }
+}
@@ -60,4 +60,27 @@ public interface WebsocketLogMessages {
       text = "{0}")
   void debugLog(String message);
 
+  @Message(level = MessageLevel.DEBUG,
+      text = "Generated backend URL for websocket connection: {0}")
+  void generatedBackendURL(Object backend);
+
+  @Message(level = MessageLevel.DEBUG, text = "[From Frontend --->]{0}")
+  void onFrontendMessage(String message);
+
+  @Message(level = MessageLevel.DEBUG, text = "[From Backend <---]{0}")
+  void onBackendMessage(String message);
+
+  @Message(level = MessageLevel.INFO,
+      text = "Closing websocket connection to backend server {0}, no messages for more than {1} ms")
+  void closingIdleConnection(String backend, long timeout);
+
+  @Message(level = MessageLevel.DEBUG,
+      text = "Failed to send websocket keepalive ping for backend server {0}: {1}")
+  void keepaliveFailed(String backend, String cause);
+
+  @Message(level = MessageLevel.WARN,
+      text = "Failed to check websocket connection to backend server {0}: {1}")
+  void failedCheckingConnection(String backend,
+      @StackTrace(level = MessageLevel.DEBUG) Exception e);
+
 }
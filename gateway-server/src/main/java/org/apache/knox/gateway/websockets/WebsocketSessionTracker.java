@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps track of the live proxied websocket connections. It publishes
+ * per topology and service metrics, and periodically pings connections
+ * to keep them alive and closes the ones that have been idle for too long.
+ *
+ * @since 2.0.0
+ */
+public class WebsocketSessionTracker {
+
+  static final String METRICS_PREFIX = "websocket";
+
+  private static final long MIN_CHECK_PERIOD = 1000L;
+
+  private static final WebsocketLogMessages LOG = MessagesFactory.get(WebsocketLogMessages.class);
+
+  private final MetricRegistry registry;
+  private final long keepaliveInterval;
+  private final long idleReapTimeout;
+  private final Map<String, ServiceMetrics> serviceMetrics = new ConcurrentHashMap<>();
+  private final Set<ProxyWebSocketAdapter> sessions = ConcurrentHashMap.newKeySet();
+  private ScheduledFuture<?> checks;
+
+  /**
+   * @param registry registry the metrics are published to, when null the metrics are not published
+   * @param keepaliveInterval milliseconds between keepalive pings, non-positive to disable
+   * @param idleReapTimeout milliseconds without data messages after which a connection is closed,
+   *                        non-positive to disable
+   */
+  public WebsocketSessionTracker(final MetricRegistry registry, final long keepaliveInterval,
+      final long idleReapTimeout) {
+    this.registry = registry == null ? new MetricRegistry() : registry;
+    this.keepaliveInterval = keepaliveInterval;
+    this.idleReapTimeout = idleReapTimeout;
+  }
+
+  /**
+   * Schedules the keepalive and idle checks, if any is enabled.
+   */
+  public synchronized void start(final ScheduledExecutorService scheduler) {
+    final long period = getCheckPeriod(keepaliveInterval, idleReapTimeout);
+    if (period > 0 && checks == null) {
+      checks = scheduler.scheduleWithFixedDelay(this::checkSessions, period, period, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Cancels the keepalive and idle checks.
+   */
+  public synchronized void stop() {
+    if (checks != null) {
+      checks.cancel(false);
+      checks = null;
+    }
+  }
+
+  /*
+   * Pings are sent every check, and idle connections are reaped within a quarter of the timeout.
+   */
+  static long getCheckPeriod(final long keepaliveInterval, final long idleReapTimeout) {
+    long period = 0;
+    if (keepaliveInterval > 0) {
+      period = keepaliveInterval;
+    }
+    if (idleReapTimeout > 0) {
+      final long reapPeriod = Math.max(MIN_CHECK_PERIOD, idleReapTimeout / 4);
+      period = period > 0 ? Math.min(period, reapPeriod) : reapPeriod;
+    }
+    return period;
+  }
+
+  public ServiceMetrics getServiceMetrics(final String topology, final String service) {
+    return serviceMetrics.computeIfAbsent(topology + '/' + service,
+        key -> new ServiceMetrics(registry, MetricRegistry.name(METRICS_PREFIX, topology, service)));
+  }
+
+  void register(final ProxyWebSocketAdapter session) {
+    sessions.add(session);
+  }
+
+  void unregister(final ProxyWebSocketAdapter session) {
+    sessions.remove(session);
+  }
+
+  int getSessionCount() {
+    return sessions.size();
+  }
+
+  void checkSessions() {
+    final long now = System.currentTimeMillis();
+    for (final ProxyWebSocketAdapter session : sessions) {
+      // A failure must not escape, it would cancel the checks of all the connections
+      try {
+        if (idleReapTimeout > 0 && now - session.getLastActivity() > idleReapTimeout) {
+          session.closeIdle(idleReapTimeout);
+        } else if (keepaliveInterval > 0) {
+          session.sendKeepalive();
+        }
+      } catch (final RuntimeException e) {
+        LOG.failedCheckingConnection(String.valueOf(session.getBackend()), e);
+      }
+    }
+  }
+
+  /**
+   * Metric handles of one proxied service, resolved once and shared by all its connections.
+   * The number of open sessions is a gauge over the open connections of the service.
+   */
+  public static class ServiceMetrics {
+    final Set<ProxyWebSocketAdapter> openSessions = ConcurrentHashMap.newKeySet();
+    final Counter frontendMessages;
+    final Counter frontendBytes;
+    final Counter backendMessages;
+    final Counter backendBytes;
+    final Timer connect;
+
+    ServiceMetrics(final MetricRegistry registry, final String prefix) {
+      registry.gauge(MetricRegistry.name(prefix, "sessions", "open"), () -> (Gauge<Integer>) openSessions::size);
+      frontendMessages = registry.counter(MetricRegistry.name(prefix, "frontend", "messages"));
+      frontendBytes = registry.counter(MetricRegistry.name(prefix, "frontend", "bytes"));
+      backendMessages = registry.counter(MetricRegistry.name(prefix, "backend", "messages"));
+      backendBytes = registry.counter(MetricRegistry.name(prefix, "backend", "bytes"));
+      connect = registry.timer(MetricRegistry.name(prefix, "backend", "connect"));
+    }
+
+    void onFrontendMessage(final long size) {
+      frontendMessages.inc();
+      frontendBytes.inc(size);
+    }
+
+    void onBackendMessage(final long size) {
+      backendMessages.inc();
+      backendBytes.inc(size);
+    }
+  }
+}
@@ -23,9 +23,14 @@ import org.apache.knox.gateway.audit.api.CorrelationService;
 import org.apache.knox.gateway.audit.api.CorrelationServiceFactory;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.filter.AbstractGatewayFilter;
+import org.apache.knox.gateway.services.metrics.DispatchTimers;
+import org.apache.knox.gateway.services.metrics.impl.instr.StageMetrics;
 import org.apache.knox.gateway.topology.Topology;
 import org.apache.knox.test.category.FastTests;
 import org.apache.knox.test.category.UnitTests;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.easymock.Capture;
 import org.easymock.EasyMock;
 import org.junit.After;
 import org.junit.Before;
@@ -37,16 +42,20 @@ import javax.servlet.FilterChain;
 import javax.servlet.FilterConfig;
 import javax.servlet.ServletContext;
 import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.Collections;
 
 import static org.apache.knox.gateway.filter.CorrelationHandler.REQUEST_ID_HEADER_NAME;
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 @Category( { UnitTests.class, FastTests.class } )
@@ -291,4 +300,143 @@ public class GatewayFilterTest {
     assertThat(filter.url, is("http://host:8443/gateway/sandbox/test-role/test-path/test-resource"));
 
   }
+
+  public static class TestPassThroughFilter extends AbstractGatewayFilter {
+    @Override
+    protected void doFilter( HttpServletRequest request, HttpServletResponse response, FilterChain chain ) throws IOException, ServletException {
+      chain.doFilter( request, response );
+    }
+  }
+
+  @Test
+  public void testStageTimers() throws Exception {
+
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.replay( config );
+
+    Topology topology = EasyMock.createNiceMock( Topology.class );
+    HttpServletRequest request = EasyMock.createNiceMock( HttpServletRequest.class );
+    ServletContext context = EasyMock.createNiceMock( ServletContext.class );
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock( GatewayConfig.class );
+    EasyMock.expect( topology.getName() ).andReturn( "sandbox" ).anyTimes();
+    EasyMock.expect( request.getPathInfo() ).andReturn( "test-path/test-resource" ).anyTimes();
+    EasyMock.expect( request.getServletContext() ).andReturn( context ).anyTimes();
+    EasyMock.expect( context.getAttribute(
+        GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE)).andReturn(gatewayConfig).anyTimes();
+    EasyMock.expect( context.getAttribute( "org.apache.knox.gateway.topology" ) ).andReturn( topology ).anyTimes();
+    EasyMock.expect(gatewayConfig.getHeaderNameForRemoteAddress()).andReturn(
+        "Custom-Forwarded-For").anyTimes();
+    EasyMock.expect( request.getRequestURL() ).andReturn( new StringBuffer("http://host:8443/gateway/sandbox/test-path/test-resource/") ).anyTimes();
+    Capture<Object> dispatchTimers = Capture.newInstance();
+    request.setAttribute( EasyMock.eq( DispatchTimers.REQUEST_ATTRIBUTE ), EasyMock.capture( dispatchTimers ) );
+    EasyMock.expectLastCall().anyTimes();
+    EasyMock.replay( request );
+    EasyMock.replay( context );
+    EasyMock.replay( topology );
+    EasyMock.replay( gatewayConfig );
+
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.replay( response );
+
+    MetricRegistry registry = new MetricRegistry();
+    GatewayFilter gateway = new GatewayFilter();
+    gateway.setStageMetrics( new StageMetrics( registry ) );
+    gateway.addFilter( "test-path/**", "test-authn", new TestPassThroughFilter(), null, "test-role", "authentication" );
+    gateway.addFilter( "test-path/**", "test-dispatch", new TestRoleFilter(), null, "test-role", null );
+    gateway.init( config );
+    gateway.doFilter( request, response );
+    gateway.doFilter( request, response );
+    gateway.destroy();
+
+    Timer authentication = registry.getTimers().get( "topology.sandbox.service.test-role.stage.authentication" );
+    Timer dispatch = registry.getTimers().get( "topology.sandbox.service.test-role.stage.test-dispatch" );
+    assertThat( authentication, notNullValue() );
+    assertThat( dispatch, notNullValue() );
+    assertThat( authentication.getCount(), is( 2L ) );
+    assertThat( dispatch.getCount(), is( 2L ) );
+    assertThat( authentication.getSnapshot().size(), is( 2 ) );
+    assertThat( dispatchTimers.getValue(), instanceOf( DispatchTimers.class ) );
+
+    ( (DispatchTimers) dispatchTimers.getValue() ).connect( 1000L );
+    assertThat( registry.getTimers().get( "topology.sandbox.service.test-role.dispatch.connect" ).getCount(), is( 1L ) );
+  }
+
+  public static class TestCountingFilter implements Filter {
+    public int requests;
+    public boolean destroyed;
+
+    @Override
+    public void init( FilterConfig filterConfig ) {
+    }
+
+    @Override
+    public void doFilter( ServletRequest request, ServletResponse response, FilterChain chain ) {
+      requests++;
+    }
+
+    @Override
+    public void destroy() {
+      destroyed = true;
+    }
+  }
+
+  @Test
+  public void testReplaceServices() throws Exception {
+
+    FilterConfig config = EasyMock.createNiceMock( FilterConfig.class );
+    EasyMock.replay( config );
+
+    ServletContext context = EasyMock.createNiceMock( ServletContext.class );
+    GatewayConfig gatewayConfig = EasyMock.createNiceMock( GatewayConfig.class );
+    EasyMock.expect( context.getAttribute(
+        GatewayConfig.GATEWAY_CONFIG_ATTRIBUTE)).andReturn(gatewayConfig).anyTimes();
+    EasyMock.expect(gatewayConfig.getHeaderNameForRemoteAddress()).andReturn(
+        "Custom-Forwarded-For").anyTimes();
+    EasyMock.replay( context );
+    EasyMock.replay( gatewayConfig );
+
+    HttpServletRequest keptRequest = EasyMock.createNiceMock( HttpServletRequest.class );
+    EasyMock.expect( keptRequest.getPathInfo() ).andReturn( "kept-path/resource" ).anyTimes();
+    EasyMock.expect( keptRequest.getServletContext() ).andReturn( context ).anyTimes();
+    EasyMock.replay( keptRequest );
+
+    HttpServletRequest changedRequest = EasyMock.createNiceMock( HttpServletRequest.class );
+    EasyMock.expect( changedRequest.getPathInfo() ).andReturn( "changed-path/resource" ).anyTimes();
+    EasyMock.expect( changedRequest.getServletContext() ).andReturn( context ).anyTimes();
+    EasyMock.replay( changedRequest );
+
+    HttpServletResponse response = EasyMock.createNiceMock( HttpServletResponse.class );
+    EasyMock.replay( response );
+
+    TestCountingFilter kept = new TestCountingFilter();
+    TestCountingFilter changed = new TestCountingFilter();
+    GatewayFilter gateway = new GatewayFilter();
+    gateway.addFilter( "kept-path/**", "kept", kept, null, "kept-role" );
+    gateway.addFilter( "changed-path/**", "changed", changed, null, "changed-role" );
+    gateway.init( config );
+    gateway.doFilter( keptRequest, response );
+    gateway.doFilter( changedRequest, response );
+
+    TestCountingFilter keptUpdate = new TestCountingFilter();
+    TestCountingFilter changedUpdate = new TestCountingFilter();
+    GatewayFilter update = new GatewayFilter();
+    update.addFilter( "kept-path/**", "kept", keptUpdate, null, "kept-role" );
+    update.addFilter( "changed-path/**", "changed", changedUpdate, null, "changed-role" );
+    gateway.replaceServices( update, Collections.singleton( "changed-role" ) );
+
+    assertThat( changed.destroyed, is( true ) );
+    assertThat( kept.destroyed, is( false ) );
+
+    gateway.doFilter( keptRequest, response );
+    gateway.doFilter( changedRequest, response );
+    assertThat( kept.requests, is( 2 ) );
+    assertThat( changed.requests, is( 1 ) );
+    assertThat( changedUpdate.requests, is( 1 ) );
+    assertThat( keptUpdate.requests, is( 0 ) );
+
+    gateway.destroy();
+    assertThat( kept.destroyed, is( true ) );
+    assertThat( changedUpdate.destroyed, is( true ) );
+    assertThat( keptUpdate.destroyed, is( false ) );
+  }
 }
@@ -92,6 +92,55 @@ public class GatewayConfigImplTest {
     assertThat( config.getGatewayDeploymentsBackupVersionLimit(), is(0) );
   }
 
+  @Test( timeout = TestUtils.SHORT_TIMEOUT )
+  public void testGetGatewayDeploymentThreads() {
+    GatewayConfigImpl config = new GatewayConfigImpl();
+    assertThat( config.getGatewayDeploymentThreads(), is(Math.min(4, Runtime.getRuntime().availableProcessors())) );
+
+    config.setInt( config.DEPLOYMENT_THREADS, 8 );
+    assertThat( config.getGatewayDeploymentThreads(), is(8) );
+
+    config.setInt( config.DEPLOYMENT_THREADS, 0 );
+    assertThat( config.getGatewayDeploymentThreads(), is(1) );
+  }
+
+  @Test( timeout = TestUtils.SHORT_TIMEOUT )
+  public void testIsGatewayIncrementalDeploymentEnabled() {
+    GatewayConfigImpl config = new GatewayConfigImpl();
+    assertThat( config.isGatewayIncrementalDeploymentEnabled(), is(true) );
+
+    config.setBoolean( config.DEPLOYMENT_INCREMENTAL, false );
+    assertThat( config.isGatewayIncrementalDeploymentEnabled(), is(false) );
+  }
+
+  @Test( timeout = TestUtils.SHORT_TIMEOUT )
+  public void testGetClouderaManagerServiceDiscoveryThreads() {
+    GatewayConfigImpl config = new GatewayConfigImpl();
+    assertThat( config.getClouderaManagerServiceDiscoveryThreads(), is(GatewayConfig.DEFAULT_CM_SERVICE_DISCOVERY_THREADS) );
+
+    config.setInt( GatewayConfigImpl.CLOUDERA_MANAGER_SERVICE_DISCOVERY_THREADS, 2 );
+    assertThat( config.getClouderaManagerServiceDiscoveryThreads(), is(2) );
+
+    config.setInt( GatewayConfigImpl.CLOUDERA_MANAGER_SERVICE_DISCOVERY_THREADS, 0 );
+    assertThat( config.getClouderaManagerServiceDiscoveryThreads(), is(1) );
+  }
+
+  @Test( timeout = TestUtils.SHORT_TIMEOUT )
+  public void testTopologyMonitorSettings() {
+    GatewayConfigImpl config = new GatewayConfigImpl();
+    assertThat( config.isTopologyMonitorWatchServiceEnabled(), is(true) );
+    assertThat( config.getTopologyMonitorDebounceInterval(), is(500L) );
+
+    config.setBoolean( config.TOPOLOGY_MONITOR_WATCH_ENABLED, false );
+    assertThat( config.isTopologyMonitorWatchServiceEnabled(), is(false) );
+
+    config.setLong( config.TOPOLOGY_MONITOR_DEBOUNCE_INTERVAL, 100L );
+    assertThat( config.getTopologyMonitorDebounceInterval(), is(100L) );
+
+    config.setLong( config.TOPOLOGY_MONITOR_DEBOUNCE_INTERVAL, -1L );
+    assertThat( config.getTopologyMonitorDebounceInterval(), is(0L) );
+  }
+
   @Test( timeout = TestUtils.SHORT_TIMEOUT )
   public void testGetGatewayDeploymentsBackupAgeLimit() {
     GatewayConfigImpl config = new GatewayConfigImpl();
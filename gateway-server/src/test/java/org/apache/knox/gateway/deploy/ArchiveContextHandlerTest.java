@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.deploy;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.knox.gateway.GatewayServlet;
+import org.apache.knox.test.TestUtils;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.jboss.shrinkwrap.api.ShrinkWrap;
+import org.jboss.shrinkwrap.api.asset.StringAsset;
+import org.jboss.shrinkwrap.api.spec.WebArchive;
+import org.jboss.shrinkwrap.descriptor.api.Descriptors;
+import org.jboss.shrinkwrap.descriptor.api.webapp30.WebAppDescriptor;
+import org.junit.Test;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ArchiveContextHandlerTest {
+
+  @Test( timeout = TestUtils.SHORT_TIMEOUT )
+  public void testResourcesAreServedFromTheArchive() throws Exception {
+    WebArchive war = ShrinkWrap.create( WebArchive.class, "%2F" );
+    war.addAsWebInfResource( new StringAsset( "<gateway/>" ), "gateway.xml" );
+    ServletContext context = new ArchiveContextHandler( war ).getServletContext();
+
+    URL url = context.getResource( "/WEB-INF/gateway.xml" );
+    assertNotNull( url );
+    try( InputStream stream = url.openStream() ) {
+      assertEquals( "<gateway/>", IOUtils.toString( stream, StandardCharsets.UTF_8 ) );
+    }
+    try( InputStream stream = context.getResourceAsStream( "/WEB-INF/gateway.xml" ) ) {
+      assertEquals( "<gateway/>", IOUtils.toString( stream, StandardCharsets.UTF_8 ) );
+    }
+    assertNull( context.getResource( "/WEB-INF/missing.xml" ) );
+    assertNull( context.getResourceAsStream( "/WEB-INF/missing.xml" ) );
+    assertNull( context.getRealPath( "/WEB-INF/gateway.xml" ) );
+    assertThat( context.getResourcePaths( "/WEB-INF" ), hasItem( "/WEB-INF/gateway.xml" ) );
+  }
+
+  @Test( timeout = TestUtils.SHORT_TIMEOUT )
+  public void testConfigureRegistersTheWebXml() throws Exception {
+    WebAppDescriptor descriptor = Descriptors.create( WebAppDescriptor.class );
+    descriptor.createContextParam().paramName( "test-param" ).paramValue( "test-value" );
+    descriptor.createListener().listenerClass( TestListener.class.getName() );
+    descriptor.createServlet().servletName( "sandbox-knox-gateway-servlet" ).servletClass( GatewayServlet.class.getName() )
+        .createInitParam().paramName( GatewayServlet.GATEWAY_DESCRIPTOR_LOCATION_PARAM ).paramValue( "/WEB-INF/gateway.xml" );
+    descriptor.createServletMapping().servletName( "sandbox-knox-gateway-servlet" ).urlPattern( "/*" );
+    descriptor.createSessionConfig().sessionTimeout( 10 ).getOrCreateCookieConfig().httpOnly( true );
+
+    WebArchive war = ShrinkWrap.create( WebArchive.class, "%2F" );
+    war.setWebXML( new StringAsset( descriptor.exportAsString() ) );
+    ArchiveContextHandler handler = new ArchiveContextHandler( war );
+    handler.configure( getClass().getClassLoader() );
+
+    assertEquals( "test-value", handler.getInitParameter( "test-param" ) );
+    assertTrue( Arrays.stream( handler.getEventListeners() ).anyMatch( listener -> listener instanceof TestListener ) );
+    ServletHolder servlet = handler.getServletHandler().getServlet( "sandbox-knox-gateway-servlet" );
+    assertNotNull( servlet );
+    assertEquals( GatewayServlet.class.getName(), servlet.getClassName() );
+    assertEquals( "/WEB-INF/gateway.xml", servlet.getInitParameter( GatewayServlet.GATEWAY_DESCRIPTOR_LOCATION_PARAM ) );
+    assertEquals( 600, handler.getSessionHandler().getMaxInactiveInterval() );
+    assertTrue( handler.getSessionHandler().getHttpOnly() );
+  }
+
+  @Test( expected = DeploymentException.class, timeout = TestUtils.SHORT_TIMEOUT )
+  public void testConfigureFailsWithoutWebXml() throws Exception {
+    new ArchiveContextHandler( ShrinkWrap.create( WebArchive.class, "%2F" ) ).configure( getClass().getClassLoader() );
+  }
+
+  public static class TestListener implements ServletContextListener {
+    @Override
+    public void contextInitialized( ServletContextEvent event ) {
+    }
+
+    @Override
+    public void contextDestroyed( ServletContextEvent event ) {
+    }
+  }
+}
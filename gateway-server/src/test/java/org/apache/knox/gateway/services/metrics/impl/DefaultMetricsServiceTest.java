@@ -84,6 +84,7 @@ public class DefaultMetricsServiceTest {
     service.getMetricRegistry().removeMatching(MetricFilter.ALL);
     config.set(GatewayConfigImpl.JMX_METRICS_REPORTING_ENABLED, "true");
     config.set(GatewayConfigImpl.GRAPHITE_METRICS_REPORTING_ENABLED, "true");
+    config.set(GatewayConfigImpl.PROMETHEUS_METRICS_REPORTING_ENABLED, "true");
     service.init(config, null);
     reporters = service.getMetricsReporters();
     for (MetricsReporter reporter : reporters) {
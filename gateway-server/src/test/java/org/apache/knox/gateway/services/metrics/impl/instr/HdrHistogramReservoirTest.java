@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.metrics.impl.instr;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Snapshot;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HdrHistogramReservoirTest {
+
+  @Test
+  public void testSnapshotCoversRecordedValues() {
+    final HdrHistogramReservoir reservoir = new HdrHistogramReservoir(60, TimeUnit.SECONDS, new ManualClock());
+    for (long value = 1; value <= 100; value++) {
+      reservoir.update(value);
+    }
+
+    final Snapshot snapshot = reservoir.getSnapshot();
+    assertEquals(100, snapshot.size());
+    assertEquals(1, snapshot.getMin());
+    assertEquals(100, snapshot.getMax());
+    assertEquals(50.0, snapshot.getMedian(), 1.0);
+    // values are kept until they leave the window, not only until the next snapshot
+    assertEquals(100, reservoir.getSnapshot().size());
+  }
+
+  @Test
+  public void testValuesLeaveTheWindow() {
+    final ManualClock clock = new ManualClock();
+    final HdrHistogramReservoir reservoir = new HdrHistogramReservoir(60, TimeUnit.SECONDS, clock);
+    for (int i = 0; i < 100; i++) {
+      reservoir.update(10);
+    }
+    reservoir.getSnapshot();
+
+    clock.advance(30, TimeUnit.SECONDS);
+    for (int i = 0; i < 100; i++) {
+      reservoir.update(1000);
+    }
+    Snapshot snapshot = reservoir.getSnapshot();
+    assertEquals(200, snapshot.size());
+    assertTrue(snapshot.get99thPercentile() >= 990);
+
+    // a latency regression must dominate once the earlier values have expired
+    clock.advance(40, TimeUnit.SECONDS);
+    snapshot = reservoir.getSnapshot();
+    assertEquals(100, snapshot.size());
+    assertTrue(snapshot.getMin() >= 990);
+
+    clock.advance(60, TimeUnit.SECONDS);
+    snapshot = reservoir.getSnapshot();
+    assertEquals(0, snapshot.size());
+    assertEquals(0, snapshot.getMax());
+  }
+
+  @Test
+  public void testValuesBeyondTheTrackableRangeAreCapped() {
+    final HdrHistogramReservoir reservoir = new HdrHistogramReservoir(60, TimeUnit.SECONDS, new ManualClock());
+    reservoir.update(TimeUnit.DAYS.toNanos(1));
+    reservoir.update(10);
+
+    final Snapshot snapshot = reservoir.getSnapshot();
+    assertEquals(2, snapshot.size());
+    assertEquals(TimeUnit.HOURS.toNanos(1), snapshot.getMax(), TimeUnit.HOURS.toNanos(1) / 100.0);
+  }
+
+  private static class ManualClock extends Clock {
+    private long tick;
+
+    void advance(long duration, TimeUnit unit) {
+      tick += unit.toNanos(duration);
+    }
+
+    @Override
+    public long getTick() {
+      return tick;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.metrics.impl.reporters;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.UniformReservoir;
+import org.apache.knox.gateway.services.metrics.impl.instr.SummingTimer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.endsWith;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class PrometheusExporterTest {
+
+  private static String export(MetricRegistry registry, boolean openMetrics, String... allowlist) throws IOException {
+    StringWriter writer = new StringWriter();
+    new PrometheusExporter(registry, Arrays.asList(allowlist)).write(writer, openMetrics);
+    return writer.toString();
+  }
+
+  @Test
+  public void testStageTimersAreLabelled() throws Exception {
+    MetricRegistry registry = new MetricRegistry();
+    Timer timer = registry.timer("topology.sandbox.service.WEBHDFS.stage.authentication");
+    timer.update(2, TimeUnit.SECONDS);
+    Timer summing = registry.timer("topology.sandbox.service.HIVE.stage.authentication",
+        () -> new SummingTimer(new UniformReservoir()));
+    summing.update(1, TimeUnit.SECONDS);
+    summing.update(500, TimeUnit.MILLISECONDS);
+
+    String text = export(registry, false);
+    assertThat(text, containsString("# TYPE knox_stage_duration_seconds summary\n"));
+    assertThat(text, containsString(
+        "knox_stage_duration_seconds{topology=\"sandbox\",service=\"WEBHDFS\",stage=\"authentication\",quantile=\"0.5\"} 2.0\n"));
+    assertThat(text, containsString(
+        "knox_stage_duration_seconds_sum{topology=\"sandbox\",service=\"HIVE\",stage=\"authentication\"} 1.5\n"));
+    assertThat(text, containsString(
+        "knox_stage_duration_seconds_count{topology=\"sandbox\",service=\"HIVE\",stage=\"authentication\"} 2\n"));
+    // a plain timer has no running total, its sum is left out rather than estimated
+    assertThat(text, not(containsString("knox_stage_duration_seconds_sum{topology=\"sandbox\",service=\"WEBHDFS\"")));
+    // one family header for both services
+    assertThat(text.indexOf("# TYPE knox_stage_duration_seconds"), is(text.lastIndexOf("# TYPE knox_stage_duration_seconds")));
+  }
+
+  @Test
+  public void testClientRequestTimersAreLabelled() throws Exception {
+    MetricRegistry registry = new MetricRegistry();
+    registry.timer("client./gateway/sandbox/webhdfs/v1/.GET-requests").update(1, TimeUnit.MILLISECONDS);
+
+    String text = export(registry, false);
+    assertThat(text, containsString(
+        "knox_client_requests_duration_seconds_count{topology=\"sandbox\",path=\"/webhdfs/v1/\",method=\"GET\"} 1\n"));
+  }
+
+  @Test
+  public void testCounterFormats() throws Exception {
+    MetricRegistry registry = new MetricRegistry();
+    registry.counter("websocket.sandbox.HIVE.frontend.messages").inc(3);
+
+    String prometheus = export(registry, false);
+    assertThat(prometheus, containsString("# TYPE knox_websocket_frontend_messages_total counter\n"));
+    assertThat(prometheus, containsString("knox_websocket_frontend_messages_total{topology=\"sandbox\",service=\"HIVE\"} 3\n"));
+    assertThat(prometheus, not(containsString("# EOF")));
+
+    String openMetrics = export(registry, true);
+    assertThat(openMetrics, containsString("# TYPE knox_websocket_frontend_messages counter\n"));
+    assertThat(openMetrics, containsString("knox_websocket_frontend_messages_total{topology=\"sandbox\",service=\"HIVE\"} 3\n"));
+    assertThat(openMetrics, endsWith("# EOF\n"));
+  }
+
+  @Test
+  public void testAllowlist() throws Exception {
+    MetricRegistry registry = new MetricRegistry();
+    registry.counter("websocket.sandbox.HIVE.frontend.messages").inc();
+    registry.register("heap.used", (Gauge<Long>) () -> 42L);
+
+    String text = export(registry, false, "heap\\..*");
+    assertThat(text, containsString("knox_heap_used 42.0\n"));
+    assertThat(text, not(containsString("websocket")));
+    assertThat(export(registry, false), containsString("websocket"));
+  }
+
+  @Test
+  public void testLabelValuesAreEscaped() {
+    StringBuilder builder = new StringBuilder();
+    PrometheusExporter.appendLabel(builder, "path", "a\"b\\c\nd");
+    assertThat(builder.toString(), is("path=\"a\\\"b\\\\c\\nd\""));
+    assertThat(PrometheusExporter.toSample("jvm.G1-Old-Gen.count").name, is("knox_jvm_G1_Old_Gen_count"));
+  }
+}
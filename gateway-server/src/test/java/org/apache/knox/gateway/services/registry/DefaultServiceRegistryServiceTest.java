@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.registry;
+
+import org.apache.knox.gateway.config.GatewayConfig;
+import org.apache.knox.gateway.services.registry.impl.DefaultServiceRegistryService;
+import org.apache.knox.gateway.services.security.CryptoService;
+import org.easymock.EasyMock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DefaultServiceRegistryServiceTest {
+
+  private static final String REG_CODE = "code::c2ln";
+
+  @Rule
+  public final TemporaryFolder testFolder = new TemporaryFolder();
+
+  private GatewayConfig config;
+  private CryptoService crypto;
+
+  @Before
+  public void setUp() {
+    config = EasyMock.createNiceMock(GatewayConfig.class);
+    EasyMock.expect(config.getGatewaySecurityDir()).andReturn(testFolder.getRoot().getAbsolutePath()).anyTimes();
+    EasyMock.replay(config);
+
+    crypto = EasyMock.createNiceMock(CryptoService.class);
+    EasyMock.expect(crypto.verify(EasyMock.anyString(), EasyMock.anyString(), EasyMock.anyObject(byte[].class)))
+            .andReturn(true).anyTimes();
+    EasyMock.replay(crypto);
+  }
+
+  private DefaultServiceRegistryService createRegistry() throws Exception {
+    DefaultServiceRegistryService registry = new DefaultServiceRegistryService();
+    registry.setCryptoService(crypto);
+    registry.init(config, null);
+    return registry;
+  }
+
+  @Test
+  public void testLookups() throws Exception {
+    DefaultServiceRegistryService registry = createRegistry();
+    assertNull(registry.lookupServiceURL("cluster", "SERVICE"));
+
+    assertTrue(registry.registerService(REG_CODE, "cluster", "SERVICE", Arrays.asList("http://host1:80", "http://host2:80")));
+    assertTrue(registry.registerService(REG_CODE, "cluster", "OTHER", Collections.singletonList("http://host3:80")));
+    assertEquals("http://host1:80", registry.lookupServiceURL("cluster", "SERVICE"));
+    assertEquals(Arrays.asList("http://host1:80", "http://host2:80"), registry.lookupServiceURLs("cluster", "SERVICE"));
+    assertEquals("http://host3:80", registry.lookupServiceURL("cluster", "OTHER"));
+    assertNull(registry.lookupServiceURL("other-cluster", "SERVICE"));
+
+    // Lookups between registrations share the same published URLs
+    assertSame(registry.lookupServiceURLs("cluster", "SERVICE"), registry.lookupServiceURLs("cluster", "SERVICE"));
+
+    // Registering a service replaces its URLs
+    assertTrue(registry.registerService(REG_CODE, "cluster", "SERVICE", Collections.singletonList("http://host4:80")));
+    assertEquals(Collections.singletonList("http://host4:80"), registry.lookupServiceURLs("cluster", "SERVICE"));
+    assertEquals("http://host3:80", registry.lookupServiceURL("cluster", "OTHER"));
+
+    registry.removeClusterServices("cluster");
+    assertNull(registry.lookupServiceURL("cluster", "SERVICE"));
+    assertNull(registry.lookupServiceURL("cluster", "OTHER"));
+  }
+
+  @Test
+  public void testPublishedURLsAreImmutable() throws Exception {
+    DefaultServiceRegistryService registry = createRegistry();
+    List<String> urls = new ArrayList<>(Collections.singletonList("http://host1:80"));
+    registry.registerService(REG_CODE, "cluster", "SERVICE", urls);
+
+    // Changes to the registered list do not affect the registry
+    urls.add("http://host2:80");
+    List<String> registered = registry.lookupServiceURLs("cluster", "SERVICE");
+    assertEquals(Collections.singletonList("http://host1:80"), registered);
+
+    try {
+      registered.add("http://host2:80");
+      fail("Expected the URLs to be immutable");
+    } catch (UnsupportedOperationException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testPersistedRegistrationsAreLoaded() throws Exception {
+    DefaultServiceRegistryService registry = createRegistry();
+    registry.registerService(REG_CODE, "cluster", "SERVICE", Collections.singletonList("http://host1:80"));
+
+    DefaultServiceRegistryService reloaded = createRegistry();
+    assertEquals("http://host1:80", reloaded.lookupServiceURL("cluster", "SERVICE"));
+  }
+
+  @Test
+  public void testConcurrentRegistrationsAreAllPersisted() throws Exception {
+    DefaultServiceRegistryService registry = createRegistry();
+    int clusters = 8;
+    ExecutorService executor = Executors.newFixedThreadPool(clusters);
+    try {
+      List<Future<Boolean>> registrations = new ArrayList<>();
+      for (int i = 0; i < clusters; i++) {
+        String clusterName = "cluster" + i;
+        registrations.add(executor.submit(
+            () -> registry.registerService(REG_CODE, clusterName, "SERVICE", Collections.singletonList("http://host:80"))));
+      }
+      for (Future<Boolean> registration : registrations) {
+        assertTrue(registration.get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // The last write holds every registration, not an older rendering of the registry
+    DefaultServiceRegistryService reloaded = createRegistry();
+    for (int i = 0; i < clusters; i++) {
+      assertEquals("http://host:80", reloaded.lookupServiceURL("cluster" + i, "SERVICE"));
+    }
+  }
+}
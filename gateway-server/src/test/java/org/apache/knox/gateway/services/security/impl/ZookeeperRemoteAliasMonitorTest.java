@@ -243,11 +243,9 @@ public class ZookeeperRemoteAliasMonitorTest {
     Assert.assertTrue("Expected alias 'knox.test.alias.dev' not found ",
         aliasesDev.contains(expectedAliasDev));
 
-    final char[] result = zkAlias
-        .getPasswordFromAliasForCluster(expectedClusterName, expectedAlias);
-    final char[] result1 = zkAlias
-        .getPasswordFromAliasForCluster(expectedClusterNameDev,
-            expectedAliasDev);
+    /* externally added aliases are served once the listeners have observed them */
+    final char[] result = waitForPassword(zkAlias, expectedClusterName, expectedAlias);
+    final char[] result1 = waitForPassword(zkAlias, expectedClusterNameDev, expectedAliasDev);
 
     /* make sure the externally added passwords match */
     Assert.assertEquals(expectedPassword, new String(result));
@@ -260,4 +258,16 @@ public class ZookeeperRemoteAliasMonitorTest {
 
     zkAlias.stop();
   }
+
+  private static char[] waitForPassword(ZookeeperRemoteAliasService zkAlias, String clusterName, String alias)
+      throws Exception {
+    final long timeout = System.currentTimeMillis() + 10000L;
+    char[] password = zkAlias.getPasswordFromAliasForCluster(clusterName, alias);
+    while (password == null && System.currentTimeMillis() < timeout) {
+      Thread.sleep(100);
+      password = zkAlias.getPasswordFromAliasForCluster(clusterName, alias);
+    }
+    assertNotNull("Expected alias '" + alias + "' to be observed", password);
+    return password;
+  }
 }
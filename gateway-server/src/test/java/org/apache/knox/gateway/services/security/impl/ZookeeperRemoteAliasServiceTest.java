@@ -22,6 +22,7 @@ import org.apache.curator.test.TestingCluster;
 import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.service.config.remote.zk.ZooKeeperClientService;
 import org.apache.knox.gateway.service.config.remote.zk.ZooKeeperClientServiceProvider;
+import org.apache.knox.gateway.services.config.client.RemoteConfigurationRegistryClient;
 import org.apache.knox.gateway.services.config.client.RemoteConfigurationRegistryClientService;
 import org.apache.knox.gateway.services.security.AliasService;
 import org.apache.knox.gateway.services.security.MasterService;
@@ -343,6 +344,102 @@ public class ZookeeperRemoteAliasServiceTest {
     Assert.assertEquals("Expected 'knox.test.alias' aliases to have been removed.", originalSize, aliases.size());
   }
 
+  @Test
+  public void testRemoteAliasChangesAreObserved() throws Exception {
+    final String clusterName = "observed";
+    final String alias = "knox.test.alias.observed";
+
+    final ZookeeperRemoteAliasService zkAlias = createStartedService();
+    final ZookeeperRemoteAliasService otherZkAlias = createStartedService();
+
+    zkAlias.addAliasForCluster(clusterName, alias, "originalPassword");
+    Assert.assertEquals("originalPassword", new String(zkAlias.getPasswordFromAliasForCluster(clusterName, alias)));
+
+    // Another gateway instance updates the alias; the local view must not keep serving the old value
+    otherZkAlias.addAliasForCluster(clusterName, alias, "updatedPassword");
+    Assert.assertTrue("Expected the updated password to be observed",
+        waitForPassword(zkAlias, clusterName, alias, "updatedPassword"));
+
+    // ... and removes it
+    otherZkAlias.removeAliasForCluster(clusterName, alias);
+    Assert.assertTrue("Expected the alias removal to be observed",
+        waitForPassword(zkAlias, clusterName, alias, null));
+
+    zkAlias.stop();
+    otherZkAlias.stop();
+  }
+
+  @Test
+  public void testExistingAliasesAreLoadedAtStartup() throws Exception {
+    final String clusterName = AliasService.NO_CLUSTER_NAME;
+    final Map<String, String> options = Collections.singletonMap(
+        ZookeeperRemoteAliasService.OPTION_NAME_SHOULD_CREATE_TOKENS_SUB_NODE, "true");
+
+    final ZookeeperRemoteAliasService zkAlias = createStartedService(options);
+    zkAlias.addAliasForCluster(clusterName, "knox.test.alias.loaded", "loadedPassword");
+    zkAlias.addAliasForCluster(clusterName, "knox.test.alias.token", "tokenPassword");
+
+    final RemoteConfigurationRegistryClientService clientService = createClientService();
+    final ZookeeperRemoteAliasService otherZkAlias = createStartedService(clientService, options);
+    Assert.assertEquals("loadedPassword", new String(otherZkAlias.getPasswordFromAliasForCluster(clusterName, "knox.test.alias.loaded")));
+    Assert.assertEquals("tokenPassword", new String(otherZkAlias.getPasswordFromAliasForCluster(clusterName, "knox.test.alias.token")));
+
+    // A miss is answered from the loaded view, without creating the token sub-nodes for the alias
+    Assert.assertNull(otherZkAlias.getPasswordFromAliasForCluster(clusterName, "zz.missing.alias"));
+    final RemoteConfigurationRegistryClient client = clientService.get(gc.getRemoteConfigurationMonitorClientName());
+    Assert.assertFalse(client.entryExists(ZookeeperRemoteAliasService.PATH_KNOX_ALIAS_STORE_TOPOLOGY + "/" + clusterName
+        + ZookeeperRemoteAliasService.TOKENS_SUB_NODE_PATH + "/zz"));
+
+    zkAlias.stop();
+    otherZkAlias.stop();
+  }
+
+  private static ZookeeperRemoteAliasService createStartedService() throws Exception {
+    return createStartedService(Collections.emptyMap());
+  }
+
+  private static ZookeeperRemoteAliasService createStartedService(Map<String, String> options) throws Exception {
+    return createStartedService(createClientService(), options);
+  }
+
+  private static RemoteConfigurationRegistryClientService createClientService() throws Exception {
+    final DefaultAliasService defaultAlias = EasyMock.createNiceMock(DefaultAliasService.class);
+    EasyMock.replay(defaultAlias);
+
+    RemoteConfigurationRegistryClientService clientService = (new ZooKeeperClientServiceProvider()).newInstance();
+    clientService.setAliasService(defaultAlias);
+    clientService.init(gc, Collections.emptyMap());
+    return clientService;
+  }
+
+  private static ZookeeperRemoteAliasService createStartedService(RemoteConfigurationRegistryClientService clientService,
+                                                                  Map<String, String> options) throws Exception {
+    final DefaultAliasService defaultAlias = EasyMock.createNiceMock(DefaultAliasService.class);
+    EasyMock.replay(defaultAlias);
+
+    final DefaultMasterService ms = EasyMock.createNiceMock(DefaultMasterService.class);
+    EasyMock.expect(ms.getMasterSecret()).andReturn("knox".toCharArray()).anyTimes();
+    EasyMock.replay(ms);
+
+    final ZookeeperRemoteAliasService zkAlias = new ZookeeperRemoteAliasService(defaultAlias, ms, clientService);
+    zkAlias.init(gc, options);
+    zkAlias.start();
+    return zkAlias;
+  }
+
+  private static boolean waitForPassword(ZookeeperRemoteAliasService zkAlias, String clusterName, String alias,
+                                         String expectedPassword) throws Exception {
+    final long timeout = System.currentTimeMillis() + 10000L;
+    while (System.currentTimeMillis() < timeout) {
+      final char[] password = zkAlias.getPasswordFromAliasForCluster(clusterName, alias);
+      if (expectedPassword == null ? password == null : password != null && expectedPassword.equals(new String(password))) {
+        return true;
+      }
+      Thread.sleep(100);
+    }
+    return false;
+  }
+
   @Test
   @Ignore("should be executed manually in case you'd like to measure how much time alias addition/fetch takes")
   public void testPerformance() throws Exception {
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.topology.monitor;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.monitor.FileAlterationListenerAdaptor;
+import org.apache.commons.io.monitor.FileAlterationObserver;
+import org.apache.knox.test.TestUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class WatchingFileAlterationMonitorTest {
+
+  @Rule
+  public final TemporaryFolder testFolder = new TemporaryFolder();
+
+  @Test(timeout = TestUtils.MEDIUM_TIMEOUT)
+  public void testBurstOfChangesIsNotified() throws Exception {
+    final File dir = testFolder.newFolder("topologies");
+    final RecordingListener listener = new RecordingListener();
+    final AtomicInteger notifications = new AtomicInteger();
+    final WatchingFileAlterationMonitor monitor = createMonitor(dir, listener, notifications);
+
+    monitor.start();
+    try {
+      for (int i = 0; i < 5; i++) {
+        FileUtils.writeStringToFile(new File(dir, "topology" + i + ".xml"), "<topology/>", StandardCharsets.UTF_8);
+      }
+      awaitCreated(listener, 5);
+      assertTrue(notifications.get() >= 1);
+      assertTrue(notifications.get() <= 5);
+
+      FileUtils.forceDelete(new File(dir, "topology0.xml"));
+      while (!listener.deleted.contains("topology0.xml")) {
+        TimeUnit.MILLISECONDS.sleep(50);
+      }
+    } finally {
+      monitor.stop();
+    }
+    assertEquals(5, listener.created.size());
+  }
+
+  @Test(timeout = TestUtils.MEDIUM_TIMEOUT)
+  public void testMissingDirectoryIsPolledUntilCreated() throws Exception {
+    final File dir = new File(testFolder.getRoot(), "descriptors");
+    final RecordingListener listener = new RecordingListener();
+    final WatchingFileAlterationMonitor monitor = createMonitor(dir, listener, new AtomicInteger());
+
+    monitor.start();
+    try {
+      FileUtils.forceMkdir(dir);
+      FileUtils.writeStringToFile(new File(dir, "first.json"), "{}", StandardCharsets.UTF_8);
+      awaitCreated(listener, 1);
+
+      // Once the directory exists, it is expected to be watched as well
+      FileUtils.writeStringToFile(new File(dir, "second.json"), "{}", StandardCharsets.UTF_8);
+      awaitCreated(listener, 2);
+    } finally {
+      monitor.stop();
+    }
+  }
+
+  @Test(timeout = TestUtils.MEDIUM_TIMEOUT)
+  public void testPollingWhenWatchingIsDisabled() throws Exception {
+    final File dir = testFolder.newFolder("providers");
+    final RecordingListener listener = new RecordingListener();
+    final FileAlterationObserver observer = new FileAlterationObserver(dir);
+    observer.addListener(listener);
+    final WatchingFileAlterationMonitor monitor = new WatchingFileAlterationMonitor("test", 200L, 100L, false, null);
+    monitor.addObserver(observer);
+
+    monitor.start();
+    try {
+      assertFalse(monitor.isWatching());
+      FileUtils.writeStringToFile(new File(dir, "providers.json"), "{}", StandardCharsets.UTF_8);
+      awaitCreated(listener, 1);
+    } finally {
+      monitor.stop();
+    }
+  }
+
+  private WatchingFileAlterationMonitor createMonitor(File dir, RecordingListener listener, AtomicInteger notifications) {
+    final FileAlterationObserver observer = new FileAlterationObserver(dir);
+    observer.addListener(listener);
+    final WatchingFileAlterationMonitor monitor =
+        new WatchingFileAlterationMonitor("test", 200L, 100L, nanos -> notifications.incrementAndGet());
+    monitor.addObserver(observer);
+    return monitor;
+  }
+
+  private static void awaitCreated(RecordingListener listener, int count) throws InterruptedException {
+    while (listener.created.size() < count) {
+      TimeUnit.MILLISECONDS.sleep(50);
+    }
+  }
+
+  private static class RecordingListener extends FileAlterationListenerAdaptor {
+    final Set<String> created = ConcurrentHashMap.newKeySet();
+    final Set<String> deleted = ConcurrentHashMap.newKeySet();
+
+    @Override
+    public void onFileCreate(File file) {
+      created.add(file.getName());
+    }
+
+    @Override
+    public void onFileDelete(File file) {
+      deleted.add(file.getName());
+    }
+  }
+}
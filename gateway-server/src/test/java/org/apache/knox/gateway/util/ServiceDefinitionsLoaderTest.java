@@ -17,20 +17,28 @@
  */
 package org.apache.knox.gateway.util;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.knox.gateway.deploy.ServiceDeploymentContributor;
 import org.apache.knox.gateway.service.definition.ServiceDefinition;
 import org.apache.knox.gateway.service.definition.ServiceDefinitionComparator;
+import org.apache.knox.gateway.service.definition.ServiceDefinitionPair;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
 public class ServiceDefinitionsLoaderTest {
 
+  @Rule
+  public final TemporaryFolder testFolder = new TemporaryFolder();
+
   @Test
   public void testServiceDefinitionLoading() {
     final List<String> barVersions = Arrays.asList("1.0.0", "2.0.0");
@@ -57,4 +65,30 @@ public class ServiceDefinitionsLoaderTest {
     final Set<ServiceDefinition> serviceDefinitions = ServiceDefinitionsLoader.getServiceDefinitions(new File(url.getFile()));
     Assert.assertTrue(CollectionUtils.isSorted(serviceDefinitions, new ServiceDefinitionComparator()));
   }
+
+  @Test
+  public void shouldReuseUnchangedServiceDefinitions() throws Exception {
+    final File servicesDir = testFolder.newFolder("services");
+    FileUtils.copyDirectory(new File(ClassLoader.getSystemResource("services").getFile()), servicesDir);
+    ServiceDefinitionsLoader.clearCache();
+
+    final Set<ServiceDefinitionPair> first = ServiceDefinitionsLoader.loadServiceDefinitions(servicesDir);
+    final Set<ServiceDefinitionPair> second = ServiceDefinitionsLoader.loadServiceDefinitions(servicesDir);
+    Assert.assertEquals(2, second.size());
+    Assert.assertSame(findService(first, "foo").getService(), findService(second, "foo").getService());
+    Assert.assertSame(findService(first, "foo").getRewriteRules(), findService(second, "foo").getRewriteRules());
+
+    final File barFile = new File(servicesDir, "bar/2.0.0/service.xml");
+    FileUtils.writeStringToFile(barFile,
+        "<service role=\"BAR\" name=\"bar\" version=\"2.0.0\"><routes><route path=\"/baz/?**\"/></routes></service>",
+        StandardCharsets.UTF_8);
+    final Set<ServiceDefinitionPair> third = ServiceDefinitionsLoader.loadServiceDefinitions(servicesDir);
+    Assert.assertSame(findService(first, "foo").getService(), findService(third, "foo").getService());
+    Assert.assertNotSame(findService(first, "bar").getService(), findService(third, "bar").getService());
+    Assert.assertEquals("/baz/?**", findService(third, "bar").getService().getRoutes().get(0).getPath());
+  }
+
+  private static ServiceDefinitionPair findService(Set<ServiceDefinitionPair> serviceDefinitions, String name) {
+    return serviceDefinitions.stream().filter(pair -> name.equals(pair.getService().getName())).findFirst().orElse(null);
+  }
 }
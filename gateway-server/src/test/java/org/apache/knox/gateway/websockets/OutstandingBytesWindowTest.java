@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OutstandingBytesWindowTest {
+
+  @Test
+  public void testMessageLargerThanWindowIsAdmittedWhenEmpty() throws Exception {
+    final OutstandingBytesWindow window = new OutstandingBytesWindow(10, 100);
+    window.acquire(25);
+    assertEquals(25, window.getOutstanding());
+    window.release(25);
+    assertEquals(0, window.getOutstanding());
+  }
+
+  @Test
+  public void testAcquireTimesOutWhenWindowIsFull() throws Exception {
+    final OutstandingBytesWindow window = new OutstandingBytesWindow(10, 100);
+    window.acquire(8);
+    try {
+      window.acquire(5);
+      fail("Expected the window to be full");
+    } catch (IOException e) {
+      assertEquals(8, window.getOutstanding());
+    }
+  }
+
+  @Test(timeout = 5000)
+  public void testReleaseUnblocksSender() throws Exception {
+    final OutstandingBytesWindow window = new OutstandingBytesWindow(10, 0);
+    window.acquire(8);
+
+    final CountDownLatch sent = new CountDownLatch(1);
+    final Thread sender = new Thread(() -> {
+      try {
+        window.acquire(5);
+        sent.countDown();
+      } catch (IOException e) {
+        // test fails on the latch
+      }
+    });
+    sender.start();
+
+    assertEquals(1, sent.getCount());
+    window.release(8);
+    assertTrue(sent.await(4, TimeUnit.SECONDS));
+    assertEquals(5, window.getOutstanding());
+  }
+
+  @Test
+  public void testDisabledWindow() throws Exception {
+    final OutstandingBytesWindow window = new OutstandingBytesWindow(0, 100);
+    window.acquire(Long.MAX_VALUE / 2);
+    window.acquire(Long.MAX_VALUE / 2);
+    assertEquals(0, window.getOutstanding());
+  }
+}
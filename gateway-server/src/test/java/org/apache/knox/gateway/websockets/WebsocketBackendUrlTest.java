@@ -88,4 +88,36 @@ public class WebsocketBackendUrlTest extends WebsocketEchoTestBase {
     String expectedBackendUrl = backendServerUri.toString() + pathContext;
     assertThat(backendUrl, is(expectedBackendUrl));
   }
+
+  /*
+   * Test that cached backend urls do not leak the query string of earlier requests
+   */
+  @Test
+  public void testCachedWebsocketBackendUrlKeepsQueryParams() throws Exception {
+    GatewayWebsocketHandler gwh = new GatewayWebsocketHandler(gatewayConfig, services);
+    URI requestURI = new URI(serverUri.toString() + "gateway/websocket/123foo456bar/channels?session=1");
+    assertThat(gwh.getMatchedBackendURL(requestURI), is(backendServerUri.toString() + "channels?session=1"));
+
+    requestURI = new URI(serverUri.toString() + "gateway/websocket/123foo456bar/channels?session=2");
+    assertThat(gwh.getMatchedBackendURL(requestURI), is(backendServerUri.toString() + "channels?session=2"));
+
+    requestURI = new URI(serverUri.toString() + "gateway/websocket/123foo456bar/channels");
+    assertThat(gwh.getMatchedBackendURL(requestURI), is(backendServerUri.toString() + "channels"));
+  }
+
+  /*
+   * Test that the cached backend url of a service is combined with the path of each request
+   */
+  @Test
+  public void testCachedWebsocketBackendUrlKeepsRequestPath() throws Exception {
+    GatewayWebsocketHandler gwh = new GatewayWebsocketHandler(gatewayConfig, services);
+    URI requestURI = new URI(serverUri.toString() + "gateway/websocket/123foo456bar/api/kernels/1/channels?session=1");
+    assertThat(gwh.getMatchedBackendURL(requestURI), is(backendServerUri.toString() + "api/kernels/1/channels?session=1"));
+
+    requestURI = new URI(serverUri.toString() + "gateway/websocket/123foo456bar/api/kernels/2/channels?session=2");
+    assertThat(gwh.getMatchedBackendURL(requestURI), is(backendServerUri.toString() + "api/kernels/2/channels?session=2"));
+
+    requestURI = new URI(serverUri.toString() + "gateway/websocket/123foo456bar");
+    assertThat(gwh.getMatchedBackendURL(requestURI), is(backendServerUri.toString()));
+  }
 }
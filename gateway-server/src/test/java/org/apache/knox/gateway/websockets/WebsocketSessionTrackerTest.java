@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.websockets;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import org.easymock.EasyMock;
+import org.eclipse.jetty.websocket.api.WebSocketException;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.eclipse.jetty.websocket.common.WebSocketRemoteEndpoint;
+import org.eclipse.jetty.websocket.common.frames.PingFrame;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class WebsocketSessionTrackerTest {
+
+  @Test
+  public void testCheckPeriod() {
+    assertEquals(0, WebsocketSessionTracker.getCheckPeriod(0, 0));
+    assertEquals(30000, WebsocketSessionTracker.getCheckPeriod(30000, 0));
+    assertEquals(75000, WebsocketSessionTracker.getCheckPeriod(0, 300000));
+    assertEquals(30000, WebsocketSessionTracker.getCheckPeriod(30000, 300000));
+    assertEquals(1000, WebsocketSessionTracker.getCheckPeriod(0, 2000));
+  }
+
+  @Test
+  public void testServiceMetricsAreSharedPerService() {
+    final MetricRegistry registry = new MetricRegistry();
+    final WebsocketSessionTracker tracker = new WebsocketSessionTracker(registry, 0, 0);
+
+    final WebsocketSessionTracker.ServiceMetrics metrics = tracker.getServiceMetrics("sandbox", "ZEPPELINWS");
+    assertSame(metrics, tracker.getServiceMetrics("sandbox", "ZEPPELINWS"));
+
+    final ProxyWebSocketAdapter session = EasyMock.createMock(ProxyWebSocketAdapter.class);
+    metrics.openSessions.add(session);
+    metrics.openSessions.add(session);
+    metrics.onFrontendMessage(10);
+    metrics.onFrontendMessage(5);
+    metrics.onBackendMessage(7);
+
+    final Gauge<?> open = registry.getGauges().get("websocket.sandbox.ZEPPELINWS.sessions.open");
+    assertEquals(1, open.getValue());
+    assertTrue(registry.getCounters().keySet().stream().noneMatch(name -> name.endsWith("sessions.open")));
+    assertEquals(2, registry.counter("websocket.sandbox.ZEPPELINWS.frontend.messages").getCount());
+    assertEquals(15, registry.counter("websocket.sandbox.ZEPPELINWS.frontend.bytes").getCount());
+    assertEquals(1, registry.counter("websocket.sandbox.ZEPPELINWS.backend.messages").getCount());
+    assertEquals(7, registry.counter("websocket.sandbox.ZEPPELINWS.backend.bytes").getCount());
+    assertTrue(registry.getTimers().containsKey("websocket.sandbox.ZEPPELINWS.backend.connect"));
+
+    tracker.getServiceMetrics("other", "ZEPPELINWS");
+    assertEquals(0, registry.getGauges().get("websocket.other.ZEPPELINWS.sessions.open").getValue());
+
+    metrics.openSessions.remove(session);
+    metrics.openSessions.remove(session);
+    assertEquals(0, open.getValue());
+  }
+
+  @Test
+  public void testFailingSessionDoesNotStopTheChecks() {
+    final WebsocketSessionTracker tracker = new WebsocketSessionTracker(null, 30000, 0);
+
+    final ProxyWebSocketAdapter failing = EasyMock.createMock(ProxyWebSocketAdapter.class);
+    failing.sendKeepalive();
+    EasyMock.expectLastCall().andThrow(new WebSocketException("Session closed")).times(2);
+    EasyMock.expect(failing.getBackend()).andReturn(URI.create("ws://localhost:8888/failing")).times(2);
+
+    final ProxyWebSocketAdapter healthy = EasyMock.createMock(ProxyWebSocketAdapter.class);
+    healthy.sendKeepalive();
+    EasyMock.expectLastCall().times(2);
+    EasyMock.replay(failing, healthy);
+
+    tracker.register(failing);
+    tracker.register(healthy);
+    tracker.checkSessions();
+    tracker.checkSessions();
+
+    EasyMock.verify(failing, healthy);
+  }
+
+  @Test
+  public void testKeepaliveDoesNotWaitForTheFrontendPing() {
+    final WebSocketRemoteEndpoint remote = EasyMock.createMock(WebSocketRemoteEndpoint.class);
+    remote.uncheckedSendFrame(EasyMock.anyObject(PingFrame.class), EasyMock.anyObject(WriteCallback.class));
+    EasyMock.expectLastCall().once();
+    final ProxyWebSocketAdapter session = EasyMock.createMockBuilder(ProxyWebSocketAdapter.class)
+        .addMockedMethod("getRemote").createMock();
+    EasyMock.expect(session.getRemote()).andReturn(remote).anyTimes();
+    EasyMock.replay(remote, session);
+
+    // the blocking sendPing is not expected
+    session.sendKeepalive();
+
+    EasyMock.verify(remote);
+  }
+
+  @Test
+  public void testStopCancelsTheChecks() {
+    final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+    scheduler.setRemoveOnCancelPolicy(true);
+    try {
+      final WebsocketSessionTracker tracker = new WebsocketSessionTracker(null, 30000, 0);
+      tracker.start(scheduler);
+      assertEquals(1, scheduler.getQueue().size());
+
+      tracker.stop();
+      assertTrue(scheduler.getQueue().isEmpty());
+    } finally {
+      scheduler.shutdownNow();
+    }
+  }
+}
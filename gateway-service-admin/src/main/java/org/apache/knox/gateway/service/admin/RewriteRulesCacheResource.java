@@ -0,0 +1,114 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.knox.gateway.service.admin;
+
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
+import static javax.ws.rs.core.MediaType.APPLICATION_XML;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.apache.knox.gateway.filter.rewrite.impl.UrlRewriteRulesDescriptorCache;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+
+@Api(value = "rewriteRulesCache",  description = "The Knox Admin API to inspect the rewrite rules shared between topologies.")
+@Path("/api/v1")
+public class RewriteRulesCacheResource {
+
+  @ApiOperation(value="Get the rewrite rules cache statistics", notes="Get the number and estimated size of the rewrite rules shared between the deployed topologies", response=RewriteRulesCacheWrapper.class)
+  @GET
+  @Produces({ APPLICATION_JSON, APPLICATION_XML })
+  @Path("rewriterules/cache")
+  public RewriteRulesCacheWrapper getRewriteRulesCache() {
+    return new RewriteRulesCacheWrapper(UrlRewriteRulesDescriptorCache.getStatistics());
+  }
+
+  @XmlRootElement(name = "rewriteRulesCache")
+  @XmlAccessorType(XmlAccessType.NONE)
+  public static class RewriteRulesCacheWrapper {
+
+    @XmlElement
+    private final int descriptors;
+
+    @XmlElement
+    private final int rules;
+
+    @XmlElement
+    private final int filters;
+
+    @XmlElement
+    private final long estimatedBytes;
+
+    @XmlElement
+    private final long hits;
+
+    @XmlElement
+    private final long misses;
+
+    // having a no-argument constructor is required by JAXB
+    public RewriteRulesCacheWrapper() {
+      this(0, 0, 0, 0L, 0L, 0L);
+    }
+
+    RewriteRulesCacheWrapper(UrlRewriteRulesDescriptorCache.Statistics statistics) {
+      this(statistics.getDescriptors(), statistics.getRules(), statistics.getFilters(),
+          statistics.getEstimatedBytes(), statistics.getHits(), statistics.getMisses());
+    }
+
+    private RewriteRulesCacheWrapper(int descriptors, int rules, int filters, long estimatedBytes, long hits, long misses) {
+      this.descriptors = descriptors;
+      this.rules = rules;
+      this.filters = filters;
+      this.estimatedBytes = estimatedBytes;
+      this.hits = hits;
+      this.misses = misses;
+    }
+
+    public int getDescriptors() {
+      return descriptors;
+    }
+
+    public int getRules() {
+      return rules;
+    }
+
+    public int getFilters() {
+      return filters;
+    }
+
+    public long getEstimatedBytes() {
+      return estimatedBytes;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+  }
+}
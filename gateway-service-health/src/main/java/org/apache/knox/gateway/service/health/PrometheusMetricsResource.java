@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.service.health;
+
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+import org.apache.knox.gateway.services.GatewayServices;
+import org.apache.knox.gateway.services.ServiceType;
+import org.apache.knox.gateway.services.metrics.MetricsService;
+import org.apache.knox.gateway.services.metrics.impl.reporters.PrometheusExporter;
+import org.apache.knox.gateway.services.metrics.impl.reporters.PrometheusMetricsReporter;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.Response;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static javax.ws.rs.core.MediaType.TEXT_PLAIN;
+
+/**
+ * Exposes the gateway metrics in the Prometheus text format, or in the
+ * OpenMetrics format when the scraper accepts it. Requires the Prometheus
+ * metrics reporter to be enabled.
+ */
+@Path(PrometheusMetricsResource.RESOURCE_PATH)
+public class PrometheusMetricsResource {
+  static final String RESOURCE_PATH = MetricsResource.RESOURCE_PATH + "/prometheus";
+  static final String OPENMETRICS_MEDIA_TYPE = "application/openmetrics-text";
+  private static final HealthServiceMessages log = MessagesFactory.get(HealthServiceMessages.class);
+  private static final int BUFFER_SIZE = 8192;
+
+  @Context
+  private HttpServletRequest request;
+
+  @Context
+  private HttpServletResponse response;
+
+  @Context
+  ServletContext context;
+
+  @GET
+  @Produces({OPENMETRICS_MEDIA_TYPE, TEXT_PLAIN})
+  public Response doGet() {
+    final PrometheusExporter exporter = getExporter();
+    if (exporter == null) {
+      return Response.status(Response.Status.NOT_FOUND)
+          .entity("Prometheus metrics reporting is not enabled").type(TEXT_PLAIN).build();
+    }
+    final boolean openMetrics = acceptsOpenMetrics(request.getHeader("Accept"));
+    try {
+      response.setStatus(HttpServletResponse.SC_OK);
+      response.setContentType(openMetrics ? PrometheusExporter.OPENMETRICS_CONTENT_TYPE : PrometheusExporter.PROMETHEUS_CONTENT_TYPE);
+      response.setHeader("Cache-Control", "must-revalidate,no-cache,no-store");
+      try (Writer writer = new BufferedWriter(
+          new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+        exporter.write(writer, openMetrics);
+      }
+    } catch (IOException ioe) {
+      log.logException("prometheus metrics", ioe);
+      return Response.serverError().entity(String.format(Locale.ROOT, "Failed to reply correctly due to : %s ", ioe)).build();
+    }
+    return Response.ok().build();
+  }
+
+  static boolean acceptsOpenMetrics(String accept) {
+    return accept != null && accept.toLowerCase(Locale.ROOT).contains(OPENMETRICS_MEDIA_TYPE);
+  }
+
+  private PrometheusExporter getExporter() {
+    final GatewayServices services = (GatewayServices) context.getAttribute(GatewayServices.GATEWAY_SERVICES_ATTRIBUTE);
+    if (services == null) {
+      return null;
+    }
+    final MetricsService metricsService = services.getService(ServiceType.METRICS_SERVICE);
+    if (metricsService == null || metricsService.getContext() == null) {
+      return null;
+    }
+    final Object exporter = metricsService.getContext().getProperty(PrometheusMetricsReporter.EXPORTER);
+    return exporter instanceof PrometheusExporter ? (PrometheusExporter) exporter : null;
+  }
+}
@@ -19,8 +19,8 @@ package org.apache.knox.gateway.rm.dispatch;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.knox.gateway.dispatch.DefaultDispatch;
+import org.apache.knox.gateway.dispatch.ResponseBodyClassifier;
 import org.apache.knox.gateway.filter.AbstractGatewayFilter;
 import org.apache.knox.gateway.ha.provider.HaProvider;
 import org.apache.knox.gateway.ha.provider.impl.HaServiceConfigConstants;
@@ -29,16 +29,17 @@ import org.apache.knox.gateway.rm.i18n.RMMessages;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.concurrent.atomic.AtomicInteger;
 
 class  RMHaBaseDispatcher extends DefaultDispatch {
     private static final String FAILOVER_COUNTER_ATTRIBUTE = "dispatch.ha.failover.counter";
     private static final String LOCATION = "Location";
     private static final RMMessages LOG = MessagesFactory.get(RMMessages.class);
+    private static final ResponseBodyClassifier<Boolean> STANDBY_CLASSIFIER =
+        new ResponseBodyClassifier<>(Collections.singletonMap("This is standby RM", Boolean.TRUE));
     private int maxFailoverAttempts = HaServiceConfigConstants.DEFAULT_MAX_FAILOVER_ATTEMPTS;
     private int failoverSleep = HaServiceConfigConstants.DEFAULT_FAILOVER_SLEEP;
     private String resourceRole;
@@ -101,12 +102,7 @@ class  RMHaBaseDispatcher extends DefaultDispatch {
     protected void writeOutboundResponse(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse, HttpResponse inboundResponse) throws IOException {
        int status = inboundResponse.getStatusLine().getStatusCode();
        if ( status  == 403 || status == 307) {
-          BufferedHttpEntity entity = new BufferedHttpEntity(inboundResponse.getEntity());
-          inboundResponse.setEntity(entity);
-          ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-          inboundResponse.getEntity().writeTo(outputStream);
-          String body = new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
-          if (body.contains("This is standby RM")) {
+          if (STANDBY_CLASSIFIER.classify(inboundResponse, getResponseClassifierLimit()) != null) {
              throw new StandbyException();
           }
        }
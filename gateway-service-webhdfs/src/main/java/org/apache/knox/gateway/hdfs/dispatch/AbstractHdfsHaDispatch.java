@@ -20,8 +20,8 @@ package org.apache.knox.gateway.hdfs.dispatch;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
-import org.apache.http.entity.BufferedHttpEntity;
 import org.apache.knox.gateway.config.Configure;
+import org.apache.knox.gateway.dispatch.ResponseBodyClassifier;
 import org.apache.knox.gateway.filter.AbstractGatewayFilter;
 import org.apache.knox.gateway.ha.provider.HaProvider;
 import org.apache.knox.gateway.ha.provider.HaServiceConfig;
@@ -32,16 +32,17 @@ import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public abstract class AbstractHdfsHaDispatch extends HdfsHttpClientDispatch {
 
   private static final String FAILOVER_COUNTER_ATTRIBUTE = "dispatch.ha.failover.counter";
   private static final WebHdfsMessages LOG = MessagesFactory.get(WebHdfsMessages.class);
+  private static final ResponseBodyClassifier<Class<? extends RuntimeException>> CLASSIFIER = createClassifier();
   private int maxFailoverAttempts = HaServiceConfigConstants.DEFAULT_MAX_FAILOVER_ATTEMPTS;
   private int failoverSleep = HaServiceConfigConstants.DEFAULT_FAILOVER_SLEEP;
   private HaProvider haProvider;
@@ -95,21 +96,26 @@ public abstract class AbstractHdfsHaDispatch extends HdfsHttpClientDispatch {
   @Override
   protected void writeOutboundResponse(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse, HttpResponse inboundResponse) throws IOException {
       if (inboundResponse.getStatusLine().getStatusCode() == 403) {
-         BufferedHttpEntity entity = new BufferedHttpEntity(inboundResponse.getEntity());
-         inboundResponse.setEntity(entity);
-         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-         inboundResponse.getEntity().writeTo(outputStream);
-         String body = new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
-         if (body.contains("StandbyException")) {
+         Class<? extends RuntimeException> exception = CLASSIFIER.classify(inboundResponse, getResponseClassifierLimit());
+         if (exception == StandbyException.class) {
             throw new StandbyException();
          }
-         if (body.contains("SafeModeException") || body.contains("RetriableException")) {
+         if (exception == SafeModeException.class) {
             throw new SafeModeException();
          }
       }
       super.writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
    }
 
+  /* Markers in order of precedence: a standby name node is failed over from even if it also reports safe mode */
+  private static ResponseBodyClassifier<Class<? extends RuntimeException>> createClassifier() {
+    Map<String, Class<? extends RuntimeException>> markers = new LinkedHashMap<>();
+    markers.put("StandbyException", StandbyException.class);
+    markers.put("SafeModeException", SafeModeException.class);
+    markers.put("RetriableException", SafeModeException.class);
+    return new ResponseBodyClassifier<>(markers);
+  }
+
   private void failoverRequest(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse, HttpResponse inboundResponse, Exception exception) throws IOException {
       LOG.failedToConnectTo(outboundRequest.getURI().toString());
       AtomicInteger counter = (AtomicInteger) inboundRequest.getAttribute(FAILOVER_COUNTER_ATTRIBUTE);
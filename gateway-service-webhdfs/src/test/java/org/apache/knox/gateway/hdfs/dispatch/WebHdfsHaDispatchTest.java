@@ -23,10 +23,14 @@ import org.apache.knox.gateway.ha.provider.HaServletContextListener;
 import org.apache.knox.gateway.ha.provider.impl.DefaultHaProvider;
 import org.apache.knox.gateway.ha.provider.impl.HaDescriptorFactory;
 import org.apache.knox.gateway.servlet.SynchronousServletOutputStreamAdapter;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
 import org.apache.http.client.methods.HttpRequestBase;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.message.BasicHttpResponse;
 import org.apache.http.params.BasicHttpParams;
 import org.easymock.EasyMock;
 import org.easymock.IAnswer;
@@ -39,6 +43,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -105,4 +110,20 @@ public class WebHdfsHaDispatchTest {
       //test to make sure the sleep took place
       Assert.assertTrue(elapsedTime > 1000);
    }
+
+   @Test
+   public void testStandbyTakesPrecedenceOverSafeMode() throws Exception {
+      String body = "RetriableException: org.apache.hadoop.hdfs.server.namenode.SafeModeException: "
+          + "Name node is in safe mode. Caused by StandbyException";
+      HttpResponse inboundResponse = new BasicHttpResponse(HttpVersion.HTTP_1_1, 403, "Forbidden");
+      inboundResponse.setEntity(new StringEntity(body, StandardCharsets.UTF_8));
+
+      AbstractHdfsHaDispatch dispatch = new WebHdfsHaDispatch();
+      try {
+         dispatch.writeOutboundResponse(null, null, null, inboundResponse);
+         Assert.fail("Expected a StandbyException");
+      } catch (StandbyException e) {
+         // a standby name node is failed over from, whatever else the body mentions
+      }
+   }
 }
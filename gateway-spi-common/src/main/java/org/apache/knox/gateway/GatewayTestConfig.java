@@ -49,6 +49,9 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
   public static final int DEFAULT_WEBSOCKET_ASYNC_WRITE_TIMEOUT = 60000;
   public static final int DEFAULT_WEBSOCKET_IDLE_TIMEOUT = 300000;
   public static final int DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_COUNT = 100;
+  public static final long DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_BYTES = 4L * 1024 * 1024;
+  public static final long DEFAULT_WEBSOCKET_MAX_OUTSTANDING_BYTES = 1024L * 1024;
+  public static final int DEFAULT_WEBSOCKET_THREAD_POOL_SIZE = 10;
 
   private Path gatewayHomePath = Paths.get("gateway-home");
   private String hadoopConfDir = "hadoop";
@@ -72,6 +75,11 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
   private boolean isTopologyPortMappingEnabled = true;
   private ConcurrentMap<String, Integer> topologyPortMapping = new ConcurrentHashMap<>();
   private int backupVersionLimit = -1;
+  private int deploymentThreads = 1;
+  private boolean inMemoryDeploymentEnabled;
+  private boolean incrementalDeploymentEnabled = true;
+  private boolean topologyMonitorWatchServiceEnabled = true;
+  private long topologyMonitorDebounceInterval = 500L;
   private long backupAgeLimit = -1;
 
   public GatewayTestConfig(Properties props) {
@@ -460,6 +468,51 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return backupVersionLimit;
   }
 
+  public void setGatewayDeploymentThreads( int deploymentThreads ) {
+    this.deploymentThreads = deploymentThreads;
+  }
+
+  @Override
+  public int getGatewayDeploymentThreads() {
+    return deploymentThreads;
+  }
+
+  public void setGatewayInMemoryDeploymentEnabled( boolean inMemoryDeploymentEnabled ) {
+    this.inMemoryDeploymentEnabled = inMemoryDeploymentEnabled;
+  }
+
+  @Override
+  public boolean isGatewayInMemoryDeploymentEnabled() {
+    return inMemoryDeploymentEnabled;
+  }
+
+  public void setGatewayIncrementalDeploymentEnabled( boolean incrementalDeploymentEnabled ) {
+    this.incrementalDeploymentEnabled = incrementalDeploymentEnabled;
+  }
+
+  @Override
+  public boolean isGatewayIncrementalDeploymentEnabled() {
+    return incrementalDeploymentEnabled;
+  }
+
+  public void setTopologyMonitorWatchServiceEnabled( boolean topologyMonitorWatchServiceEnabled ) {
+    this.topologyMonitorWatchServiceEnabled = topologyMonitorWatchServiceEnabled;
+  }
+
+  @Override
+  public boolean isTopologyMonitorWatchServiceEnabled() {
+    return topologyMonitorWatchServiceEnabled;
+  }
+
+  public void setTopologyMonitorDebounceInterval( long topologyMonitorDebounceInterval ) {
+    this.topologyMonitorDebounceInterval = topologyMonitorDebounceInterval;
+  }
+
+  @Override
+  public long getTopologyMonitorDebounceInterval() {
+    return topologyMonitorDebounceInterval;
+  }
+
   public void setTopologyPortMapping(ConcurrentMap<String, Integer> topologyPortMapping) {
     this.topologyPortMapping = topologyPortMapping;
   }
@@ -565,6 +618,31 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_COUNT;
   }
 
+  @Override
+  public long getWebsocketMaxWaitBufferBytes() {
+    return DEFAULT_WEBSOCKET_MAX_WAIT_BUFFER_BYTES;
+  }
+
+  @Override
+  public long getWebsocketMaxOutstandingBytes() {
+    return DEFAULT_WEBSOCKET_MAX_OUTSTANDING_BYTES;
+  }
+
+  @Override
+  public long getWebsocketKeepaliveInterval() {
+    return 0L;
+  }
+
+  @Override
+  public long getWebsocketIdleReapTimeout() {
+    return 0L;
+  }
+
+  @Override
+  public int getWebsocketThreadPoolSize() {
+    return DEFAULT_WEBSOCKET_THREAD_POOL_SIZE;
+  }
+
   @Override
   public boolean isMetricsEnabled() {
     return false;
@@ -595,6 +673,16 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return 0;
   }
 
+  @Override
+  public boolean isPrometheusMetricsReportingEnabled() {
+    return false;
+  }
+
+  @Override
+  public List<String> getPrometheusMetricsAllowlist() {
+    return Collections.emptyList();
+  }
+
   @Override
   public  boolean isCookieScopingToPathEnabled() {
     return false;
@@ -805,6 +893,11 @@ public class GatewayTestConfig extends Configuration implements GatewayConfig {
     return -1;
   }
 
+  @Override
+  public int getClouderaManagerServiceDiscoveryThreads() {
+    return DEFAULT_CM_SERVICE_DISCOVERY_THREADS;
+  }
+
   @Override
   public boolean isServerManagedTokenStateEnabled() {
     return false;
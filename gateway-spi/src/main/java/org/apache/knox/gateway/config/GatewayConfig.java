@@ -113,6 +113,8 @@ public interface GatewayConfig {
 
   int DEFAULT_CM_SERVICE_DISCOVERY_MAX_RETRY_ATTEMPTS = 3;
 
+  int DEFAULT_CM_SERVICE_DISCOVERY_THREADS = 8;
+
   /**
    * The location of the gateway configuration.
    * Subdirectories will be: topologies
@@ -269,6 +271,36 @@ public interface GatewayConfig {
 
   long getGatewayDeploymentsBackupAgeLimit();
 
+  /**
+   * @return the number of threads used to generate topology deployments concurrently
+   * at startup and when several topologies are redeployed at once; 1 deploys them one at a time
+   */
+  int getGatewayDeploymentThreads();
+
+  /**
+   * @return true if topologies without applications should be deployed straight from memory
+   * instead of being exported to the deployment directory
+   */
+  boolean isGatewayInMemoryDeploymentEnabled();
+
+  /**
+   * @return true if an in-memory topology whose services changed should only have the
+   * chains of those services rebuilt instead of being redeployed as a whole
+   */
+  boolean isGatewayIncrementalDeploymentEnabled();
+
+  /**
+   * @return true if the local topology, descriptor and shared provider configuration directories
+   * should be monitored with file system notifications instead of being polled
+   */
+  boolean isTopologyMonitorWatchServiceEnabled();
+
+  /**
+   * @return the number of milliseconds without further file system notifications the topology
+   * monitor waits for before processing a burst of changes
+   */
+  long getTopologyMonitorDebounceInterval();
+
   long getGatewayIdleTimeout();
 
   /**
@@ -412,6 +444,45 @@ public interface GatewayConfig {
    */
   int getWebsocketMaxWaitBufferCount();
 
+  /**
+   * Max size of the messages that can be temporarily buffered in memory before a connection is properly setup,
+   * a non-positive value means the buffer is only bounded by {@link #getWebsocketMaxWaitBufferCount()}.
+   * @since 2.0.0
+   * @return buffer size in bytes
+   */
+  long getWebsocketMaxWaitBufferBytes();
+
+  /**
+   * Max size of the asynchronous writes that may be outstanding on a proxied websocket connection, in each
+   * direction, before reading from the other side is paused. A non-positive value disables the limit.
+   * @since 2.0.0
+   * @return outstanding bytes
+   */
+  long getWebsocketMaxOutstandingBytes();
+
+  /**
+   * Interval at which keepalive pings are sent on both sides of proxied websocket connections,
+   * a non-positive value disables keepalive pings.
+   * @since 2.0.0
+   * @return interval in milliseconds
+   */
+  long getWebsocketKeepaliveInterval();
+
+  /**
+   * Time after which a proxied websocket connection that has not carried any data message is closed,
+   * regardless of keepalive pings. A non-positive value disables idle reaping.
+   * @since 2.0.0
+   * @return timeout in milliseconds
+   */
+  long getWebsocketIdleReapTimeout();
+
+  /**
+   * Number of threads used for websocket connection cleanup, keepalive and idle reaping.
+   * @since 2.0.0
+   * @return thread pool size
+   */
+  int getWebsocketThreadPoolSize();
+
   boolean isMetricsEnabled();
 
   boolean isJmxMetricsReportingEnabled();
@@ -424,6 +495,20 @@ public interface GatewayConfig {
 
   int getGraphiteReportingFrequency();
 
+  /**
+   * @since 2.0.0
+   * @return true if the registry should be exposed in the Prometheus/OpenMetrics text format
+   */
+  boolean isPrometheusMetricsReportingEnabled();
+
+  /**
+   * Regular expressions matched against metric names to select the metrics that are exposed
+   * in the Prometheus/OpenMetrics text format. An empty list exposes every metric.
+   * @since 2.0.0
+   * @return list of metric name patterns
+   */
+  List<String> getPrometheusMetricsAllowlist();
+
   /**
    * Enable cookie scoping to gateway path
    *
@@ -701,6 +786,11 @@ public interface GatewayConfig {
    */
   int getClouderaManagerServiceDiscoveryMaximumRetryAttempts();
 
+  /**
+   * @return the maximum number of concurrent requests Cloudera Manager service discovery sends to Cloudera Manager
+   */
+  int getClouderaManagerServiceDiscoveryThreads();
+
   /**
    * @return true, if state for tokens issued by the Knox Token service should be managed by Knox.
    */
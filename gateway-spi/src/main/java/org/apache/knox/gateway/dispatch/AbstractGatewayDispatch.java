@@ -20,6 +20,8 @@ package org.apache.knox.gateway.dispatch;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.knox.gateway.filter.GatewayResponse;
+import org.apache.knox.gateway.trace.Span;
+import org.apache.knox.gateway.trace.Tracing;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.logging.log4j.ThreadContext;
@@ -141,6 +143,12 @@ public abstract class AbstractGatewayDispatch implements Dispatch {
       outboundRequest.addHeader( REQUEST_ID_HEADER_NAME,  ThreadContext.get(TRACE_ID));
     }
 
+    // A traced request continues its trace at the backend instead of passing on the inbound traceparent.
+    Span span = Tracing.currentSpan();
+    if( span.isRecording() && !getOutboundRequestExcludeHeaders().contains( Tracing.TRACEPARENT_HEADER ) ) {
+      outboundRequest.setHeader( Tracing.TRACEPARENT_HEADER, span.getTraceparent() );
+    }
+
     while( headerNames.hasMoreElements() ) {
       String name = headerNames.nextElement();
       if ( !outboundRequest.containsHeader( name )
@@ -0,0 +1,140 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Byte oriented Aho-Corasick automaton that matches any number of literal
+ * patterns in a single pass. The automaton is compiled into a dense
+ * transition table so that advancing by one byte is a single array lookup,
+ * and the matching state can be carried across buffer boundaries by the caller.
+ * Patterns are ranked in the iteration order of the map they are given in, so
+ * that a caller can prefer one pattern over another regardless of where they
+ * occur in the input.
+ *
+ * @param <T> the value associated with each pattern
+ */
+final class AhoCorasickMatcher<T> {
+
+  static final int START = 0;
+
+  static final int NO_MATCH = Integer.MAX_VALUE;
+
+  private static final int ALPHABET = 256;
+
+  private final int[][] transitions;
+  /* rank of the best pattern ending in each state, including its proper suffixes */
+  private final int[] ranks;
+  private final List<T> values = new ArrayList<>();
+
+  AhoCorasickMatcher(Map<String, T> patterns) {
+    List<int[]> table = new ArrayList<>();
+    List<Integer> outputs = new ArrayList<>();
+    table.add(newState());
+    outputs.add(NO_MATCH);
+
+    for (Map.Entry<String, T> pattern : patterns.entrySet()) {
+      byte[] bytes = pattern.getKey().getBytes(StandardCharsets.UTF_8);
+      if (bytes.length == 0) {
+        throw new IllegalArgumentException("Empty pattern");
+      }
+      int state = START;
+      for (byte b : bytes) {
+        int c = b & 0xFF;
+        if (table.get(state)[c] < 0) {
+          table.get(state)[c] = table.size();
+          table.add(newState());
+          outputs.add(NO_MATCH);
+        }
+        state = table.get(state)[c];
+      }
+      if (outputs.get(state) == NO_MATCH) {
+        outputs.set(state, values.size());
+      }
+      values.add(pattern.getValue());
+    }
+
+    int[] failure = new int[table.size()];
+    Deque<Integer> queue = new ArrayDeque<>();
+    int[] root = table.get(START);
+    for (int c = 0; c < ALPHABET; c++) {
+      if (root[c] < 0) {
+        root[c] = START;
+      } else {
+        failure[root[c]] = START;
+        queue.add(root[c]);
+      }
+    }
+    while (!queue.isEmpty()) {
+      int state = queue.remove();
+      int[] row = table.get(state);
+      for (int c = 0; c < ALPHABET; c++) {
+        int next = row[c];
+        if (next < 0) {
+          row[c] = table.get(failure[state])[c];
+        } else {
+          failure[next] = table.get(failure[state])[c];
+          outputs.set(next, Math.min(outputs.get(next), outputs.get(failure[next])));
+          queue.add(next);
+        }
+      }
+    }
+
+    this.transitions = table.toArray(new int[0][]);
+    this.ranks = new int[outputs.size()];
+    for (int i = 0; i < ranks.length; i++) {
+      ranks[i] = outputs.get(i);
+    }
+  }
+
+  /**
+   * Advances the automaton by one byte.
+   *
+   * @return the state after consuming the byte
+   */
+  int advance(int state, byte b) {
+    return transitions[state][b & 0xFF];
+  }
+
+  /**
+   * @return the rank of the best pattern that ends in the given state, or {@link #NO_MATCH} if none does
+   */
+  int rank(int state) {
+    return ranks[state];
+  }
+
+  /**
+   * @return the value of the pattern with the given rank, or null for {@link #NO_MATCH}
+   */
+  T value(int rank) {
+    return rank == NO_MATCH ? null : values.get(rank);
+  }
+
+  private static int[] newState() {
+    int[] state = new int[ALPHABET];
+    Arrays.fill(state, -1);
+    return state;
+  }
+}
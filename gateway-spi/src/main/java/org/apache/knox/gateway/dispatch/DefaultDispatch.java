@@ -17,8 +17,6 @@
  */
 package org.apache.knox.gateway.dispatch;
 
-import static java.util.stream.Collectors.toCollection;
-
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -45,6 +43,10 @@ import org.apache.knox.gateway.config.GatewayConfig;
 import org.apache.knox.gateway.config.Optional;
 import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 import org.apache.knox.gateway.i18n.resources.ResourcesFactory;
+import org.apache.knox.gateway.services.metrics.ConnectionTimestamp;
+import org.apache.knox.gateway.services.metrics.DispatchTimers;
+import org.apache.knox.gateway.trace.Span;
+import org.apache.knox.gateway.trace.Tracing;
 import org.apache.knox.gateway.util.MimeTypes;
 
 import javax.servlet.http.HttpServletRequest;
@@ -57,10 +59,7 @@ import java.net.URISyntaxException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
-import java.util.TreeMap;
-import java.util.LinkedHashSet;
 
 public class DefaultDispatch extends AbstractGatewayDispatch {
   protected static final String SET_COOKIE = "SET-COOKIE";
@@ -77,6 +76,7 @@ public class DefaultDispatch extends AbstractGatewayDispatch {
   protected static final String EXCLUDE_ALL = "*";
   private Set<String> outboundResponseExcludeHeaders = Collections.singleton(WWW_AUTHENTICATE);
   private Set<String> outboundResponseExcludedSetCookieHeaderDirectives = Collections.singleton(EXCLUDE_ALL);
+  private volatile ResponseHeaderFilter responseHeaderFilter;
 
   @Optional
   @Configure
@@ -85,6 +85,9 @@ public class DefaultDispatch extends AbstractGatewayDispatch {
   //Buffer size in bytes
   private int replayBufferSize = -1;
 
+  //Maximum number of response body bytes inspected by a ResponseBodyClassifier
+  private int responseClassifierLimit = ResponseBodyClassifier.DEFAULT_LIMIT;
+
   @Override
   public void destroy() {
   }
@@ -109,6 +112,15 @@ public class DefaultDispatch extends AbstractGatewayDispatch {
     setReplayBufferSizeInBytes(size);
   }
 
+  protected int getResponseClassifierLimit() {
+    return responseClassifierLimit;
+  }
+
+  @Configure
+  protected void setResponseClassifierLimit(@Default("8192") int limit) {
+    responseClassifierLimit = limit;
+  }
+
   protected int getReplayBufferSizeInBytes() {
     return replayBufferSize;
   }
@@ -149,14 +161,45 @@ public class DefaultDispatch extends AbstractGatewayDispatch {
          HttpServletRequest inboundRequest,
          HttpServletResponse outboundResponse)
          throws IOException {
+      final Object timers = inboundRequest.getAttribute(DispatchTimers.REQUEST_ATTRIBUTE);
+      if (timers instanceof DispatchTimers) {
+        executeTimedRequest(outboundRequest, inboundRequest, outboundResponse, (DispatchTimers) timers);
+        return;
+      }
       HttpResponse inboundResponse = executeOutboundRequest(outboundRequest);
       writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
    }
 
+  /*
+   * The connect stage ends when the instrumented request executor marks the
+   * request as written; without that mark the whole wait is reported as time
+   * to first byte.
+   */
+  private void executeTimedRequest(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest,
+                                   HttpServletResponse outboundResponse, DispatchTimers timers) throws IOException {
+    ConnectionTimestamp.take();
+    final long start = System.nanoTime();
+    final HttpResponse inboundResponse = executeOutboundRequest(outboundRequest);
+    final long headers = System.nanoTime();
+    final long connected = ConnectionTimestamp.take();
+    if (connected != 0L && connected - start >= 0L && headers - connected >= 0L) {
+      timers.connect(connected - start);
+      timers.firstByte(headers - connected);
+    } else {
+      timers.firstByte(headers - start);
+    }
+    try {
+      writeOutboundResponse(outboundRequest, inboundRequest, outboundResponse, inboundResponse);
+    } finally {
+      timers.body(System.nanoTime() - headers);
+    }
+  }
+
   protected HttpResponse executeOutboundRequest( HttpUriRequest outboundRequest ) throws IOException {
     LOG.dispatchRequest( outboundRequest.getMethod(), outboundRequest.getURI() );
     HttpResponse inboundResponse;
 
+    final Span span = startDispatchSpan( outboundRequest );
     try {
       auditor.audit( Action.DISPATCH, outboundRequest.getURI().toString(), ResourceType.URI, ActionOutcome.UNAVAILABLE, RES.requestMethod( outboundRequest.getMethod() ) );
       if( !Boolean.parseBoolean(System.getProperty(GatewayConfig.HADOOP_KERBEROS_SECURED))) {
@@ -177,15 +220,35 @@ public class DefaultDispatch extends AbstractGatewayDispatch {
         }
       }
       auditor.audit( Action.DISPATCH, outboundRequest.getURI().toString(), ResourceType.URI, ActionOutcome.SUCCESS, RES.responseStatus( statusCode ) );
+      span.setAttribute( "http.status_code", statusCode );
     } catch( Exception e ) {
       // We do not want to expose back end host. port end points to clients, see JIRA KNOX-58
       auditor.audit( Action.DISPATCH, outboundRequest.getURI().toString(), ResourceType.URI, ActionOutcome.FAILURE );
       LOG.dispatchServiceConnectionException( outboundRequest.getURI(), e );
+      span.setError( e );
       throw new IOException( RES.dispatchConnectionError() );
+    } finally {
+      span.end();
     }
     return inboundResponse;
   }
 
+  /*
+   * One span per attempt, so HA retries and hedges show up as siblings; the
+   * backend sees the attempt as its parent.
+   */
+  private Span startDispatchSpan( HttpUriRequest outboundRequest ) {
+    final Span span = Tracing.startSpan( "dispatch" );
+    if( span.isRecording() ) {
+      span.setAttribute( "http.method", outboundRequest.getMethod() )
+          .setAttribute( "http.url", Tracing.toSpanUrl( outboundRequest.getURI() ) );
+      if( outboundRequest.containsHeader( Tracing.TRACEPARENT_HEADER ) ) {
+        outboundRequest.setHeader( Tracing.TRACEPARENT_HEADER, span.getTraceparent() );
+      }
+    }
+    return span;
+  }
+
   protected void writeOutboundResponse(HttpUriRequest outboundRequest, HttpServletRequest inboundRequest, HttpServletResponse outboundResponse, HttpResponse inboundResponse) throws IOException {
     /* in case any changes to outbound response are needed */
     outboundResponseWrapper(outboundRequest, inboundRequest, outboundResponse);
@@ -354,61 +417,41 @@ public class DefaultDispatch extends AbstractGatewayDispatch {
   }
 
   public void copyResponseHeaderFields(HttpServletResponse outboundResponse, HttpResponse inboundResponse) {
-    final TreeMap<String, Set<String>> excludedHeaderDirectives = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-    getOutboundResponseExcludeHeaders().stream().forEach(excludeHeader ->
-        excludedHeaderDirectives.put(excludeHeader, Collections.singleton(EXCLUDE_ALL)));
-    excludedHeaderDirectives.put(SET_COOKIE, getOutboundResponseExcludedSetCookieHeaderDirectives());
-
+    final ResponseHeaderFilter filter = getResponseHeaderFilter();
     for (Header header : inboundResponse.getAllHeaders()) {
-      boolean isBlockedAuthHeader = Arrays.stream(header.getElements()).anyMatch(h -> EXCLUDE_SET_COOKIES_DEFAULT.contains(h.getName()) && getOutboundResponseExcludedSetCookieHeaderDirectives().contains(h.getName()) );
+      final String headerValue = header.getValue();
       /* in case auth header is blocked blocked the entire set-cookie part */
-      if(!isBlockedAuthHeader) {
-            final String responseHeaderValue = calculateResponseHeaderValue(header, excludedHeaderDirectives);
-            if (responseHeaderValue.isEmpty()) {
-                continue;
-            }
-            outboundResponse.addHeader(header.getName(), responseHeaderValue);
-            LOG.addedOutboundheader(header.getName(), responseHeaderValue);
-      } else {
-            LOG.skippedOutboundHeader(header.getName(), header.getValue());
+      if (filter.isBlocked(headerValue)) {
+        LOG.skippedOutboundHeader(header.getName(), headerValue);
+        continue;
       }
+      final String responseHeaderValue = filter.getResponseHeaderValue(header.getName(), headerValue);
+      if (responseHeaderValue.isEmpty()) {
+        continue;
+      }
+      outboundResponse.addHeader(header.getName(), responseHeaderValue);
+      LOG.addedOutboundheader(header.getName(), responseHeaderValue);
     }
   }
 
-  private String calculateResponseHeaderValue(Header headerToCheck, Map<String, Set<String>> excludedHeaderDirectives) {
-    final String headerNameToCheck = headerToCheck.getName();
-    if (excludedHeaderDirectives != null && excludedHeaderDirectives.containsKey(headerNameToCheck)) {
-      final Set<String> excludedHeaderValues = excludedHeaderDirectives.get(headerNameToCheck);
-      if (!excludedHeaderValues.isEmpty()) {
-        if (excludedHeaderValues.stream().anyMatch(e -> e.equals(EXCLUDE_ALL))) {
-          return ""; // we should exclude all -> there should not be any value added with this header
-        } else {
-          final String separator = SET_COOKIE.equalsIgnoreCase(headerNameToCheck) ? "; " : " ";
-          /**
-           *  special attention needs to be given to make sure we maintain
-           *  the attribute order else bad things can happen.
-           *  1. String.split() always maintains the order in generated array
-           *  2. LinkedHashSet is an ordered set
-           *  3. *.stream().map() maintains the order *iff* the collection type is ordered
-           *  4. *.collect() needs to be ordered as well to make sure the generated set is ordered
-           */
-          LinkedHashSet<String> headerValuesToCheck;
-          if(headerToCheck.getName().equalsIgnoreCase(SET_COOKIE)) {
-              /* make sure we maintain the order */
-              headerValuesToCheck = new LinkedHashSet<>(Arrays.asList(headerToCheck.getValue().trim().split(";")));
-              /* trim */
-              headerValuesToCheck = headerValuesToCheck.stream().map(String::trim).collect(toCollection(LinkedHashSet::new));
-          } else {
-              headerValuesToCheck = new LinkedHashSet<>(Arrays.asList(headerToCheck.getValue().trim().split("\\s+")));
-          }
-          headerValuesToCheck = headerValuesToCheck.stream().map(h -> h.replaceAll(separator.trim(), "")).collect(toCollection(LinkedHashSet::new));
-          headerValuesToCheck.removeIf(h -> excludedHeaderValues.stream().anyMatch(e -> h.contains(e)));
-          return headerValuesToCheck.isEmpty() ? "" : String.join(separator, headerValuesToCheck);
-        }
-      }
+  /**
+   * Returns the response header exclusions compiled into a filter. The filter
+   * is compiled again only when the exclude sets returned by
+   * {@link #getOutboundResponseExcludeHeaders()} and
+   * {@link #getOutboundResponseExcludedSetCookieHeaderDirectives()} are
+   * replaced, e.g. by the configuration of the dispatch.
+   *
+   * @return the response header filter of this dispatch
+   */
+  protected ResponseHeaderFilter getResponseHeaderFilter() {
+    final Set<String> excludeHeaders = getOutboundResponseExcludeHeaders();
+    final Set<String> setCookieDirectives = getOutboundResponseExcludedSetCookieHeaderDirectives();
+    ResponseHeaderFilter filter = responseHeaderFilter;
+    if (filter == null || !filter.isCompiledFrom(excludeHeaders, setCookieDirectives)) {
+      filter = new ResponseHeaderFilter(excludeHeaders, setCookieDirectives);
+      responseHeaderFilter = filter;
     }
-
-    return headerToCheck.getValue();
+    return filter;
   }
 
   public Set<String> getOutboundResponseExcludeHeaders() {
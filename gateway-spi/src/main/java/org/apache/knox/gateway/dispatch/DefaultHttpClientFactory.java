@@ -168,13 +168,27 @@ public class DefaultHttpClientFactory implements HttpClientFactory {
    * @return a {@link SSLContext} or <code>null</code> if a custom {@link SSLContext} is not needed.
    */
   SSLContext createSSLContext(GatewayServices services, FilterConfig filterConfig, String serviceRole) {
+    return createSSLContext(services, Boolean.parseBoolean(filterConfig.getInitParameter(PARAMETER_USE_TWO_WAY_SSL)), serviceRole);
+  }
+
+  /**
+   * Creates the {@link SSLContext} the dispatch of a service uses, so that other clients talking to the
+   * same backends, e.g. health checks, trust the same certificates.
+   *
+   * @param services     the {@link GatewayServices}
+   * @param useTwoWaySsl whether the Gateway's identity is presented to the backend
+   * @param serviceRole  the name of the service role to whom the HTTP client is being created for
+   * @return a {@link SSLContext} or <code>null</code> if a custom {@link SSLContext} is not needed.
+   * @see #createSSLContext(GatewayServices, FilterConfig, String)
+   */
+  public static SSLContext createSSLContext(GatewayServices services, boolean useTwoWaySsl, String serviceRole) {
     KeyStore identityKeystore;
     char[] identityKeyPassphrase;
     KeyStore trustKeystore;
 
     KeystoreService ks = services.getService(ServiceType.KEYSTORE_SERVICE);
     try {
-      if (Boolean.parseBoolean(filterConfig.getInitParameter(PARAMETER_USE_TWO_WAY_SSL))) {
+      if (useTwoWaySsl) {
         LOG.usingTwoWaySsl(serviceRole);
         AliasService as = services.getService(ServiceType.ALIAS_SERVICE);
 
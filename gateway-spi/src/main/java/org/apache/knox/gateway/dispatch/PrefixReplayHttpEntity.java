@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+
+/**
+ * Entity that replays a prefix that has already been read from the wrapped
+ * entity's stream followed by the unread remainder of that stream. Only the
+ * prefix is held in memory.
+ */
+public class PrefixReplayHttpEntity extends HttpEntityWrapper {
+
+  private final InputStream content;
+
+  public PrefixReplayHttpEntity(HttpEntity entity, byte[] prefix, int length, InputStream remainder) {
+    super(entity);
+    this.content = new SequenceInputStream(new ByteArrayInputStream(prefix, 0, length), remainder);
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return false;
+  }
+
+  @Override
+  public InputStream getContent() throws IOException {
+    return content;
+  }
+
+  @Override
+  public void writeTo(OutputStream stream) throws IOException {
+    try {
+      IOUtils.copy(content, stream);
+    } finally {
+      content.close();
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Classifies a backend response by looking for well known markers (e.g. a
+ * "StandbyException" in an HA error body) within a bounded prefix of the
+ * response entity. At most {@code limit} bytes are read; the response entity
+ * is then replaced so that the prefix is replayed ahead of the unread
+ * remainder and the body can still be streamed to the client unchanged.
+ *
+ * Instances are immutable and can be shared between dispatches.
+ *
+ * @param <T> the classification associated with each marker
+ */
+public class ResponseBodyClassifier<T> {
+
+  public static final int DEFAULT_LIMIT = 8192;
+
+  private static final int INITIAL_BUFFER_SIZE = 1024;
+
+  private final AhoCorasickMatcher<T> matcher;
+
+  /**
+   * @param markers map of the literal markers to look for to the classification
+   *                reported when that marker is found; when more than one marker
+   *                is present the one that comes first in the map wins, wherever
+   *                it occurs in the body
+   */
+  public ResponseBodyClassifier(Map<String, T> markers) {
+    this.matcher = new AhoCorasickMatcher<>(markers);
+  }
+
+  /**
+   * Scans at most {@code limit} bytes of the response entity for any of the markers.
+   *
+   * @return the classification of the highest ranked marker found, or null if none was found
+   */
+  public T classify(HttpResponse response, int limit) throws IOException {
+    HttpEntity entity = response.getEntity();
+    if (entity == null || limit <= 0) {
+      return null;
+    }
+    InputStream stream = entity.getContent();
+    if (stream == null) {
+      return null;
+    }
+
+    long contentLength = entity.getContentLength();
+    int capacity = contentLength >= 0 ? (int) Math.min(contentLength, limit) : Math.min(INITIAL_BUFFER_SIZE, limit);
+    byte[] prefix = new byte[Math.max(capacity, 1)];
+    int length = 0;
+    int state = AhoCorasickMatcher.START;
+    int rank = AhoCorasickMatcher.NO_MATCH;
+    while (length < limit) {
+      if (length == prefix.length) {
+        prefix = Arrays.copyOf(prefix, (int) Math.min((long) prefix.length * 2, limit));
+      }
+      int count = stream.read(prefix, length, prefix.length - length);
+      if (count < 0) {
+        break;
+      }
+      // Keep filling the prefix after the best marker is found so that short error
+      // bodies are read to the end of stream, which lets the client release the connection.
+      for (int i = length; i < length + count && rank > 0; i++) {
+        state = matcher.advance(state, prefix[i]);
+        rank = Math.min(rank, matcher.rank(state));
+      }
+      length += count;
+    }
+
+    response.setEntity(new PrefixReplayHttpEntity(entity, prefix, length, stream));
+    return matcher.value(rank);
+  }
+}
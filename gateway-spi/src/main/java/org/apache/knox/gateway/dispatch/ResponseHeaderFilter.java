@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The response header exclusions of a dispatch compiled into an immutable
+ * lookup structure, so that filtering the headers of a response neither
+ * builds maps nor parses header values with regular expressions.
+ * <p>
+ * Headers named in the exclude list are dropped. Set-Cookie headers are
+ * governed by the excluded Set-Cookie directives instead: {@code *} drops
+ * them, otherwise the attributes containing one of the directives are
+ * removed. Headers carrying one of the default authentication cookies are
+ * blocked entirely when those cookies are among the excluded directives.
+ */
+public final class ResponseHeaderFilter {
+
+  private final Set<String> excludeHeaders;
+  private final Set<String> setCookieDirectives;
+  private final Set<String> excludedNames;
+  private final boolean excludeAllSetCookies;
+  private final String[] excludedSetCookieDirectives;
+  private final String[] blockedCookieNames;
+
+  /**
+   * @param excludeHeaders      names of the response headers not to forward
+   * @param setCookieDirectives Set-Cookie directives not to forward, {@code *} for all
+   */
+  public ResponseHeaderFilter(Set<String> excludeHeaders, Set<String> setCookieDirectives) {
+    this.excludeHeaders = excludeHeaders;
+    this.setCookieDirectives = setCookieDirectives;
+
+    final Set<String> names = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+    names.addAll(excludeHeaders);
+    names.remove(DefaultDispatch.SET_COOKIE);
+    this.excludedNames = Collections.unmodifiableSet(names);
+
+    this.excludeAllSetCookies = setCookieDirectives.contains(DefaultDispatch.EXCLUDE_ALL);
+    this.excludedSetCookieDirectives = setCookieDirectives.toArray(new String[0]);
+
+    final List<String> blocked = new ArrayList<>();
+    for (String cookie : DefaultDispatch.EXCLUDE_SET_COOKIES_DEFAULT) {
+      if (setCookieDirectives.contains(cookie)) {
+        blocked.add(cookie);
+      }
+    }
+    this.blockedCookieNames = blocked.toArray(new String[0]);
+  }
+
+  /**
+   * @return true if this filter was compiled from the given exclusions
+   */
+  boolean isCompiledFrom(Set<String> excludeHeaders, Set<String> setCookieDirectives) {
+    return this.excludeHeaders == excludeHeaders && this.setCookieDirectives == setCookieDirectives;
+  }
+
+  /**
+   * @param value the value of a response header
+   * @return true if the header carries a blocked authentication cookie
+   */
+  public boolean isBlocked(String value) {
+    return blockedCookieNames.length > 0 && value != null && hasBlockedElement(value);
+  }
+
+  /**
+   * @param name  the name of a response header
+   * @param value the value of the header
+   * @return the value to forward, empty if the header is not to be forwarded
+   */
+  public String getResponseHeaderValue(String name, String value) {
+    if (value == null) {
+      return "";
+    }
+    if (DefaultDispatch.SET_COOKIE.equalsIgnoreCase(name)) {
+      if (excludedSetCookieDirectives.length == 0) {
+        return value;
+      }
+      return excludeAllSetCookies ? "" : filterSetCookie(value);
+    }
+    return excludedNames.contains(name) ? "" : value;
+  }
+
+  /*
+   * Splits the cookie into its ';' separated attributes like String.split,
+   * trims them and joins the distinct attributes not containing an excluded
+   * directive with "; ".
+   */
+  private String filterSetCookie(String value) {
+    final String cookie = value.trim();
+    int end = cookie.length();
+    while (end > 0 && cookie.charAt(end - 1) == ';') {
+      end--;
+    }
+    final StringBuilder result = new StringBuilder(end);
+    int[] accepted = new int[16];
+    int count = 0;
+    int start = 0;
+    while (start <= end && end > 0) {
+      int separator = cookie.indexOf(';', start);
+      if (separator < 0 || separator > end) {
+        separator = end;
+      }
+      int from = start;
+      int to = separator;
+      while (from < to && cookie.charAt(from) <= ' ') {
+        from++;
+      }
+      while (to > from && cookie.charAt(to - 1) <= ' ') {
+        to--;
+      }
+      if (!containsExcludedDirective(cookie, from, to) && !isAccepted(cookie, from, to, accepted, count)) {
+        if (count > 0) {
+          result.append("; ");
+        }
+        result.append(cookie, from, to);
+        if (count * 2 == accepted.length) {
+          accepted = Arrays.copyOf(accepted, accepted.length * 2);
+        }
+        accepted[count * 2] = from;
+        accepted[count * 2 + 1] = to;
+        count++;
+      }
+      start = separator + 1;
+    }
+    return result.toString();
+  }
+
+  private boolean containsExcludedDirective(String cookie, int from, int to) {
+    for (String directive : excludedSetCookieDirectives) {
+      final int last = to - directive.length();
+      for (int i = from; i <= last; i++) {
+        if (cookie.startsWith(directive, i)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private static boolean isAccepted(String cookie, int from, int to, int[] accepted, int count) {
+    final int length = to - from;
+    for (int i = 0; i < count; i++) {
+      final int start = accepted[i * 2];
+      if (accepted[i * 2 + 1] - start == length && cookie.regionMatches(start, cookie, from, length)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Scans the ',' separated elements of the value the way HeaderElement
+   * parsing does: an element is a name, an optional '=' value that may be
+   * quoted, and optional ';' separated parameters.
+   */
+  private boolean hasBlockedElement(String value) {
+    final int length = value.length();
+    int pos = 0;
+    boolean elementStart = true;
+    while (pos < length) {
+      int from = pos;
+      while (pos < length && !isTokenDelimiter(value.charAt(pos))) {
+        pos++;
+      }
+      if (elementStart && isBlockedName(value, from, pos)) {
+        return true;
+      }
+      if (pos == length) {
+        break;
+      }
+      char delimiter = value.charAt(pos++);
+      if (delimiter == '=') {
+        pos = skipValue(value, pos);
+        if (pos == length) {
+          break;
+        }
+        delimiter = value.charAt(pos++);
+      }
+      elementStart = delimiter == ',';
+    }
+    return false;
+  }
+
+  private boolean isBlockedName(String value, int from, int to) {
+    while (from < to && Character.isWhitespace(value.charAt(from))) {
+      from++;
+    }
+    while (to > from && Character.isWhitespace(value.charAt(to - 1))) {
+      to--;
+    }
+    for (String name : blockedCookieNames) {
+      if (name.length() == to - from && value.startsWith(name, from)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static int skipValue(String value, int pos) {
+    final int length = value.length();
+    boolean quoted = false;
+    while (pos < length) {
+      final char c = value.charAt(pos);
+      if (quoted) {
+        if (c == '\\' && pos + 1 < length) {
+          pos++;
+        } else if (c == '"') {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ';' || c == ',') {
+        return pos;
+      }
+      pos++;
+    }
+    return pos;
+  }
+
+  private static boolean isTokenDelimiter(char c) {
+    return c == '=' || c == ';' || c == ',';
+  }
+}
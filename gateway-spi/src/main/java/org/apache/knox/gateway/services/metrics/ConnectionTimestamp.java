@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.metrics;
+
+/**
+ * Hands the time at which an outbound request was written to its connection
+ * from the instrumented HTTP request executor back to the dispatch that issued
+ * it. Both run on the same thread so a thread local avoids changing the
+ * HttpClient execute calls.
+ */
+public final class ConnectionTimestamp {
+
+  private static final ThreadLocal<long[]> TIMESTAMP = ThreadLocal.withInitial(() -> new long[1]);
+
+  private ConnectionTimestamp() {
+  }
+
+  /**
+   * Records that the current thread has obtained a connection and is about to
+   * send a request on it.
+   */
+  public static void mark() {
+    TIMESTAMP.get()[0] = System.nanoTime();
+  }
+
+  /**
+   * Returns and clears the last mark of the current thread.
+   *
+   * @return the {@link System#nanoTime()} of the last mark or 0 if there was none
+   */
+  public static long take() {
+    long[] timestamp = TIMESTAMP.get();
+    long value = timestamp[0];
+    timestamp[0] = 0L;
+    return value;
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.services.metrics;
+
+/**
+ * Receives the timings of the stages of a single dispatch to a backend.
+ * <p>
+ * When stage metrics are enabled the gateway filter chain stores an instance
+ * under {@link #REQUEST_ATTRIBUTE}; dispatches that find one report the time
+ * spent obtaining a connection, waiting for the response head and streaming
+ * the response body. All durations are in nanoseconds.
+ */
+public interface DispatchTimers {
+
+  String REQUEST_ATTRIBUTE = DispatchTimers.class.getName();
+
+  void connect(long nanos);
+
+  void firstByte(long nanos);
+
+  void body(long nanos);
+}
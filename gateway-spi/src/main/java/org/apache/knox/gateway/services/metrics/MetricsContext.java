@@ -19,6 +19,11 @@ package org.apache.knox.gateway.services.metrics;
 
 public interface MetricsContext {
 
+  /**
+   * Name of the context property holding the gateway wide metrics registry.
+   */
+  String METRICS_REGISTRY = "metrics-registry";
+
   MetricsService getMetricsService();
 
   void setProperty(String name, Object value);
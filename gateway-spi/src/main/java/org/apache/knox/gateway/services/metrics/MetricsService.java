@@ -25,4 +25,6 @@ public interface MetricsService extends Service {
 
   <T> T getInstrumented(Class<T> clazz);
 
+  MetricsContext getContext();
+
 }
@@ -204,6 +204,23 @@ public class DefaultHttpClientFactoryTest {
     verify(keystoreService, gatewayServices, filterConfig);
   }
 
+  @Test
+  public void testCreateSSLContextWithoutFilterConfig() throws Exception {
+    KeyStore trustStore = loadKeyStore("target/test-classes/keystores/server-truststore.jks", "horton", "JKS");
+
+    KeystoreService keystoreService = createMock(KeystoreService.class);
+    expect(keystoreService.getTruststoreForHttpClient()).andReturn(trustStore).once();
+
+    GatewayServices gatewayServices = createMock(GatewayServices.class);
+    expect(gatewayServices.getService(ServiceType.KEYSTORE_SERVICE)).andReturn(keystoreService).once();
+
+    replay(keystoreService, gatewayServices);
+
+    assertNotNull(DefaultHttpClientFactory.createSSLContext(gatewayServices, false, "service"));
+
+    verify(keystoreService, gatewayServices);
+  }
+
   @Test
   public void testHttpClientPathNormalization() {
     GatewayConfig gatewayConfig = createMock(GatewayConfig.class);
@@ -0,0 +1,139 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ResponseBodyClassifierTest {
+
+  private static final ResponseBodyClassifier<String> CLASSIFIER = createClassifier();
+
+  private static ResponseBodyClassifier<String> createClassifier() {
+    Map<String, String> markers = new LinkedHashMap<>();
+    markers.put("StandbyException", "standby");
+    markers.put("SafeModeException", "safemode");
+    markers.put("RetriableException", "safemode");
+    markers.put("Exception", "generic");
+    return new ResponseBodyClassifier<>(markers);
+  }
+
+  @Test
+  public void testEarlierMarkerWinsWhereverItOccurs() throws IOException {
+    String body = "{\"RemoteException\":{\"exception\":\"StandbyException\",\"message\":\"Operation category READ is not supported\"}}";
+    HttpResponse response = createResponse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+    assertEquals("standby", CLASSIFIER.classify(response, ResponseBodyClassifier.DEFAULT_LIMIT));
+    assertEquals(body, IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8));
+
+    body = "RetriableException: org.apache.hadoop.hdfs.server.namenode.SafeModeException caused by StandbyException";
+    response = createResponse(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+    assertEquals("standby", CLASSIFIER.classify(response, ResponseBodyClassifier.DEFAULT_LIMIT));
+    assertEquals(body, IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testMarkerEndingInsideAnotherMarker() throws IOException {
+    Map<String, String> markers = new LinkedHashMap<>();
+    markers.put("SafeModeException", "safemode");
+    markers.put("ModeException", "mode");
+    HttpResponse response = createResponse(new ByteArrayInputStream(
+        "Name node is in SafeModeException".getBytes(StandardCharsets.UTF_8)));
+    assertEquals("safemode", new ResponseBodyClassifier<>(markers).classify(response, 1024));
+
+    markers = new LinkedHashMap<>();
+    markers.put("ModeException", "mode");
+    markers.put("SafeModeException", "safemode");
+    response = createResponse(new ByteArrayInputStream(
+        "Name node is in SafeModeException".getBytes(StandardCharsets.UTF_8)));
+    assertEquals("mode", new ResponseBodyClassifier<>(markers).classify(response, 1024));
+  }
+
+  @Test
+  public void testMarkerSplitAcrossReads() throws IOException {
+    String body = "xxxxxxxSafeModeException: Name node is in safe mode.";
+    HttpResponse response = createResponse(new OneByteInputStream(
+        new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))));
+
+    Map<String, String> markers = new LinkedHashMap<>();
+    markers.put("StandbyException", "standby");
+    markers.put("SafeModeException", "safemode");
+    assertEquals("safemode", new ResponseBodyClassifier<>(markers).classify(response, 1024));
+    assertEquals(body, IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testMarkerBeyondLimitIsIgnored() throws IOException {
+    StringBuilder body = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      body.append("0123456789");
+    }
+    body.append("This is standby RM");
+    HttpResponse response = createResponse(new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)));
+
+    ResponseBodyClassifier<Boolean> classifier = new ResponseBodyClassifier<>(
+        Collections.singletonMap("This is standby RM", Boolean.TRUE));
+    assertNull(classifier.classify(response, 512));
+    assertEquals(body.toString(), IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testEmptyEntity() throws IOException {
+    HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 403, "Forbidden");
+    assertNull(CLASSIFIER.classify(response, 1024));
+
+    response = createResponse(new ByteArrayInputStream(new byte[0]));
+    assertNull(CLASSIFIER.classify(response, 1024));
+    assertEquals("", IOUtils.toString(response.getEntity().getContent(), StandardCharsets.UTF_8));
+  }
+
+  private static HttpResponse createResponse(InputStream content) {
+    BasicHttpEntity entity = new BasicHttpEntity();
+    entity.setContent(content);
+    HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, 403, "Forbidden");
+    response.setEntity(entity);
+    return response;
+  }
+
+  private static class OneByteInputStream extends FilterInputStream {
+    OneByteInputStream(InputStream in) {
+      super(in);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return super.read(b, off, Math.min(len, 1));
+    }
+  }
+}
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.dispatch;
+
+import static org.apache.knox.gateway.dispatch.DefaultDispatch.SET_COOKIE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.message.BasicHeader;
+import org.apache.knox.test.mock.MockHttpServletResponse;
+import org.easymock.EasyMock;
+import org.junit.Test;
+
+public class ResponseHeaderFilterTest {
+
+  @Test
+  public void testExcludedHeadersAreCaseInsensitive() {
+    ResponseHeaderFilter filter = new ResponseHeaderFilter(
+        new HashSet<>(Arrays.asList("WWW-AUTHENTICATE", "test")), Collections.emptySet());
+    assertThat(filter.getResponseHeaderValue("WWW-Authenticate", "Negotiate"), is(""));
+    assertThat(filter.getResponseHeaderValue("TEST", "value"), is(""));
+    assertThat(filter.getResponseHeaderValue("Accept", "application/json"), is("application/json"));
+    assertThat(filter.getResponseHeaderValue("Set-Cookie", "a=b;Path=/"), is("a=b;Path=/"));
+    assertThat(filter.getResponseHeaderValue("Accept", null), is(""));
+  }
+
+  @Test
+  public void testSetCookieDirectivesAreRemoved() {
+    ResponseHeaderFilter filter = new ResponseHeaderFilter(
+        Collections.emptySet(), new HashSet<>(Arrays.asList("Secure", "Domain=localhost")));
+    assertThat(filter.getResponseHeaderValue(SET_COOKIE, "a=b; Domain=localhost; Secure; HttpOnly"), is("a=b; HttpOnly"));
+    assertThat(filter.getResponseHeaderValue(SET_COOKIE, " a=b;Path=/;Path=/; ;HttpOnly;; "), is("a=b; Path=/; ; HttpOnly"));
+    assertThat(filter.getResponseHeaderValue(SET_COOKIE, "Secure"), is(""));
+    assertThat(filter.getResponseHeaderValue(SET_COOKIE, ";;"), is(""));
+    assertThat(filter.getResponseHeaderValue("X-Other", "Secure"), is("Secure"));
+
+    filter = new ResponseHeaderFilter(Collections.emptySet(), Collections.singleton("*"));
+    assertThat(filter.getResponseHeaderValue("set-cookie", "a=b"), is(""));
+  }
+
+  @Test
+  public void testAuthCookiesAreBlocked() {
+    ResponseHeaderFilter filter = new ResponseHeaderFilter(
+        Collections.emptySet(), DefaultDispatch.EXCLUDE_SET_COOKIES_DEFAULT);
+    assertThat(filter.isBlocked("hadoop.auth=\"u=knox;t=kerberos\"; Path=/"), is(true));
+    assertThat(filter.isBlocked("a=b, impala.auth=x"), is(true));
+    assertThat(filter.isBlocked(" hive.server2.auth ; HttpOnly"), is(true));
+    assertThat(filter.isBlocked("a=\"hadoop.auth=x, y\"; Path=/"), is(false));
+    assertThat(filter.isBlocked("a=b; hadoop.auth=x"), is(false));
+    assertThat(filter.isBlocked("hadoop.authx=1"), is(false));
+
+    filter = new ResponseHeaderFilter(Collections.emptySet(), Collections.singleton("Secure"));
+    assertThat(filter.isBlocked("hadoop.auth=x"), is(false));
+  }
+
+  @Test
+  public void testFilterIsCompiledAgainWhenConfigurationChanges() {
+    ConfigurableDispatch dispatch = new ConfigurableDispatch();
+    ResponseHeaderFilter filter = dispatch.getResponseHeaderFilter();
+    assertThat(dispatch.getResponseHeaderFilter(), sameInstance(filter));
+
+    dispatch.setResponseExcludeHeaders("test");
+    assertThat(dispatch.getResponseHeaderFilter(), not(sameInstance(filter)));
+
+    Header[] headers = new Header[]{
+        new BasicHeader("TEST", "testValue"),
+        new BasicHeader(SET_COOKIE, "hadoop.auth=x; Path=/"),
+        new BasicHeader("Accept", "application/json")
+    };
+    HttpResponse inboundResponse = EasyMock.createNiceMock(HttpResponse.class);
+    EasyMock.expect(inboundResponse.getAllHeaders()).andReturn(headers).anyTimes();
+    EasyMock.replay(inboundResponse);
+
+    HttpServletResponse outboundResponse = new MockHttpServletResponse();
+    dispatch.copyResponseHeaderFields(outboundResponse, inboundResponse);
+
+    assertThat(outboundResponse.getHeaderNames().size(), is(1));
+    assertThat(outboundResponse.getHeader("Accept"), is("application/json"));
+  }
+}
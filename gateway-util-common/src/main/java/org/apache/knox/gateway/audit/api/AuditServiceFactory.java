@@ -17,11 +17,22 @@
  */
 package org.apache.knox.gateway.audit.api;
 
+import org.apache.knox.gateway.audit.async.AsyncAuditService;
 import org.apache.knox.gateway.audit.log4j.audit.Log4jAuditService;
+import org.apache.knox.gateway.i18n.GatewayUtilCommonMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+import java.io.IOException;
 
 public abstract class AuditServiceFactory {
+  /**
+   * Selects the audit service implementation, either log4j (the default) or async.
+   */
+  public static final String AUDIT_SERVICE_PROPERTY = "knox.audit.service";
+  public static final String ASYNC_AUDIT_SERVICE = "async";
+
   // The global audit service instance.
-  private static final AuditService auditService = new Log4jAuditService();
+  private static final AuditService auditService = createAuditService();
 
   // To prevent instantiation.
   private AuditServiceFactory() {
@@ -34,4 +45,15 @@ public abstract class AuditServiceFactory {
   public static AuditService getAuditService() {
     return auditService;
   }
+
+  private static AuditService createAuditService() {
+    if( ASYNC_AUDIT_SERVICE.equalsIgnoreCase( System.getProperty( AUDIT_SERVICE_PROPERTY ) ) ) {
+      try {
+        return AsyncAuditService.fromSystemProperties();
+      } catch( IOException e ) {
+        MessagesFactory.get( GatewayUtilCommonMessages.class ).failedToCreateAsyncAuditService( e );
+      }
+    }
+    return new Log4jAuditService();
+  }
 }
@@ -17,12 +17,31 @@
  */
 package org.apache.knox.gateway.audit.api;
 
+import java.util.Locale;
+
+import org.apache.knox.gateway.audit.correlation.RandomUuidGenerator;
+import org.apache.knox.gateway.audit.correlation.TimeOrderedUuidGenerator;
+import org.apache.knox.gateway.audit.correlation.UlidGenerator;
 import org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationService;
+import org.apache.knox.gateway.i18n.GatewayUtilCommonMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
 
 public abstract class CorrelationServiceFactory {
+  /**
+   * System property selecting the generator of new request ids: {@code uuid7}
+   * (default), {@code ulid}, {@code uuid} or the class name of a
+   * {@link CorrelationIdGenerator}.
+   */
+  public static final String ID_GENERATOR_PROPERTY = "knox.correlation.id.generator";
+
+  private static final GatewayUtilCommonMessages LOG = MessagesFactory.get( GatewayUtilCommonMessages.class );
+
   // The global correlation service instance.
   private static final CorrelationService correlationService = new Log4jCorrelationService();
 
+  private static volatile CorrelationIdGenerator idGenerator =
+      createIdGenerator( System.getProperty( ID_GENERATOR_PROPERTY, "uuid7" ) );
+
   // To prevent instantiation.
   private CorrelationServiceFactory() {
   }
@@ -34,4 +53,43 @@ public abstract class CorrelationServiceFactory {
   public static CorrelationService getCorrelationService() {
     return correlationService;
   }
+
+  /**
+   * Provides the generator of request ids for requests that do not carry one.
+   * @return The configured id generator.  Will not be null.
+   */
+  public static CorrelationIdGenerator getIdGenerator() {
+    return idGenerator;
+  }
+
+  /**
+   * Replaces the generator of request ids, e.g. to match the ids created by a
+   * load balancer in front of the gateway.
+   * @param generator The id generator to use.
+   */
+  public static void setIdGenerator( CorrelationIdGenerator generator ) {
+    if( generator == null ) {
+      throw new IllegalArgumentException( "generator" );
+    }
+    idGenerator = generator;
+  }
+
+  static CorrelationIdGenerator createIdGenerator( String value ) {
+    final String name = value.trim();
+    switch( name.toLowerCase( Locale.ROOT ) ) {
+      case "uuid7":
+        return new TimeOrderedUuidGenerator();
+      case "ulid":
+        return new UlidGenerator();
+      case "uuid":
+        return new RandomUuidGenerator();
+      default:
+        try {
+          return (CorrelationIdGenerator) Class.forName( name ).getConstructor().newInstance();
+        } catch( ReflectiveOperationException | ClassCastException e ) {
+          LOG.failedToCreateCorrelationIdGenerator( name, e );
+          return new TimeOrderedUuidGenerator();
+        }
+    }
+  }
 }
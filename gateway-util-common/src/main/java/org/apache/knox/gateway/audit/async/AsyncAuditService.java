@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit.async;
+
+import org.apache.knox.gateway.audit.api.Auditor;
+import org.apache.knox.gateway.audit.log4j.audit.Log4jAuditService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Audit service whose auditors capture records and write them as JSON lines
+ * from a dedicated thread, see {@link AsyncAuditWriter}. Audit and correlation
+ * contexts are still attached to the thread like the {@link Log4jAuditService}
+ * does. Enabled with -Dknox.audit.service=async, the other knox.audit.async.*
+ * system properties tune the buffer, overflow policy and output file.
+ */
+public class AsyncAuditService extends Log4jAuditService implements Closeable {
+
+  public static final String FILE_PROPERTY = "knox.audit.async.file";
+  public static final String CAPACITY_PROPERTY = "knox.audit.async.capacity";
+  public static final String BATCH_SIZE_PROPERTY = "knox.audit.async.batch.size";
+  public static final String OVERFLOW_POLICY_PROPERTY = "knox.audit.async.overflow.policy";
+  public static final String SPILL_FILE_PROPERTY = "knox.audit.async.spill.file";
+
+  public static final int DEFAULT_CAPACITY = 64 * 1024;
+  public static final int DEFAULT_BATCH_SIZE = 1024;
+  public static final OverflowPolicy DEFAULT_OVERFLOW_POLICY = OverflowPolicy.BLOCK;
+
+  private final AsyncAuditWriter writer;
+  private final Map<String, Auditor> auditors = new ConcurrentHashMap<>();
+
+  public AsyncAuditService( AsyncAuditWriter writer ) {
+    this.writer = writer;
+  }
+
+  /**
+   * Creates and starts a service configured from the knox.audit.async.*
+   * system properties. The writer is drained on JVM shutdown.
+   *
+   * @return The started service.
+   * @throws IOException If the audit file cannot be opened.
+   */
+  public static AsyncAuditService fromSystemProperties() throws IOException {
+    final Path file = getAuditFile();
+    final String spill = System.getProperty( SPILL_FILE_PROPERTY );
+    final AsyncAuditWriter writer = new AsyncAuditWriter(
+        new JsonLinesAuditSink( file ),
+        Integer.getInteger( CAPACITY_PROPERTY, DEFAULT_CAPACITY ),
+        Integer.getInteger( BATCH_SIZE_PROPERTY, DEFAULT_BATCH_SIZE ),
+        OverflowPolicy.of( System.getProperty( OVERFLOW_POLICY_PROPERTY ), DEFAULT_OVERFLOW_POLICY ),
+        spill == null ? file.resolveSibling( file.getFileName() + ".spill" ) : Paths.get( spill ) );
+    writer.start();
+    final AsyncAuditService service = new AsyncAuditService( writer );
+    Runtime.getRuntime().addShutdownHook( new Thread( service::close, "knox-audit-shutdown" ) );
+    return service;
+  }
+
+  /* Next to the gateway's other logs when started by the launcher. */
+  private static Path getAuditFile() {
+    final String file = System.getProperty( FILE_PROPERTY );
+    if( file != null ) {
+      return Paths.get( file );
+    }
+    final String launcherDir = System.getProperty( "launcher.dir" );
+    final String name = System.getProperty( "launcher.name", "gateway" ) + "-audit.json";
+    return launcherDir == null ? Paths.get( name ) : Paths.get( launcherDir, "..", "logs", name ).normalize();
+  }
+
+  @Override
+  public Auditor getAuditor( String auditorName, String componentName, String serviceName ) {
+    return auditors.computeIfAbsent( auditorName + componentName + serviceName,
+        key -> new AsyncAuditor( auditorName, componentName, serviceName, writer ) );
+  }
+
+  public AsyncAuditWriter getWriter() {
+    return writer;
+  }
+
+  @Override
+  public void close() {
+    writer.close();
+  }
+}
@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit.async;
+
+import org.apache.knox.gateway.i18n.GatewayUtilCommonMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands audit records from request threads to a single writer thread.
+ * Producers only publish into a lock-free ring buffer; the writer drains it
+ * in batches into an {@link AuditSink}. When the buffer is full the
+ * {@link OverflowPolicy} decides whether the record is dropped, the producer
+ * waits, or the record is appended to a spill file which the writer replays
+ * once the buffer is empty again. Replayed records are written after the
+ * records that were buffered at the time, their timestamps keep the order.
+ */
+public class AsyncAuditWriter implements Closeable {
+
+  private static final GatewayUtilCommonMessages LOG = MessagesFactory.get( GatewayUtilCommonMessages.class );
+
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos( 100 );
+  private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos( 50 );
+  private static final long DROP_REPORT_INTERVAL = TimeUnit.MINUTES.toMillis( 1 );
+  private static final String REPLAY_SUFFIX = ".replay";
+
+  private final AuditRingBuffer<AuditRecord> buffer;
+  private final AuditSink sink;
+  private final OverflowPolicy policy;
+  private final int batchSize;
+  private final Path spillFile;
+  private final Object spillLock = new Object();
+  private final Thread writer;
+
+  private final AtomicLong written = new AtomicLong();
+  private final AtomicLong dropped = new AtomicLong();
+  private final AtomicLong spilled = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+
+  // Guarded by spillLock.
+  private JsonLinesAuditSink spill;
+
+  private volatile boolean sleeping;
+  private volatile boolean closed;
+  private long reportedDrops;
+  private long lastDropReport;
+
+  /**
+   * @param sink Where the batches are written.  Closed when the writer is closed.
+   * @param capacity The number of records buffered, rounded up to a power of two.
+   * @param batchSize The maximum number of records passed to the sink at once.
+   * @param policy What to do when the buffer is full.
+   * @param spillFile The spill file, required for {@link OverflowPolicy#SPILL}.
+   */
+  public AsyncAuditWriter( AuditSink sink, int capacity, int batchSize, OverflowPolicy policy, Path spillFile ) {
+    if( policy == OverflowPolicy.SPILL && spillFile == null ) {
+      throw new IllegalArgumentException( "A spill file is required for the " + policy + " policy" );
+    }
+    this.buffer = new AuditRingBuffer<>( capacity );
+    this.sink = sink;
+    this.policy = policy;
+    this.batchSize = Math.max( 1, batchSize );
+    this.spillFile = spillFile;
+    this.writer = new Thread( this::run, "knox-audit-writer" );
+    this.writer.setDaemon( true );
+  }
+
+  public void start() {
+    writer.start();
+  }
+
+  public void submit( AuditRecord record ) {
+    if( closed ) {
+      dropped.incrementAndGet();
+      return;
+    }
+    if( buffer.offer( record ) ) {
+      wakeWriter();
+      return;
+    }
+    switch( policy ) {
+      case BLOCK:
+        block( record );
+        break;
+      case SPILL:
+        spill( record );
+        break;
+      case DROP:
+      default:
+        dropped.incrementAndGet();
+        break;
+    }
+  }
+
+  private void block( AuditRecord record ) {
+    do {
+      if( closed ) {
+        dropped.incrementAndGet();
+        return;
+      }
+      wakeWriter();
+      LockSupport.parkNanos( this, BLOCK_PARK_NANOS );
+    } while( !buffer.offer( record ) );
+    wakeWriter();
+  }
+
+  private void spill( AuditRecord record ) {
+    synchronized( spillLock ) {
+      try {
+        if( spill == null ) {
+          spill = new JsonLinesAuditSink( spillFile );
+        }
+        spill.writeRecord( record );
+        spilled.incrementAndGet();
+      } catch( IOException e ) {
+        dropped.incrementAndGet();
+        LOG.failedToSpillAuditRecord( String.valueOf( spillFile ), e );
+      }
+    }
+    wakeWriter();
+  }
+
+  private void wakeWriter() {
+    if( sleeping ) {
+      LockSupport.unpark( writer );
+    }
+  }
+
+  private void run() {
+    final List<AuditRecord> batch = new ArrayList<>( batchSize );
+    recoverSpill( batch );
+    while( true ) {
+      final boolean stopping = closed;
+      if( buffer.drainTo( batch, batchSize ) > 0 ) {
+        writeBatch( batch );
+        continue;
+      }
+      if( replaySpill( batch ) ) {
+        continue;
+      }
+      reportDrops();
+      if( stopping ) {
+        break;
+      }
+      sleeping = true;
+      if( buffer.isEmpty() && !closed ) {
+        LockSupport.parkNanos( this, IDLE_PARK_NANOS );
+      }
+      sleeping = false;
+    }
+    try {
+      sink.close();
+    } catch( IOException e ) {
+      LOG.failedToWriteAuditRecords( 0, e );
+    }
+  }
+
+  private void writeBatch( List<AuditRecord> batch ) {
+    try {
+      sink.write( batch );
+      written.addAndGet( batch.size() );
+    } catch( IOException | RuntimeException e ) {
+      failed.addAndGet( batch.size() );
+      LOG.failedToWriteAuditRecords( batch.size(), e );
+    }
+    batch.clear();
+  }
+
+  /* Replays what a previous process left behind in the spill files. */
+  private void recoverSpill( List<AuditRecord> batch ) {
+    if( spillFile != null ) {
+      final Path replay = getReplayFile();
+      if( Files.exists( replay ) ) {
+        replay( replay, batch );
+      }
+      replaySpill( batch );
+    }
+  }
+
+  private boolean replaySpill( List<AuditRecord> batch ) {
+    if( spillFile == null ) {
+      return false;
+    }
+    final Path replay = getReplayFile();
+    synchronized( spillLock ) {
+      try {
+        if( spill != null ) {
+          spill.close();
+          spill = null;
+        }
+        if( !Files.exists( spillFile ) ) {
+          return false;
+        }
+        Files.move( spillFile, replay, StandardCopyOption.REPLACE_EXISTING );
+      } catch( IOException e ) {
+        LOG.failedToReplayAuditSpill( spillFile.toString(), e );
+        return false;
+      }
+    }
+    replay( replay, batch );
+    return true;
+  }
+
+  private void replay( Path replay, List<AuditRecord> batch ) {
+    try( BufferedReader reader = Files.newBufferedReader( replay, StandardCharsets.UTF_8 ) ) {
+      String line;
+      while( ( line = reader.readLine() ) != null ) {
+        if( !line.isEmpty() ) {
+          batch.add( JsonLinesAuditSink.readRecord( line ) );
+          if( batch.size() >= batchSize ) {
+            writeBatch( batch );
+          }
+        }
+      }
+      if( !batch.isEmpty() ) {
+        writeBatch( batch );
+      }
+      Files.delete( replay );
+    } catch( IOException | RuntimeException e ) {
+      batch.clear();
+      LOG.failedToReplayAuditSpill( replay.toString(), e );
+    }
+  }
+
+  private Path getReplayFile() {
+    return spillFile.resolveSibling( spillFile.getFileName() + REPLAY_SUFFIX );
+  }
+
+  private void reportDrops() {
+    final long drops = dropped.get();
+    final long now = System.currentTimeMillis();
+    if( drops > reportedDrops && ( closed || now - lastDropReport >= DROP_REPORT_INTERVAL ) ) {
+      LOG.droppedAuditRecords( drops - reportedDrops );
+      reportedDrops = drops;
+      lastDropReport = now;
+    }
+  }
+
+  /**
+   * Stops accepting records, waits for the writer to drain the buffer and
+   * any spill file, and closes the sink.
+   *
+   * @param timeout The maximum time in milliseconds to wait for the writer.
+   */
+  public void close( long timeout ) {
+    closed = true;
+    LockSupport.unpark( writer );
+    try {
+      writer.join( timeout );
+    } catch( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+    if( writer.isAlive() ) {
+      LOG.auditWriterShutdownTimeout( timeout, buffer.size() );
+    }
+  }
+
+  @Override
+  public void close() {
+    close( TimeUnit.SECONDS.toMillis( 10 ) );
+  }
+
+  public OverflowPolicy getPolicy() {
+    return policy;
+  }
+
+  public int getCapacity() {
+    return buffer.capacity();
+  }
+
+  public int getQueueSize() {
+    return buffer.size();
+  }
+
+  public long getWrittenCount() {
+    return written.get();
+  }
+
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  public long getSpilledCount() {
+    return spilled.get();
+  }
+
+  public long getFailedCount() {
+    return failed.get();
+  }
+}
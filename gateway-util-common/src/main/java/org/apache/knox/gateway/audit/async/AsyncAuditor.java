@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit.async;
+
+import static org.apache.knox.gateway.audit.log4j.audit.Log4jAuditService.MDC_AUDIT_CONTEXT_KEY;
+
+import org.apache.knox.gateway.audit.api.AuditContext;
+import org.apache.knox.gateway.audit.api.Auditor;
+import org.apache.knox.gateway.audit.api.CorrelationContext;
+import org.apache.knox.gateway.audit.log4j.audit.Log4jAuditor;
+import org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationService;
+import org.apache.logging.log4j.ThreadContext;
+
+/**
+ * Captures each audit event as an immutable {@link AuditRecord} and hands it
+ * to the {@link AsyncAuditWriter}. Unlike the {@link Log4jAuditor} nothing is
+ * put into the {@link ThreadContext} and the resource name is masked on the
+ * writer thread.
+ */
+public class AsyncAuditor implements Auditor {
+
+  private static final String USERNAME_KEY = MDC_AUDIT_CONTEXT_KEY + "_username";
+  private static final String PROXY_USERNAME_KEY = MDC_AUDIT_CONTEXT_KEY + "_proxyUsername";
+  private static final String SYSTEM_USERNAME_KEY = MDC_AUDIT_CONTEXT_KEY + "_systemUsername";
+  private static final String TARGET_SERVICE_NAME_KEY = MDC_AUDIT_CONTEXT_KEY + "_targetServiceName";
+  private static final String REMOTE_IP_KEY = MDC_AUDIT_CONTEXT_KEY + "_remoteIp";
+
+  private final String auditorName;
+  private final String componentName;
+  private final String serviceName;
+  private final AsyncAuditWriter writer;
+
+  public AsyncAuditor( String auditorName, String componentName, String serviceName, AsyncAuditWriter writer ) {
+    this.auditorName = auditorName;
+    this.componentName = componentName;
+    this.serviceName = serviceName;
+    this.writer = writer;
+    Log4jAuditor.addMaskedParamsFromSystemProperty();
+  }
+
+  @Override
+  public void audit( CorrelationContext correlationContext, AuditContext auditContext, String action, String resourceName, String resourceType, String outcome, String message ) {
+    AuditRecord.Builder record = newRecord( action, resourceName, resourceType, outcome, message );
+    if( correlationContext != null ) {
+      record.correlation( correlationContext.getRootRequestId(), correlationContext.getParentRequestId(), correlationContext.getRequestId() );
+    } else {
+      currentCorrelation( record );
+    }
+    if( auditContext != null ) {
+      record.remoteIp( auditContext.getRemoteIp() )
+          .targetServiceName( auditContext.getTargetServiceName() )
+          .users( auditContext.getUsername(), auditContext.getProxyUsername(), auditContext.getSystemUsername() );
+    } else {
+      currentAudit( record );
+    }
+    writer.submit( record.build() );
+  }
+
+  @Override
+  public void audit( String action, String resourceName, String resourceType, String outcome, String message ) {
+    AuditRecord.Builder record = newRecord( action, resourceName, resourceType, outcome, message );
+    currentCorrelation( record );
+    currentAudit( record );
+    writer.submit( record.build() );
+  }
+
+  @Override
+  public void audit( String action, String resourceName, String resourceType, String outcome ) {
+    audit( action, resourceName, resourceType, outcome, null );
+  }
+
+  private AuditRecord.Builder newRecord( String action, String resourceName, String resourceType, String outcome, String message ) {
+    return AuditRecord.builder()
+        .timestamp( System.currentTimeMillis() )
+        .auditor( auditorName, componentName, serviceName )
+        .event( action, resourceType, resourceName, outcome, message );
+  }
+
+  private static void currentCorrelation( AuditRecord.Builder record ) {
+    record.correlation(
+        ThreadContext.get( Log4jCorrelationService.KEY_ROOT_REQUEST_ID ),
+        ThreadContext.get( Log4jCorrelationService.KEY_PARENT_REQUEST_ID ),
+        ThreadContext.get( Log4jCorrelationService.KEY_REQUEST_ID ) );
+  }
+
+  private static void currentAudit( AuditRecord.Builder record ) {
+    record.remoteIp( ThreadContext.get( REMOTE_IP_KEY ) )
+        .targetServiceName( ThreadContext.get( TARGET_SERVICE_NAME_KEY ) )
+        .users( ThreadContext.get( USERNAME_KEY ), ThreadContext.get( PROXY_USERNAME_KEY ), ThreadContext.get( SYSTEM_USERNAME_KEY ) );
+  }
+
+  @Override
+  public String getComponentName() {
+    return componentName;
+  }
+
+  @Override
+  public String getServiceName() {
+    return serviceName;
+  }
+
+  @Override
+  public String getAuditorName() {
+    return auditorName;
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit.async;
+
+/**
+ * An immutable audit event captured on the request thread. Everything that
+ * can be deferred, e.g. masking of the resource name and formatting, is left
+ * to the writer thread.
+ */
+public final class AuditRecord {
+
+  private final long timestamp;
+  private final String auditorName;
+  private final String componentName;
+  private final String serviceName;
+  private final String rootRequestId;
+  private final String parentRequestId;
+  private final String requestId;
+  private final String remoteIp;
+  private final String targetServiceName;
+  private final String username;
+  private final String proxyUsername;
+  private final String systemUsername;
+  private final String action;
+  private final String resourceType;
+  private final String resourceName;
+  private final String outcome;
+  private final String message;
+
+  AuditRecord( Builder builder ) {
+    this.timestamp = builder.timestamp;
+    this.auditorName = builder.auditorName;
+    this.componentName = builder.componentName;
+    this.serviceName = builder.serviceName;
+    this.rootRequestId = builder.rootRequestId;
+    this.parentRequestId = builder.parentRequestId;
+    this.requestId = builder.requestId;
+    this.remoteIp = builder.remoteIp;
+    this.targetServiceName = builder.targetServiceName;
+    this.username = builder.username;
+    this.proxyUsername = builder.proxyUsername;
+    this.systemUsername = builder.systemUsername;
+    this.action = builder.action;
+    this.resourceType = builder.resourceType;
+    this.resourceName = builder.resourceName;
+    this.outcome = builder.outcome;
+    this.message = builder.message;
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public String getAuditorName() {
+    return auditorName;
+  }
+
+  public String getComponentName() {
+    return componentName;
+  }
+
+  public String getServiceName() {
+    return serviceName;
+  }
+
+  public String getRootRequestId() {
+    return rootRequestId;
+  }
+
+  public String getParentRequestId() {
+    return parentRequestId;
+  }
+
+  public String getRequestId() {
+    return requestId;
+  }
+
+  public String getRemoteIp() {
+    return remoteIp;
+  }
+
+  public String getTargetServiceName() {
+    return targetServiceName;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  public String getProxyUsername() {
+    return proxyUsername;
+  }
+
+  public String getSystemUsername() {
+    return systemUsername;
+  }
+
+  public String getAction() {
+    return action;
+  }
+
+  public String getResourceType() {
+    return resourceType;
+  }
+
+  /**
+   * @return The resource name as it was audited, i.e. before masking, unless
+   * the record was replayed from a spill file.
+   */
+  public String getResourceName() {
+    return resourceName;
+  }
+
+  public String getOutcome() {
+    return outcome;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public static final class Builder {
+    private long timestamp;
+    private String auditorName;
+    private String componentName;
+    private String serviceName;
+    private String rootRequestId;
+    private String parentRequestId;
+    private String requestId;
+    private String remoteIp;
+    private String targetServiceName;
+    private String username;
+    private String proxyUsername;
+    private String systemUsername;
+    private String action;
+    private String resourceType;
+    private String resourceName;
+    private String outcome;
+    private String message;
+
+    private Builder() {
+    }
+
+    public Builder timestamp( long timestamp ) {
+      this.timestamp = timestamp;
+      return this;
+    }
+
+    public Builder auditor( String auditorName, String componentName, String serviceName ) {
+      this.auditorName = auditorName;
+      this.componentName = componentName;
+      this.serviceName = serviceName;
+      return this;
+    }
+
+    public Builder correlation( String rootRequestId, String parentRequestId, String requestId ) {
+      this.rootRequestId = rootRequestId;
+      this.parentRequestId = parentRequestId;
+      this.requestId = requestId;
+      return this;
+    }
+
+    public Builder remoteIp( String remoteIp ) {
+      this.remoteIp = remoteIp;
+      return this;
+    }
+
+    public Builder targetServiceName( String targetServiceName ) {
+      this.targetServiceName = targetServiceName;
+      return this;
+    }
+
+    public Builder users( String username, String proxyUsername, String systemUsername ) {
+      this.username = username;
+      this.proxyUsername = proxyUsername;
+      this.systemUsername = systemUsername;
+      return this;
+    }
+
+    public Builder event( String action, String resourceType, String resourceName, String outcome, String message ) {
+      this.action = action;
+      this.resourceType = resourceType;
+      this.resourceName = resourceName;
+      this.outcome = outcome;
+      this.message = message;
+      return this;
+    }
+
+    public AuditRecord build() {
+      return new AuditRecord( this );
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit.async;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free ring buffer with many producers and a single consumer.
+ * Each slot carries a sequence number; a producer claims a position with a
+ * CAS on the tail and publishes the element by advancing the slot's
+ * sequence, so neither side ever takes a lock.
+ */
+final class AuditRingBuffer<T> {
+
+  private final int capacity;
+  private final int mask;
+  private final AtomicReferenceArray<T> elements;
+  private final AtomicLongArray sequences;
+  private final AtomicLong tail = new AtomicLong();
+  private volatile long head;
+
+  AuditRingBuffer( int requestedCapacity ) {
+    if( requestedCapacity < 1 ) {
+      throw new IllegalArgumentException( "Capacity must be positive: " + requestedCapacity );
+    }
+    int size = 1;
+    while( size < requestedCapacity && size < ( 1 << 30 ) ) {
+      size <<= 1;
+    }
+    capacity = size;
+    mask = size - 1;
+    elements = new AtomicReferenceArray<>( size );
+    sequences = new AtomicLongArray( size );
+    for( int i = 0; i < size; i++ ) {
+      sequences.set( i, i );
+    }
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  /**
+   * @return False if the buffer is full.
+   */
+  boolean offer( T element ) {
+    long position = tail.get();
+    while( true ) {
+      int index = (int)( position & mask );
+      long difference = sequences.get( index ) - position;
+      if( difference == 0 ) {
+        if( tail.compareAndSet( position, position + 1 ) ) {
+          elements.lazySet( index, element );
+          sequences.lazySet( index, position + 1 );
+          return true;
+        }
+        position = tail.get();
+      } else if( difference < 0 ) {
+        return false;
+      } else {
+        position = tail.get();
+      }
+    }
+  }
+
+  /**
+   * Moves up to max published elements into the target. Must only be called
+   * from the single consumer thread.
+   */
+  int drainTo( Collection<? super T> target, int max ) {
+    long position = head;
+    int count = 0;
+    while( count < max ) {
+      int index = (int)( position & mask );
+      if( sequences.get( index ) != position + 1 ) {
+        break;
+      }
+      target.add( elements.get( index ) );
+      elements.lazySet( index, null );
+      sequences.lazySet( index, position + capacity );
+      position++;
+      count++;
+    }
+    head = position;
+    return count;
+  }
+
+  int size() {
+    return (int)Math.max( 0, tail.get() - head );
+  }
+
+  boolean isEmpty() {
+    return size() == 0;
+  }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit.async;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.apache.knox.gateway.audit.log4j.audit.Log4jAuditor;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes one JSON object per line. Field names follow the columns of the
+ * pipe separated {@link org.apache.knox.gateway.audit.log4j.layout.AuditLayout};
+ * fields without a value are omitted.
+ */
+public class JsonLinesAuditSink implements AuditSink {
+
+  static final String TIMESTAMP = "timestamp";
+  static final String ROOT_REQUEST_ID = "root_request_id";
+  static final String PARENT_REQUEST_ID = "parent_request_id";
+  static final String REQUEST_ID = "request_id";
+  static final String CHANNEL = "channel";
+  static final String COMPONENT_NAME = "component_name";
+  static final String SERVICE_NAME = "service_name";
+  static final String REMOTE_IP = "remote_ip";
+  static final String TARGET_SERVICE = "target_service";
+  static final String USERNAME = "username";
+  static final String PROXY_USERNAME = "proxy_username";
+  static final String SYSTEM_USERNAME = "system_username";
+  static final String ACTION = "action";
+  static final String RESOURCE_TYPE = "resource_type";
+  static final String RESOURCE_NAME = "resource_name";
+  static final String OUTCOME = "outcome";
+  static final String MESSAGE = "message";
+
+  private static final JsonFactory JSON = new JsonFactory();
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final JsonGenerator generator;
+
+  public JsonLinesAuditSink( Path file ) throws IOException {
+    this( openForAppend( file ) );
+  }
+
+  public JsonLinesAuditSink( OutputStream out ) throws IOException {
+    generator = JSON.createGenerator( new BufferedOutputStream( out, BUFFER_SIZE ), JsonEncoding.UTF8 );
+    generator.setRootValueSeparator( null );
+  }
+
+  static OutputStream openForAppend( Path file ) throws IOException {
+    Path parent = file.toAbsolutePath().getParent();
+    if( parent != null ) {
+      Files.createDirectories( parent );
+    }
+    return Files.newOutputStream( file, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE );
+  }
+
+  @Override
+  public void write( List<AuditRecord> records ) throws IOException {
+    for( AuditRecord record : records ) {
+      writeRecord( record );
+    }
+    generator.flush();
+  }
+
+  void writeRecord( AuditRecord record ) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField( TIMESTAMP, DateTimeFormatter.ISO_INSTANT.format( Instant.ofEpochMilli( record.getTimestamp() ) ) );
+    writeField( ROOT_REQUEST_ID, record.getRootRequestId() );
+    writeField( PARENT_REQUEST_ID, record.getParentRequestId() );
+    writeField( REQUEST_ID, record.getRequestId() );
+    writeField( CHANNEL, record.getAuditorName() );
+    writeField( COMPONENT_NAME, record.getComponentName() );
+    writeField( SERVICE_NAME, record.getServiceName() );
+    writeField( REMOTE_IP, record.getRemoteIp() );
+    writeField( TARGET_SERVICE, record.getTargetServiceName() );
+    writeField( USERNAME, record.getUsername() );
+    writeField( PROXY_USERNAME, record.getProxyUsername() );
+    writeField( SYSTEM_USERNAME, record.getSystemUsername() );
+    writeField( ACTION, record.getAction() );
+    writeField( RESOURCE_TYPE, record.getResourceType() );
+    writeField( RESOURCE_NAME, record.getResourceName() == null ? null : Log4jAuditor.maskTokenFromURL( record.getResourceName() ) );
+    writeField( OUTCOME, record.getOutcome() );
+    writeField( MESSAGE, record.getMessage() );
+    generator.writeEndObject();
+    generator.writeRaw( '\n' );
+  }
+
+  void flush() throws IOException {
+    generator.flush();
+  }
+
+  private void writeField( String name, String value ) throws IOException {
+    if( value != null ) {
+      generator.writeStringField( name, value );
+    }
+  }
+
+  /**
+   * Parses a line written by this sink back into a record.
+   */
+  static AuditRecord readRecord( String line ) throws IOException {
+    Map<String, String> fields = new HashMap<>();
+    try( JsonParser parser = JSON.createParser( line ) ) {
+      if( parser.nextToken() != JsonToken.START_OBJECT ) {
+        throw new IOException( "Not an audit record: " + line );
+      }
+      while( parser.nextToken() == JsonToken.FIELD_NAME ) {
+        String name = parser.getCurrentName();
+        parser.nextToken();
+        fields.put( name, parser.getValueAsString() );
+      }
+    }
+    String timestamp = fields.get( TIMESTAMP );
+    return AuditRecord.builder()
+        .timestamp( timestamp == null ? 0L : Instant.parse( timestamp ).toEpochMilli() )
+        .auditor( fields.get( CHANNEL ), fields.get( COMPONENT_NAME ), fields.get( SERVICE_NAME ) )
+        .correlation( fields.get( ROOT_REQUEST_ID ), fields.get( PARENT_REQUEST_ID ), fields.get( REQUEST_ID ) )
+        .remoteIp( fields.get( REMOTE_IP ) )
+        .targetServiceName( fields.get( TARGET_SERVICE ) )
+        .users( fields.get( USERNAME ), fields.get( PROXY_USERNAME ), fields.get( SYSTEM_USERNAME ) )
+        .event( fields.get( ACTION ), fields.get( RESOURCE_TYPE ), fields.get( RESOURCE_NAME ), fields.get( OUTCOME ), fields.get( MESSAGE ) )
+        .build();
+  }
+
+  @Override
+  public void close() throws IOException {
+    generator.close();
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit.correlation;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.knox.gateway.audit.api.CorrelationIdGenerator;
+
+/**
+ * Generates version 7 UUIDs: 48 bits of Unix epoch milliseconds followed by 74
+ * random bits, so ids sort by creation time and keep the format of the random
+ * UUIDs used before. The random bits come from {@link ThreadLocalRandom}, which
+ * is not contended between request threads; the ids are not secrets.
+ */
+public class TimeOrderedUuidGenerator implements CorrelationIdGenerator {
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  @Override
+  public String generate() {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    final long msb = ( System.currentTimeMillis() << 16 ) | 0x7000L | ( random.nextInt() & 0x0fffL );
+    final long lsb = ( random.nextLong() & 0x3fffffffffffffffL ) | 0x8000000000000000L;
+    return format( msb, lsb );
+  }
+
+  static String format( long msb, long lsb ) {
+    final char[] chars = new char[ 36 ];
+    hex( chars, 0, msb >>> 32, 8 );
+    chars[ 8 ] = '-';
+    hex( chars, 9, msb >>> 16, 4 );
+    chars[ 13 ] = '-';
+    hex( chars, 14, msb, 4 );
+    chars[ 18 ] = '-';
+    hex( chars, 19, lsb >>> 48, 4 );
+    chars[ 23 ] = '-';
+    hex( chars, 24, lsb, 12 );
+    return new String( chars );
+  }
+
+  private static void hex( char[] chars, int offset, long value, int digits ) {
+    for( int i = offset + digits - 1; i >= offset; i-- ) {
+      chars[ i ] = HEX[ (int) ( value & 0xf ) ];
+      value >>>= 4;
+    }
+  }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit.correlation;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.apache.knox.gateway.audit.api.CorrelationIdGenerator;
+
+/**
+ * Generates ULIDs: 26 Crockford base32 characters encoding 48 bits of Unix
+ * epoch milliseconds followed by 80 random bits. ULIDs sort lexically by
+ * creation time.
+ */
+public class UlidGenerator implements CorrelationIdGenerator {
+
+  private static final char[] BASE32 = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+  @Override
+  public String generate() {
+    final ThreadLocalRandom random = ThreadLocalRandom.current();
+    return format( System.currentTimeMillis(), random.nextInt() & 0xffff, random.nextLong() );
+  }
+
+  static String format( long millis, int randomHigh, long randomLow ) {
+    final char[] chars = new char[ 26 ];
+    /* 10 characters hold the 48 bit timestamp, the top 2 bits are 0 */
+    long value = millis;
+    for( int i = 9; i >= 0; i-- ) {
+      chars[ i ] = BASE32[ (int) ( value & 0x1f ) ];
+      value >>>= 5;
+    }
+    /* 16 characters hold the 80 random bits: 64 from randomLow and 16 from randomHigh */
+    value = randomLow;
+    for( int i = 25; i >= 14; i-- ) {
+      chars[ i ] = BASE32[ (int) ( value & 0x1f ) ];
+      value >>>= 5;
+    }
+    /* the top 4 bits of randomLow and the lowest bit of randomHigh */
+    chars[ 13 ] = BASE32[ (int) ( value | ( ( randomHigh & 0x1L ) << 4 ) ) ];
+    value = randomHigh >>> 1;
+    for( int i = 12; i >= 10; i-- ) {
+      chars[ i ] = BASE32[ (int) ( value & 0x1f ) ];
+      value >>>= 5;
+    }
+    return new String( chars );
+  }
+}
@@ -0,0 +1,536 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit.log4j.appender;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Durable FIFO queue of byte records stored in append-only, memory-mapped
+ * segment files. Appends only copy into the mapped segment; the segment is
+ * forced to disk once {@code syncBatchSize} records or {@code syncInterval}
+ * milliseconds have accumulated, see {@link #sync()}.
+ * <p>
+ * The single consumer {@link #take takes} batches and {@link #acknowledge()
+ * acknowledges} them once they have been delivered. Only then is the read
+ * cursor persisted and fully consumed segments deleted, so records that were
+ * taken but not acknowledged are delivered again after a restart
+ * (at-least-once).
+ * <p>
+ * Each record is stored as its length, a CRC32 of its content and the
+ * content. A length of -1 seals a segment; a zero length or a CRC mismatch
+ * marks the end of what was written before a crash, which is why empty
+ * records are rejected.
+ * <p>
+ * Deleted segments are unmapped right away where the runtime allows it
+ * (Java 9 and later), otherwise their mapping is released once the buffer
+ * is garbage collected.
+ */
+public class SegmentedQueue implements SegmentedQueueMBean, Closeable {
+
+  public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+  private static final String SEGMENT_SUFFIX = ".seg";
+  private static final String CURSOR_FILE = "cursor";
+  private static final int HEADER = 8;
+  private static final int SEALED = -1;
+  // Two alternating slots of sequence, segment, position and CRC so a torn update keeps the previous cursor.
+  private static final int CURSOR_SLOT = 28;
+
+  private final Path directory;
+  private final int segmentSize;
+  private final int syncBatchSize;
+  private final long syncInterval;
+  private final List<Segment> segments = new ArrayList<>();
+  private final CRC32 crc = new CRC32();
+  private final FileChannel cursorChannel;
+  private final MappedByteBuffer cursor;
+
+  private Segment writeSegment;
+  private Segment readSegment;
+  private int readPosition;
+  private long ackSegmentId;
+  private int ackPosition;
+  private long cursorSequence;
+  private int pendingCount;
+  private long pendingBytes;
+  private int unsynced;
+  private long lastSync = System.currentTimeMillis();
+  private long depth;
+  private long depthBytes;
+  private long enqueued;
+  private long acknowledged;
+  private boolean waiting;
+  private boolean open = true;
+
+  public SegmentedQueue( File directory ) throws IOException {
+    this( directory, DEFAULT_SEGMENT_SIZE, 256, 1000L );
+  }
+
+  /**
+   * @param directory The directory holding the segment and cursor files.  Created if missing.
+   * @param segmentSize The size of a segment file in bytes.  Larger records get a segment of their own.
+   * @param syncBatchSize The number of appended records after which the write segment is forced to disk.
+   * @param syncInterval The time in milliseconds after which appended records are forced to disk.
+   * @throws IOException If the queue files cannot be opened or created.
+   */
+  public SegmentedQueue( File directory, int segmentSize, int syncBatchSize, long syncInterval ) throws IOException {
+    this.directory = directory.toPath();
+    this.segmentSize = Math.max( 4096, segmentSize );
+    this.syncBatchSize = Math.max( 1, syncBatchSize );
+    this.syncInterval = syncInterval;
+    Files.createDirectories( this.directory );
+    cursorChannel = FileChannel.open( this.directory.resolve( CURSOR_FILE ),
+        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+    cursor = cursorChannel.map( FileChannel.MapMode.READ_WRITE, 0, 2L * CURSOR_SLOT );
+    recover();
+  }
+
+  private void recover() throws IOException {
+    readCursor();
+    final List<Long> ids = new ArrayList<>();
+    try( DirectoryStream<Path> files = Files.newDirectoryStream( directory, "*" + SEGMENT_SUFFIX ) ) {
+      for( Path file : files ) {
+        final String name = file.getFileName().toString();
+        ids.add( Long.parseLong( name.substring( 0, name.length() - SEGMENT_SUFFIX.length() ) ) );
+      }
+    } catch( NumberFormatException e ) {
+      throw new IOException( "Unexpected segment file in " + directory, e );
+    }
+    Collections.sort( ids );
+    for( Long id : ids ) {
+      if( id < ackSegmentId ) {
+        Files.deleteIfExists( segmentPath( id ) );
+      } else {
+        segments.add( Segment.open( segmentPath( id ), id, 0 ) );
+      }
+    }
+    if( segments.isEmpty() ) {
+      segments.add( Segment.open( segmentPath( ackSegmentId ), ackSegmentId, segmentSize ) );
+    }
+    readSegment = segments.get( 0 );
+    if( readSegment.id != ackSegmentId ) {
+      ackSegmentId = readSegment.id;
+      ackPosition = 0;
+    }
+    readPosition = ackPosition;
+
+    // Count what is left to deliver and find the end of the last segment.
+    writeSegment = segments.get( segments.size() - 1 );
+    boolean sealed = false;
+    for( Segment segment : segments ) {
+      int position = segment == readSegment ? ackPosition : 0;
+      int length;
+      while( ( length = validRecordLength( segment, position ) ) > 0 ) {
+        depth++;
+        depthBytes += HEADER + length;
+        position += HEADER + length;
+      }
+      if( segment == writeSegment ) {
+        ( (Buffer)writeSegment.buffer ).position( position );
+        sealed = length == SEALED;
+        if( !sealed ) {
+          writeSegment.clearFrom( position );
+        }
+      }
+    }
+    if( sealed ) {
+      roll( 0 );
+    }
+  }
+
+  private Path segmentPath( long id ) {
+    return directory.resolve( String.format( Locale.ROOT, "%020d%s", id, SEGMENT_SUFFIX ) );
+  }
+
+  /* Returns the length of the valid record at the position, zero if there is none or SEALED. */
+  private int validRecordLength( Segment segment, int position ) {
+    final MappedByteBuffer buffer = segment.buffer;
+    if( position + HEADER > buffer.capacity() ) {
+      return 0;
+    }
+    final int length = buffer.getInt( position );
+    if( length == SEALED ) {
+      return SEALED;
+    }
+    if( length <= 0 || length > buffer.capacity() - position - HEADER ) {
+      return 0;
+    }
+    final ByteBuffer content = segment.reader( position + HEADER, length );
+    crc.reset();
+    crc.update( content );
+    return (int)crc.getValue() == buffer.getInt( position + 4 ) ? length : 0;
+  }
+
+  /**
+   * Appends a record to the queue.
+   *
+   * @param record The record, must not be empty.
+   * @throws IOException If the queue is closed or a new segment could not be created.
+   * @throws IllegalArgumentException If the record is empty.
+   */
+  public synchronized void enqueue( byte[] record ) throws IOException {
+    if( record.length == 0 ) {
+      throw new IllegalArgumentException( "Empty records cannot be queued" );
+    }
+    if( !open ) {
+      throw new IOException( "Queue " + directory + " is closed" );
+    }
+    final int size = HEADER + record.length;
+    if( writeSegment.buffer.remaining() < size ) {
+      roll( size );
+    }
+    final MappedByteBuffer buffer = writeSegment.buffer;
+    final int position = buffer.position();
+    crc.reset();
+    crc.update( record, 0, record.length );
+    ( (Buffer)buffer ).position( position + 4 );
+    buffer.putInt( (int)crc.getValue() );
+    buffer.put( record );
+    // The length goes in last so a reader never sees a partially copied record.
+    buffer.putInt( position, record.length );
+    depth++;
+    depthBytes += size;
+    enqueued++;
+    unsynced++;
+    if( unsynced >= syncBatchSize || System.currentTimeMillis() - lastSync >= syncInterval ) {
+      sync();
+    }
+    if( waiting ) {
+      notifyAll();
+    }
+  }
+
+  private void roll( int size ) throws IOException {
+    final MappedByteBuffer buffer = writeSegment.buffer;
+    if( buffer.remaining() >= 4 ) {
+      buffer.putInt( buffer.position(), SEALED );
+    }
+    buffer.force();
+    unsynced = 0;
+    final long id = writeSegment.id + 1;
+    writeSegment = Segment.open( segmentPath( id ), id, Math.max( segmentSize, size ) );
+    segments.add( writeSegment );
+  }
+
+  /**
+   * Forces the records appended since the last sync to disk.
+   *
+   * @throws IOException If the segment could not be forced.
+   */
+  public synchronized void sync() throws IOException {
+    if( unsynced > 0 ) {
+      writeSegment.buffer.force();
+      unsynced = 0;
+    }
+    lastSync = System.currentTimeMillis();
+  }
+
+  /**
+   * Waits for records and returns up to max of them in order. Records taken
+   * since the last acknowledgement are not returned again unless the queue
+   * is {@link #rewind() rewound} or reopened.
+   *
+   * @param max The maximum number of records returned.
+   * @param timeout The maximum time to wait for the first record.
+   * @param unit The unit of the timeout.
+   * @return The records, empty if the timeout elapsed or the queue was stopped.
+   * @throws InterruptedException If interrupted while waiting.
+   */
+  public synchronized List<byte[]> take( int max, long timeout, TimeUnit unit ) throws InterruptedException {
+    final long deadline = System.nanoTime() + unit.toNanos( timeout );
+    byte[] record = next();
+    while( record == null && open ) {
+      final long remaining = TimeUnit.NANOSECONDS.toMillis( deadline - System.nanoTime() );
+      if( remaining <= 0 ) {
+        break;
+      }
+      waiting = true;
+      try {
+        wait( remaining );
+      } finally {
+        waiting = false;
+      }
+      record = next();
+    }
+    if( record == null ) {
+      return Collections.emptyList();
+    }
+    final List<byte[]> batch = new ArrayList<>( Math.min( max, 64 ) );
+    batch.add( record );
+    while( batch.size() < max && ( record = next() ) != null ) {
+      batch.add( record );
+    }
+    return batch;
+  }
+
+  private byte[] next() {
+    while( true ) {
+      if( readSegment == writeSegment && readPosition >= writeSegment.buffer.position() ) {
+        return null;
+      }
+      final int length = validRecordLength( readSegment, readPosition );
+      if( length <= 0 ) {
+        if( readSegment == writeSegment ) {
+          return null;
+        }
+        readSegment = segments.get( segments.indexOf( readSegment ) + 1 );
+        readPosition = 0;
+        continue;
+      }
+      final byte[] record = new byte[ length ];
+      readSegment.reader( readPosition + HEADER, length ).get( record );
+      readPosition += HEADER + length;
+      pendingCount++;
+      pendingBytes += HEADER + length;
+      return record;
+    }
+  }
+
+  /**
+   * Durably records that everything taken so far has been delivered and
+   * deletes the segments that no longer hold undelivered records.
+   *
+   * @throws IOException If the cursor could not be written or a segment deleted.
+   */
+  public synchronized void acknowledge() throws IOException {
+    if( pendingCount == 0 && readSegment.id == ackSegmentId && readPosition == ackPosition ) {
+      return;
+    }
+    writeCursor( readSegment.id, readPosition );
+    ackSegmentId = readSegment.id;
+    ackPosition = readPosition;
+    depth -= pendingCount;
+    depthBytes -= pendingBytes;
+    acknowledged += pendingCount;
+    pendingCount = 0;
+    pendingBytes = 0;
+    final Iterator<Segment> iterator = segments.iterator();
+    while( iterator.hasNext() ) {
+      final Segment segment = iterator.next();
+      if( segment.id >= ackSegmentId ) {
+        break;
+      }
+      iterator.remove();
+      segment.delete();
+    }
+  }
+
+  /**
+   * Makes the records taken since the last acknowledgement available again,
+   * e.g. after they could not be delivered.
+   */
+  public synchronized void rewind() {
+    for( Segment segment : segments ) {
+      if( segment.id == ackSegmentId ) {
+        readSegment = segment;
+        break;
+      }
+    }
+    readPosition = ackPosition;
+    pendingCount = 0;
+    pendingBytes = 0;
+  }
+
+  private void readCursor() {
+    long best = -1;
+    for( int slot = 0; slot < 2; slot++ ) {
+      final int offset = slot * CURSOR_SLOT;
+      final long sequence = cursor.getLong( offset );
+      final long segment = cursor.getLong( offset + 8 );
+      final long position = cursor.getLong( offset + 16 );
+      if( sequence > best && cursorChecksum( sequence, segment, position ) == cursor.getInt( offset + 24 ) ) {
+        best = sequence;
+        cursorSequence = sequence;
+        ackSegmentId = segment;
+        ackPosition = (int)position;
+      }
+    }
+  }
+
+  private void writeCursor( long segment, int position ) {
+    final long sequence = cursorSequence + 1;
+    final int offset = (int)( sequence % 2 ) * CURSOR_SLOT;
+    cursor.putLong( offset, sequence );
+    cursor.putLong( offset + 8, segment );
+    cursor.putLong( offset + 16, position );
+    cursor.putInt( offset + 24, cursorChecksum( sequence, segment, position ) );
+    cursor.force();
+    cursorSequence = sequence;
+  }
+
+  private int cursorChecksum( long sequence, long segment, long position ) {
+    final byte[] values = ByteBuffer.allocate( 24 ).putLong( sequence ).putLong( segment ).putLong( position ).array();
+    crc.reset();
+    crc.update( values, 0, values.length );
+    return (int)crc.getValue();
+  }
+
+  /**
+   * Wakes a waiting consumer and makes further takes return immediately.
+   */
+  public synchronized void stop() {
+    open = false;
+    notifyAll();
+  }
+
+  public synchronized boolean isOpen() {
+    return open;
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    stop();
+    sync();
+    for( Segment segment : segments ) {
+      segment.close();
+    }
+    cursorChannel.close();
+  }
+
+  @Override
+  public synchronized long getDepth() {
+    return depth;
+  }
+
+  @Override
+  public synchronized long getDepthBytes() {
+    return depthBytes;
+  }
+
+  @Override
+  public synchronized int getSegmentCount() {
+    return segments.size();
+  }
+
+  @Override
+  public synchronized long getEnqueuedCount() {
+    return enqueued;
+  }
+
+  @Override
+  public synchronized long getAcknowledgedCount() {
+    return acknowledged;
+  }
+
+  private static final class Segment {
+    private final long id;
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+
+    private Segment( long id, Path path, FileChannel channel, MappedByteBuffer buffer ) {
+      this.id = id;
+      this.path = path;
+      this.channel = channel;
+      this.buffer = buffer;
+    }
+
+    /* Maps an existing segment at its current size or a new one at the given size. */
+    static Segment open( Path path, long id, int size ) throws IOException {
+      final FileChannel channel = FileChannel.open( path,
+          StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE );
+      try {
+        final long length = Math.max( channel.size(), size );
+        final MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_WRITE, 0, length );
+        return new Segment( id, path, channel, buffer );
+      } catch( IOException | RuntimeException e ) {
+        channel.close();
+        throw e;
+      }
+    }
+
+    ByteBuffer reader( int position, int length ) {
+      // Through ByteBuffer and Buffer so the class also links against the Java 8 runtime.
+      final ByteBuffer view = ( (ByteBuffer)buffer ).duplicate();
+      ( (Buffer)view ).limit( position + length );
+      ( (Buffer)view ).position( position );
+      return view;
+    }
+
+    /* Zeroes whatever a crash left after the last valid record. */
+    void clearFrom( int position ) {
+      for( int i = position; i < buffer.capacity(); i++ ) {
+        if( buffer.get( i ) != 0 ) {
+          buffer.put( i, (byte)0 );
+        }
+      }
+    }
+
+    void close() throws IOException {
+      channel.close();
+    }
+
+    /* Only for segments that are no longer referenced, the buffer is unusable afterwards. */
+    void delete() throws IOException {
+      close();
+      Unmapper.unmap( buffer );
+      Files.deleteIfExists( path );
+    }
+  }
+
+  private static final class Unmapper {
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+      Object unsafe = null;
+      Method invokeCleaner = null;
+      try {
+        final Class<?> unsafeClass = Class.forName( "sun.misc.Unsafe" );
+        invokeCleaner = unsafeClass.getMethod( "invokeCleaner", ByteBuffer.class );
+        final Field field = unsafeClass.getDeclaredField( "theUnsafe" );
+        field.setAccessible( true );
+        unsafe = field.get( null );
+      } catch( ReflectiveOperationException | RuntimeException e ) {
+        // Java 8, the mapping is released when the buffer is garbage collected.
+        invokeCleaner = null;
+      }
+      UNSAFE = unsafe;
+      INVOKE_CLEANER = invokeCleaner;
+    }
+
+    static void unmap( MappedByteBuffer buffer ) {
+      if( INVOKE_CLEANER != null ) {
+        try {
+          INVOKE_CLEANER.invoke( UNSAFE, buffer );
+        } catch( ReflectiveOperationException | RuntimeException e ) {
+          // Left to the garbage collector.
+        }
+      }
+    }
+  }
+}
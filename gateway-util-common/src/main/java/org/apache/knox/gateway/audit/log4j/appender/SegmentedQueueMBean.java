@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit.log4j.appender;
+
+/**
+ * Management view of a {@link SegmentedQueue}.
+ */
+public interface SegmentedQueueMBean {
+
+  /**
+   * @return The number of records not yet acknowledged by the consumer.
+   */
+  long getDepth();
+
+  /**
+   * @return The size in bytes of the records not yet acknowledged, including record headers.
+   */
+  long getDepthBytes();
+
+  /**
+   * @return The number of segment files currently on disk.
+   */
+  int getSegmentCount();
+
+  /**
+   * @return The number of records enqueued since the queue was opened.
+   */
+  long getEnqueuedCount();
+
+  /**
+   * @return The number of records acknowledged since the queue was opened.
+   */
+  long getAcknowledgedCount();
+
+}
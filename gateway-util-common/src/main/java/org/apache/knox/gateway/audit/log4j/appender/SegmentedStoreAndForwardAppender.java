@@ -0,0 +1,221 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit.log4j.appender;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.Core;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.Logger;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.appender.AppenderLoggingException;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginElement;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.util.FilteredObjectInputStream;
+
+/**
+ * Store-and-forward appender backed by a {@link SegmentedQueue}. Events are
+ * appended to memory-mapped segment files and forwarded in batches to the
+ * appenders of the "audit.forward" logger; a batch is acknowledged only after
+ * it was forwarded, so events survive a restart until they are delivered.
+ * The queue depth is published as an MBean named
+ * org.apache.knox.gateway.audit:type=SegmentedQueue,name=&lt;appender name&gt;.
+ */
+@Plugin(
+    name = "SegmentedStoreAndForwardAppender",
+    category = Core.CATEGORY_NAME,
+    elementType = Appender.ELEMENT_TYPE)
+public class SegmentedStoreAndForwardAppender extends AbstractAppender {
+  private static final long RETRY_DELAY = TimeUnit.SECONDS.toMillis( 1 );
+
+  private final SegmentedQueue queue;
+  private final int batchSize;
+  private final long syncInterval;
+  private final Thread forwarder; //NOPMD - Expected use of threading
+  private final Logger forward;
+  private ObjectName objectName;
+
+  private SegmentedStoreAndForwardAppender(String name, Filter filter, SegmentedQueue queue, int batchSize, long syncInterval) {
+    super(name, filter, null);
+    this.queue = queue;
+    this.batchSize = Math.max( 1, batchSize );
+    this.syncInterval = Math.max( 1L, syncInterval );
+    forward = (Logger)LogManager.getLogger( "audit.forward" );
+    forward.setAdditive( false );
+    forwarder = new Forwarder();
+    forwarder.setDaemon( true );
+  }
+
+  @PluginFactory
+  public static SegmentedStoreAndForwardAppender createAppender(
+      @PluginAttribute("name") String name,
+      @PluginElement("Filter") Filter filter,
+      @PluginAttribute("directory") String directory,
+      @PluginAttribute(value = "segmentSize", defaultInt = SegmentedQueue.DEFAULT_SEGMENT_SIZE) int segmentSize,
+      @PluginAttribute(value = "syncBatchSize", defaultInt = 256) int syncBatchSize,
+      @PluginAttribute(value = "syncInterval", defaultLong = 1000L) long syncInterval,
+      @PluginAttribute(value = "batchSize", defaultInt = 256) int batchSize) {
+    try {
+      SegmentedQueue queue = new SegmentedQueue( new File( directory ), segmentSize, syncBatchSize, syncInterval );
+      return new SegmentedStoreAndForwardAppender( name, filter, queue, batchSize, syncInterval );
+    } catch ( IOException e ) {
+      throw new IllegalStateException( e );
+    }
+  }
+
+  @Override
+  public void start() {
+    super.start();
+    registerMBean();
+    forwarder.start();
+  }
+
+  @Override
+  public void append( LogEvent event ) {
+    try {
+      queue.enqueue( serialize( event ) );
+    } catch ( IOException e ) {
+      throw new AppenderLoggingException( e );
+    }
+  }
+
+  @Override
+  public void stop() {
+    try {
+      queue.stop();
+      forwarder.join();
+      queue.close();
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } catch(IOException e) {
+      throw new RuntimeException(e);
+    } finally {
+      unregisterMBean();
+    }
+    super.stop();
+  }
+
+  SegmentedQueue getQueue() {
+    return queue;
+  }
+
+  static byte[] serialize( LogEvent event ) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream( 512 );
+    try( ObjectOutputStream out = new ObjectOutputStream( bytes ) ) {
+      out.writeObject( Log4jLogEvent.serialize( event, event.isIncludeLocation() ) );
+    }
+    return bytes.toByteArray();
+  }
+
+  static LogEvent deserialize( byte[] record ) throws IOException, ClassNotFoundException {
+    try( ObjectInputStream in = new FilteredObjectInputStream( new ByteArrayInputStream( record ) ) ) {
+      return Log4jLogEvent.deserialize( (Serializable)in.readObject() );
+    }
+  }
+
+  private void registerMBean() {
+    try {
+      objectName = new ObjectName( "org.apache.knox.gateway.audit:type=SegmentedQueue,name=" + ObjectName.quote( getName() ) );
+      ManagementFactory.getPlatformMBeanServer().registerMBean( queue, objectName );
+    } catch ( JMException e ) {
+      LOGGER.warn( "Failed to register queue metrics of appender {}", getName(), e );
+      objectName = null;
+    }
+  }
+
+  private void unregisterMBean() {
+    if( objectName != null ) {
+      try {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean( objectName );
+      } catch ( JMException e ) {
+        LOGGER.warn( "Failed to unregister queue metrics of appender {}", getName(), e );
+      }
+      objectName = null;
+    }
+  }
+
+  @SuppressWarnings("PMD.DoNotUseThreads")
+  private class Forwarder extends Thread {
+    @Override
+    public void run() {
+      while( queue.isOpen() ) {
+        try {
+          List<byte[]> batch = queue.take( batchSize, syncInterval, TimeUnit.MILLISECONDS );
+          if( batch.isEmpty() ) {
+            queue.sync();
+          } else {
+            forwardBatch( batch );
+          }
+        } catch ( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+          return;
+        } catch ( ThreadDeath e ) {
+          throw e;
+        } catch ( Throwable t ) {
+          // Nothing of the batch was acknowledged, it is forwarded again.
+          LOGGER.error( "Failed to forward events of appender {}", getName(), t );
+          queue.rewind();
+          pause();
+        }
+      }
+    }
+
+    private void forwardBatch( List<byte[]> batch ) throws IOException {
+      for( byte[] record : batch ) {
+        LogEvent event;
+        try {
+          event = deserialize( record );
+        } catch ( IOException | ClassNotFoundException | RuntimeException e ) {
+          // A record that cannot be read would block the queue forever.
+          LOGGER.error( "Skipping unreadable event in appender {}", getName(), e );
+          continue;
+        }
+        for( Appender appender : forward.getAppenders().values() ) {
+          appender.append( event );
+        }
+      }
+      queue.acknowledge();
+    }
+
+    private void pause() {
+      try {
+        Thread.sleep( RETRY_DELAY );
+      } catch ( InterruptedException e ) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
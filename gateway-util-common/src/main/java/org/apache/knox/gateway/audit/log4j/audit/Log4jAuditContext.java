@@ -134,4 +134,13 @@ public class Log4jAuditContext implements AuditContext {
   @Override
   public void destroy() {
   }
+
+  void clear() {
+    username = null;
+    proxyUsername = null;
+    systemUsername = null;
+    targetServiceName = null;
+    remoteIp = null;
+    remoteHostname = null;
+  }
 }
@@ -17,6 +17,9 @@
  */
 package org.apache.knox.gateway.audit.log4j.audit;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
@@ -26,14 +29,32 @@ import org.apache.knox.gateway.audit.api.AuditService;
 import org.apache.knox.gateway.audit.api.Auditor;
 import org.apache.logging.log4j.ThreadContext;
 
+/**
+ * Keeps the audit context of a thread in the log4j {@link ThreadContext}.
+ * {@link #createContext()} and {@link #getContext()} return the same context
+ * object until the context is detached; it reflects the attached values as of
+ * the last call and changes to it are published with
+ * {@link #attachContext(AuditContext)}.
+ */
 public class Log4jAuditService implements AuditService {
 
   public static final String MDC_AUDIT_CONTEXT_KEY = "audit_context";
+  private static final String USERNAME_KEY = MDC_AUDIT_CONTEXT_KEY + "_username";
+  private static final String PROXY_USERNAME_KEY = MDC_AUDIT_CONTEXT_KEY + "_proxyUsername";
+  private static final String SYSTEM_USERNAME_KEY = MDC_AUDIT_CONTEXT_KEY + "_systemUsername";
+  private static final String TARGET_SERVICE_NAME_KEY = MDC_AUDIT_CONTEXT_KEY + "_targetServiceName";
+  private static final String REMOTE_IP_KEY = MDC_AUDIT_CONTEXT_KEY + "_remoteIp";
+  private static final String REMOTE_HOSTNAME_KEY = MDC_AUDIT_CONTEXT_KEY + "_remoteHostname";
+  private static final List<String> KEYS = Arrays.asList(MDC_AUDIT_CONTEXT_KEY, USERNAME_KEY, PROXY_USERNAME_KEY,
+      SYSTEM_USERNAME_KEY, TARGET_SERVICE_NAME_KEY, REMOTE_IP_KEY, REMOTE_HOSTNAME_KEY);
+
   private Map<String, Auditor> auditors = new ConcurrentHashMap<>();
+  private final ThreadLocal<Log4jAuditContext> contexts = ThreadLocal.withInitial(Log4jAuditContext::new);
 
   @Override
   public AuditContext createContext() {
-    AuditContext context = new Log4jAuditContext();
+    Log4jAuditContext context = contexts.get();
+    context.clear();
     attachContext(context);
     return context;
   }
@@ -43,39 +64,38 @@ public class Log4jAuditService implements AuditService {
     if (ThreadContext.get(MDC_AUDIT_CONTEXT_KEY) == null) {
       return null;
     }
-    return new Log4jAuditContext(
-        ThreadContext.get(MDC_AUDIT_CONTEXT_KEY + "_username"),
-        ThreadContext.get(MDC_AUDIT_CONTEXT_KEY + "_proxyUsername"),
-        ThreadContext.get(MDC_AUDIT_CONTEXT_KEY + "_systemUsername"),
-        ThreadContext.get(MDC_AUDIT_CONTEXT_KEY + "_targetServiceName"),
-        ThreadContext.get(MDC_AUDIT_CONTEXT_KEY + "_remoteIp"),
-        ThreadContext.get(MDC_AUDIT_CONTEXT_KEY + "_remoteHostname")
-    );
+    Log4jAuditContext context = contexts.get();
+    context.setUsername(ThreadContext.get(USERNAME_KEY));
+    context.setProxyUsername(ThreadContext.get(PROXY_USERNAME_KEY));
+    context.setSystemUsername(ThreadContext.get(SYSTEM_USERNAME_KEY));
+    context.setTargetServiceName(ThreadContext.get(TARGET_SERVICE_NAME_KEY));
+    context.setRemoteIp(ThreadContext.get(REMOTE_IP_KEY));
+    context.setRemoteHostname(ThreadContext.get(REMOTE_HOSTNAME_KEY));
+    return context;
   }
 
   @Override
   public void attachContext(AuditContext context) {
     if (context != null) {
-      ThreadContext.put(MDC_AUDIT_CONTEXT_KEY, "true");
-      ThreadContext.put(MDC_AUDIT_CONTEXT_KEY + "_username", context.getUsername());
-      ThreadContext.put(MDC_AUDIT_CONTEXT_KEY + "_proxyUsername", context.getProxyUsername());
-      ThreadContext.put(MDC_AUDIT_CONTEXT_KEY + "_systemUsername", context.getSystemUsername());
-      ThreadContext.put(MDC_AUDIT_CONTEXT_KEY + "_targetServiceName", context.getTargetServiceName());
-      ThreadContext.put(MDC_AUDIT_CONTEXT_KEY + "_remoteIp", context.getRemoteIp());
-      ThreadContext.put(MDC_AUDIT_CONTEXT_KEY + "_remoteHostname", context.getRemoteHostname());
+      /* a single update, every ThreadContext change copies the thread's context map */
+      Map<String, String> values = new HashMap<>(16);
+      values.put(MDC_AUDIT_CONTEXT_KEY, "true");
+      values.put(USERNAME_KEY, context.getUsername());
+      values.put(PROXY_USERNAME_KEY, context.getProxyUsername());
+      values.put(SYSTEM_USERNAME_KEY, context.getSystemUsername());
+      values.put(TARGET_SERVICE_NAME_KEY, context.getTargetServiceName());
+      values.put(REMOTE_IP_KEY, context.getRemoteIp());
+      values.put(REMOTE_HOSTNAME_KEY, context.getRemoteHostname());
+      ThreadContext.putAll(values);
     }
   }
 
   @Override
   public AuditContext detachContext() {
     AuditContext context = getContext();
-    ThreadContext.remove(MDC_AUDIT_CONTEXT_KEY);
-    ThreadContext.remove(MDC_AUDIT_CONTEXT_KEY + "_username");
-    ThreadContext.remove(MDC_AUDIT_CONTEXT_KEY + "_proxyUsername");
-    ThreadContext.remove(MDC_AUDIT_CONTEXT_KEY + "_systemUsername");
-    ThreadContext.remove(MDC_AUDIT_CONTEXT_KEY + "_targetServiceName");
-    ThreadContext.remove(MDC_AUDIT_CONTEXT_KEY + "_remoteIp");
-    ThreadContext.remove(MDC_AUDIT_CONTEXT_KEY + "_remoteHostname");
+    ThreadContext.removeAll(KEYS);
+    /* the detached context may still be referenced, the next request of the thread gets a new one */
+    contexts.remove();
     return context;
   }
 
@@ -28,8 +28,7 @@ import org.apache.logging.log4j.ThreadContext;
 import org.apache.logging.log4j.core.Logger;
 
 import java.net.URI;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class Log4jAuditor implements Auditor {
 
@@ -42,8 +41,8 @@ public class Log4jAuditor implements Auditor {
   private String serviceName;
   private AuditService auditService = new Log4jAuditService();
   private CorrelationService correlationService = new Log4jCorrelationService();
-  /* List of parameters to be masked */
-  private static List<String> maskedParams = new ArrayList<>();
+  /* List of parameters to be masked, also read by the asynchronous audit writer thread */
+  private static final CopyOnWriteArrayList<String> maskedParams = new CopyOnWriteArrayList<>();
 
   static {
     /* add defaults */
@@ -55,16 +54,21 @@ public class Log4jAuditor implements Auditor {
     logger.setAdditive(false);
     this.componentName = componentName;
     this.serviceName = serviceName;
+    addMaskedParamsFromSystemProperty();
+  }
 
+  /**
+   * Adds the parameters listed in the -Dmasked_params system property to the
+   * parameters masked by {@link #maskTokenFromURL(String)}.
+   */
+  public static void addMaskedParamsFromSystemProperty() {
     /* check for -Dmasked_params system property for params to mask */
     final String masked_query_params = System.getProperty(MASKED_QUERY_PARAMS_OPTION);
     /* Add the params to mask list */
     if(masked_query_params != null) {
       final String[] params = masked_query_params.split(",");
       for(final String s: params) {
-        if(!maskedParams.contains(s)) {
-          maskedParams.add(s);
-        }
+        maskedParams.addIfAbsent(s);
       }
     }
   }
@@ -23,6 +23,10 @@ import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
 
 import org.apache.knox.gateway.audit.api.CorrelationContext;
@@ -35,6 +39,9 @@ public class Log4jCorrelationService implements CorrelationService {
   public static final String KEY_PARENT_REQUEST_ID = KEY_CORRELATION_CONTEXT + "_parentRequestId";
   public static final String KEY_REQUEST_ID = KEY_CORRELATION_CONTEXT + "_requestId";
 
+  private static final List<String> KEYS =
+      Arrays.asList(KEY_CORRELATION_CONTEXT, KEY_REQUEST_ID, KEY_PARENT_REQUEST_ID, KEY_ROOT_REQUEST_ID);
+
   @Override
   public CorrelationContext getContext() {
     if (ThreadContext.get(KEY_CORRELATION_CONTEXT) == null) {
@@ -47,19 +54,19 @@ public class Log4jCorrelationService implements CorrelationService {
   @Override
   public void attachContext(CorrelationContext context) {
     if (context != null) {
-      ThreadContext.put(KEY_CORRELATION_CONTEXT, "true");
-      ThreadContext.put(KEY_REQUEST_ID, context.getRequestId());
-      ThreadContext.put(KEY_PARENT_REQUEST_ID, context.getParentRequestId());
-      ThreadContext.put(KEY_ROOT_REQUEST_ID, context.getRootRequestId());
+      /* a single update, every ThreadContext change copies the thread's context map */
+      final Map<String, String> values = new HashMap<>(8);
+      values.put(KEY_CORRELATION_CONTEXT, "true");
+      values.put(KEY_REQUEST_ID, context.getRequestId());
+      values.put(KEY_PARENT_REQUEST_ID, context.getParentRequestId());
+      values.put(KEY_ROOT_REQUEST_ID, context.getRootRequestId());
+      ThreadContext.putAll(values);
     }
   }
 
   @Override
   public void detachContext() {
-    ThreadContext.remove(KEY_CORRELATION_CONTEXT);
-    ThreadContext.remove(KEY_REQUEST_ID);
-    ThreadContext.remove(KEY_PARENT_REQUEST_ID);
-    ThreadContext.remove(KEY_ROOT_REQUEST_ID);
+    ThreadContext.removeAll(KEYS);
   }
 
   @Override
@@ -44,4 +44,34 @@ public interface GatewayUtilCommonMessages {
 
   @Message( level = MessageLevel.DEBUG, text = "{0} Cookie has been found." )
   void cookieHasBeenFound(String cookieName);
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to write {0} audit records: {1}" )
+  void failedToWriteAuditRecords( int count, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to spill audit record to {0}: {1}" )
+  void failedToSpillAuditRecord( String file, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to replay audit spill file {0}: {1}" )
+  void failedToReplayAuditSpill( String file, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.WARN, text = "Audit buffer full, dropped {0} audit records" )
+  void droppedAuditRecords( long count );
+
+  @Message( level = MessageLevel.WARN, text = "Audit writer did not finish within {0} ms, {1} audit records may be lost" )
+  void auditWriterShutdownTimeout( long timeout, int pending );
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to create the asynchronous audit service, falling back to log4j auditing: {0}" )
+  void failedToCreateAsyncAuditService( @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.WARN, text = "Trace export queue full, dropped {0} spans" )
+  void droppedSpans( long count );
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to export {0} spans: {1}" )
+  void failedToExportSpans( int count, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to create trace {0} {1}, tracing is disabled: {2}" )
+  void failedToCreateTracingComponent( String kind, String name, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
+
+  @Message( level = MessageLevel.ERROR, text = "Failed to create correlation id generator {0}, using time ordered UUIDs: {1}" )
+  void failedToCreateCorrelationIdGenerator( String name, @StackTrace( level = MessageLevel.DEBUG ) Exception e );
 }
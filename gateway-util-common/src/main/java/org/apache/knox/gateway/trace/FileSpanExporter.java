@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.trace;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.apache.knox.gateway.i18n.GatewayUtilCommonMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Appends spans to a file, one JSON object per line. Spans are queued by the
+ * request threads and written by a background thread; spans are dropped
+ * rather than blocking a request when the queue is full.
+ */
+public class FileSpanExporter implements SpanExporter {
+
+  public static final int DEFAULT_CAPACITY = 16384;
+
+  private static final GatewayUtilCommonMessages LOG = MessagesFactory.get( GatewayUtilCommonMessages.class );
+  private static final JsonFactory JSON = new JsonFactory();
+  private static final int BUFFER_SIZE = 64 * 1024;
+  private static final int BATCH_SIZE = 1024;
+  private static final long CLOSE_TIMEOUT = TimeUnit.SECONDS.toMillis( 5 );
+
+  private final BlockingQueue<Span> queue;
+  private final JsonGenerator generator;
+  private final Thread writer;
+  private final AtomicLong dropped = new AtomicLong();
+  private volatile boolean closed;
+
+  public FileSpanExporter( Path file ) throws IOException {
+    this( file, DEFAULT_CAPACITY );
+  }
+
+  public FileSpanExporter( Path file, int capacity ) throws IOException {
+    this( openForAppend( file ), capacity );
+  }
+
+  public FileSpanExporter( OutputStream out, int capacity ) throws IOException {
+    this.queue = new ArrayBlockingQueue<>( capacity );
+    this.generator = JSON.createGenerator( new BufferedOutputStream( out, BUFFER_SIZE ), JsonEncoding.UTF8 );
+    this.generator.setRootValueSeparator( null );
+    this.writer = new Thread( this::run, "knox-trace-exporter" );
+    this.writer.setDaemon( true );
+  }
+
+  private static OutputStream openForAppend( Path file ) throws IOException {
+    final Path parent = file.toAbsolutePath().getParent();
+    if( parent != null ) {
+      Files.createDirectories( parent );
+    }
+    return Files.newOutputStream( file, StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE );
+  }
+
+  public void start() {
+    writer.start();
+  }
+
+  @Override
+  public void export( Span span ) {
+    if( closed || !queue.offer( span ) ) {
+      dropped.incrementAndGet();
+    }
+  }
+
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  private void run() {
+    final List<Span> batch = new ArrayList<>( BATCH_SIZE );
+    long reported = 0L;
+    while( !closed || !queue.isEmpty() ) {
+      try {
+        final Span span = queue.poll( 100, TimeUnit.MILLISECONDS );
+        if( span != null ) {
+          batch.add( span );
+          queue.drainTo( batch, BATCH_SIZE - 1 );
+          write( batch );
+          batch.clear();
+        }
+      } catch( InterruptedException e ) {
+        closed = true;
+        Thread.currentThread().interrupt();
+      }
+      final long drops = dropped.get();
+      if( drops != reported ) {
+        LOG.droppedSpans( drops - reported );
+        reported = drops;
+      }
+    }
+  }
+
+  private void write( List<Span> spans ) {
+    try {
+      for( Span span : spans ) {
+        writeSpan( span );
+      }
+      generator.flush();
+    } catch( IOException e ) {
+      LOG.failedToExportSpans( spans.size(), e );
+    }
+  }
+
+  void writeSpan( Span span ) throws IOException {
+    generator.writeStartObject();
+    generator.writeStringField( "trace_id", span.getTraceId() );
+    generator.writeStringField( "span_id", span.getSpanId() );
+    if( span.getParentSpanId() != null ) {
+      generator.writeStringField( "parent_span_id", span.getParentSpanId() );
+    }
+    generator.writeStringField( "name", span.getName() );
+    generator.writeNumberField( "start_us", span.getStartEpochMicros() );
+    generator.writeNumberField( "duration_ns", span.getDurationNanos() );
+    if( span.getError() != null ) {
+      generator.writeStringField( "error", span.getError() );
+    }
+    final Map<String, Object> attributes = span.getAttributes();
+    if( !attributes.isEmpty() ) {
+      generator.writeObjectFieldStart( "attributes" );
+      for( Map.Entry<String, Object> attribute : attributes.entrySet() ) {
+        final Object value = attribute.getValue();
+        if( value instanceof Integer || value instanceof Long ) {
+          generator.writeNumberField( attribute.getKey(), ( (Number) value ).longValue() );
+        } else if( value instanceof Number ) {
+          generator.writeNumberField( attribute.getKey(), ( (Number) value ).doubleValue() );
+        } else if( value instanceof Boolean ) {
+          generator.writeBooleanField( attribute.getKey(), (Boolean) value );
+        } else {
+          generator.writeStringField( attribute.getKey(), String.valueOf( value ) );
+        }
+      }
+      generator.writeEndObject();
+    }
+    generator.writeEndObject();
+    generator.writeRaw( '\n' );
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    try {
+      writer.join( CLOSE_TIMEOUT );
+    } catch( InterruptedException e ) {
+      Thread.currentThread().interrupt();
+    }
+    if( !writer.isAlive() ) {
+      generator.close();
+    }
+  }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.trace;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Keeps the most recent spans in memory, e.g. for tests or for inspection
+ * through a debugger or an admin endpoint.
+ */
+public class InMemorySpanExporter implements SpanExporter {
+
+  public static final int DEFAULT_CAPACITY = 10000;
+
+  private final int capacity;
+  private final Deque<Span> spans;
+
+  public InMemorySpanExporter() {
+    this( DEFAULT_CAPACITY );
+  }
+
+  public InMemorySpanExporter( int capacity ) {
+    this.capacity = capacity;
+    this.spans = new ArrayDeque<>( Math.min( capacity, 1024 ) );
+  }
+
+  @Override
+  public synchronized void export( Span span ) {
+    if( spans.size() >= capacity ) {
+      spans.pollFirst();
+    }
+    spans.addLast( span );
+  }
+
+  /**
+   * @return the retained spans, oldest first
+   */
+  public synchronized List<Span> getSpans() {
+    return new ArrayList<>( spans );
+  }
+
+  public synchronized void clear() {
+    spans.clear();
+  }
+
+  @Override
+  public void close() {
+    clear();
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.trace;
+
+/**
+ * Decides whether a new request trace is recorded.
+ */
+public interface Sampler {
+
+  /**
+   * @param traceId       the trace id of the request
+   * @param name          the name of the request span
+   * @param parentSampled the sampling decision of a remote parent taken from the
+   *                      traceparent header, or null if the request had none
+   * @return true to record the trace
+   */
+  boolean shouldSample( String traceId, String name, Boolean parentSampled );
+
+  static Sampler always() {
+    return ( traceId, name, parentSampled ) -> true;
+  }
+
+  static Sampler never() {
+    return NeverSampler.INSTANCE;
+  }
+
+  /**
+   * Samples the given fraction of new traces, chosen from the trace id so that
+   * every gateway in a path makes the same decision, and follows the decision
+   * of a remote parent when there is one.
+   *
+   * @param ratio fraction of traces to sample between 0 and 1
+   * @return the sampler
+   */
+  static Sampler ratio( double ratio ) {
+    if( ratio <= 0.0D ) {
+      return never();
+    }
+    final long bound = ratio >= 1.0D ? Long.MAX_VALUE : (long) ( ratio * Long.MAX_VALUE );
+    return ( traceId, name, parentSampled ) -> {
+      if( parentSampled != null ) {
+        return parentSampled;
+      }
+      return ( Long.parseUnsignedLong( traceId.substring( 16 ), 16 ) >>> 1 ) <= bound;
+    };
+  }
+
+  /* Identifiable so that tracing can skip all per request work when disabled. */
+  final class NeverSampler implements Sampler {
+    static final Sampler INSTANCE = new NeverSampler();
+
+    private NeverSampler() {
+    }
+
+    @Override
+    public boolean shouldSample( String traceId, String name, Boolean parentSampled ) {
+      return false;
+    }
+  }
+}
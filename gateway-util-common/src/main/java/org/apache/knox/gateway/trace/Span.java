@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.trace;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A timed operation within a trace. Spans are created through {@link Tracing}
+ * and belong to the thread that created them until they are ended.
+ * <p>
+ * Requests that are not sampled get {@link #NOOP}, on which every method is a
+ * no-op, so callers never need to check for null.
+ */
+public final class Span {
+
+  public static final Span NOOP = new Span();
+
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private final String traceId;
+  private final String spanId;
+  private final String parentSpanId;
+  private final String name;
+  private final long startEpochMicros;
+  private final long startNanos;
+  private final Span previous;
+  private long durationNanos = -1L;
+  private Map<String, Object> attributes;
+  private String error;
+
+  private Span() {
+    this( "", "", null, "", null );
+  }
+
+  Span( String traceId, String spanId, String parentSpanId, String name, Span previous ) {
+    this.traceId = traceId;
+    this.spanId = spanId;
+    this.parentSpanId = parentSpanId;
+    this.name = name;
+    this.previous = previous;
+    this.startEpochMicros = TimeUnit.MILLISECONDS.toMicros( System.currentTimeMillis() );
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * @return true if the span is sampled and has not been ended yet
+   */
+  public boolean isRecording() {
+    return this != NOOP && durationNanos < 0L;
+  }
+
+  public Span setAttribute( String key, Object value ) {
+    if( isRecording() && value != null ) {
+      if( attributes == null ) {
+        attributes = new LinkedHashMap<>();
+      }
+      attributes.put( key, value );
+    }
+    return this;
+  }
+
+  public Span setError( Throwable error ) {
+    if( isRecording() && error != null ) {
+      this.error = error.getClass().getName();
+    }
+    return this;
+  }
+
+  /**
+   * Ends the span, restores its parent as the current span of the thread and
+   * hands it to the exporter. Ending a span more than once has no effect.
+   */
+  public void end() {
+    if( isRecording() ) {
+      durationNanos = Math.max( 0L, System.nanoTime() - startNanos );
+      Tracing.ended( this );
+    }
+  }
+
+  /**
+   * @return the W3C trace context header value identifying this span as the parent
+   */
+  public String getTraceparent() {
+    return "00-" + traceId + '-' + spanId + "-01";
+  }
+
+  public String getTraceId() {
+    return traceId;
+  }
+
+  public String getSpanId() {
+    return spanId;
+  }
+
+  public String getParentSpanId() {
+    return parentSpanId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getStartEpochMicros() {
+    return startEpochMicros;
+  }
+
+  /**
+   * @return the duration in nanoseconds or -1 if the span has not ended
+   */
+  public long getDurationNanos() {
+    return durationNanos;
+  }
+
+  public Map<String, Object> getAttributes() {
+    return attributes == null ? Collections.emptyMap() : Collections.unmodifiableMap( attributes );
+  }
+
+  public String getError() {
+    return error;
+  }
+
+  Span getPrevious() {
+    return previous;
+  }
+
+  static String toHex( long value ) {
+    final char[] chars = new char[ 16 ];
+    appendHex( chars, 0, value );
+    return new String( chars );
+  }
+
+  static String toHex( long high, long low ) {
+    final char[] chars = new char[ 32 ];
+    appendHex( chars, appendHex( chars, 0, high ), low );
+    return new String( chars );
+  }
+
+  private static int appendHex( char[] chars, int offset, long value ) {
+    for( int i = 15; i >= 0; i-- ) {
+      chars[ offset + i ] = HEX[ (int) ( value & 0xF ) ];
+      value >>>= 4;
+    }
+    return offset + 16;
+  }
+}
@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.trace;
+
+import org.apache.knox.gateway.i18n.GatewayUtilCommonMessages;
+import org.apache.knox.gateway.i18n.messages.MessagesFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Entry point for request tracing.
+ * <p>
+ * A request span is started for each request handled by the gateway and
+ * becomes the current span of the thread; spans started while it is current
+ * become its children. Trace context is read from and propagated with the W3C
+ * {@code traceparent} header.
+ * <p>
+ * Tracing is configured with system properties:
+ * <ul>
+ *   <li>{@value #SAMPLER_PROPERTY}: {@code never} (default), {@code always}, a
+ *   ratio between 0 and 1, or the class name of a {@link Sampler}</li>
+ *   <li>{@value #EXPORTER_PROPERTY}: {@code file} (default), {@code memory}, or
+ *   the class name of a {@link SpanExporter}</li>
+ *   <li>{@value #FILE_PROPERTY}: the file used by the {@code file} exporter,
+ *   by default {@code <launcher.name>-trace.json} next to the gateway logs</li>
+ * </ul>
+ */
+public final class Tracing {
+
+  public static final String TRACEPARENT_HEADER = "traceparent";
+
+  public static final String SAMPLER_PROPERTY = "knox.tracing.sampler";
+  public static final String EXPORTER_PROPERTY = "knox.tracing.exporter";
+  public static final String FILE_PROPERTY = "knox.tracing.file";
+
+  private static final GatewayUtilCommonMessages LOG = MessagesFactory.get( GatewayUtilCommonMessages.class );
+  private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+  private static final Scope NOOP_SCOPE = () -> { };
+
+  private static volatile Sampler sampler;
+  private static volatile SpanExporter exporter;
+
+  static {
+    configureFromSystemProperties();
+  }
+
+  private Tracing() {
+  }
+
+  /**
+   * Replaces the sampler and the exporter; the previous exporter is closed.
+   *
+   * @param sampler  decides which requests are traced
+   * @param exporter receives the ended spans
+   */
+  public static synchronized void configure( Sampler sampler, SpanExporter exporter ) {
+    final SpanExporter previous = Tracing.exporter;
+    Tracing.exporter = exporter;
+    Tracing.sampler = sampler;
+    if( previous != null && previous != exporter ) {
+      try {
+        previous.close();
+      } catch( IOException e ) {
+        LOG.failedToExportSpans( 0, e );
+      }
+    }
+  }
+
+  static void configureFromSystemProperties() {
+    final Sampler configuredSampler = createSampler( System.getProperty( SAMPLER_PROPERTY, "never" ) );
+    SpanExporter configuredExporter = null;
+    if( !( configuredSampler instanceof Sampler.NeverSampler ) ) {
+      configuredExporter = createExporter( System.getProperty( EXPORTER_PROPERTY, "file" ) );
+    }
+    configure( configuredExporter == null ? Sampler.never() : configuredSampler, configuredExporter );
+  }
+
+  private static Sampler createSampler( String value ) {
+    final String name = value.trim();
+    if( "never".equalsIgnoreCase( name ) ) {
+      return Sampler.never();
+    }
+    if( "always".equalsIgnoreCase( name ) ) {
+      return Sampler.always();
+    }
+    try {
+      return Sampler.ratio( Double.parseDouble( name ) );
+    } catch( NumberFormatException e ) {
+      return newInstance( Sampler.class, "sampler", name, Sampler.never() );
+    }
+  }
+
+  private static SpanExporter createExporter( String value ) {
+    final String name = value.trim().toLowerCase( Locale.ROOT );
+    if( "memory".equals( name ) ) {
+      return new InMemorySpanExporter();
+    }
+    if( "file".equals( name ) ) {
+      try {
+        final FileSpanExporter fileExporter = new FileSpanExporter( getTraceFile() );
+        fileExporter.start();
+        return fileExporter;
+      } catch( IOException e ) {
+        LOG.failedToCreateTracingComponent( "exporter", value, e );
+        return null;
+      }
+    }
+    return newInstance( SpanExporter.class, "exporter", value.trim(), null );
+  }
+
+  private static <T> T newInstance( Class<T> type, String kind, String className, T fallback ) {
+    try {
+      return type.cast( Class.forName( className ).getConstructor().newInstance() );
+    } catch( ReflectiveOperationException | ClassCastException e ) {
+      LOG.failedToCreateTracingComponent( kind, className, e );
+      return fallback;
+    }
+  }
+
+  /* Next to the gateway's other logs when started by the launcher. */
+  private static Path getTraceFile() {
+    final String file = System.getProperty( FILE_PROPERTY );
+    if( file != null ) {
+      return Paths.get( file );
+    }
+    final String launcherDir = System.getProperty( "launcher.dir" );
+    final String name = System.getProperty( "launcher.name", "gateway" ) + "-trace.json";
+    return launcherDir == null ? Paths.get( name ) : Paths.get( launcherDir, "..", "logs", name ).normalize();
+  }
+
+  public static SpanExporter getExporter() {
+    return exporter;
+  }
+
+  /**
+   * Starts the span of an incoming request and makes it the current span of
+   * the thread, replacing any span left over from a previous request.
+   *
+   * @param name        the span name
+   * @param traceparent the traceparent header of the request, may be null
+   * @return the request span or {@link Span#NOOP} if the request is not sampled
+   */
+  public static Span startRequest( String name, String traceparent ) {
+    final Sampler current = sampler;
+    if( current instanceof Sampler.NeverSampler ) {
+      return Span.NOOP;
+    }
+    final String traceId;
+    String parentSpanId = null;
+    Boolean parentSampled = null;
+    if( isValidTraceparent( traceparent ) ) {
+      traceId = traceparent.substring( 3, 35 );
+      parentSpanId = traceparent.substring( 36, 52 );
+      parentSampled = ( Character.digit( traceparent.charAt( 54 ), 16 ) & 1 ) == 1;
+    } else {
+      final ThreadLocalRandom random = ThreadLocalRandom.current();
+      traceId = Span.toHex( nonZero( random.nextLong() ), random.nextLong() );
+    }
+    if( !current.shouldSample( traceId, name, parentSampled ) ) {
+      CURRENT.remove();
+      return Span.NOOP;
+    }
+    final Span span = new Span( traceId, newSpanId(), parentSpanId, name, null );
+    CURRENT.set( span );
+    return span;
+  }
+
+  /**
+   * Starts a child of the current span and makes it current.
+   *
+   * @param name the span name
+   * @return the child span or {@link Span#NOOP} if the thread is not tracing a request
+   */
+  public static Span startSpan( String name ) {
+    final Span parent = CURRENT.get();
+    if( parent == null || !parent.isRecording() ) {
+      return Span.NOOP;
+    }
+    final Span span = new Span( parent.getTraceId(), newSpanId(), parent.getSpanId(), name, parent );
+    CURRENT.set( span );
+    return span;
+  }
+
+  /**
+   * @return the current span of the thread or {@link Span#NOOP}
+   */
+  public static Span currentSpan() {
+    final Span span = CURRENT.get();
+    return span == null ? Span.NOOP : span;
+  }
+
+  /**
+   * Makes a span current on another thread, e.g. one running part of the
+   * request asynchronously, until the returned scope is closed.
+   *
+   * @param span the span to activate
+   * @return the scope restoring the previous current span
+   */
+  public static Scope activate( Span span ) {
+    if( span == null || !span.isRecording() ) {
+      return NOOP_SCOPE;
+    }
+    final Span previous = CURRENT.get();
+    CURRENT.set( span );
+    return () -> restore( previous );
+  }
+
+  /**
+   * Renders a URL for a span attribute. Only the scheme, host, port and path
+   * are recorded; the query may carry delegation tokens or impersonation
+   * parameters and must not end up in the exported spans.
+   *
+   * @param uri the URL
+   * @return the URL without user info, query and fragment
+   */
+  public static String toSpanUrl( URI uri ) {
+    String authority = uri.getRawAuthority();
+    if( authority != null && authority.indexOf( '@' ) >= 0 ) {
+      authority = authority.substring( authority.lastIndexOf( '@' ) + 1 );
+    }
+    return uri.getScheme() + "://" + authority + uri.getRawPath();
+  }
+
+  static void ended( Span span ) {
+    if( CURRENT.get() == span ) {
+      restore( span.getPrevious() );
+    }
+    final SpanExporter current = exporter;
+    if( current != null ) {
+      current.export( span );
+    }
+  }
+
+  private static void restore( Span span ) {
+    if( span == null ) {
+      CURRENT.remove();
+    } else {
+      CURRENT.set( span );
+    }
+  }
+
+  static boolean isValidTraceparent( String value ) {
+    if( value == null || value.length() < 55 || value.charAt( 2 ) != '-' || value.charAt( 35 ) != '-'
+        || value.charAt( 52 ) != '-' || ( value.length() > 55 && value.charAt( 55 ) != '-' )
+        || "ff".equals( value.substring( 0, 2 ) ) ) {
+      return false;
+    }
+    return isHex( value, 0, 2 ) && isHex( value, 3, 35 ) && isHex( value, 36, 52 ) && isHex( value, 53, 55 )
+        && !isZero( value, 3, 35 ) && !isZero( value, 36, 52 );
+  }
+
+  private static boolean isHex( String value, int from, int to ) {
+    for( int i = from; i < to; i++ ) {
+      final char c = value.charAt( i );
+      if( ( c < '0' || c > '9' ) && ( c < 'a' || c > 'f' ) ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isZero( String value, int from, int to ) {
+    for( int i = from; i < to; i++ ) {
+      if( value.charAt( i ) != '0' ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String newSpanId() {
+    return Span.toHex( nonZero( ThreadLocalRandom.current().nextLong() ) );
+  }
+
+  private static long nonZero( long value ) {
+    return value == 0L ? 1L : value;
+  }
+
+  /**
+   * Restores the previously current span when closed.
+   */
+  public interface Scope extends AutoCloseable {
+    @Override
+    void close();
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit;
+
+import org.apache.knox.gateway.audit.api.AuditContext;
+import org.apache.knox.gateway.audit.api.Auditor;
+import org.apache.knox.gateway.audit.async.AsyncAuditService;
+import org.apache.knox.gateway.audit.async.AsyncAuditWriter;
+import org.apache.knox.gateway.audit.async.AuditRecord;
+import org.apache.knox.gateway.audit.async.AuditSink;
+import org.apache.knox.gateway.audit.async.JsonLinesAuditSink;
+import org.apache.knox.gateway.audit.async.OverflowPolicy;
+import org.apache.knox.gateway.audit.log4j.audit.Log4jAuditContext;
+import org.apache.knox.gateway.audit.log4j.correlation.Log4jCorrelationContext;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class AsyncAuditWriterTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test( timeout = 30000 )
+  public void testRecordsAreWrittenInOrder() throws Exception {
+    CollectingSink sink = new CollectingSink( null );
+    AsyncAuditWriter writer = new AsyncAuditWriter( sink, 16, 4, OverflowPolicy.BLOCK, null );
+    writer.start();
+    for( int i = 0; i < 1000; i++ ) {
+      writer.submit( record( i ) );
+    }
+    writer.close();
+
+    assertThat( sink.actions.size(), is( 1000 ) );
+    for( int i = 0; i < 1000; i++ ) {
+      assertThat( sink.actions.get( i ), is( "action" + i ) );
+    }
+    assertThat( sink.maxBatch <= 4, is( true ) );
+    assertThat( writer.getWrittenCount(), is( 1000L ) );
+    assertThat( writer.getDroppedCount(), is( 0L ) );
+    assertThat( sink.closed, is( true ) );
+  }
+
+  @Test( timeout = 30000 )
+  public void testDropPolicy() throws Exception {
+    CountDownLatch release = new CountDownLatch( 1 );
+    CollectingSink sink = new CollectingSink( release );
+    AsyncAuditWriter writer = new AsyncAuditWriter( sink, 2, 1, OverflowPolicy.DROP, null );
+    writer.start();
+    writer.submit( record( 0 ) );
+    assertTrue( sink.entered.await( 10, TimeUnit.SECONDS ) );
+    for( int i = 1; i <= 4; i++ ) {
+      writer.submit( record( i ) );
+    }
+    assertThat( writer.getDroppedCount(), is( 2L ) );
+    release.countDown();
+    writer.close();
+
+    assertThat( sink.actions.size(), is( 3 ) );
+    assertThat( writer.getWrittenCount(), is( 3L ) );
+  }
+
+  @Test( timeout = 30000 )
+  public void testSpillPolicy() throws Exception {
+    Path spill = folder.getRoot().toPath().resolve( "audit.spill" );
+    CountDownLatch release = new CountDownLatch( 1 );
+    CollectingSink sink = new CollectingSink( release );
+    AsyncAuditWriter writer = new AsyncAuditWriter( sink, 2, 1, OverflowPolicy.SPILL, spill );
+    writer.start();
+    writer.submit( record( 0 ) );
+    assertTrue( sink.entered.await( 10, TimeUnit.SECONDS ) );
+    for( int i = 1; i <= 10; i++ ) {
+      writer.submit( record( i ) );
+    }
+    assertThat( writer.getSpilledCount(), is( 8L ) );
+    assertTrue( Files.exists( spill ) );
+    release.countDown();
+    writer.close();
+
+    assertThat( writer.getDroppedCount(), is( 0L ) );
+    assertThat( sink.actions.size(), is( 11 ) );
+    for( int i = 0; i <= 10; i++ ) {
+      assertTrue( sink.actions.contains( "action" + i ) );
+    }
+    assertThat( Files.exists( spill ), is( false ) );
+  }
+
+  @Test( timeout = 30000 )
+  public void testJsonLines() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    AsyncAuditWriter writer = new AsyncAuditWriter( new JsonLinesAuditSink( out ), 16, 16, OverflowPolicy.BLOCK, null );
+    AsyncAuditService service = new AsyncAuditService( writer );
+    writer.start();
+
+    Auditor auditor = service.getAuditor( "audit", "knox", "knox" );
+    AuditContext auditContext = new Log4jAuditContext( "user", "proxyuser", null, "WEBHDFS", "127.0.0.1", "localhost" );
+    auditor.audit( Log4jCorrelationContext.random(), auditContext, "dispatch",
+        "https://host:8443/gateway/sandbox/webhdfs/v1/?op=LISTSTATUS&knoxtoken=secret", "uri", "success", "say \"hi\"" );
+    auditor.audit( "access", "/gateway/sandbox", "uri", "unavailable" );
+    service.close();
+
+    String[] lines = new String( out.toByteArray(), StandardCharsets.UTF_8 ).split( "\n" );
+    assertThat( lines.length, is( 2 ) );
+    assertThat( lines[0], containsString( "\"channel\":\"audit\"" ) );
+    assertThat( lines[0], containsString( "\"username\":\"user\"" ) );
+    assertThat( lines[0], containsString( "\"target_service\":\"WEBHDFS\"" ) );
+    assertThat( lines[0], containsString( "knoxtoken=***************" ) );
+    assertThat( lines[0], not( containsString( "secret" ) ) );
+    assertThat( lines[0], containsString( "\"message\":\"say \\\"hi\\\"\"" ) );
+    assertThat( lines[1], containsString( "\"action\":\"access\"" ) );
+    assertThat( lines[1], not( containsString( "\"username\"" ) ) );
+  }
+
+  private static AuditRecord record( int i ) {
+    return AuditRecord.builder()
+        .timestamp( System.currentTimeMillis() )
+        .auditor( "audit", "knox", "knox" )
+        .event( "action" + i, "uri", "/resource" + i, "success", null )
+        .build();
+  }
+
+  private static class CollectingSink implements AuditSink {
+    private final List<String> actions = Collections.synchronizedList( new ArrayList<>() );
+    private final CountDownLatch entered = new CountDownLatch( 1 );
+    private final CountDownLatch release;
+    private volatile int maxBatch;
+    private volatile boolean closed;
+
+    CollectingSink( CountDownLatch release ) {
+      this.release = release;
+    }
+
+    @Override
+    public void write( List<AuditRecord> records ) {
+      entered.countDown();
+      if( release != null ) {
+        try {
+          release.await();
+        } catch( InterruptedException e ) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      maxBatch = Math.max( maxBatch, records.size() );
+      for( AuditRecord record : records ) {
+        actions.add( record.getAction() );
+      }
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit;
+
+import org.apache.knox.gateway.audit.log4j.appender.SegmentedQueue;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.number.OrderingComparison.greaterThan;
+import static org.junit.Assert.fail;
+
+public class SegmentedQueueTest {
+  private static final int SEGMENT_SIZE = 4096;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private SegmentedQueue queue;
+
+  @After
+  public void tearDown() throws IOException {
+    if( queue != null ) {
+      queue.close();
+      queue = null;
+    }
+  }
+
+  private SegmentedQueue open() throws IOException {
+    if( queue != null ) {
+      queue.close();
+    }
+    queue = new SegmentedQueue( folder.getRoot(), SEGMENT_SIZE, 8, 1000L );
+    return queue;
+  }
+
+  @Test
+  public void testTakeInOrder() throws Exception {
+    open();
+    for( int i = 0; i < 10; i++ ) {
+      queue.enqueue( bytes( "event" + i ) );
+    }
+    assertThat( queue.getDepth(), is( 10L ) );
+
+    List<String> taken = take( 4 );
+    assertThat( taken, hasSize( 4 ) );
+    assertThat( taken.get( 0 ), is( "event0" ) );
+    assertThat( taken.get( 3 ), is( "event3" ) );
+    queue.acknowledge();
+    assertThat( queue.getDepth(), is( 6L ) );
+
+    taken = take( 100 );
+    assertThat( taken, hasSize( 6 ) );
+    assertThat( taken.get( 5 ), is( "event9" ) );
+    queue.acknowledge();
+    assertThat( queue.getDepth(), is( 0L ) );
+    assertThat( queue.getDepthBytes(), is( 0L ) );
+    assertThat( take( 100 ), hasSize( 0 ) );
+  }
+
+  @Test
+  public void testUnacknowledgedRecordsAreRedelivered() throws Exception {
+    open();
+    for( int i = 0; i < 5; i++ ) {
+      queue.enqueue( bytes( "event" + i ) );
+    }
+    take( 2 );
+    queue.acknowledge();
+    take( 2 );
+
+    queue.rewind();
+    assertThat( take( 1 ).get( 0 ), is( "event2" ) );
+
+    open();
+    assertThat( queue.getDepth(), is( 3L ) );
+    List<String> taken = take( 100 );
+    assertThat( taken, hasSize( 3 ) );
+    assertThat( taken.get( 0 ), is( "event2" ) );
+    queue.acknowledge();
+
+    open();
+    assertThat( queue.getDepth(), is( 0L ) );
+    assertThat( take( 100 ), hasSize( 0 ) );
+    queue.enqueue( bytes( "event5" ) );
+    assertThat( take( 100 ).get( 0 ), is( "event5" ) );
+  }
+
+  @Test
+  public void testEmptyRecordIsRejected() throws Exception {
+    open();
+    queue.enqueue( bytes( "event0" ) );
+    try {
+      queue.enqueue( new byte[ 0 ] );
+      fail( "Expected IllegalArgumentException" );
+    } catch( IllegalArgumentException e ) {
+      // expected
+    }
+    queue.enqueue( bytes( "event1" ) );
+    assertThat( queue.getDepth(), is( 2L ) );
+    assertThat( take( 100 ), is( Arrays.asList( "event0", "event1" ) ) );
+
+    open();
+    assertThat( take( 100 ), is( Arrays.asList( "event0", "event1" ) ) );
+  }
+
+  @Test
+  public void testConsumedSegmentsAreDeleted() throws Exception {
+    open();
+    byte[] large = new byte[ 1000 ];
+    for( int i = 0; i < 20; i++ ) {
+      queue.enqueue( large );
+    }
+    assertThat( queue.getSegmentCount(), greaterThan( 4 ) );
+    assertThat( segmentFiles(), is( queue.getSegmentCount() ) );
+
+    assertThat( queue.take( 100, 0, TimeUnit.MILLISECONDS ), hasSize( 20 ) );
+    queue.acknowledge();
+    assertThat( queue.getSegmentCount(), is( 1 ) );
+    assertThat( segmentFiles(), is( 1 ) );
+
+    byte[] huge = new byte[ SEGMENT_SIZE * 2 ];
+    queue.enqueue( huge );
+    List<byte[]> taken = queue.take( 100, 0, TimeUnit.MILLISECONDS );
+    assertThat( taken.get( 0 ).length, is( huge.length ) );
+  }
+
+  @Test
+  public void testTornRecordIsDiscardedOnRecovery() throws Exception {
+    open();
+    queue.enqueue( bytes( "complete" ) );
+    queue.enqueue( bytes( "torn" ) );
+    queue.close();
+    queue = null;
+
+    File segment = folder.getRoot().listFiles( ( dir, name ) -> name.endsWith( ".seg" ) )[0];
+    try( RandomAccessFile file = new RandomAccessFile( segment, "rw" ) ) {
+      // Corrupt the content of the second record, its CRC no longer matches.
+      file.seek( 8 + "complete".length() + 8 );
+      file.write( 'X' );
+    }
+
+    open();
+    assertThat( queue.getDepth(), is( 1L ) );
+    queue.enqueue( bytes( "next" ) );
+    List<String> taken = take( 100 );
+    assertThat( taken, hasSize( 2 ) );
+    assertThat( taken.get( 0 ), is( "complete" ) );
+    assertThat( taken.get( 1 ), is( "next" ) );
+  }
+
+  @Test( timeout = 30000 )
+  public void testTakeWaitsForRecords() throws Exception {
+    open();
+    Thread producer = new Thread( () -> {
+      try {
+        Thread.sleep( 100 );
+        queue.enqueue( bytes( "late" ) );
+      } catch( Exception e ) {
+        throw new IllegalStateException( e );
+      }
+    } );
+    producer.start();
+    List<byte[]> taken = queue.take( 10, 10, TimeUnit.SECONDS );
+    producer.join();
+    assertThat( taken, hasSize( 1 ) );
+  }
+
+  private List<String> take( int max ) throws InterruptedException {
+    List<String> result = new ArrayList<>();
+    for( byte[] record : queue.take( max, 0, TimeUnit.MILLISECONDS ) ) {
+      result.add( new String( record, StandardCharsets.UTF_8 ) );
+    }
+    return result;
+  }
+
+  private int segmentFiles() {
+    return folder.getRoot().listFiles( ( dir, name ) -> name.endsWith( ".seg" ) ).length;
+  }
+
+  private static byte[] bytes( String value ) {
+    return value.getBytes( StandardCharsets.UTF_8 );
+  }
+}
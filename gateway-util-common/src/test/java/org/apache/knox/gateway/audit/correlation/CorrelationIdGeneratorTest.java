@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.knox.gateway.audit.correlation;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class CorrelationIdGeneratorTest {
+
+  @Test
+  public void testTimeOrderedUuidFormat() {
+    TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator();
+    long before = System.currentTimeMillis();
+    String id = generator.generate();
+    long after = System.currentTimeMillis();
+
+    UUID uuid = UUID.fromString( id );
+    assertThat( uuid.toString(), is( id ) );
+    assertThat( uuid.version(), is( 7 ) );
+    assertThat( uuid.variant(), is( 2 ) );
+    long millis = uuid.getMostSignificantBits() >>> 16;
+    assertThat( millis >= before && millis <= after, is( true ) );
+
+    assertThat( TimeOrderedUuidGenerator.format( 0x0123456789abcdefL, 0xfedcba9876543210L ),
+        is( "01234567-89ab-cdef-fedc-ba9876543210" ) );
+  }
+
+  @Test
+  public void testTimeOrderedUuidsSortByTime() throws Exception {
+    TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator();
+    String first = generator.generate();
+    Thread.sleep( 2 );
+    String second = generator.generate();
+    assertThat( first.compareTo( second ) < 0, is( true ) );
+  }
+
+  @Test
+  public void testUlidFormat() {
+    /* the timestamp of the example in the ULID specification */
+    String ulid = UlidGenerator.format( 1469918176385L, 0, 0L );
+    assertThat( ulid, is( "01ARYZ6S410000000000000000" ) );
+    assertThat( UlidGenerator.format( 0L, 0xffff, -1L ), is( "0000000000ZZZZZZZZZZZZZZZZ" ) );
+    assertThat( UlidGenerator.format( 0L, 0x1, 0L ), is( "0000000000000G000000000000" ) );
+
+    String id = new UlidGenerator().generate();
+    assertThat( id.length(), is( 26 ) );
+    assertThat( id.matches( "[0-9A-HJKMNP-TV-Z]{26}" ), is( true ) );
+  }
+
+  @Test
+  public void testIdsAreUnique() {
+    Set<String> ids = new HashSet<>();
+    TimeOrderedUuidGenerator uuids = new TimeOrderedUuidGenerator();
+    UlidGenerator ulids = new UlidGenerator();
+    for( int i = 0; i < 10000; i++ ) {
+      assertThat( ids.add( uuids.generate() ), is( true ) );
+      assertThat( ids.add( ulids.generate() ), is( true ) );
+    }
+  }
+}